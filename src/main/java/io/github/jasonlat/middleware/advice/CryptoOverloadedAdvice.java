@@ -0,0 +1,30 @@
+package io.github.jasonlat.middleware.advice;
+
+import io.github.jasonlat.middleware.domain.model.entity.Response;
+import io.github.jasonlat.middleware.exception.ServiceUnavailableException;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * 加解密过载处理
+ * 以最高优先级将 {@link ServiceUnavailableException}（加解密过载、用户数据服务不可用等）转换为 503 与 Retry-After，
+ * 错误码取自异常，避免被业务的兜底异常处理器吞掉
+ *
+ * @author jasonlat
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RestControllerAdvice
+public final class CryptoOverloadedAdvice {
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<Response<Void>> handleServiceUnavailable(ServiceUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new Response.Builder<Void>().code(e.getErrorCode()).info(e.getMessage()).build());
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.jasonlat.middleware.advice;
+
+import io.github.jasonlat.middleware.domain.model.entity.Response;
+import io.github.jasonlat.middleware.exception.IdempotencyKeyMismatchException;
+import io.github.jasonlat.middleware.interceptor.IdempotencyInterceptor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 幂等回放与冲突处理
+ * 以最高优先级写回保存的响应，并将 {@link IdempotencyKeyMismatchException} 转换为 422，避免被业务的兜底异常处理器吞掉
+ *
+ * @author jasonlat
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RestControllerAdvice
+public final class IdempotentReplayAdvice {
+
+    private final IdempotencyInterceptor idempotencyInterceptor;
+
+    public IdempotentReplayAdvice(IdempotencyInterceptor idempotencyInterceptor) {
+        this.idempotencyInterceptor = idempotencyInterceptor;
+    }
+
+    @ExceptionHandler(IdempotentReplayException.class)
+    public void handleReplay(IdempotentReplayException e, HttpServletResponse response) throws IOException {
+        idempotencyInterceptor.replay(response, e.getResponse(), e.getAnnotation(), e.getRequestId());
+    }
+
+    @ExceptionHandler(IdempotencyKeyMismatchException.class)
+    public ResponseEntity<Response<Void>> handleMismatch(IdempotencyKeyMismatchException e) {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(new Response.Builder<Void>().code(e.getErrorCode()).info(e.getMessage()).build());
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.jasonlat.middleware.advice;
+
+import io.github.jasonlat.middleware.annotations.uniquerequest.UniqueRequestProtection;
+import io.github.jasonlat.middleware.cache.idempotency.StoredResponse;
+
+/**
+ * 请求体读取之后才能确定需要回放时，用于跳过业务方法，由 {@link IdempotentReplayAdvice} 写回保存的响应
+ *
+ * @author jasonlat
+ */
+final class IdempotentReplayException extends RuntimeException {
+
+    private final transient StoredResponse response;
+    private final transient UniqueRequestProtection annotation;
+    private final String requestId;
+
+    IdempotentReplayException(StoredResponse response, UniqueRequestProtection annotation, String requestId) {
+        super("Idempotent request replayed - RequestID: " + requestId, null, false, false);
+        this.response = response;
+        this.annotation = annotation;
+        this.requestId = requestId;
+    }
+
+    StoredResponse getResponse() {
+        return response;
+    }
+
+    UniqueRequestProtection getAnnotation() {
+        return annotation;
+    }
+
+    String getRequestId() {
+        return requestId;
+    }
+}
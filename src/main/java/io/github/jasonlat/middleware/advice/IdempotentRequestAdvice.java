@@ -0,0 +1,191 @@
+package io.github.jasonlat.middleware.advice;
+
+import io.github.jasonlat.middleware.annotations.uniquerequest.UniqueRequestProtection;
+import io.github.jasonlat.middleware.cache.idempotency.StoredResponse;
+import io.github.jasonlat.middleware.domain.model.entity.DecryptHttpInputMessage;
+import io.github.jasonlat.middleware.interceptor.IdempotencyInterceptor;
+import lombok.NonNull;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 幂等请求登记切面
+ * 在请求体读取（解密、验签）之后登记幂等请求：此时上下文中已有认证用户，回放也不会发生在认证之前。
+ * 请求体摘要取解密后的明文，客户端重新加密同一请求重试时摘要不变
+ *
+ * @author jasonlat
+ */
+@ControllerAdvice
+public final class IdempotentRequestAdvice implements RequestBodyAdvice {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final IdempotencyInterceptor idempotencyInterceptor;
+    private final HttpServletRequest request;
+
+    public IdempotentRequestAdvice(IdempotencyInterceptor idempotencyInterceptor, HttpServletRequest request) {
+        this.idempotencyInterceptor = idempotencyInterceptor;
+        this.request = request;
+    }
+
+    @Override
+    public boolean supports(@NonNull MethodParameter methodParameter, @NonNull Type targetType, @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+        Object pending = request.getAttribute(IdempotencyInterceptor.IDEMPOTENCY_PENDING_ATTRIBUTE);
+        return pending != null && pending.equals(methodParameter.getMethod());
+    }
+
+    @Override
+    @NonNull
+    public HttpInputMessage beforeBodyRead(@NonNull HttpInputMessage inputMessage, @NonNull MethodParameter parameter,
+                                           @NonNull Type targetType, @NonNull Class<? extends HttpMessageConverter<?>> converterType) throws IOException {
+        return new DigestingHttpInputMessage(inputMessage);
+    }
+
+    @Override
+    @NonNull
+    public Object afterBodyRead(@NonNull Object body, @NonNull HttpInputMessage inputMessage, @NonNull MethodParameter parameter,
+                                @NonNull Type targetType, @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+        acquire(parameter, requestHash(inputMessage));
+        return body;
+    }
+
+    @Override
+    public Object handleEmptyBody(Object body, @NonNull HttpInputMessage inputMessage, @NonNull MethodParameter parameter,
+                                  @NonNull Type targetType, @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+        acquire(parameter, sha256().digest(EMPTY));
+        return body;
+    }
+
+    private void acquire(MethodParameter parameter, byte[] requestHash) {
+        Method method = parameter.getMethod();
+        request.removeAttribute(IdempotencyInterceptor.IDEMPOTENCY_PENDING_ATTRIBUTE);
+        StoredResponse stored;
+        try {
+            stored = idempotencyInterceptor.acquire(request, method, requestHash);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original idempotent request", e);
+        }
+        if (stored != null) {
+            UniqueRequestProtection annotation = idempotencyInterceptor.getAnnotation(method);
+            throw new IdempotentReplayException(stored, annotation, request.getHeader(annotation.requestHeaderKey()));
+        }
+    }
+
+    /**
+     * 解密切面在本切面之前执行时，读取到的是解密后的消息，直接取其明文；否则取流经本切面的字节
+     */
+    private static byte[] requestHash(HttpInputMessage inputMessage) {
+        byte[] decryptedBody = decryptedBody(inputMessage);
+        if (decryptedBody != null) {
+            return sha256().digest(decryptedBody);
+        }
+        if (inputMessage instanceof DigestingHttpInputMessage) {
+            return ((DigestingHttpInputMessage) inputMessage).digest();
+        }
+        return sha256().digest(EMPTY);
+    }
+
+    /**
+     * 取解密后的明文，与本切面的执行先后无关
+     *
+     * @param inputMessage 传给消息转换器的输入消息
+     * @return 解密后的明文，请求未经解密切面时为 null
+     */
+    static byte[] decryptedBody(HttpInputMessage inputMessage) {
+        if (inputMessage instanceof DigestingHttpInputMessage) {
+            inputMessage = ((DigestingHttpInputMessage) inputMessage).delegate;
+        }
+        return inputMessage instanceof DecryptHttpInputMessage ? ((DecryptHttpInputMessage) inputMessage).getDecryptedBody() : null;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 边读边计算摘要，不缓存请求体
+     */
+    private static final class DigestingHttpInputMessage implements HttpInputMessage {
+
+        private final HttpInputMessage delegate;
+        private final MessageDigest digest = sha256();
+        private InputStream body;
+
+        private DigestingHttpInputMessage(HttpInputMessage delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        @NonNull
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new FilterInputStream(delegate.getBody()) {
+                    @Override
+                    public int read() throws IOException {
+                        int b = super.read();
+                        if (b >= 0) {
+                            digest.update((byte) b);
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(@NonNull byte[] bytes, int offset, int length) throws IOException {
+                        int read = super.read(bytes, offset, length);
+                        if (read > 0) {
+                            digest.update(bytes, offset, read);
+                        }
+                        return read;
+                    }
+
+                    @Override
+                    public boolean markSupported() {
+                        return false;
+                    }
+                };
+            }
+            return body;
+        }
+
+        @Override
+        @NonNull
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        /**
+         * 读完转换器未读取的剩余字节后返回摘要
+         */
+        private byte[] digest() {
+            if (body != null) {
+                byte[] buffer = new byte[4096];
+                try {
+                    while (body.read(buffer, 0, buffer.length) >= 0) {
+                        // 仅计入摘要
+                    }
+                } catch (IOException e) {
+                    // 请求体已被转换器完整读取或连接关闭，按已读部分计算
+                }
+            }
+            return digest.digest();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.jasonlat.middleware.advice;
+
+import io.github.jasonlat.middleware.cache.idempotency.IdempotencyStore;
+import io.github.jasonlat.middleware.interceptor.CapturingResponseWrapper;
+import io.github.jasonlat.middleware.interceptor.IdempotencyInterceptor;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.util.WebUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 幂等响应捕获切面
+ * 以最低优先级执行，即在 {@link RequestEncryptionAdvice} 之后，此时开始记录消息转换器实际写出的字节（加密后的最终响应），
+ * 响应由 {@link IdempotencyInterceptor#afterCompletion} 保存；
+ * 只保存业务方法本身的返回值，异常处理器的响应不保存
+ *
+ * @author jasonlat
+ */
+@Order(Ordered.LOWEST_PRECEDENCE)
+@RestControllerAdvice
+public final class IdempotentResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotentResponseAdvice.class);
+
+    private final IdempotencyStore idempotencyStore;
+    private final HttpServletRequest request;
+
+    public IdempotentResponseAdvice(IdempotencyStore idempotencyStore, HttpServletRequest request) {
+        this.idempotencyStore = idempotencyStore;
+        this.request = request;
+    }
+
+    @Override
+    public boolean supports(@NonNull MethodParameter returnType, @NonNull Class converterType) {
+        Object method = request.getAttribute(IdempotencyInterceptor.IDEMPOTENCY_METHOD_ATTRIBUTE);
+        return method != null && method.equals(returnType.getMethod())
+                && request.getAttribute(IdempotencyInterceptor.IDEMPOTENCY_KEY_ATTRIBUTE) != null;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, @NonNull MethodParameter returnType, @NonNull MediaType selectedContentType, @NonNull Class selectedConverterType, @NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response) {
+        if (!(response instanceof ServletServerHttpResponse)) {
+            return body;
+        }
+        CapturingResponseWrapper capture = WebUtils.getNativeResponse(((ServletServerHttpResponse) response).getServletResponse(),
+                CapturingResponseWrapper.class);
+        if (capture == null) {
+            // 未注册捕获过滤器，不保存响应，afterCompletion 会释放登记
+            logger.debug("The idempotent response capture filter is not registered, the response will not be stored");
+            return body;
+        }
+        capture.startCapture(idempotencyStore.getMaxResponseBytes(), copyHeaders(response.getHeaders()));
+        return body;
+    }
+
+    /**
+     * 保存切面链中设置的响应头（如加密状态头），长度与类型头由回放时重新设置
+     */
+    private static Map<String, List<String>> copyHeaders(HttpHeaders headers) {
+        Map<String, List<String>> copy = new LinkedHashMap<>();
+        headers.forEach((name, values) -> {
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) && !HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)
+                    && !HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name)) {
+                copy.put(name, new ArrayList<>(values));
+            }
+        });
+        return copy;
+    }
+}
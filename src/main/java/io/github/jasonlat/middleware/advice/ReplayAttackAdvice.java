@@ -1,11 +1,25 @@
 package io.github.jasonlat.middleware.advice;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONException;
+import com.alibaba.fastjson2.JSONObject;
+import io.github.jasonlat.middleware.annotations.decrypt.RequestDecryption;
 import io.github.jasonlat.middleware.annotations.replayattack.IgnoreReplayAttack;
 import io.github.jasonlat.middleware.annotations.replayattack.ReplayAttackProtection;
+import io.github.jasonlat.middleware.cache.nonce.NonceKey;
+import io.github.jasonlat.middleware.cache.nonce.NonceStore;
+import io.github.jasonlat.middleware.cache.nonce.NonceStoreFactory;
+import io.github.jasonlat.middleware.cache.nonce.ProtectionShardResolver;
+import io.github.jasonlat.middleware.cache.nonce.SequenceWindowStore;
 import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.context.ClientIpResolver;
+import io.github.jasonlat.middleware.context.EccContext;
+import io.github.jasonlat.middleware.context.EccContextHolder;
+import io.github.jasonlat.middleware.domain.model.valobj.EccDecryptType;
+import io.github.jasonlat.middleware.domain.model.valobj.NonceStoreType;
+import io.github.jasonlat.middleware.domain.model.valobj.ReplayProtectionMode;
 import io.github.jasonlat.middleware.exception.ReplayProtectionException;
+import io.github.jasonlat.middleware.util.TimestampParser;
 import lombok.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,9 +36,12 @@ import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdvice;
 import javax.servlet.http.HttpServletRequest;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static io.github.jasonlat.middleware.domain.model.valobj.EccConstants.ANONYMOUS_USER_ID;
 
 /**
  * 重放攻击保护切面
@@ -37,28 +54,32 @@ public final class ReplayAttackAdvice implements RequestBodyAdvice {
 
     private static final Logger logger = LoggerFactory.getLogger(ReplayAttackAdvice.class);
 
-    private static final String COMMA = ",";
+    private static final String STORE_NAME = "replay";
 
     private final EccAutoConfigProperties configProperties;
-    private final Cache<String, Long> timestampCache;
+    /**
+     * 时间戳 nonce 存储，用于防止重放攻击
+     * Key: prefix + timestamp + clientIp，检查与写入为原子操作，按注解 storeType 选择
+     */
+    private final NonceStoreFactory nonceStoreFactory;
+
+    /**
+     * 序列号模式窗口存储，Key: prefix + 已认证用户
+     */
+    private final SequenceWindowStore sequenceStore;
+    private final ProtectionShardResolver shardResolver;
+    private final ClientIpResolver clientIpResolver;
     private final HttpServletRequest request;
-    public ReplayAttackAdvice(EccAutoConfigProperties configProperties, HttpServletRequest request) {
+    public ReplayAttackAdvice(EccAutoConfigProperties configProperties, HttpServletRequest request, NonceStoreFactory nonceStoreFactory,
+                              ProtectionShardResolver shardResolver, ClientIpResolver clientIpResolver) {
         this.configProperties = configProperties;
-
-        timestampCache = CacheBuilder.newBuilder()
-                .maximumSize(configProperties.getReplayAttackCacheMaxSize())  // 最大缓存条目数
-                .expireAfterWrite(configProperties.getReplayAttackCacheExpireMinutes(), TimeUnit.MINUTES)  // 写入后 x 分钟过期
-                .recordStats()  // 启用统计功能
-                .build();
+        this.nonceStoreFactory = nonceStoreFactory;
+        this.sequenceStore = nonceStoreFactory.getSequenceStore(STORE_NAME);
+        this.shardResolver = shardResolver;
+        this.clientIpResolver = clientIpResolver;
         this.request = request;
     }
 
-    /**
-     * 时间戳缓存，用于防止重放攻击
-     * Key: timestamp + clientIp, Value: 处理时间
-     * 使用Guava缓存，带有时效性
-     */
-
 
 
     @Override
@@ -116,16 +137,27 @@ public final class ReplayAttackAdvice implements RequestBodyAdvice {
         return inputMessage;
     }
 
+    /**
+     * 序列号窗口在解密验签之后校验：此时上下文中的用户已由签名认证，序列号取自解密后的明文
+     */
     @Override
     @NonNull
     public Object afterBodyRead(@NonNull Object body, @NonNull HttpInputMessage inputMessage, @NonNull MethodParameter parameter,
                                 @NonNull Type targetType, @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+        Method method = parameter.getMethod();
+        if (method != null) {
+            performSequenceCheck(method, inputMessage);
+        }
         return body;
     }
 
     @Override
     public Object handleEmptyBody(Object body, @NonNull HttpInputMessage inputMessage, @NonNull MethodParameter parameter,
                                   @NonNull Type targetType, @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+        Method method = parameter.getMethod();
+        if (method != null) {
+            performSequenceCheck(method, inputMessage);
+        }
         return body;
     }
 
@@ -146,6 +178,14 @@ public final class ReplayAttackAdvice implements RequestBodyAdvice {
         return AnnotationUtils.findAnnotation(method.getDeclaringClass(), ReplayAttackProtection.class);
     }
 
+    private RequestDecryption getDecryptionAnnotation(Method method) {
+        RequestDecryption methodAnnotation = AnnotationUtils.findAnnotation(method, RequestDecryption.class);
+        if (methodAnnotation != null) {
+            return methodAnnotation;
+        }
+        return AnnotationUtils.findAnnotation(method.getDeclaringClass(), RequestDecryption.class);
+    }
+
     private IgnoreReplayAttack getIgnoreAnnotation(Method method) {
         // Priority acquisition of method-level ignore annotations
         return AnnotationUtils.findAnnotation(method, IgnoreReplayAttack.class);
@@ -154,10 +194,25 @@ public final class ReplayAttackAdvice implements RequestBodyAdvice {
      * @return 获取缓存统计信息
      */
     public String getCacheStats() {
-        return String.format("Replay Attack Cache Stats - Size: %d, Hit Rate: %.2f%%, Number of Expulsions: %d",
-                timestampCache.size(),
-                timestampCache.stats().hitRate() * 100,
-                timestampCache.stats().evictionCount());
+        String storeStats = nonceStoreFactory.getStores(STORE_NAME).entrySet().stream()
+                .map(entry -> "Replay Attack Cache Stats [" + entry.getKey() + "] - " + entry.getValue().getStats())
+                .collect(Collectors.joining("; "));
+        String sequenceStats = "Replay Attack Sequence Stats - " + sequenceStore.getStats();
+        return storeStats.isEmpty() ? sequenceStats : storeStats + "; " + sequenceStats;
+    }
+
+    /**
+     * @return 各存储（分片）的统计信息，Key 为存储键
+     */
+    public Map<String, Object> getStoreStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        nonceStoreFactory.getStores(STORE_NAME).forEach((key, store) -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("size", store.size());
+            stats.put("stats", store.getStats());
+            result.put(key, stats);
+        });
+        return result;
     }
 
     /**
@@ -165,15 +220,16 @@ public final class ReplayAttackAdvice implements RequestBodyAdvice {
      * @return 获取缓存大小
      */
     public long getCacheSize() {
-        return timestampCache.size();
+        return nonceStoreFactory.getStores(STORE_NAME).values().stream().mapToLong(NonceStore::size).sum();
     }
 
     /**
      * 清空所有缓存
      */
     public void clearAll() {
-        long size = timestampCache.size();
-        timestampCache.invalidateAll();
+        long size = getCacheSize();
+        nonceStoreFactory.getStores(STORE_NAME).values().forEach(NonceStore::clear);
+        sequenceStore.clear();
         logger.info("Cleared all replay attack caches - Cleaned quantity: {}", size);
     }
 
@@ -217,12 +273,18 @@ public final class ReplayAttackAdvice implements RequestBodyAdvice {
         }
 
         // Validate timestamps
-        validateTimestamp(timestamp, annotation, request);
+        if (annotation.mode() == ReplayProtectionMode.SEQUENCE) {
+            // 序列号窗口要等解密验签得到用户后校验，这里只做时效与接口配置检查
+            checkTimestampFreshness(timestamp, annotation);
+            requireAuthenticatedEndpoint(method);
+        } else {
+            validateTimestamp(timestamp, annotation, request, method);
+        }
 
         // Log logs
         if (annotation.enableLog()) {
             logger.info("The replay attack detection passes - Method: {}, Timestamp: {}, IP: {}",
-                    method.getName(), timestamp, getClientIpAddress(request));
+                    method.getName(), timestamp, clientIpResolver.resolve(request));
         }
     }
 
@@ -232,59 +294,169 @@ public final class ReplayAttackAdvice implements RequestBodyAdvice {
      * @param timestamp 客户端时间戳
      * @param annotation 注解配置
      * @param request HTTP请求
+     * @param method 方法，用于确定存储分片
      */
-    private void validateTimestamp(String timestamp, ReplayAttackProtection annotation, HttpServletRequest request) {
-        try {
-            // Parse timestamps in ISO 8601 format
-            Instant clientTime = Instant.parse(timestamp);
-            Instant serverTime = Instant.now();
-
-            // Calculate the time difference
-            long timeDiff = Math.abs(ChronoUnit.MILLIS.between(clientTime, serverTime));
-
-            // Check the time window
-            if (timeDiff > annotation.timeWindow()) {
-                throw new ReplayProtectionException(
-                        String.format("%s - TimeDifference： %d ms， AllowWindow： %d ms",
-                                annotation.message(), timeDiff, annotation.timeWindow()),
-                        "TIMESTAMP_EXPIRED",
-                        null,
-                        timestamp
-                );
-            }
+    private void validateTimestamp(String timestamp, ReplayAttackProtection annotation, HttpServletRequest request, Method method) {
+        // Check the freshness of the timestamp
+        long clientMillis = checkTimestampFreshness(timestamp, annotation);
+
+        // Check if the timestamp has been used (simple replay detection)
+        // Key: high = 时间戳毫秒，low = hash(prefix, clientIp)，不拼接字符串；哈希碰撞只会误拒，不会误放
+        String clientIp = clientIpResolver.resolve(request);
+        long scopeHash = NonceKey.hash(annotation.cacheKeyPrefix(), clientIp);
+
+        // Atomically record the timestamp, concurrent duplicates cannot both pass
+        long windowMillis = getRetentionMillis(annotation);
+        String shard = shardResolver.resolve(method, annotation.shard());
+        if (!shardResolver.tryAcquireTenantQuota(request, shard, windowMillis)) {
+            throw new ReplayProtectionException(
+                    "The tenant quota of the replay protection store is exhausted",
+                    "TENANT_QUOTA_EXCEEDED",
+                    null,
+                    timestamp
+            );
+        }
+        NonceStore timestampStore = nonceStoreFactory.getOrCreate(STORE_NAME, shard, annotation.storeType(), windowMillis,
+                shardResolver.maximumSize(shard, configProperties.getReplayAttackCacheMaxSize()));
+        if (!timestampStore.putIfAbsent(clientMillis, scopeHash, windowMillis)) {
+            throw new ReplayProtectionException(
+                    "Replay attack detected - the same timestamp has been used",
+                    "REPLAY_ATTACK_DETECTED",
+                    null,
+                    timestamp
+            );
+        }
+    }
 
-            // Check future time (to prevent clock deviation attacks)
-            if (annotation.checkFutureTime() &&
-                    clientTime.isAfter(serverTime.plus(annotation.futureTimeTolerance(), ChronoUnit.SECONDS))) {
-                throw new ReplayProtectionException(
-                        "The request timestamp cannot be in the future",
-                        "FUTURE_TIMESTAMP",
-                        null,
-                        timestamp
-                );
-            }
+    /**
+     * 序列号模式要求接口由签名认证用户：REGISTER 的公钥来自请求本身，不能作为身份
+     *
+     * @param method 方法
+     */
+    private void requireAuthenticatedEndpoint(Method method) {
+        RequestDecryption decryption = getDecryptionAnnotation(method);
+        if (decryption == null || decryption.requestType() == EccDecryptType.REGISTER) {
+            throw new ReplayProtectionException(
+                    "The sequence mode requires an endpoint with signature verified request decryption",
+                    "SEQUENCE_IDENTITY_REQUIRED"
+            );
+        }
+    }
 
-            // Check if the timestamp has been used (simple replay detection)
-            String clientIp = getClientIpAddress(request);
-            String cacheKey = annotation.cacheKeyPrefix() + ":" + timestamp + ":" + clientIp;
-
-            Long existingTime = timestampCache.getIfPresent(cacheKey);
-            if (existingTime != null) {
-                throw new ReplayProtectionException(
-                        "Replay attack detected - the same timestamp has been used",
-                        "REPLAY_ATTACK_DETECTED",
-                        null,
-                        timestamp
-                );
-            }
+    /**
+     * 序列号模式检测，在请求体解密验签之后执行
+     *
+     * @param method 方法
+     * @param inputMessage 传给消息转换器的输入消息
+     */
+    private void performSequenceCheck(Method method, HttpInputMessage inputMessage) {
+        ReplayAttackProtection annotation = getAnnotation(method);
+        if (annotation == null || annotation.mode() != ReplayProtectionMode.SEQUENCE) {
+            return;
+        }
+        HttpServletRequest request = getCurrentRequest();
+        if (request == null) {
+            logger.warn("The HTTP request object cannot be obtained, and the replay attack detection is skipped");
+            return;
+        }
+        validateSequence(request.getHeader(annotation.requestHeaderKey()), annotation,
+                IdempotentRequestAdvice.decryptedBody(inputMessage));
 
-            // Add the timestamp to the cache
-            timestampCache.put(cacheKey, System.currentTimeMillis());
+        if (annotation.enableLog()) {
+            logger.info("The sequence replay detection passes - Method: {}, User: {}", method.getName(), EccContextHolder.getContext().getUser());
+        }
+    }
+
+    /**
+     * 验证序列号（滑动窗口重放攻击检测）
+     * 窗口与解密验签得到的用户绑定，序列号取自同一份已验签的明文，都不使用客户端可随意填写的请求头，
+     * 他人无法借用户标识推进或占用该用户的窗口，也无法改写截获请求的序列号后重放。
+     * 时间戳只校验时效不做记录，窗口过期后被逐出的客户端无法再用旧请求重放
+     *
+     * @param timestamp 客户端时间戳
+     * @param annotation 注解配置
+     * @param decryptedBody 解密后的明文，请求未经解密时为 null
+     */
+    private void validateSequence(String timestamp, ReplayAttackProtection annotation, byte[] decryptedBody) {
+        EccContext context = EccContextHolder.getContext();
+        String user = context != null ? context.getUser() : null;
+        if (!StringUtils.hasText(user) || ANONYMOUS_USER_ID.VALUE().equals(user)) {
+            throw new ReplayProtectionException(
+                    "The sequence mode requires an authenticated user",
+                    "SEQUENCE_IDENTITY_REQUIRED",
+                    null,
+                    timestamp
+            );
+        }
+        long sequence = readSequence(decryptedBody, annotation.sequenceKey(), timestamp);
+
+        SequenceWindowStore.Result result = sequenceStore.accept(annotation.cacheKeyPrefix() + ":" + user, sequence,
+                annotation.sequenceWindowSize());
+        if (result == SequenceWindowStore.Result.REPLAYED) {
+            throw new ReplayProtectionException(
+                    "Replay attack detected - the same sequence has been used: " + sequence,
+                    "REPLAY_ATTACK_DETECTED",
+                    null,
+                    timestamp
+            );
+        }
+        if (result == SequenceWindowStore.Result.OUTDATED) {
+            throw new ReplayProtectionException(
+                    "The sequence is outside the replay window: " + sequence,
+                    "SEQUENCE_OUTDATED",
+                    null,
+                    timestamp
+            );
+        }
+    }
 
-        } catch (Exception e) {
-            if (e instanceof ReplayProtectionException) {
-                throw e;
+    /**
+     * 从解密后的明文 JSON 中读取序列号，数字或数字字符串均可
+     *
+     * @param decryptedBody 解密后的明文
+     * @param sequenceKey 序列号在明文 JSON 中的Key
+     * @param timestamp 客户端时间戳，仅用于异常信息
+     * @return 序列号
+     */
+    private static long readSequence(byte[] decryptedBody, String sequenceKey, String timestamp) {
+        Object value = null;
+        if (decryptedBody != null && decryptedBody.length > 0) {
+            try {
+                JSONObject jsonObject = JSON.parseObject(decryptedBody);
+                value = jsonObject != null ? jsonObject.get(sequenceKey) : null;
+            } catch (JSONException e) {
+                // 明文不是 JSON 对象，按未携带序列号处理
             }
+        }
+        if (value == null) {
+            throw new ReplayProtectionException(
+                    "The sequence is missing in the decrypted request body: " + sequenceKey,
+                    "MISSING_SEQUENCE"
+            );
+        }
+        try {
+            return Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new ReplayProtectionException(
+                    "Invalid sequence formatting: " + value,
+                    "INVALID_SEQUENCE_FORMAT",
+                    null,
+                    timestamp
+            );
+        }
+    }
+
+    /**
+     * 校验时间戳时效（时间窗口与未来时间）
+     * 直接解析为 epoch 毫秒并与 System.currentTimeMillis() 比较，正常路径不分配对象
+     *
+     * @param timestamp 客户端时间戳
+     * @param annotation 注解配置
+     * @return 客户端时间戳（epoch 毫秒）
+     */
+    private long checkTimestampFreshness(String timestamp, ReplayAttackProtection annotation) {
+        long clientMillis = TimestampParser.parse(timestamp, annotation.timestampFormat());
+        if (clientMillis == TimestampParser.INVALID) {
             throw new ReplayProtectionException(
                     "Invalid timestamp formatting: " + timestamp,
                     "INVALID_TIMESTAMP_FORMAT",
@@ -292,34 +464,52 @@ public final class ReplayAttackAdvice implements RequestBodyAdvice {
                     timestamp
             );
         }
+        long serverMillis = System.currentTimeMillis();
+
+        // Calculate the time difference
+        long timeDiff = Math.abs(serverMillis - clientMillis);
+
+        // Check the time window
+        if (timeDiff > annotation.timeWindow()) {
+            throw new ReplayProtectionException(
+                    String.format("%s - TimeDifference： %d ms， AllowWindow： %d ms",
+                            annotation.message(), timeDiff, annotation.timeWindow()),
+                    "TIMESTAMP_EXPIRED",
+                    null,
+                    timestamp
+            );
+        }
+
+        // Check future time (to prevent clock deviation attacks)
+        if (annotation.checkFutureTime() &&
+                clientMillis > serverMillis + TimeUnit.SECONDS.toMillis(annotation.futureTimeTolerance())) {
+            throw new ReplayProtectionException(
+                    "The request timestamp cannot be in the future",
+                    "FUTURE_TIMESTAMP",
+                    null,
+                    timestamp
+            );
+        }
+        return clientMillis;
     }
 
 
 
     /**
-     * 获取客户端真实IP地址
+     * 计算时间戳需要保留的时长
+     * LOCAL 沿用配置的过期时间；TIMING_WHEEL 与注解窗口对齐：
+     * 合法时间戳最晚为 now + 未来容忍度，它在 timestamp + timeWindow 之前都可能被重放
      *
-     * @param request HTTP请求
-     * @return 客户端IP地址
+     * @param annotation 注解配置
+     * @return 保留时长（毫秒）
      */
-    private String getClientIpAddress(HttpServletRequest request) {
-        String[] headerNames = {
-                "X-Forwarded-For",
-                "X-Real-IP",
-                "Proxy-Client-IP",
-                "WL-Proxy-Client-IP",
-                "HTTP_CLIENT_IP",
-                "HTTP_X_FORWARDED_FOR"
-        };
-
-        for (String headerName : headerNames) {
-            String ip = request.getHeader(headerName);
-            if (StringUtils.hasText(ip) && !"unknown".equalsIgnoreCase(ip)) {
-                // Take the first IP (there may be multiple IPs separated by a comma)
-                return ip.split(COMMA)[0].trim();
-            }
+    private long getRetentionMillis(ReplayAttackProtection annotation) {
+        if (annotation.storeType() == NonceStoreType.LOCAL) {
+            return TimeUnit.MINUTES.toMillis(configProperties.getReplayAttackCacheExpireMinutes());
         }
-
-        return request.getRemoteAddr();
+        long futureMillis = annotation.checkFutureTime()
+                ? Math.min(TimeUnit.SECONDS.toMillis(annotation.futureTimeTolerance()), annotation.timeWindow())
+                : annotation.timeWindow();
+        return annotation.timeWindow() + futureMillis;
     }
 }
\ No newline at end of file
@@ -7,9 +7,12 @@ import io.github.jasonlat.middleware.annotations.decrypt.RequestDecryption;
 import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
 import io.github.jasonlat.middleware.domain.model.entity.DecryptHttpInputMessage;
 import io.github.jasonlat.middleware.domain.model.entity.EccSecurityData;
+import io.github.jasonlat.middleware.domain.service.CryptoBulkhead;
+import io.github.jasonlat.middleware.domain.service.CryptoLoadMonitor;
 import io.github.jasonlat.middleware.domain.service.engine.HandelDecryptEngine;
 import io.github.jasonlat.middleware.domain.service.engine.factory.DefaultHandelEncryptFactory;
 import io.github.jasonlat.middleware.exception.ReplayProtectionException;
+import io.github.jasonlat.middleware.exception.ServiceUnavailableException;
 import lombok.NonNull;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
@@ -26,7 +29,6 @@ import javax.servlet.http.HttpServletRequest;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
@@ -47,10 +49,15 @@ public final class RequestDecryptionAdvice implements RequestBodyAdvice {
     private final EccAutoConfigProperties configProperties;
     private final HttpServletRequest request;
     private final DefaultHandelEncryptFactory handelEncryptFactory;
-    public RequestDecryptionAdvice(EccAutoConfigProperties configProperties, HttpServletRequest request, DefaultHandelEncryptFactory handelEncryptFactory) {
+    private final CryptoLoadMonitor loadMonitor;
+    private final CryptoBulkhead cryptoBulkhead;
+    public RequestDecryptionAdvice(EccAutoConfigProperties configProperties, HttpServletRequest request, DefaultHandelEncryptFactory handelEncryptFactory,
+                                   CryptoLoadMonitor loadMonitor, CryptoBulkhead cryptoBulkhead) {
         this.configProperties = configProperties;
         this.request = request;
         this.handelEncryptFactory = handelEncryptFactory;
+        this.loadMonitor = loadMonitor;
+        this.cryptoBulkhead = cryptoBulkhead;
     }
 
     @Override
@@ -106,10 +113,9 @@ public final class RequestDecryptionAdvice implements RequestBodyAdvice {
             if (annotation != null && annotation.enableLog()) {
                 logger.info("begin_processing_the_request_decryption - Method: {},", method.getName());
                 String decryptBody = processDecryption(bodyString, method);
-                InputStream inputStream = IOUtils.toInputStream(decryptBody, StandardCharsets.UTF_8);
                 // 返回解密后的数据
                 logger.info("end_processing_the_request_decryption - Method: {},", method.getName());
-                return new DecryptHttpInputMessage(inputStream, inputMessage.getHeaders());
+                return new DecryptHttpInputMessage(decryptBody.getBytes(StandardCharsets.UTF_8), inputMessage.getHeaders());
             }
         }
 
@@ -185,7 +191,17 @@ public final class RequestDecryptionAdvice implements RequestBodyAdvice {
             EccSecurityData eccSecurityData = JSON.parseObject(body, EccSecurityData.class);
             // 解密
             HandelDecryptEngine handelDecryptEngine = handelEncryptFactory.getHandelDecrypt(annotation.requestType());
-            String decryptedData = handelDecryptEngine.handelDecrypt(eccSecurityData, annotation);
+            String decryptedData;
+            // 按分组获取并发额度，超时抛出 CryptoOverloadedException
+            CryptoBulkhead.Group bulkheadGroup = cryptoBulkhead.resolve(annotation.bulkhead(), annotation.requestType());
+            cryptoBulkhead.acquire(bulkheadGroup);
+            loadMonitor.enter();
+            try {
+                decryptedData = handelDecryptEngine.handelDecrypt(eccSecurityData, annotation);
+            } finally {
+                loadMonitor.exit();
+                cryptoBulkhead.release(bulkheadGroup);
+            }
 
             // Unzip the process
             if (annotation.enableDecompression()) {
@@ -201,7 +217,13 @@ public final class RequestDecryptionAdvice implements RequestBodyAdvice {
             
             return decryptedData;
             
+        } catch (ServiceUnavailableException e) {
+            // 交给 CryptoOverloadedAdvice 返回 503
+            throw e;
         } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
             logger.error("Request body decryption failed - Method: {}, Error: {}", method.getName(), e.getMessage(), e);
             throw new ReplayProtectionException(
                 annotation.message() + ": " + e.getMessage(),
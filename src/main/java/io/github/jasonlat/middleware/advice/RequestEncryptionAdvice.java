@@ -10,12 +10,15 @@ import io.github.jasonlat.middleware.domain.model.entity.Response;
 import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
 import io.github.jasonlat.middleware.domain.service.ECCSecurityService;
 import io.github.jasonlat.middleware.exception.ReplayProtectionException;
+import io.github.jasonlat.middleware.exception.ServiceUnavailableException;
 //import io.github.jasonlat.middleware.domain.service.EccUserDataService;
 import lombok.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.MethodParameter;
+import org.springframework.core.Ordered;
 import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.MediaType;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
@@ -37,6 +40,7 @@ import java.util.zip.GZIPOutputStream;
  * 
  * @author jasonlat
  */
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
 @RestControllerAdvice
 public final class RequestEncryptionAdvice implements ResponseBodyAdvice<Object> {
 
@@ -182,6 +186,9 @@ public final class RequestEncryptionAdvice implements ResponseBodyAdvice<Object>
             
             return securityData;
             
+        } catch (ServiceUnavailableException e) {
+            // 交给 CryptoOverloadedAdvice 返回 503
+            throw e;
         } catch (Exception e) {
             logger.error("Request body encryption failed - Method: {}, Error: {}", method.getName(), e.getMessage(), e);
             throw new ReplayProtectionException (
@@ -270,6 +277,8 @@ public final class RequestEncryptionAdvice implements ResponseBodyAdvice<Object>
             }
             // encryption
             return eccSecurityService.encrypt(data, currentUserPublicData.getX(), currentUserPublicData.getY());
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Ecc Encryption failed: {}", e.getMessage(), e);
             throw new ReplayProtectionException(
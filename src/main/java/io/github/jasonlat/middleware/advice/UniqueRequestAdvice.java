@@ -1,11 +1,15 @@
 package io.github.jasonlat.middleware.advice;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import io.github.jasonlat.middleware.annotations.uniquerequest.IgnoreUniqueRequest;
 import io.github.jasonlat.middleware.annotations.uniquerequest.UniqueRequestProtection;
+import io.github.jasonlat.middleware.cache.idempotency.IdempotencyStore;
+import io.github.jasonlat.middleware.cache.nonce.NonceStore;
+import io.github.jasonlat.middleware.cache.nonce.NonceStoreFactory;
+import io.github.jasonlat.middleware.cache.nonce.ProtectionShardResolver;
 import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.context.ClientIpResolver;
 import io.github.jasonlat.middleware.domain.model.entity.RequestInfo;
+import io.github.jasonlat.middleware.domain.model.valobj.UniqueRequestMode;
 import io.github.jasonlat.middleware.exception.ReplayProtectionException;
 import lombok.NonNull;
 import org.slf4j.Logger;
@@ -23,7 +27,10 @@ import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdvice;
 import javax.servlet.http.HttpServletRequest;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * 唯一请求保护切面
@@ -37,21 +44,27 @@ public final class UniqueRequestAdvice implements RequestBodyAdvice {
     
     private static final Logger logger = LoggerFactory.getLogger(UniqueRequestAdvice.class);
 
+    private static final String STORE_NAME = "unique";
+
     private final EccAutoConfigProperties configProperties;
-    private final Cache<String, RequestInfo> requestCache;
+    /**
+     * 请求ID nonce 存储，检查与写入为原子操作，用于唯一请求检测
+     */
+    private final NonceStoreFactory nonceStoreFactory;
+    /**
+     * 幂等模式保存的响应，由 IdempotencyInterceptor 写入
+     */
+    private final IdempotencyStore idempotencyStore;
+    private final ProtectionShardResolver shardResolver;
+    private final ClientIpResolver clientIpResolver;
     private final HttpServletRequest request;
-    public UniqueRequestAdvice(EccAutoConfigProperties configProperties, HttpServletRequest request) {
+    public UniqueRequestAdvice(EccAutoConfigProperties configProperties, HttpServletRequest request, NonceStoreFactory nonceStoreFactory,
+                               IdempotencyStore idempotencyStore, ProtectionShardResolver shardResolver, ClientIpResolver clientIpResolver) {
         this.configProperties = configProperties;
-
-        /**
-         * 使用Guava缓存，带有时效性的请求缓存，用于唯一请求检测
-         */
-        requestCache = CacheBuilder.newBuilder()
-                .maximumSize(configProperties.getUniqueRequestMaximumSize())  // Maximum number of cached entries
-                .expireAfterWrite(configProperties.getUniqueRequestExpireMinutes(), TimeUnit.MINUTES)  // Expired 60 minutes after writing
-                .recordStats()  // Enable the statistics feature
-                .build();
-
+        this.nonceStoreFactory = nonceStoreFactory;
+        this.idempotencyStore = idempotencyStore;
+        this.shardResolver = shardResolver;
+        this.clientIpResolver = clientIpResolver;
         this.request = request;
     }
 
@@ -88,7 +101,8 @@ public final class UniqueRequestAdvice implements RequestBodyAdvice {
         
         // 检查方法或类是否有唯一请求保护注解
         UniqueRequestProtection annotation = getAnnotation(method);
-        boolean hasAnnotation = annotation != null;
+        // 幂等模式由 IdempotencyInterceptor 处理
+        boolean hasAnnotation = annotation != null && annotation.mode() == UniqueRequestMode.REJECT;
         
         if (hasAnnotation) {
             logger.debug("Method {} requires a unique request protection detection", method.getName());
@@ -188,7 +202,7 @@ public final class UniqueRequestAdvice implements RequestBodyAdvice {
         RequestInfo requestInfo = createRequestInfo(request, requestId);
         
         // 验证唯一请求
-        validateUniqueRequest(requestInfo, annotation);
+        validateUniqueRequest(requestInfo, annotation, request, method);
         
         // 记录日志
         if (annotation.enableLog()) {
@@ -208,7 +222,7 @@ public final class UniqueRequestAdvice implements RequestBodyAdvice {
         RequestInfo requestInfo = new RequestInfo(requestId, null);
         requestInfo.setMethod(request.getMethod());
         requestInfo.setUri(request.getRequestURI());
-        requestInfo.setClientIp(getClientIpAddress(request));
+        requestInfo.setClientIp(clientIpResolver.resolve(request));
         requestInfo.setUserAgent(request.getHeader("User-Agent"));
         return requestInfo;
     }
@@ -218,68 +232,64 @@ public final class UniqueRequestAdvice implements RequestBodyAdvice {
      * 
      * @param requestInfo 请求信息
      * @param annotation 注解配置
+     * @param request HTTP请求
+     * @param method 方法，用于确定存储分片
      */
-    private void validateUniqueRequest(RequestInfo requestInfo, UniqueRequestProtection annotation) {
+    private void validateUniqueRequest(RequestInfo requestInfo, UniqueRequestProtection annotation, HttpServletRequest request, Method method) {
         String requestId = requestInfo.getRequestId();
-        
-        // 检查请求是否已存在
-        RequestInfo existingRequest = requestCache.getIfPresent(requestId);
-        if (existingRequest != null) {
-            // 严格模式下，不同IP的相同RequestID也会被拒绝
-            if (annotation.strictMode() || 
-                existingRequest.getClientIp().equals(requestInfo.getClientIp())) {
-                
-                throw new ReplayProtectionException(
-                    String.format("%s - RequestID: %s, Original time: %s, originalIP: %s",
-                                 annotation.message(),
-                                 requestId, 
-                                 existingRequest.getServerReceiveTime(),
-                                 existingRequest.getClientIp()),
-                    "DUPLICATE_REQUEST",
-                    requestId,
-                    null
-                );
-            }
+
+        // 严格模式下，不同IP的相同RequestID也会被拒绝；非严格模式以 IP 为作用域区分
+        String scope = annotation.strictMode() ? null : requestInfo.getClientIp();
+        long windowMillis = TimeUnit.MINUTES.toMillis(configProperties.getUniqueRequestExpireMinutes());
+
+        // 原子检查并写入
+        String shard = shardResolver.resolve(method, annotation.shard());
+        if (!shardResolver.tryAcquireTenantQuota(request, shard, windowMillis)) {
+            throw new ReplayProtectionException(
+                "The tenant quota of the unique request store is exhausted",
+                "TENANT_QUOTA_EXCEEDED",
+                requestId,
+                null
+            );
+        }
+        NonceStore requestStore = nonceStoreFactory.getOrCreate(STORE_NAME, shard, annotation.storeType(), windowMillis,
+                shardResolver.maximumSize(shard, configProperties.getUniqueRequestMaximumSize()));
+        if (!requestStore.putIfAbsent(requestId, scope, windowMillis)) {
+            throw new ReplayProtectionException(
+                String.format("%s - RequestID: %s, IP: %s",
+                             annotation.message(),
+                             requestId,
+                             requestInfo.getClientIp()),
+                "DUPLICATE_REQUEST",
+                requestId,
+                null
+            );
         }
-        
-        // 缓存请求信息
-        requestCache.put(requestId, requestInfo);
     }
     
     /**
      * @return 获取缓存统计信息
      */
     public String getCacheStats() {
-        return String.format("缓存统计 - 大小: %d, 命中率: %.2f%%", 
-                requestCache.size(), 
-                requestCache.stats().hitRate() * 100);
+        String storeStats = nonceStoreFactory.getStores(STORE_NAME).entrySet().stream()
+                .map(entry -> "缓存统计 [" + entry.getKey() + "] - " + entry.getValue().getStats())
+                .collect(Collectors.joining("; "));
+        String idempotencyStats = "缓存统计 [idempotency] - " + idempotencyStore.getStats();
+        return storeStats.isEmpty() ? idempotencyStats : storeStats + "; " + idempotencyStats;
     }
-    
+
     /**
-     * 获取客户端真实IP地址
-     * 
-     * @param request HTTP请求
-     * @return 客户端IP地址
+     * @return 各存储（分片）的统计信息，Key 为存储键
      */
-    private String getClientIpAddress(HttpServletRequest request) {
-        String[] headerNames = {
-            "X-Forwarded-For",
-            "X-Real-IP",
-            "Proxy-Client-IP",
-            "WL-Proxy-Client-IP",
-            "HTTP_CLIENT_IP",
-            "HTTP_X_FORWARDED_FOR"
-        };
-        
-        for (String headerName : headerNames) {
-            String ip = request.getHeader(headerName);
-            if (StringUtils.hasText(ip) && !"unknown".equalsIgnoreCase(ip)) {
-                // 取第一个IP（可能有多个IP用逗号分隔）
-                return ip.split(",")[0].trim();
-            }
-        }
-        
-        return request.getRemoteAddr();
+    public Map<String, Object> getStoreStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        nonceStoreFactory.getStores(STORE_NAME).forEach((key, store) -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("size", store.size());
+            stats.put("stats", store.getStats());
+            result.put(key, stats);
+        });
+        return result;
     }
     
     /**
@@ -288,15 +298,16 @@ public final class UniqueRequestAdvice implements RequestBodyAdvice {
      * @return 缓存中的请求数量
      */
     public long getCacheSize() {
-        return requestCache.size();
+        return nonceStoreFactory.getStores(STORE_NAME).values().stream().mapToLong(NonceStore::size).sum() + idempotencyStore.size();
     }
     
     /**
      * 清空所有缓存
      */
     public void clearAll() {
-        long size = requestCache.size();
-        requestCache.invalidateAll();
+        long size = getCacheSize();
+        nonceStoreFactory.getStores(STORE_NAME).values().forEach(NonceStore::clear);
+        idempotencyStore.clear();
         logger.info("已清空所有唯一请求缓存 - 清理数量: {}", size);
     }
 }
\ No newline at end of file
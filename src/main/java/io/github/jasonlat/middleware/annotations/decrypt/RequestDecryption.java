@@ -58,11 +58,13 @@ public @interface RequestDecryption {
      * IDENTIFICATION 表示经过jwt认证的
      * NOT_IDENTIFICATION 没有经过认证的
      * REGISTER 注册请求
+     * SIGNED_NOT_IDENTIFICATION 没有经过认证的，用户名在请求头中并由签名覆盖，先验签后解密
      */
     EccDecryptType requestType() default EccDecryptType.IDENTIFICATION;
 
     /**
      * 当 requestType 是 NOT_IDENTIFICATION 时，需要加密解密需要提供一个用户唯一标识
+     * 当 requestType 是 SIGNED_NOT_IDENTIFICATION 时，明文中若有该字段，必须与请求头中的用户名一致
      * @return 户唯一标识在 json 中的key
      */
     String notIdentUniqueUserKey() default "username";
@@ -78,4 +80,31 @@ public @interface RequestDecryption {
      * @return 注册时，发送过来的用户公钥X在 json 中的key
      */
     String registerPublicYKey() default "userPublicY";
+
+    /**
+     * 当 requestType 是 SIGNED_NOT_IDENTIFICATION 时，用户名所在的请求头
+     * 签名原文为 用户名 + "\n" + 密文
+     * @return 用户名请求头
+     */
+    String signedUserHeader() default "X-Ecc-User";
+
+    /**
+     * 当 requestType 是 IDENTIFICATION 时，是否在加解密线程池中并行验签与解密
+     * 单次请求延迟约为两者中较慢的一个；验签通过后才返回明文，线程池已满时退回顺序执行
+     * @return 是否并行验签与解密
+     */
+    boolean parallelVerify() default false;
+
+    /**
+     * 加解密舱壁分组名（bulkhead.groups 中的 Key），为空时按 requestType 归组
+     * @return 舱壁分组名
+     */
+    String bulkhead() default "";
+
+    /**
+     * 是否启用工作量证明，主要用于 NOT_IDENTIFICATION / SIGNED_NOT_IDENTIFICATION / REGISTER 等调用方身份未知的接口
+     * 解密负载超过 proof-of-work.load-threshold 时，客户端需在 X-PoW 请求头中提交证明，难度随负载上升
+     * @return 是否启用工作量证明
+     */
+    boolean proofOfWork() default false;
 }
\ No newline at end of file
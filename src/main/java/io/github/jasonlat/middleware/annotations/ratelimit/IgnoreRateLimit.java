@@ -0,0 +1,23 @@
+package io.github.jasonlat.middleware.annotations.ratelimit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 忽略准入限流注解
+ * 用于在类级别启用限流时，忽略特定方法的限流
+ *
+ * @author jasonlat
+ * @since 1.0.0
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface IgnoreRateLimit {
+
+    /**
+     * @return 忽略原因说明
+     */
+    String reason() default "业务需要忽略准入限流";
+}
@@ -0,0 +1,49 @@
+package io.github.jasonlat.middleware.annotations.ratelimit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 准入限流注解
+ * 在读取、解密请求体之前按 客户端IP + 路由 做令牌桶限流，超出时直接返回 429，
+ * 用于保护登录、注册等调用方身份未知、却需要先完成 ECDH + AES-GCM 解密的接口
+ *
+ * @author jasonlat
+ * @since 1.0.0
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimitProtection {
+
+    /**
+     * @return 桶容量（允许的突发请求数），小于等于 0 时使用 rate-limit.capacity
+     */
+    int capacity() default 0;
+
+    /**
+     * @return 每秒补充的令牌数，小于等于 0 时使用 rate-limit.refill-per-second
+     */
+    double refillPerSecond() default 0D;
+
+    /**
+     * @return 是否按客户端IP分别限流，false 表示整个路由共用一个桶
+     */
+    boolean keyByIp() default true;
+
+    /**
+     * @return 限流路由名，为空时按 全限定类名#方法名(参数类型)；多个接口使用同一名称即共享限流桶
+     */
+    String route() default "";
+
+    /**
+     * @return 错误消息
+     */
+    String message() default "请求过于频繁，请稍后再试";
+
+    /**
+     * @return 是否记录日志
+     */
+    boolean enableLog() default false;
+}
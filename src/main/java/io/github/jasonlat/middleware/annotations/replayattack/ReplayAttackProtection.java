@@ -1,5 +1,9 @@
 package io.github.jasonlat.middleware.annotations.replayattack;
 
+import io.github.jasonlat.middleware.domain.model.valobj.NonceStoreType;
+import io.github.jasonlat.middleware.domain.model.valobj.ReplayProtectionMode;
+import io.github.jasonlat.middleware.domain.model.valobj.TimestampFormat;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -21,6 +25,14 @@ public @interface ReplayAttackProtection {
      */
     String requestHeaderKey() default "X-Timestamp";
 
+    /**
+     * @return 时间戳格式
+     * ISO_8601 如 2024-01-01T08:00:00.123Z
+     * EPOCH_MILLIS Unix 毫秒时间戳
+     * AUTO 纯数字按毫秒时间戳，否则按 ISO-8601
+     */
+    TimestampFormat timestampFormat() default TimestampFormat.ISO_8601;
+
     /**
      * @return 时间窗口（毫秒），默认5分钟
      * 超过此时间的请求将被视为过期
@@ -51,4 +63,38 @@ public @interface ReplayAttackProtection {
      * @return 未来时间容忍度（秒），默认60秒
      */
     long futureTimeTolerance() default 60L;
+
+    /**
+     * @return nonce 存储类型
+     * LOCAL 本地缓存，受 replay-attack.cache 容量与过期时间限制
+     * TIMING_WHEEL 时间轮，按 timeWindow 对齐整桶过期，无容量上限
+     * BLOOM_FILTER 轮换布隆过滤器，按 timeWindow 对齐，内存固定，误判率见 nonce-filter 配置
+     */
+    NonceStoreType storeType() default NonceStoreType.LOCAL;
+
+    /**
+     * @return 防护模式
+     * TIMESTAMP 记录窗口内每个时间戳
+     * SEQUENCE 滑动窗口序列号，只保存每个用户的最大序列号与窗口位图，storeType 不生效；
+     * 窗口与解密验签得到的用户绑定，接口必须配置 IDENTIFICATION / NOT_IDENTIFICATION / SIGNED_NOT_IDENTIFICATION 的 @RequestDecryption
+     */
+    ReplayProtectionMode mode() default ReplayProtectionMode.TIMESTAMP;
+
+    /**
+     * @return 序列号在解密后明文 JSON 中的Key（SEQUENCE 模式）
+     * 序列号随请求体一起加密、验签，不从请求头读取，如 {"sequence": 42, ...}
+     */
+    String sequenceKey() default "sequence";
+
+    /**
+     * @return 序列号窗口位数（SEQUENCE 模式），64 ~ 1024，按 64 取整
+     * 窗口内允许乱序到达，落后窗口的序列号将被拒绝
+     */
+    int sequenceWindowSize() default 64;
+
+    /**
+     * @return 存储分片名，启用 protection-shard 时生效
+     * 为空时按 全限定类名#方法名(参数类型) 分片；分片容量可在 protection-shard.shards.&lt;分片名&gt; 中单独配置
+     */
+    String shard() default "";
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package io.github.jasonlat.middleware.annotations.uniquerequest;
 
+import io.github.jasonlat.middleware.domain.model.valobj.NonceStoreType;
+import io.github.jasonlat.middleware.domain.model.valobj.UniqueRequestMode;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -36,4 +39,26 @@ public @interface UniqueRequestProtection {
      * 严格模式下，即使是不同IP的相同RequestID也会被拒绝
      */
     boolean strictMode() default true;
+
+    /**
+     * @return nonce 存储类型
+     * LOCAL 本地缓存，受 unique-request.cache 容量与过期时间限制
+     * TIMING_WHEEL 时间轮，按 unique-request.cache 过期时间整桶过期，无容量上限
+     * BLOOM_FILTER 轮换布隆过滤器，内存固定，误判率见 nonce-filter 配置
+     * OFF_HEAP_UUID 堆外存储，UUID 格式的请求ID每条约 32 字节，非 UUID 退回堆内存储
+     */
+    NonceStoreType storeType() default NonceStoreType.LOCAL;
+
+    /**
+     * @return 防护模式
+     * REJECT 重复请求直接拒绝
+     * IDEMPOTENT 重复请求返回首次执行保存的（加密后）响应，并发的重复请求等待首次执行完成，storeType 不生效
+     */
+    UniqueRequestMode mode() default UniqueRequestMode.REJECT;
+
+    /**
+     * @return 存储分片名，启用 protection-shard 时生效
+     * 为空时按 全限定类名#方法名(参数类型) 分片；多个接口使用同一分片名即共享同一存储（请求ID在这些接口间唯一）
+     */
+    String shard() default "";
 }
\ No newline at end of file
@@ -3,6 +3,11 @@ package io.github.jasonlat.middleware.cache;
 
 import io.github.jasonlat.middleware.advice.ReplayAttackAdvice;
 import io.github.jasonlat.middleware.advice.UniqueRequestAdvice;
+import io.github.jasonlat.middleware.cache.nonce.ProtectionShardResolver;
+import io.github.jasonlat.middleware.context.EccContextCache;
+import io.github.jasonlat.middleware.domain.service.CryptoBulkhead;
+import io.github.jasonlat.middleware.domain.service.CryptoTaskExecutor;
+import io.github.jasonlat.middleware.domain.service.UserDataLoadGuard;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -14,7 +19,7 @@ import java.util.Map;
 
 /**
  * 缓存管理控制器
- * 用于监控和管理Guava缓存的状态
+ * 用于监控和管理防重放 nonce 存储的状态
  * 
  * @author jasonlat
  * @since 1.0.0
@@ -28,9 +33,27 @@ public final class CacheManagementService {
     
     private final UniqueRequestAdvice uniqueRequestAdvice;
 
-    public CacheManagementService(ReplayAttackAdvice replayAttackAdvice, UniqueRequestAdvice uniqueRequestAdvice) {
+    private final ProtectionShardResolver shardResolver;
+
+    private final CryptoTaskExecutor cryptoTaskExecutor;
+
+    private final CryptoBulkhead cryptoBulkhead;
+
+    private final EccContextCache contextCache;
+
+    private final UserDataLoadGuard userDataLoadGuard;
+
+    public CacheManagementService(ReplayAttackAdvice replayAttackAdvice, UniqueRequestAdvice uniqueRequestAdvice,
+                                  ProtectionShardResolver shardResolver, CryptoTaskExecutor cryptoTaskExecutor,
+                                  CryptoBulkhead cryptoBulkhead, EccContextCache contextCache,
+                                  UserDataLoadGuard userDataLoadGuard) {
         this.replayAttackAdvice = replayAttackAdvice;
         this.uniqueRequestAdvice = uniqueRequestAdvice;
+        this.shardResolver = shardResolver;
+        this.cryptoTaskExecutor = cryptoTaskExecutor;
+        this.cryptoBulkhead = cryptoBulkhead;
+        this.contextCache = contextCache;
+        this.userDataLoadGuard = userDataLoadGuard;
     }
 
     /**
@@ -71,8 +94,8 @@ public final class CacheManagementService {
         Map<String, Object> summary = new HashMap<>();
         summary.put("totalCaches", 2);
         summary.put("totalSize", replayAttackAdvice.getCacheSize() + uniqueRequestAdvice.getCacheSize());
-        summary.put("cacheProvider", "Google Guava Cache");
-        summary.put("features", new String[]{"时效性过期", "大小限制", "统计监控", "线程安全"});
+        summary.put("cacheProvider", "Caffeine NonceStore");
+        summary.put("features", new String[]{"时效性过期", "大小限制", "统计监控", "原子检查写入"});
         response.put("summary", summary);
         
         return response;
@@ -129,6 +152,54 @@ public final class CacheManagementService {
         return response;
     }
     
+    /**
+     *  @return 获取各分片存储统计
+     */
+    public Map<String, Object> getShardCacheStats() {
+        logger.info("获取分片存储统计");
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("timestamp", LocalDateTime.now());
+        response.put("shardingEnabled", shardResolver.isEnabled());
+        response.put("tenantShards", shardResolver.getTenantShardCount());
+        response.put("overflowCount", shardResolver.getOverflowCount());
+        response.put("quotaRejectedCount", shardResolver.getQuotaRejectedCount());
+        response.put("replayAttackCache", replayAttackAdvice.getStoreStats());
+        response.put("uniqueRequestCache", uniqueRequestAdvice.getStoreStats());
+        return response;
+    }
+
+    /**
+     *  @return 获取加解密线程池指标（队列深度、排队等待时间、拒绝次数）与舱壁各分组指标
+     */
+    public Map<String, Object> getCryptoExecutorStats() {
+        logger.info("获取加解密线程池指标");
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("timestamp", LocalDateTime.now());
+        response.put("metrics", cryptoTaskExecutor.getMetrics());
+        response.put("bulkheads", cryptoBulkhead.getMetrics());
+        return response;
+    }
+
+    /**
+     *  @return 获取用户上下文缓存指标（加载耗时、合并加载次数、后台刷新次数、过期公钥使用次数）与用户数据加载保护指标
+     */
+    public Map<String, Object> getUserContextCacheStats() {
+        logger.info("获取用户上下文缓存指标");
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("timestamp", LocalDateTime.now());
+        response.put("cacheType", "用户上下文缓存");
+        response.put("metrics", contextCache.getMetrics());
+        response.put("stats", contextCache.getStats().toString());
+        response.put("loadGuard", userDataLoadGuard.getMetrics());
+        return response;
+    }
+
     /**
      *  @return 清空重放攻击缓存
      */
@@ -210,7 +281,7 @@ public final class CacheManagementService {
         response.put("timestamp", LocalDateTime.now());
         
         Map<String, Object> config = new HashMap<>();
-        config.put("cacheProvider", "Google Guava Cache");
+        config.put("cacheProvider", "Caffeine NonceStore");
         config.put("version", "Latest");
         
         Map<String, Object> replayConfig = new HashMap<>();
@@ -219,7 +290,7 @@ public final class CacheManagementService {
         replayConfig.put("recordStats", true);
         replayConfig.put("concurrencyLevel", "自动");
         replayConfig.put("keyType", "String (timestamp:clientIp)");
-        replayConfig.put("valueType", "Long (处理时间)");
+        replayConfig.put("valueType", "Long (窗口毫秒)");
         config.put("replayAttackCache", replayConfig);
         
         Map<String, Object> uniqueConfig = new HashMap<>();
@@ -227,8 +298,8 @@ public final class CacheManagementService {
         uniqueConfig.put("expireAfterWrite", "60分钟");
         uniqueConfig.put("recordStats", true);
         uniqueConfig.put("concurrencyLevel", "自动");
-        uniqueConfig.put("keyType", "String (requestId)");
-        uniqueConfig.put("valueType", "RequestInfo (请求信息对象)");
+        uniqueConfig.put("keyType", "String (requestId 或 requestId:clientIp)");
+        uniqueConfig.put("valueType", "Long (窗口毫秒)");
         config.put("uniqueRequestCache", uniqueConfig);
         
         response.put("config", config);
@@ -265,7 +336,7 @@ public final class CacheManagementService {
         
         Map<String, Object> metrics = new HashMap<>();
         metrics.put("totalCacheSize", replayAttackAdvice.getCacheSize() + uniqueRequestAdvice.getCacheSize());
-        metrics.put("cacheProvider", "Guava");
+        metrics.put("cacheProvider", "Caffeine");
         metrics.put("uptime", "运行中");
         response.put("metrics", metrics);
         
@@ -0,0 +1,211 @@
+package io.github.jasonlat.middleware.cache.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 幂等响应存储
+ * 已完成的响应按字节预算（weigher）与 TTL 保存；执行中的请求以 CompletableFuture 登记，
+ * 并发的重复请求等待同一个 future，而不是各自执行。
+ * 每个幂等键同时记录首个请求的请求体摘要，同一键携带不同请求体时返回 MISMATCH，而不是回放另一个请求的响应
+ *
+ * @author jasonlat
+ */
+@Component
+public final class IdempotencyStore {
+
+    private final Cache<String, StoredResponse> responses;
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final int maxResponseBytes;
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder aborts = new LongAdder();
+    private final LongAdder oversized = new LongAdder();
+    private final LongAdder mismatches = new LongAdder();
+
+    public IdempotencyStore(EccAutoConfigProperties configProperties) {
+        EccAutoConfigProperties.UniqueRequest.Idempotency config = configProperties.getUniqueRequest().getIdempotency();
+        this.maxResponseBytes = config.getMaxResponseBytes();
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(config.getMaxTotalBytes())
+                .weigher((String key, StoredResponse response) -> key.length() * 2 + response.weight())
+                .expireAfterWrite(config.getTtlMinutes(), TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 开始处理一个幂等请求
+     *
+     * @param key         幂等键
+     * @param requestHash 请求体摘要，没有请求体时为 null
+     * @return LEADER 表示由当前请求执行；REPLAY 表示已有保存的响应；WAIT 表示需等待执行中的请求；
+     * MISMATCH 表示该键已被请求体不同的请求使用
+     */
+    public Acquisition begin(String key, byte[] requestHash) {
+        StoredResponse stored = responses.getIfPresent(key);
+        if (stored != null) {
+            return replayOrMismatch(stored, requestHash);
+        }
+        InFlight mine = new InFlight(requestHash);
+        InFlight existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            if (!MessageDigest.isEqual(existing.requestHash, requestHash)) {
+                mismatches.increment();
+                return new Acquisition(Acquisition.State.MISMATCH, null, null);
+            }
+            waits.increment();
+            return new Acquisition(Acquisition.State.WAIT, null, existing.future);
+        }
+        // 登记前可能刚好有请求完成
+        stored = responses.getIfPresent(key);
+        if (stored != null) {
+            inFlight.remove(key, mine);
+            mine.future.complete(stored);
+            return replayOrMismatch(stored, requestHash);
+        }
+        executions.increment();
+        return new Acquisition(Acquisition.State.LEADER, null, mine.future);
+    }
+
+    private Acquisition replayOrMismatch(StoredResponse stored, byte[] requestHash) {
+        if (!MessageDigest.isEqual(stored.getRequestHash(), requestHash)) {
+            mismatches.increment();
+            return new Acquisition(Acquisition.State.MISMATCH, null, null);
+        }
+        replays.increment();
+        return new Acquisition(Acquisition.State.REPLAY, stored, null);
+    }
+
+    /**
+     * 保存首次执行的响应并唤醒等待者
+     *
+     * @param key      幂等键
+     * @param response 响应
+     * @return 是否已保存（超过单条上限时不保存，等待者将重新执行）
+     */
+    public boolean complete(String key, StoredResponse response) {
+        if (response.getBody().length > maxResponseBytes) {
+            oversized.increment();
+            abort(key);
+            return false;
+        }
+        responses.put(key, response);
+        InFlight pending = inFlight.remove(key);
+        if (pending != null) {
+            pending.future.complete(response);
+        }
+        return true;
+    }
+
+    /**
+     * 首次执行失败，释放登记，等待者重新竞争执行
+     *
+     * @param key 幂等键
+     */
+    public void abort(String key) {
+        InFlight pending = inFlight.remove(key);
+        if (pending != null) {
+            aborts.increment();
+            pending.future.complete(null);
+        }
+    }
+
+    /**
+     * @return 单个响应最大字节数
+     */
+    public int getMaxResponseBytes() {
+        return maxResponseBytes;
+    }
+
+    /**
+     * @return 保存的响应数量
+     */
+    public long size() {
+        return responses.estimatedSize();
+    }
+
+    /**
+     * 清空保存的响应（执行中的请求不受影响）
+     */
+    public void clear() {
+        responses.invalidateAll();
+    }
+
+    /**
+     * @return 统计信息
+     */
+    public String getStats() {
+        return String.format("Size: %d, Bytes: %d, In Flight: %d, Executions: %d, Replays: %d, Waits: %d, Aborts: %d, Oversized: %d, Mismatches: %d, Number of Expulsions: %d",
+                size(), responses.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L),
+                inFlight.size(), executions.sum(), replays.sum(), waits.sum(), aborts.sum(), oversized.sum(),
+                mismatches.sum(), responses.stats().evictionCount());
+    }
+
+    /**
+     * 执行中的请求
+     */
+    private static final class InFlight {
+
+        private final CompletableFuture<StoredResponse> future = new CompletableFuture<>();
+        private final byte[] requestHash;
+
+        private InFlight(byte[] requestHash) {
+            this.requestHash = requestHash;
+        }
+    }
+
+    /**
+     * 开始处理的结果
+     */
+    public static final class Acquisition {
+
+        /**
+         * 状态
+         */
+        public enum State {
+            LEADER,
+            REPLAY,
+            WAIT,
+            MISMATCH,
+        }
+
+        private final State state;
+        private final StoredResponse response;
+        private final CompletableFuture<StoredResponse> future;
+
+        private Acquisition(State state, StoredResponse response, CompletableFuture<StoredResponse> future) {
+            this.state = state;
+            this.response = response;
+            this.future = future;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        /**
+         * @return REPLAY 时的响应
+         */
+        public StoredResponse getResponse() {
+            return response;
+        }
+
+        /**
+         * @return WAIT 时等待的 future，完成值为 null 表示首次执行失败
+         */
+        public CompletableFuture<StoredResponse> getFuture() {
+            return future;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package io.github.jasonlat.middleware.cache.idempotency;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已保存的响应（实际写出的最终字节）及首个请求的请求体摘要
+ *
+ * @author jasonlat
+ */
+public final class StoredResponse {
+
+    private final int status;
+    private final String contentType;
+    private final Map<String, List<String>> headers;
+    private final byte[] body;
+    private final byte[] requestHash;
+
+    /**
+     * @param requestHash 首个请求的请求体摘要，没有请求体时为 null
+     */
+    public StoredResponse(int status, String contentType, Map<String, List<String>> headers, byte[] body, byte[] requestHash) {
+        this.status = status;
+        this.contentType = contentType;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.body = body;
+        this.requestHash = requestHash;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public byte[] getRequestHash() {
+        return requestHash;
+    }
+
+    /**
+     * @return 估算占用字节数，用于容量预算
+     */
+    public int weight() {
+        int weight = 64 + body.length + (contentType == null ? 0 : contentType.length()) + (requestHash == null ? 0 : requestHash.length);
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            weight += header.getKey().length();
+            for (String value : header.getValue()) {
+                weight += value.length();
+            }
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,169 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
+
+import java.nio.ByteBuffer;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于 Caffeine 的本地 nonce 存储
+ * 通过 asMap().putIfAbsent 完成一次哈希查找内的原子检查并写入，
+ * 每个条目按写入时的窗口单独过期
+ *
+ * @author jasonlat
+ */
+public final class LocalNonceStore implements NonceStore, SnapshotCapable {
+
+    private static final byte STRING_KEY = 0;
+    private static final byte COMPOSITE_KEY = 1;
+
+    /**
+     * Key: nonce（String 或 {@link NonceKey}）, Value: 窗口（毫秒）
+     */
+    private final Cache<Object, Long> cache;
+    private final ConcurrentMap<Object, Long> map;
+    private final Policy.VarExpiration<Object, Long> expiration;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public LocalNonceStore(long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new WindowExpiry())
+                .recordStats()
+                .build();
+        this.map = cache.asMap();
+        this.expiration = cache.policy().expireVariably()
+                .orElseThrow(() -> new IllegalStateException("Variable expiration is not enabled"));
+    }
+
+    @Override
+    public boolean putIfAbsent(String nonce, long windowMillis) {
+        return putKeyIfAbsent(nonce, windowMillis);
+    }
+
+    @Override
+    public boolean putIfAbsent(long high, long low, long windowMillis) {
+        return putKeyIfAbsent(new NonceKey(high, low), windowMillis);
+    }
+
+    private boolean putKeyIfAbsent(Object key, long windowMillis) {
+        // 过期但尚未清理的条目在 Caffeine 中视为不存在，可被覆盖
+        if (map.putIfAbsent(key, windowMillis) == null) {
+            accepted.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * 只读检查，不写入、不计数
+     *
+     * @param nonce nonce
+     * @param scope 作用域，与 {@link #putIfAbsent(String, String, long)} 的拼接方式一致
+     * @return 窗口内是否已存在
+     */
+    boolean contains(String nonce, String scope) {
+        return cache.getIfPresent(scope == null ? nonce : nonce + ":" + scope) != null;
+    }
+
+    /**
+     * 只读检查复合键，不写入、不计数
+     *
+     * @param high 键高 64 位
+     * @param low  键低 64 位
+     * @return 窗口内是否已存在
+     */
+    boolean contains(long high, long low) {
+        return cache.getIfPresent(new NonceKey(high, low)) != null;
+    }
+
+    /**
+     * 快照格式：| count (int) | (type (byte) | nonce (string 或 high long + low long) | window (long) | expireAt (long)) * count |
+     */
+    @Override
+    public void writeSnapshot(SnapshotOutput out, long nowMillis) {
+        long countPosition = out.position();
+        out.putInt(0);
+        int count = 0;
+        for (Object key : map.keySet()) {
+            Long window = map.get(key);
+            OptionalLong remaining = expiration.getExpiresAfter(key, TimeUnit.MILLISECONDS);
+            if (window == null || !remaining.isPresent() || remaining.getAsLong() <= 0) {
+                continue;
+            }
+            if (key instanceof NonceKey) {
+                out.putByte(COMPOSITE_KEY).putLong(((NonceKey) key).getHigh()).putLong(((NonceKey) key).getLow());
+            } else {
+                out.putByte(STRING_KEY).putString((String) key);
+            }
+            out.putLong(window).putLong(nowMillis + remaining.getAsLong());
+            count++;
+        }
+        out.putInt(countPosition, count);
+    }
+
+    @Override
+    public long restoreSnapshot(ByteBuffer in, long nowMillis) {
+        int count = in.getInt();
+        long restored = 0;
+        for (int i = 0; i < count; i++) {
+            Object key = in.get() == COMPOSITE_KEY ? new NonceKey(in.getLong(), in.getLong()) : SnapshotOutput.getString(in);
+            long window = in.getLong();
+            long remaining = in.getLong() - nowMillis;
+            if (remaining > 0 && expiration.putIfAbsent(key, window, remaining, TimeUnit.MILLISECONDS)) {
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    @Override
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public String getStats() {
+        long accept = accepted.sum();
+        long reject = rejected.sum();
+        long total = accept + reject;
+        return String.format("Size: %d, Accepted: %d, Duplicates: %d, Duplicate Rate: %.2f%%, Number of Expulsions: %d",
+                size(), accept, reject, total == 0 ? 0D : reject * 100D / total,
+                cache.stats().evictionCount());
+    }
+
+    /**
+     * 按条目自身窗口过期，读取不延长寿命
+     */
+    private static final class WindowExpiry implements Expiry<Object, Long> {
+
+        @Override
+        public long expireAfterCreate(Object key, Long windowMillis, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Long windowMillis, long currentTime, long currentDuration) {
+            return TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Long windowMillis, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
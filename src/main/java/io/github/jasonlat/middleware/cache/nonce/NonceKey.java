@@ -0,0 +1,91 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+/**
+ * 128 位复合 nonce 键
+ *
+ * @author jasonlat
+ */
+public final class NonceKey {
+
+    private final long high;
+    private final long low;
+
+    public NonceKey(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * 不分配中间对象地计算两个字符串的 64 位哈希（FNV-1a + fmix64），字符串边界参与哈希
+     *
+     * @param first  第一个字符串
+     * @param second 第二个字符串，可为 null
+     * @return 64 位哈希
+     */
+    public static long hash(CharSequence first, CharSequence second) {
+        long h = 0xCBF29CE484222325L;
+        h = mixChars(h, first);
+        h = (h ^ 0x1F) * 0x100000001B3L;
+        if (second != null) {
+            h = mixChars(h, second);
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static long mixChars(long h, CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            h = (h ^ (c & 0xFF)) * 0x100000001B3L;
+            h = (h ^ (c >>> 8)) * 0x100000001B3L;
+        }
+        return h;
+    }
+
+    /**
+     * @return 32 位定长十六进制表示，用于只支持字符串键的存储
+     */
+    public static String toString(long high, long low) {
+        char[] chars = new char[32];
+        for (int i = 0; i < 16; i++) {
+            chars[i] = Character.forDigit((int) (high >>> (60 - i * 4)) & 0xF, 16);
+            chars[16 + i] = Character.forDigit((int) (low >>> (60 - i * 4)) & 0xF, 16);
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NonceKey)) {
+            return false;
+        }
+        NonceKey other = (NonceKey) o;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = high * 0x9E3779B97F4A7C15L ^ low;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return toString(high, low);
+    }
+}
@@ -0,0 +1,240 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 防护存储快照服务
+ * 定时及关闭时将已注册的存储逐段流式写入快照文件；启动时映射快照文件，由 {@link NonceStoreFactory} 在初始化时按存储键
+ * 立即重建并恢复各存储，丢弃已过期条目，未能认领的段随即丢弃，不会在之后的快照中一直带着。
+ * 滚动发布时新节点因此不会从空缓存开始，重放窗口也不会因重启而重新打开
+ *
+ * <pre>
+ * file    = | magic (int) | version (int) | createdAt (long) | count (int) | section * count |
+ * section = | key (string) | length (int) | payload (length bytes) |
+ * </pre>
+ *
+ * @author jasonlat
+ */
+@Component
+public final class NonceSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NonceSnapshotService.class);
+
+    private static final int MAGIC = 0x45434353;
+    private static final int VERSION = 2;
+
+    /**
+     * 写出缓冲区大小，快照按该大小分块写入文件
+     */
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+
+    private final EccAutoConfigProperties.NonceSnapshot config;
+
+    /**
+     * 已注册的存储，Key 为存储键
+     */
+    private final Map<String, SnapshotCapable> stores = new ConcurrentHashMap<>();
+
+    /**
+     * 启动时读取、尚未被存储认领的快照段
+     */
+    private final Map<String, ByteBuffer> pending = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    public NonceSnapshotService(EccAutoConfigProperties configProperties) {
+        this.config = configProperties.getNonceSnapshot();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        load();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ecc-nonce-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, config.getIntervalSeconds(), config.getIntervalSeconds(), TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        scheduler.shutdownNow();
+        snapshotQuietly();
+    }
+
+    /**
+     * 注册存储；快照中存在同名段时立即恢复
+     *
+     * @param key   存储键，跨重启必须保持一致
+     * @param store 存储
+     */
+    public void register(String key, SnapshotCapable store) {
+        stores.put(key, store);
+        restore(key, store);
+    }
+
+    /**
+     * @return 尚未被认领的快照段的存储键
+     */
+    public Set<String> getPendingKeys() {
+        return new HashSet<>(pending.keySet());
+    }
+
+    /**
+     * 用同名快照段恢复存储（不注册），段被认领后移除
+     *
+     * @param key   存储键
+     * @param store 存储
+     * @return 恢复的条目数，没有对应段或恢复失败时为 0
+     */
+    public long restore(String key, SnapshotCapable store) {
+        ByteBuffer section = pending.remove(key);
+        if (section == null) {
+            return 0L;
+        }
+        long start = System.nanoTime();
+        try {
+            long restored = store.restoreSnapshot(section.duplicate(), System.currentTimeMillis());
+            logger.info("Protection store restored from snapshot - Key: {}, Entries: {}, Time: {} ms",
+                    key, restored, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return restored;
+        } catch (RuntimeException e) {
+            logger.warn("Failed to restore protection store from snapshot, starting empty - Key: {}, Error: {}", key, e.getMessage());
+            return 0L;
+        }
+    }
+
+    /**
+     * 丢弃所有未被认领的快照段（条目均已过期或存储键已不再使用）
+     */
+    public void discardPending() {
+        if (!pending.isEmpty()) {
+            logger.info("Discarding unclaimed protection store snapshot sections - Keys: {}", pending.keySet());
+            pending.clear();
+        }
+    }
+
+    /**
+     * 立即写出快照
+     *
+     * @throws IOException 写入失败
+     */
+    public synchronized void snapshot() throws IOException {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+
+        Path target = Paths.get(config.getPath());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        int sections = 0;
+        long size;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            SnapshotOutput out = new SnapshotOutput(channel, WRITE_BUFFER_SIZE);
+            out.putInt(MAGIC).putInt(VERSION).putLong(now);
+            long countPosition = out.position();
+            out.putInt(0);
+            // 存储在写出期间仍在变化，无法先算出各段长度，因此先占位、写完该段后回填
+            for (Map.Entry<String, ByteBuffer> entry : pending.entrySet()) {
+                out.putString(entry.getKey()).putInt(entry.getValue().remaining()).putRaw(entry.getValue());
+                sections++;
+            }
+            for (Map.Entry<String, SnapshotCapable> entry : stores.entrySet()) {
+                out.putString(entry.getKey());
+                long lengthPosition = out.position();
+                out.putInt(0);
+                entry.getValue().writeSnapshot(out, now);
+                long length = out.position() - lengthPosition - 4;
+                if (length > Integer.MAX_VALUE) {
+                    throw new IOException("The snapshot section is too large: " + entry.getKey() + ", " + length + " bytes");
+                }
+                out.putInt(lengthPosition, (int) length);
+                sections++;
+            }
+            out.putInt(countPosition, sections);
+            out.flush();
+            size = out.position();
+            channel.force(false);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // 先写临时文件再原子替换，进程中途退出不会留下半个快照
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Protection store snapshot written - Path: {}, Sections: {}, Bytes: {}, Time: {} ms",
+                target, sections, size, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to write protection store snapshot - Path: {}, Error: {}", config.getPath(), e.getMessage());
+        }
+    }
+
+    /**
+     * 映射快照文件并拆分为段，段内容在存储注册时才解析
+     */
+    private void load() {
+        Path path = Paths.get(config.getPath());
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // 映射在通道关闭后依然有效
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 20 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                logger.warn("Ignoring unrecognized protection store snapshot - Path: {}", path);
+                return;
+            }
+            long createdAt = buffer.getLong();
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                String key = SnapshotOutput.getString(buffer);
+                int length = buffer.getInt();
+                ByteBuffer section = buffer.slice();
+                section.limit(length);
+                pending.put(key, section.asReadOnlyBuffer());
+                buffer.position(buffer.position() + length);
+            }
+            logger.info("Protection store snapshot mapped - Path: {}, Sections: {}, Age: {} ms, Time: {} ms",
+                    path, count, System.currentTimeMillis() - createdAt, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException | RuntimeException e) {
+            pending.clear();
+            logger.warn("Failed to read protection store snapshot, starting empty - Path: {}, Error: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import java.util.List;
+
+/**
+ * 防重放 / 唯一请求使用的 nonce 存储
+ * 唯一的核心原语是原子的 "窗口内不存在则写入"，检查与写入不可拆分，
+ * 避免并发的重复请求同时通过检测
+ *
+ * @author jasonlat
+ */
+public interface NonceStore {
+
+    /**
+     * 原子地在时间窗口内写入 nonce
+     *
+     * @param nonce        nonce（时间戳键、请求ID等）
+     * @param windowMillis 有效窗口（毫秒），超过窗口后同一 nonce 可再次写入
+     * @return true 表示首次出现并已写入；false 表示窗口内已存在（重复请求）
+     */
+    boolean putIfAbsent(String nonce, long windowMillis);
+
+    /**
+     * 原子地在时间窗口内写入带作用域的 nonce，不同作用域（如客户端IP）的相同 nonce 互不影响
+     *
+     * @param nonce        nonce
+     * @param scope        作用域，为 null 时等同于 {@link #putIfAbsent(String, long)}
+     * @param windowMillis 有效窗口（毫秒）
+     * @return true 表示首次出现并已写入；false 表示窗口内已存在（重复请求）
+     */
+    default boolean putIfAbsent(String nonce, String scope, long windowMillis) {
+        return putIfAbsent(scope == null ? nonce : nonce + ":" + scope, windowMillis);
+    }
+
+    /**
+     * 原子地在时间窗口内写入 128 位复合键（如 时间戳毫秒 + 作用域哈希），调用方无需拼接字符串。
+     * 默认转为定长十六进制字符串，堆内 / 堆外存储直接按原始值存放
+     *
+     * @param high         键高 64 位
+     * @param low          键低 64 位
+     * @param windowMillis 有效窗口（毫秒）
+     * @return true 表示首次出现并已写入；false 表示窗口内已存在（重复请求）
+     */
+    default boolean putIfAbsent(long high, long low, long windowMillis) {
+        return putIfAbsent(NonceKey.toString(high, low), windowMillis);
+    }
+
+    /**
+     * 批量原子写入，远程实现可按分片合并为一次往返
+     *
+     * @param nonces       nonce 列表
+     * @param windowMillis 有效窗口（毫秒）
+     * @return 与 nonces 一一对应的写入结果
+     */
+    default boolean[] putIfAbsentAll(List<String> nonces, long windowMillis) {
+        boolean[] results = new boolean[nonces.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = putIfAbsent(nonces.get(i), windowMillis);
+        }
+        return results;
+    }
+
+    /**
+     * @return 当前存储的 nonce 数量（可能为估算值）
+     */
+    long size();
+
+    /**
+     * 清空所有 nonce
+     */
+    void clear();
+
+    /**
+     * @return 存储统计信息
+     */
+    String getStats();
+}
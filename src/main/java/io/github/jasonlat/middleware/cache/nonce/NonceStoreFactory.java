@@ -0,0 +1,263 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import io.github.jasonlat.middleware.cache.nonce.distributed.InProcessNonceStoreNode;
+import io.github.jasonlat.middleware.cache.nonce.distributed.NonceStoreNode;
+import io.github.jasonlat.middleware.cache.nonce.distributed.ShardedNonceStore;
+import io.github.jasonlat.middleware.cache.nonce.distributed.TcpNonceStoreNode;
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.domain.model.valobj.NonceStoreType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * nonce 存储工厂
+ * 按 名称 (+ 分片) + 类型 + 窗口或容量 创建并缓存存储实例，同一业务场景（分片）的请求共享同一个存储。
+ * 存储键包含重建存储所需的全部参数，启动时据此立即重建快照中的存储，而不是等到首个请求在 computeIfAbsent 中恢复
+ *
+ * @author jasonlat
+ */
+@Component
+public final class NonceStoreFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(NonceStoreFactory.class);
+
+    private static final String SEPARATOR = ":";
+
+    private static final String SHARD_PREFIX = "shard=";
+
+    private static final String SEQUENCE_SUFFIX = SEPARATOR + "SEQUENCE";
+
+    private final EccAutoConfigProperties configProperties;
+
+    private final ObjectProvider<NonceStoreNode> nodeProvider;
+
+    private final NonceSnapshotService snapshotService;
+
+    private final ConcurrentHashMap<String, NonceStore> stores = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, SequenceWindowStore> sequenceStores = new ConcurrentHashMap<>();
+
+    /**
+     * 分布式存储的节点在所有场景间共享，首次使用时创建
+     */
+    private volatile List<NonceStoreNode> distributedNodes;
+
+    /**
+     * 节点初始化锁，初始化可能建立 TCP 连接，使用 ReentrantLock 避免虚拟线程在 I/O 时固定载体线程
+     */
+    private final ReentrantLock nodesLock = new ReentrantLock();
+
+    public NonceStoreFactory(EccAutoConfigProperties configProperties, ObjectProvider<NonceStoreNode> nodeProvider,
+                             NonceSnapshotService snapshotService) {
+        this.configProperties = configProperties;
+        this.nodeProvider = nodeProvider;
+        this.snapshotService = snapshotService;
+    }
+
+    /**
+     * 按快照中的存储键立即重建并恢复存储；没有未过期条目或无法识别的段直接丢弃
+     */
+    @PostConstruct
+    public void init() {
+        Set<String> keys = snapshotService.getPendingKeys();
+        if (keys.isEmpty()) {
+            return;
+        }
+        for (String key : keys) {
+            try {
+                restoreEagerly(key);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to restore protection store from snapshot - Key: {}, Error: {}", key, e.getMessage());
+            }
+        }
+        snapshotService.discardPending();
+    }
+
+    private void restoreEagerly(String key) {
+        if (key.endsWith(SEQUENCE_SUFFIX)) {
+            SequenceWindowStore store = newSequenceStore();
+            if (snapshotService.restore(key, store) > 0 && sequenceStores.putIfAbsent(key, store) == null) {
+                snapshotService.register(key, store);
+            }
+            return;
+        }
+        // 存储键 = scopedName:TYPE:窗口或容量，名称中可能含有分隔符，从末尾解析
+        int valueIndex = key.lastIndexOf(SEPARATOR);
+        int typeIndex = valueIndex > 0 ? key.lastIndexOf(SEPARATOR, valueIndex - 1) : -1;
+        if (typeIndex < 0) {
+            return;
+        }
+        NonceStoreType type;
+        long value;
+        try {
+            type = NonceStoreType.valueOf(key.substring(typeIndex + 1, valueIndex));
+            value = Long.parseLong(key.substring(valueIndex + 1));
+        } catch (IllegalArgumentException e) {
+            // 旧版本或无法识别的存储键
+            return;
+        }
+        boolean windowed = type == NonceStoreType.TIMING_WHEEL || type == NonceStoreType.BLOOM_FILTER;
+        NonceStore store = create(key, type, windowed ? value : 0L, windowed ? 0L : value);
+        if (!(store instanceof SnapshotCapable)) {
+            return;
+        }
+        if (snapshotService.restore(key, (SnapshotCapable) store) > 0 && stores.putIfAbsent(key, store) == null) {
+            snapshotService.register(key, (SnapshotCapable) store);
+        }
+    }
+
+    /**
+     * 获取或创建存储
+     *
+     * @param name         存储名称（如 replay、unique）
+     * @param type         存储类型
+     * @param windowMillis 保留窗口（毫秒），时间轮按该窗口对齐
+     * @param maximumSize  最大容量，LOCAL 及 OFF_HEAP_UUID 的堆内退回存储使用
+     * @return 存储实例
+     */
+    public NonceStore getOrCreate(String name, NonceStoreType type, long windowMillis, long maximumSize) {
+        return getOrCreate(name, null, type, windowMillis, maximumSize);
+    }
+
+    /**
+     * 获取或创建分片存储
+     * BLOOM_FILTER 与 OFF_HEAP_UUID 按配置预分配固定内存，按分片复制会成倍放大内存，因此忽略分片
+     *
+     * @param name         存储名称（如 replay、unique）
+     * @param shard        分片标识，null 表示不分片
+     * @param type         存储类型
+     * @param windowMillis 保留窗口（毫秒），时间轮按该窗口对齐
+     * @param maximumSize  最大容量，LOCAL 及 OFF_HEAP_UUID 的堆内退回存储使用
+     * @return 存储实例
+     */
+    public NonceStore getOrCreate(String name, String shard, NonceStoreType type, long windowMillis, long maximumSize) {
+        String scopedName = shard == null || type == NonceStoreType.BLOOM_FILTER || type == NonceStoreType.OFF_HEAP_UUID
+                ? name
+                : name + SEPARATOR + SHARD_PREFIX + shard;
+        return stores.computeIfAbsent(storeKey(scopedName, type, windowMillis, maximumSize), key -> {
+            NonceStore store = create(key, type, windowMillis, maximumSize);
+            if (store instanceof SnapshotCapable) {
+                snapshotService.register(key, (SnapshotCapable) store);
+            }
+            return store;
+        });
+    }
+
+    /**
+     * 获取或创建序列号窗口存储
+     *
+     * @param name 存储名称
+     * @return 序列号窗口存储
+     */
+    public SequenceWindowStore getSequenceStore(String name) {
+        return sequenceStores.computeIfAbsent(name + SEQUENCE_SUFFIX, key -> {
+            SequenceWindowStore store = newSequenceStore();
+            snapshotService.register(key, store);
+            return store;
+        });
+    }
+
+    private SequenceWindowStore newSequenceStore() {
+        return new SequenceWindowStore(
+                configProperties.getReplayAttack().getSequence().getMaxClients(),
+                configProperties.getReplayAttack().getSequence().getClientExpireMinutes());
+    }
+
+    /**
+     * @param name 存储名称
+     * @return 该名称下的所有存储，Key 为存储键
+     */
+    public Map<String, NonceStore> getStores(String name) {
+        Map<String, NonceStore> result = new LinkedHashMap<>();
+        stores.forEach((key, store) -> {
+            if (key.startsWith(name + SEPARATOR)) {
+                result.put(key, store);
+            }
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    private String storeKey(String name, NonceStoreType type, long windowMillis, long maximumSize) {
+        switch (type) {
+            case TIMING_WHEEL:
+            case BLOOM_FILTER:
+                // 时间轮、布隆过滤器按窗口对齐，不同窗口各自一份
+                return name + SEPARATOR + type + SEPARATOR + windowMillis;
+            case LOCAL:
+            case OFF_HEAP_UUID:
+                // 按条目过期，不同窗口可共享；容量随配置确定，写入存储键以便启动时重建
+                return name + SEPARATOR + type + SEPARATOR + maximumSize;
+            default:
+                return name + SEPARATOR + type;
+        }
+    }
+
+    private NonceStore create(String key, NonceStoreType type, long windowMillis, long maximumSize) {
+        logger.info("Creating nonce store - Key: {}, Type: {}", key, type);
+        switch (type) {
+            case TIMING_WHEEL:
+                return new TimingWheelNonceStore(windowMillis, configProperties.getReplayAttack().getTimingWheel().getBuckets());
+            case BLOOM_FILTER:
+                // 单个过滤器覆盖一个完整保留窗口，nonce 实际保留 1 ~ 2 个窗口
+                return new RotatingBloomNonceStore(windowMillis,
+                        configProperties.getNonceFilter().getExpectedInsertions(),
+                        configProperties.getNonceFilter().getFpp());
+            case OFF_HEAP_UUID:
+                return new OffHeapUuidNonceStore(configProperties.getUniqueRequest().getOffHeap().getCapacity(), maximumSize);
+            case DISTRIBUTED:
+                EccAutoConfigProperties.DistributedNonceStore config = configProperties.getDistributedNonceStore();
+                return new ShardedNonceStore(key, getDistributedNodes(maximumSize),
+                        config.getNearCacheSize(), config.getNearCacheTtlMillis(), config.isFailOpen());
+            default:
+                return new LocalNonceStore(maximumSize);
+        }
+    }
+
+    /**
+     * 节点来源优先级：容器中的 NonceStoreNode Bean > 配置的远端地址 > 进程内节点
+     */
+    private List<NonceStoreNode> getDistributedNodes(long maximumSize) {
+        List<NonceStoreNode> nodes = distributedNodes;
+        if (nodes != null) {
+            return nodes;
+        }
+        nodesLock.lock();
+        try {
+            if (distributedNodes != null) {
+                return distributedNodes;
+            }
+            EccAutoConfigProperties.DistributedNonceStore config = configProperties.getDistributedNonceStore();
+            nodes = nodeProvider.orderedStream().collect(Collectors.toList());
+            if (nodes.isEmpty() && !config.getNodes().isEmpty()) {
+                nodes = new ArrayList<>();
+                for (String address : config.getNodes()) {
+                    nodes.add(new TcpNonceStoreNode(address, config.getConnectionsPerNode(), config.getTimeoutMillis()));
+                }
+            }
+            if (nodes.isEmpty()) {
+                nodes = new ArrayList<>();
+                for (int i = 0; i < config.getInProcessNodes(); i++) {
+                    nodes.add(new InProcessNonceStoreNode("in-process-" + i, maximumSize));
+                }
+            }
+            logger.info("Distributed nonce store nodes: {}", nodes.stream().map(NonceStoreNode::getId).collect(Collectors.toList()));
+            distributedNodes = Collections.unmodifiableList(nodes);
+            return distributedNodes;
+        } finally {
+            nodesLock.unlock();
+        }
+    }
+}
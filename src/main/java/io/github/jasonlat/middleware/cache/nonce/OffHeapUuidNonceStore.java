@@ -0,0 +1,383 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 堆外 UUID 请求ID存储
+ * UUID 格式的请求ID被压缩为两个 long，连同过期时间、作用域哈希（客户端IP）存放在堆外开放寻址表中，
+ * 每个条目 32 字节，不产生堆对象，GC 无需扫描。非 UUID 请求ID 以及探测范围内无可用槽位的请求ID 退回到堆内存储
+ *
+ * <pre>
+ * slot (32 bytes) = | hi (8) | lo (8) | expireAt (8) | scopeHash (4) | reserved (4) |
+ * </pre>
+ * expireAt == 0 表示槽位从未使用；过期槽位保留原键继续参与探测，可被直接复用
+ *
+ * @author jasonlat
+ */
+public final class OffHeapUuidNonceStore implements NonceStore, SnapshotCapable {
+
+    static final int SLOT_BYTES = 32;
+    private static final int HI_OFFSET = 0;
+    private static final int LO_OFFSET = 8;
+    private static final int EXPIRE_OFFSET = 16;
+    private static final int SCOPE_OFFSET = 24;
+
+    private static final int SEGMENTS = 16;
+    private static final int MAX_PROBES = 64;
+    private static final int UUID_LENGTH = 36;
+
+    /**
+     * 复合键的作用域标记，与严格模式 (0) 及非严格模式（最高位为 1）均不相同
+     */
+    private static final int COMPOSITE_SCOPE = 1;
+
+    /**
+     * 单段最多 2^25 个槽位，保证段内字节偏移不超出 int
+     */
+    private static final int MAX_SLOTS_PER_SEGMENT = Integer.highestOneBit(Integer.MAX_VALUE / SLOT_BYTES);
+
+    /**
+     * 最大槽位总数
+     */
+    public static final long MAX_CAPACITY = (long) SEGMENTS * MAX_SLOTS_PER_SEGMENT;
+
+    private static final int LIVE = -1;
+    private static final int FULL = -2;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int slotsPerSegment;
+
+    /**
+     * 非 UUID 请求ID
+     */
+    private final LocalNonceStore nonUuidStore;
+
+    /**
+     * 探测范围内无可用槽位时的溢出存储
+     */
+    private final LocalNonceStore overflowStore;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder nonUuid = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    /**
+     * @param capacity        堆外槽位总数（向上取整为 2 的幂），堆外内存 = capacity * 32 字节
+     * @param fallbackMaxSize 堆内退回存储的最大容量
+     */
+    public OffHeapUuidNonceStore(long capacity, long fallbackMaxSize) {
+        long perSegment = Math.max(MAX_PROBES, (capacity + SEGMENTS - 1) / SEGMENTS);
+        // 先取整再校验，取整后的槽位数可能翻倍
+        long slots = Long.highestOneBit(perSegment - 1) << 1;
+        if (slots > MAX_SLOTS_PER_SEGMENT) {
+            throw new IllegalArgumentException("The off-heap nonce store capacity is too large: " + capacity + ", maximum: " + MAX_CAPACITY);
+        }
+        this.slotsPerSegment = (int) slots;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(slotsPerSegment);
+        }
+        this.nonUuidStore = new LocalNonceStore(fallbackMaxSize);
+        this.overflowStore = new LocalNonceStore(fallbackMaxSize);
+    }
+
+    @Override
+    public boolean putIfAbsent(String nonce, long windowMillis) {
+        return putIfAbsent(nonce, null, windowMillis);
+    }
+
+    @Override
+    public boolean putIfAbsent(String nonce, String scope, long windowMillis) {
+        if (!isUuid(nonce)) {
+            nonUuid.increment();
+            return count(nonUuidStore.putIfAbsent(nonce, scope, windowMillis));
+        }
+        long hi = parseHex(nonce, 0, 8, 0L);
+        hi = parseHex(nonce, 9, 13, hi);
+        hi = parseHex(nonce, 14, 18, hi);
+        long lo = parseHex(nonce, 19, 23, 0L);
+        lo = parseHex(nonce, 24, 36, lo);
+        // 严格模式作用域为 0，非严格模式置最高位，两者永不相同
+        int scopeHash = scope == null ? 0 : scope.hashCode() | Integer.MIN_VALUE;
+
+        long hash = mix(hi, lo, scopeHash);
+        Segment segment = segments[(int) (hash >>> 60) & (SEGMENTS - 1)];
+        return count(segment.putIfAbsent(hi, lo, scopeHash, (int) hash, nonce, scope, windowMillis));
+    }
+
+    /**
+     * 复合键直接作为 hi / lo 存放，不经过 UUID 解析
+     */
+    @Override
+    public boolean putIfAbsent(long high, long low, long windowMillis) {
+        long hash = mix(high, low, COMPOSITE_SCOPE);
+        Segment segment = segments[(int) (hash >>> 60) & (SEGMENTS - 1)];
+        return count(segment.putIfAbsent(high, low, COMPOSITE_SCOPE, (int) hash, null, null, windowMillis));
+    }
+
+    private boolean count(boolean result) {
+        if (result) {
+            accepted.increment();
+        } else {
+            rejected.increment();
+        }
+        return result;
+    }
+
+    /**
+     * 不分配对象地校验标准 UUID 格式 8-4-4-4-12
+     */
+    private static boolean isUuid(String value) {
+        if (value.length() != UUID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = value.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (Character.digit(c, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseHex(String value, int from, int to, long acc) {
+        for (int i = from; i < to; i++) {
+            acc = (acc << 4) | Character.digit(value.charAt(i), 16);
+        }
+        return acc;
+    }
+
+    private static long mix(long hi, long lo, int scopeHash) {
+        long h = hi * 0x9E3779B97F4A7C15L ^ lo ^ ((long) scopeHash << 32);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 快照格式：| count (int) | (hi (long) | lo (long) | expireAt (long) | scopeHash (int)) * count | 非 UUID 存储 | 溢出存储 |
+     * 堆外条目按原始槽位内容写出，每条 28 字节
+     */
+    @Override
+    public void writeSnapshot(SnapshotOutput out, long nowMillis) {
+        long countPosition = out.position();
+        out.putInt(0);
+        int count = 0;
+        for (Segment segment : segments) {
+            count += segment.writeSnapshot(out, nowMillis);
+        }
+        out.putInt(countPosition, count);
+        nonUuidStore.writeSnapshot(out, nowMillis);
+        overflowStore.writeSnapshot(out, nowMillis);
+    }
+
+    @Override
+    public long restoreSnapshot(ByteBuffer in, long nowMillis) {
+        int count = in.getInt();
+        long restored = 0;
+        for (int i = 0; i < count; i++) {
+            long hi = in.getLong();
+            long lo = in.getLong();
+            long expireAt = in.getLong();
+            int scopeHash = in.getInt();
+            if (expireAt <= nowMillis) {
+                continue;
+            }
+            long hash = mix(hi, lo, scopeHash);
+            // 原始作用域字符串不可还原，探测范围内无空位时放弃该条目
+            if (segments[(int) (hash >>> 60) & (SEGMENTS - 1)].restore(hi, lo, scopeHash, (int) hash, expireAt, nowMillis)) {
+                restored++;
+            }
+        }
+        restored += nonUuidStore.restoreSnapshot(in, nowMillis);
+        restored += overflowStore.restoreSnapshot(in, nowMillis);
+        return restored;
+    }
+
+    /**
+     * @return 堆外内存占用（字节）
+     */
+    public long getOffHeapBytes() {
+        return (long) SEGMENTS * slotsPerSegment * SLOT_BYTES;
+    }
+
+    /**
+     * @return 因探测范围内无可用槽位而写入溢出存储的次数
+     */
+    long getOverflowCount() {
+        return overflows.sum();
+    }
+
+    @Override
+    public long size() {
+        long now = System.currentTimeMillis();
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.liveCount(now);
+        }
+        return size + nonUuidStore.size() + overflowStore.size();
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+        nonUuidStore.clear();
+        overflowStore.clear();
+    }
+
+    @Override
+    public String getStats() {
+        long accept = accepted.sum();
+        long reject = rejected.sum();
+        long total = accept + reject;
+        return String.format("Size: %d, Accepted: %d, Duplicates: %d, Duplicate Rate: %.2f%%, Off-Heap: %d slots / %d bytes, Non-UUID: %d, Overflows: %d",
+                size(), accept, reject, total == 0 ? 0D : reject * 100D / total,
+                (long) SEGMENTS * slotsPerSegment, getOffHeapBytes(), nonUuid.sum(), overflows.sum());
+    }
+
+    /**
+     * 分段，每段一块堆外内存和一把锁
+     */
+    private final class Segment {
+
+        private final ByteBuffer table;
+        private final int mask;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private Segment(int slots) {
+            this.table = ByteBuffer.allocateDirect(slots * SLOT_BYTES);
+            this.mask = slots - 1;
+        }
+
+        /**
+         * nonce 为 null 表示复合键，溢出时按复合键写入溢出存储
+         */
+        private boolean putIfAbsent(long hi, long lo, int scopeHash, int hash, String nonce, String scope, long windowMillis) {
+            long now = System.currentTimeMillis();
+            lock.lock();
+            try {
+                int offset = probe(hi, lo, scopeHash, hash, now);
+                if (offset == LIVE) {
+                    return false;
+                }
+                if (offset == FULL) {
+                    overflows.increment();
+                    return nonce == null
+                            ? overflowStore.putIfAbsent(hi, lo, windowMillis)
+                            : overflowStore.putIfAbsent(nonce, scope, windowMillis);
+                }
+                // 探测范围曾经占满时同一 nonce 可能已在溢出存储中，只检查当前 nonce，其余请求照常写入表
+                if (overflowStore.size() > 0 && (nonce == null ? overflowStore.contains(hi, lo) : overflowStore.contains(nonce, scope))) {
+                    return false;
+                }
+                write(offset, hi, lo, scopeHash, now + windowMillis);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean restore(long hi, long lo, int scopeHash, int hash, long expireAt, long now) {
+            lock.lock();
+            try {
+                int offset = probe(hi, lo, scopeHash, hash, now);
+                if (offset < 0) {
+                    return false;
+                }
+                write(offset, hi, lo, scopeHash, expireAt);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 调用方需持有锁
+         *
+         * @return 可写入的槽位偏移；LIVE 表示已存在未过期的相同键；FULL 表示探测范围内无可用槽位
+         */
+        private int probe(long hi, long lo, int scopeHash, int hash, long now) {
+            int reusable = -1;
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                int offset = ((hash + probe) & mask) * SLOT_BYTES;
+                long expireAt = table.getLong(offset + EXPIRE_OFFSET);
+                if (expireAt == 0L) {
+                    // 未使用槽位，探测链到此结束
+                    return reusable < 0 ? offset : reusable;
+                }
+                boolean sameKey = table.getLong(offset + HI_OFFSET) == hi
+                        && table.getLong(offset + LO_OFFSET) == lo
+                        && table.getInt(offset + SCOPE_OFFSET) == scopeHash;
+                if (sameKey) {
+                    return expireAt > now ? LIVE : offset;
+                }
+                if (expireAt <= now && reusable < 0) {
+                    reusable = offset;
+                }
+            }
+            return reusable < 0 ? FULL : reusable;
+        }
+
+        private void write(int offset, long hi, long lo, int scopeHash, long expireAt) {
+            table.putLong(offset + HI_OFFSET, hi);
+            table.putLong(offset + LO_OFFSET, lo);
+            table.putLong(offset + EXPIRE_OFFSET, expireAt);
+            table.putInt(offset + SCOPE_OFFSET, scopeHash);
+        }
+
+        private int writeSnapshot(SnapshotOutput out, long now) {
+            int count = 0;
+            lock.lock();
+            try {
+                for (int offset = 0; offset < table.capacity(); offset += SLOT_BYTES) {
+                    long expireAt = table.getLong(offset + EXPIRE_OFFSET);
+                    if (expireAt > now) {
+                        out.putLong(table.getLong(offset + HI_OFFSET))
+                                .putLong(table.getLong(offset + LO_OFFSET))
+                                .putLong(expireAt)
+                                .putInt(table.getInt(offset + SCOPE_OFFSET));
+                        count++;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            return count;
+        }
+
+        private long liveCount(long now) {
+            long count = 0;
+            lock.lock();
+            try {
+                for (int offset = 0; offset < table.capacity(); offset += SLOT_BYTES) {
+                    if (table.getLong(offset + EXPIRE_OFFSET) > now) {
+                        count++;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            return count;
+        }
+
+        private void clear() {
+            lock.lock();
+            try {
+                for (int offset = 0; offset < table.capacity(); offset += SLOT_BYTES) {
+                    table.putLong(offset + EXPIRE_OFFSET, 0L);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
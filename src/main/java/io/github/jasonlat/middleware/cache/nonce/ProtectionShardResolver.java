@@ -0,0 +1,202 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.util.RouteNames;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 防护存储分片解析
+ * 按 路由（注解 shard 或 全限定类名#方法名(参数类型)）划分分片，每个分片使用独立的存储实例，
+ * 容量与过期互不影响，热点路由不会驱逐其他分片的条目，锁竞争也分散到各分片。
+ * 租户请求头未经签名，不参与存储划分，否则更换租户值即可让重放请求落入空分片；
+ * 租户只用于配额：每个租户在一个窗口内可写入路由共享存储的条目数受 tenant-max-entries 限制，
+ * 配额总数受 max-shards 限制，超出后新租户归入所在路由的溢出配额（route@*）
+ *
+ * @author jasonlat
+ */
+@Component
+public final class ProtectionShardResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProtectionShardResolver.class);
+
+    /**
+     * 溢出及非法租户归入的租户标识
+     */
+    public static final String OVERFLOW_TENANT = "*";
+
+    private static final String TENANT_SEPARATOR = "@";
+
+    private static final int MAX_TENANT_LENGTH = 64;
+
+    private final EccAutoConfigProperties.ProtectionShard config;
+
+    /**
+     * 已分配的租户配额，Key: 路由@租户
+     */
+    private final ConcurrentHashMap<String, TenantQuota> tenantQuotas = new ConcurrentHashMap<>();
+
+    private final LongAdder overflowed = new LongAdder();
+
+    private final LongAdder quotaRejected = new LongAdder();
+
+    /**
+     * 默认路由名缓存，方法集合固定，不会无限增长
+     */
+    private final ConcurrentHashMap<Method, String> defaultRoutes = new ConcurrentHashMap<>();
+
+    private final LongSupplier clock;
+
+    public ProtectionShardResolver(EccAutoConfigProperties configProperties) {
+        this(configProperties, System::currentTimeMillis);
+    }
+
+    ProtectionShardResolver(EccAutoConfigProperties configProperties, LongSupplier clock) {
+        this.config = configProperties.getProtectionShard();
+        this.clock = clock;
+    }
+
+    /**
+     * @return 是否启用分片
+     */
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 解析当前请求所属分片，同一路由的所有租户共用一个分片
+     *
+     * @param method    业务方法
+     * @param shardName 注解指定的分片名，为空时按 全限定类名#方法名(参数类型)
+     * @return 分片标识，未启用分片时返回 null
+     */
+    public String resolve(Method method, String shardName) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        return StringUtils.hasText(shardName)
+                ? shardName
+                : defaultRoutes.computeIfAbsent(method, RouteNames::defaultRoute);
+    }
+
+    /**
+     * 占用当前租户在分片上的一个配额，应在写入存储之前调用，被拒绝的请求不会占用共享存储
+     *
+     * @param request      HTTP请求
+     * @param shard        {@link #resolve} 返回的分片标识
+     * @param windowMillis 存储窗口（毫秒），配额按该窗口计数
+     * @return 是否在配额内；未启用分片、未配置租户请求头或配额为 0 时始终返回 true
+     */
+    public boolean tryAcquireTenantQuota(HttpServletRequest request, String shard, long windowMillis) {
+        if (shard == null || !StringUtils.hasText(config.getTenantHeader()) || config.getTenantMaxEntries() <= 0) {
+            return true;
+        }
+        TenantQuota quota = tenantQuota(shard, request.getHeader(config.getTenantHeader()));
+        if (quota.tryAcquire(clock.getAsLong(), windowMillis, config.getTenantMaxEntries())) {
+            return true;
+        }
+        quotaRejected.increment();
+        return false;
+    }
+
+    private TenantQuota tenantQuota(String shard, String tenant) {
+        String key = shard + TENANT_SEPARATOR + (isValidTenant(tenant) ? tenant : OVERFLOW_TENANT);
+        TenantQuota quota = tenantQuotas.get(key);
+        if (quota != null) {
+            return quota;
+        }
+        // 容量检查与加入不是原子的，并发时可能略微超出上限，可接受
+        if (tenantQuotas.size() >= config.getMaxShards()) {
+            overflowed.increment();
+            logger.debug("Protection shard tenant limit reached, tenant falls back to the overflow quota - Shard: {}, Tenant: {}", shard, tenant);
+            return tenantQuotas.computeIfAbsent(shard + TENANT_SEPARATOR + OVERFLOW_TENANT, k -> new TenantQuota());
+        }
+        return tenantQuotas.computeIfAbsent(key, k -> new TenantQuota());
+    }
+
+    /**
+     * 分片容量：分片配置 > 默认分片容量 > 存储原有容量
+     *
+     * @param shard       分片标识
+     * @param defaultSize 存储原有容量
+     * @return 分片容量
+     */
+    public long maximumSize(String shard, long defaultSize) {
+        if (shard == null) {
+            return defaultSize;
+        }
+        EccAutoConfigProperties.ProtectionShard.Shard quota = config.getShards().get(shard);
+        if (quota != null && quota.getMaximumSize() > 0) {
+            return quota.getMaximumSize();
+        }
+        return config.getDefaultMaximumSize() > 0 ? config.getDefaultMaximumSize() : defaultSize;
+    }
+
+    /**
+     * @return 已分配的租户配额数
+     */
+    public int getTenantShardCount() {
+        return tenantQuotas.size();
+    }
+
+    /**
+     * @return 因配额数达到上限而归入溢出配额的次数
+     */
+    public long getOverflowCount() {
+        return overflowed.sum();
+    }
+
+    /**
+     * @return 因超出租户配额而被拒绝的请求数
+     */
+    public long getQuotaRejectedCount() {
+        return quotaRejected.sum();
+    }
+
+    /**
+     * 租户标识来自请求头，限制长度与字符集，避免污染配额键
+     */
+    private static boolean isValidTenant(String tenant) {
+        if (tenant == null || tenant.isEmpty() || tenant.length() > MAX_TENANT_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < tenant.length(); i++) {
+            char c = tenant.charAt(i);
+            boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.';
+            if (!allowed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 租户固定窗口计数
+     */
+    private static final class TenantQuota {
+
+        private long windowStart;
+        private long count;
+
+        synchronized boolean tryAcquire(long now, long windowMillis, long limit) {
+            if (now - windowStart >= windowMillis) {
+                windowStart = now;
+                count = 0;
+            }
+            if (count >= limit) {
+                return false;
+            }
+            count++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.util.concurrent.Striped;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 轮换布隆过滤器 nonce 存储
+ * 由 当前窗口 + 上一窗口 两个布隆过滤器组成，每个窗口结束时整体轮换，内存固定。
+ * 存在误判：小概率把首次出现的 nonce 判为重复（拒绝正常请求），但不会放行重复请求
+ *
+ * @author jasonlat
+ */
+public final class RotatingBloomNonceStore implements NonceStore, SnapshotCapable {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final long windowMillis;
+    private final long expectedInsertions;
+    private final double fpp;
+    private final LongSupplier clock;
+
+    /**
+     * 同一 nonce 总落在同一把锁上，保证 检查 + 写入 对同一 nonce 原子
+     */
+    private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+    private final ReentrantLock rotateLock = new ReentrantLock();
+
+    private volatile Generation generation;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+
+    /**
+     * @param windowMillis       单个过滤器覆盖的窗口（毫秒），nonce 保留 1 ~ 2 个窗口
+     * @param expectedInsertions 单个窗口预期写入量
+     * @param fpp                单个过滤器的目标误判率
+     */
+    public RotatingBloomNonceStore(long windowMillis, long expectedInsertions, double fpp) {
+        this(windowMillis, expectedInsertions, fpp, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock 毫秒时钟，测试用于控制轮换时机
+     */
+    RotatingBloomNonceStore(long windowMillis, long expectedInsertions, double fpp, LongSupplier clock) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("The bloom filter window must be greater than 0");
+        }
+        this.windowMillis = windowMillis;
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.clock = clock;
+        this.generation = new Generation(newFilter(), newFilter(), clock.getAsLong() + windowMillis);
+    }
+
+    @Override
+    public boolean putIfAbsent(String nonce, long windowMillis) {
+        Lock lock = locks.get(nonce);
+        lock.lock();
+        try {
+            // 在锁内读取代际：同一 nonce 的先后两次调用中，后者看到的代际不早于前者，
+            // 前者写入的过滤器要么仍是当前过滤器，要么已轮换为上一窗口，均会被检查到
+            Generation current = currentGeneration();
+            // put 返回 false 表示所有位均已置位，即可能已存在
+            if (!current.previous.mightContain(nonce) && current.current.put(nonce)) {
+                accepted.increment();
+                return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * 窗口结束时 当前 -> 上一窗口，新建当前过滤器
+     */
+    private Generation currentGeneration() {
+        Generation current = generation;
+        long now = clock.getAsLong();
+        if (now < current.rotateAt || !rotateLock.tryLock()) {
+            return current;
+        }
+        try {
+            current = generation;
+            if (now >= current.rotateAt) {
+                // 空闲超过两个窗口时两个过滤器都已失效
+                BloomFilter<CharSequence> previous = now >= current.rotateAt + windowMillis ? newFilter() : current.current;
+                current = new Generation(newFilter(), previous, now + windowMillis);
+                generation = current;
+                rotations.increment();
+            }
+            return current;
+        } finally {
+            rotateLock.unlock();
+        }
+    }
+
+    /**
+     * 快照格式：| rotateAt (long) | current (bytes) | previous (bytes) |，过滤器使用 Guava 自身的序列化格式
+     */
+    @Override
+    public void writeSnapshot(SnapshotOutput out, long nowMillis) {
+        Generation current = generation;
+        out.putLong(current.rotateAt);
+        writeFilter(out, current.current);
+        writeFilter(out, current.previous);
+    }
+
+    /**
+     * 按保存时的轮换时间恢复：未到轮换点原样恢复，已过一个窗口则只保留当前过滤器作为上一窗口。
+     * 过滤器参数与当前配置不一致时放弃恢复
+     */
+    @Override
+    public long restoreSnapshot(ByteBuffer in, long nowMillis) {
+        long rotateAt = in.getLong();
+        BloomFilter<CharSequence> savedCurrent = fromBytes(SnapshotOutput.getBytes(in));
+        BloomFilter<CharSequence> savedPrevious = fromBytes(SnapshotOutput.getBytes(in));
+        if (!newFilter().isCompatible(savedCurrent) || !newFilter().isCompatible(savedPrevious)) {
+            return 0L;
+        }
+
+        Generation restored;
+        if (nowMillis < rotateAt) {
+            restored = new Generation(savedCurrent, savedPrevious, rotateAt);
+        } else if (nowMillis < rotateAt + windowMillis) {
+            restored = new Generation(newFilter(), savedCurrent, rotateAt + windowMillis);
+        } else {
+            return 0L;
+        }
+        rotateLock.lock();
+        try {
+            generation = restored;
+        } finally {
+            rotateLock.unlock();
+        }
+        return restored.current.approximateElementCount() + restored.previous.approximateElementCount();
+    }
+
+    /**
+     * 与 {@link SnapshotOutput#putBytes(byte[])} 格式相同，过滤器直接写入输出后回填长度，不经过中间字节数组
+     */
+    private static void writeFilter(SnapshotOutput out, BloomFilter<CharSequence> filter) {
+        long lengthPosition = out.position();
+        out.putInt(0);
+        try {
+            filter.writeTo(out.asOutputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        out.putInt(lengthPosition, (int) (out.position() - lengthPosition - 4));
+    }
+
+    private static BloomFilter<CharSequence> fromBytes(byte[] bytes) {
+        try {
+            return BloomFilter.readFrom(new ByteArrayInputStream(bytes), Funnels.stringFunnel(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private BloomFilter<CharSequence> newFilter() {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, fpp);
+    }
+
+    /**
+     * @return 估算误判率：新 nonce 命中两个过滤器任一的概率
+     */
+    public double getEstimatedFpp() {
+        Generation current = generation;
+        return 1D - (1D - current.current.expectedFpp()) * (1D - current.previous.expectedFpp());
+    }
+
+    /**
+     * @return 当前过滤器填充率（估算写入量 / 预期写入量）
+     */
+    public double getFillRatio() {
+        return (double) generation.current.approximateElementCount() / expectedInsertions;
+    }
+
+    @Override
+    public long size() {
+        Generation current = generation;
+        return current.current.approximateElementCount() + current.previous.approximateElementCount();
+    }
+
+    @Override
+    public void clear() {
+        rotateLock.lock();
+        try {
+            generation = new Generation(newFilter(), newFilter(), clock.getAsLong() + windowMillis);
+        } finally {
+            rotateLock.unlock();
+        }
+    }
+
+    @Override
+    public String getStats() {
+        long accept = accepted.sum();
+        long reject = rejected.sum();
+        long total = accept + reject;
+        return String.format("Size: ~%d, Accepted: %d, Duplicates: %d, Duplicate Rate: %.2f%%, Window: %d ms, Expected Insertions: %d, Target FPP: %.4f%%, Estimated FPP: %.4f%%, Fill: %.2f%%, Rotations: %d",
+                size(), accept, reject, total == 0 ? 0D : reject * 100D / total,
+                windowMillis, expectedInsertions, fpp * 100, getEstimatedFpp() * 100, getFillRatio() * 100, rotations.sum());
+    }
+
+    /**
+     * 过滤器代
+     */
+    private static final class Generation {
+        private final BloomFilter<CharSequence> current;
+        private final BloomFilter<CharSequence> previous;
+        private final long rotateAt;
+
+        private Generation(BloomFilter<CharSequence> current, BloomFilter<CharSequence> previous, long rotateAt) {
+            this.current = current;
+            this.previous = previous;
+            this.rotateAt = rotateAt;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 滑动窗口序列号防重放存储（参考 IPsec anti-replay）
+ * 每个客户端只保存已见最大序列号和一个 64 ~ 1024 位的窗口位图，内存为 O(客户端数) 而非 O(请求数)。
+ * 序列号必须单调递增；窗口内可乱序到达，但同一序列号只接受一次，落后窗口的序列号直接拒绝
+ *
+ * @author jasonlat
+ */
+public final class SequenceWindowStore implements SnapshotCapable {
+
+    public static final int MIN_WINDOW_SIZE = 64;
+    public static final int MAX_WINDOW_SIZE = 1024;
+
+    private final Cache<String, SequenceWindow> cache;
+    private final ConcurrentMap<String, SequenceWindow> windows;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder outdated = new LongAdder();
+
+    /**
+     * @param maxClients          最大客户端数
+     * @param clientExpireMinutes 客户端窗口空闲过期时间（分钟）
+     */
+    public SequenceWindowStore(long maxClients, long clientExpireMinutes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(clientExpireMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+        this.windows = cache.asMap();
+    }
+
+    /**
+     * 原子地检查并记录客户端序列号
+     *
+     * @param clientId   客户端标识
+     * @param sequence   序列号，必须大于 0
+     * @param windowSize 窗口位数，规整为 64 的倍数并限制在 64 ~ 1024，仅在创建窗口时生效
+     * @return 检查结果
+     */
+    public Result accept(String clientId, long sequence, int windowSize) {
+        if (sequence <= 0) {
+            return Result.OUTDATED;
+        }
+        Result[] result = new Result[1];
+        // compute 对同一客户端串行执行
+        windows.compute(clientId, (key, window) -> {
+            SequenceWindow current = window == null ? new SequenceWindow(normalize(windowSize)) : window;
+            result[0] = current.accept(sequence);
+            return current;
+        });
+
+        switch (result[0]) {
+            case ACCEPTED:
+                accepted.increment();
+                break;
+            case REPLAYED:
+                replayed.increment();
+                break;
+            default:
+                outdated.increment();
+        }
+        return result[0];
+    }
+
+    private static int normalize(int windowSize) {
+        int size = Math.max(MIN_WINDOW_SIZE, Math.min(MAX_WINDOW_SIZE, windowSize));
+        return (size + 63) & ~63;
+    }
+
+    /**
+     * 快照格式：| count (int) | (clientId (string) | size (int) | highest (long) | bitmap (long * size / 64)) * count |
+     * 客户端窗口按空闲时间过期，恢复后重新计时
+     */
+    @Override
+    public void writeSnapshot(SnapshotOutput out, long nowMillis) {
+        long countPosition = out.position();
+        out.putInt(0);
+        int[] count = new int[1];
+        // 遍历不计为访问，不会延长空闲客户端的寿命
+        windows.forEach((clientId, window) -> {
+            synchronized (window) {
+                out.putString(clientId).putInt(window.size).putLong(window.highest);
+                for (long word : window.bitmap) {
+                    out.putLong(word);
+                }
+            }
+            count[0]++;
+        });
+        out.putInt(countPosition, count[0]);
+    }
+
+    @Override
+    public long restoreSnapshot(ByteBuffer in, long nowMillis) {
+        int count = in.getInt();
+        long restored = 0;
+        for (int i = 0; i < count; i++) {
+            String clientId = SnapshotOutput.getString(in);
+            SequenceWindow window = new SequenceWindow(in.getInt());
+            window.highest = in.getLong();
+            for (int j = 0; j < window.bitmap.length; j++) {
+                window.bitmap[j] = in.getLong();
+            }
+            if (windows.putIfAbsent(clientId, window) == null) {
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * @return 当前客户端数量
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * 清空所有客户端窗口
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return 统计信息
+     */
+    public String getStats() {
+        return String.format("Clients: %d, Accepted: %d, Replayed: %d, Outdated: %d, Number of Expulsions: %d",
+                size(), accepted.sum(), replayed.sum(), outdated.sum(), cache.stats().evictionCount());
+    }
+
+    /**
+     * 检查结果
+     */
+    public enum Result {
+        /**
+         * 首次出现，已记录
+         */
+        ACCEPTED,
+        /**
+         * 窗口内已出现过
+         */
+        REPLAYED,
+        /**
+         * 落后于窗口或非法序列号
+         */
+        OUTDATED,
+    }
+
+    /**
+     * 单个客户端的窗口，位 i 表示序列号 highest - i 已出现
+     */
+    private static final class SequenceWindow {
+
+        private final long[] bitmap;
+        private final int size;
+        private long highest;
+
+        private SequenceWindow(int size) {
+            this.size = size;
+            this.bitmap = new long[size / 64];
+        }
+
+        private synchronized Result accept(long sequence) {
+            if (sequence > highest) {
+                shift(sequence - highest);
+                highest = sequence;
+                bitmap[0] |= 1L;
+                return Result.ACCEPTED;
+            }
+
+            long offset = highest - sequence;
+            if (offset >= size) {
+                return Result.OUTDATED;
+            }
+            int word = (int) (offset >>> 6);
+            long bit = 1L << (offset & 63);
+            if ((bitmap[word] & bit) != 0) {
+                return Result.REPLAYED;
+            }
+            bitmap[word] |= bit;
+            return Result.ACCEPTED;
+        }
+
+        /**
+         * 位图整体左移（向更旧的序列号方向）
+         */
+        private void shift(long distance) {
+            if (distance >= size) {
+                Arrays.fill(bitmap, 0L);
+                return;
+            }
+            int words = (int) (distance >>> 6);
+            int bits = (int) (distance & 63);
+            for (int i = bitmap.length - 1; i >= 0; i--) {
+                int from = i - words;
+                long value = from >= 0 ? bitmap[from] << bits : 0L;
+                if (bits != 0 && from - 1 >= 0) {
+                    value |= bitmap[from - 1] >>> (64 - bits);
+                }
+                bitmap[i] = value;
+            }
+        }
+    }
+}
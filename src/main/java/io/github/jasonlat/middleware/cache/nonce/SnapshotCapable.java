@@ -0,0 +1,29 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 支持快照的防护存储
+ * 快照为紧凑二进制格式，过期时间一律记录为绝对时间（epoch 毫秒），恢复时丢弃已过期条目
+ *
+ * @author jasonlat
+ */
+public interface SnapshotCapable {
+
+    /**
+     * 写出当前存活的条目
+     *
+     * @param out       输出
+     * @param nowMillis 当前时间（epoch 毫秒）
+     */
+    void writeSnapshot(SnapshotOutput out, long nowMillis);
+
+    /**
+     * 从快照恢复，应在存储创建后、处理请求前调用
+     *
+     * @param in        快照内容（position 至 limit）
+     * @param nowMillis 当前时间（epoch 毫秒）
+     * @return 恢复的条目数
+     */
+    long restoreSnapshot(ByteBuffer in, long nowMillis);
+}
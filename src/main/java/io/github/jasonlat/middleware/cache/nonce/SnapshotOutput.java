@@ -0,0 +1,218 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 快照输出
+ * 内存模式按需扩容，用于测试与小数据；文件模式使用固定大小的直接缓冲区，写满即刷入文件通道，
+ * 快照大小不受堆内存限制，也不会在写出时整份复制。
+ * 字符串编码为 | length (unsigned short) | UTF-8 bytes |
+ *
+ * @author jasonlat
+ */
+public final class SnapshotOutput {
+
+    private final FileChannel channel;
+
+    private ByteBuffer buffer;
+
+    /**
+     * 已刷入文件的字节数，即缓冲区起点在文件中的位置
+     */
+    private long flushed;
+
+    private OutputStream stream;
+
+    /**
+     * 内存模式
+     *
+     * @param initialCapacity 初始容量
+     */
+    public SnapshotOutput(int initialCapacity) {
+        this.channel = null;
+        this.buffer = ByteBuffer.allocate(Math.max(64, initialCapacity));
+    }
+
+    /**
+     * 文件模式，从通道的当前位置开始写入
+     *
+     * @param channel    文件通道
+     * @param bufferSize 缓冲区大小
+     * @throws IOException 读取通道位置失败
+     */
+    public SnapshotOutput(FileChannel channel, int bufferSize) throws IOException {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(64, bufferSize));
+        this.flushed = channel.position();
+    }
+
+    public SnapshotOutput putByte(int value) {
+        ensure(1).put((byte) value);
+        return this;
+    }
+
+    public SnapshotOutput putInt(int value) {
+        ensure(4).putInt(value);
+        return this;
+    }
+
+    public SnapshotOutput putLong(long value) {
+        ensure(8).putLong(value);
+        return this;
+    }
+
+    public SnapshotOutput putBytes(byte[] bytes) {
+        putInt(bytes.length);
+        return putRaw(ByteBuffer.wrap(bytes));
+    }
+
+    public SnapshotOutput putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("The snapshot string is too long: " + bytes.length);
+        }
+        ensure(2 + bytes.length).putShort((short) bytes.length).put(bytes);
+        return this;
+    }
+
+    /**
+     * 原样写入剩余内容（不带长度），超过缓冲区时分块写入
+     */
+    public SnapshotOutput putRaw(ByteBuffer source) {
+        ByteBuffer in = source.duplicate();
+        while (in.hasRemaining()) {
+            int chunk = Math.min(in.remaining(), channel == null ? in.remaining() : buffer.capacity());
+            ByteBuffer slice = in.slice();
+            slice.limit(chunk);
+            ensure(chunk).put(slice);
+            in.position(in.position() + chunk);
+        }
+        return this;
+    }
+
+    /**
+     * 在指定位置回填 int（用于先占位、后写条目数或长度），位置已刷入文件时按位置写回文件
+     */
+    public SnapshotOutput putInt(long position, int value) {
+        if (position >= flushed) {
+            buffer.putInt((int) (position - flushed), value);
+            return this;
+        }
+        if (position + 4 > flushed) {
+            flush();
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(4).putInt(value);
+        bytes.flip();
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes, position + bytes.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    /**
+     * @return 已写入字节数（文件模式为文件中的位置）
+     */
+    public long position() {
+        return flushed + buffer.position();
+    }
+
+    /**
+     * @return 写入本输出的流视图，用于第三方序列化格式直接写入
+     */
+    public OutputStream asOutputStream() {
+        if (stream == null) {
+            stream = new OutputStream() {
+                @Override
+                public void write(int b) {
+                    putByte(b);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) {
+                    putRaw(ByteBuffer.wrap(bytes, offset, length));
+                }
+            };
+        }
+        return stream;
+    }
+
+    /**
+     * 将缓冲区内容刷入文件通道，内存模式下无操作
+     */
+    public void flush() {
+        if (channel == null) {
+            return;
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                flushed += channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * @return 已写入内容的只读视图，仅内存模式可用
+     */
+    public ByteBuffer toByteBuffer() {
+        if (channel != null) {
+            throw new IllegalStateException("The snapshot output is backed by a file channel");
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.flip();
+        return view.asReadOnlyBuffer();
+    }
+
+    private ByteBuffer ensure(int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        if (channel != null) {
+            flush();
+            if (buffer.remaining() >= bytes) {
+                return buffer;
+            }
+            // 单次写入大于缓冲区（如超长字符串），换用足够大的缓冲区
+            buffer = ByteBuffer.allocateDirect(bytes);
+            return buffer;
+        }
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+        return buffer;
+    }
+
+    /**
+     * 读取 {@link #putString(String)} 写入的字符串
+     */
+    public static String getString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 读取 {@link #putBytes(byte[])} 写入的字节数组
+     */
+    public static byte[] getBytes(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return bytes;
+    }
+}
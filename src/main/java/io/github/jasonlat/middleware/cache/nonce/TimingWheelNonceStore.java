@@ -0,0 +1,194 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 时间轮 nonce 存储
+ * 由一圈时间桶组成，桶宽 = 窗口 / (桶数 - 1)，同一时刻只有最近的 bucketCount 个桶存活。
+ * 过期时整桶替换（O(1)），不做逐条目的过期记账，也没有容量上限，内存随实际请求量增长
+ *
+ * @author jasonlat
+ */
+public final class TimingWheelNonceStore implements NonceStore, SnapshotCapable {
+
+    private final long windowMillis;
+    private final long tickMillis;
+    private final int bucketCount;
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+
+    /**
+     * @param windowMillis 保留窗口（毫秒），写入的 nonce 至少保留该时长
+     * @param bucketCount  桶数量，至少为 2
+     */
+    public TimingWheelNonceStore(long windowMillis, int bucketCount) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("The timing wheel window must be greater than 0");
+        }
+        if (bucketCount < 2) {
+            throw new IllegalArgumentException("The timing wheel needs at least 2 buckets");
+        }
+        this.windowMillis = windowMillis;
+        this.bucketCount = bucketCount;
+        // 最早写入的条目在 (bucketCount - 1) 个桶宽后才会被丢弃
+        this.tickMillis = Math.max(1L, (windowMillis + bucketCount - 2) / (bucketCount - 1));
+        this.buckets = new AtomicReferenceArray<>(bucketCount);
+    }
+
+    /**
+     * 写入当前桶后再检查其它存活桶，桶切换瞬间的并发重复至多被双双拒绝，不会双双放行
+     *
+     * @param nonce        nonce
+     * @param windowMillis 忽略，保留时长由构造时的窗口决定
+     * @return 是否首次出现
+     */
+    @Override
+    public boolean putIfAbsent(String nonce, long windowMillis) {
+        long tick = System.currentTimeMillis() / tickMillis;
+        Bucket current = bucketFor(tick);
+
+        if (!current.keys.add(nonce)) {
+            rejected.increment();
+            return false;
+        }
+
+        for (int i = 0; i < bucketCount; i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket != current && isLive(bucket, tick) && bucket.keys.contains(nonce)) {
+                rejected.increment();
+                return false;
+            }
+        }
+        accepted.increment();
+        return true;
+    }
+
+    /**
+     * 获取当前时间所在的桶，槽位中的旧桶被整体替换
+     */
+    private Bucket bucketFor(long tick) {
+        int slot = (int) (tick % bucketCount);
+        while (true) {
+            Bucket bucket = buckets.get(slot);
+            if (bucket != null && bucket.tick >= tick) {
+                return bucket;
+            }
+            Bucket fresh = new Bucket(tick);
+            if (buckets.compareAndSet(slot, bucket, fresh)) {
+                rotations.increment();
+                return fresh;
+            }
+        }
+    }
+
+    private boolean isLive(Bucket bucket, long tick) {
+        return bucket.tick > tick - bucketCount && bucket.tick <= tick;
+    }
+
+    /**
+     * 快照格式：| tickMillis (long) | bucketCount (int) | count (int) | (tick (long) | size (int) | nonce (string) * size) * count |
+     */
+    @Override
+    public void writeSnapshot(SnapshotOutput out, long nowMillis) {
+        long tick = nowMillis / tickMillis;
+        out.putLong(tickMillis).putInt(bucketCount);
+        long countPosition = out.position();
+        out.putInt(0);
+        int count = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket == null || !isLive(bucket, tick)) {
+                continue;
+            }
+            // 并发写入时以实际写出的条目数为准
+            long sizePosition = out.position();
+            out.putLong(bucket.tick).putInt(0);
+            int size = 0;
+            for (String nonce : bucket.keys) {
+                out.putString(nonce);
+                size++;
+            }
+            out.putInt(sizePosition + 8, size);
+            count++;
+        }
+        out.putInt(countPosition, count);
+    }
+
+    /**
+     * 桶宽一致时按原桶恢复；配置变化时放入当前桶（只会延长保留时间）
+     */
+    @Override
+    public long restoreSnapshot(ByteBuffer in, long nowMillis) {
+        long savedTickMillis = in.getLong();
+        int savedBucketCount = in.getInt();
+        int count = in.getInt();
+        long tick = nowMillis / tickMillis;
+        long restored = 0;
+        for (int i = 0; i < count; i++) {
+            long savedTick = in.getLong();
+            int size = in.getInt();
+            boolean sameLayout = savedTickMillis == tickMillis && savedBucketCount == bucketCount;
+            boolean live = (savedTick + savedBucketCount) * savedTickMillis > nowMillis;
+            Bucket target = null;
+            if (live) {
+                target = sameLayout ? bucketFor(savedTick) : bucketFor(tick);
+            }
+            for (int j = 0; j < size; j++) {
+                String nonce = SnapshotOutput.getString(in);
+                if (target != null && target.keys.add(nonce)) {
+                    restored++;
+                }
+            }
+        }
+        return restored;
+    }
+
+    @Override
+    public long size() {
+        long tick = System.currentTimeMillis() / tickMillis;
+        long size = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && isLive(bucket, tick)) {
+                size += bucket.keys.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.set(i, null);
+        }
+    }
+
+    @Override
+    public String getStats() {
+        long accept = accepted.sum();
+        long reject = rejected.sum();
+        long total = accept + reject;
+        return String.format("Size: %d, Accepted: %d, Duplicates: %d, Duplicate Rate: %.2f%%, Window: %d ms, Buckets: %d x %d ms, Rotations: %d",
+                size(), accept, reject, total == 0 ? 0D : reject * 100D / total,
+                windowMillis, bucketCount, tickMillis, rotations.sum());
+    }
+
+    /**
+     * 时间桶
+     */
+    private static final class Bucket {
+        private final long tick;
+        private final Set<String> keys = ConcurrentHashMap.newKeySet();
+
+        private Bucket(long tick) {
+            this.tick = tick;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package io.github.jasonlat.middleware.cache.nonce.distributed;
+
+import io.github.jasonlat.middleware.cache.nonce.LocalNonceStore;
+import io.github.jasonlat.middleware.cache.nonce.NonceStore;
+
+import java.util.List;
+
+/**
+ * 进程内分片节点（参考实现）
+ * 直接委托给本地 nonce 存储，用于单机部署或在本地模拟多分片行为
+ *
+ * @author jasonlat
+ */
+public final class InProcessNonceStoreNode implements NonceStoreNode {
+
+    private final String id;
+    private final NonceStore store;
+
+    public InProcessNonceStoreNode(String id, long maximumSize) {
+        this(id, new LocalNonceStore(maximumSize));
+    }
+
+    public InProcessNonceStoreNode(String id, NonceStore store) {
+        this.id = id;
+        this.store = store;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public boolean[] putIfAbsentBatch(List<String> nonces, long windowMillis) {
+        return store.putIfAbsentAll(nonces, windowMillis);
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.jasonlat.middleware.cache.nonce.distributed;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 分布式 nonce 存储节点 SPI
+ * 每个节点负责一部分 nonce（按 nonce 哈希分片），必须保证单节点内 "窗口内不存在则写入" 的原子性。
+ * 容器中存在该类型的 Bean 时，DISTRIBUTED 存储优先使用这些 Bean 作为分片节点（如基于 Redis SET NX PX 的实现）
+ *
+ * @author jasonlat
+ */
+public interface NonceStoreNode {
+
+    /**
+     * @return 节点唯一标识，用于分片哈希，多个实例间必须保持一致
+     */
+    String getId();
+
+    /**
+     * 批量原子写入，一次往返处理整批 nonce（流水线）
+     *
+     * @param nonces       nonce 列表
+     * @param windowMillis 有效窗口（毫秒）
+     * @return 与 nonces 一一对应：true 表示首次写入，false 表示窗口内已存在
+     * @throws IOException 节点不可用
+     */
+    boolean[] putIfAbsentBatch(List<String> nonces, long windowMillis) throws IOException;
+}
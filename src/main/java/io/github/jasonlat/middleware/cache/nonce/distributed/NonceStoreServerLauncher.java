@@ -0,0 +1,47 @@
+package io.github.jasonlat.middleware.cache.nonce.distributed;
+
+import io.github.jasonlat.middleware.cache.nonce.LocalNonceStore;
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+
+/**
+ * 在当前应用内启动 TCP 替身服务
+ * 仅在 jasonlat.ecc.distributed-nonce-store.server.enabled = true 时生效，用于本地验证多节点行为
+ *
+ * @author jasonlat
+ */
+@Component
+@ConditionalOnProperty(prefix = "jasonlat.ecc.distributed-nonce-store.server", name = "enabled", havingValue = "true")
+public final class NonceStoreServerLauncher {
+
+    private final TcpNonceStoreServer server;
+
+    public NonceStoreServerLauncher(EccAutoConfigProperties configProperties) {
+        EccAutoConfigProperties.DistributedNonceStore.Server config = configProperties.getDistributedNonceStore().getServer();
+        this.server = new TcpNonceStoreServer(config.getBindAddress(), config.getPort(),
+                new LocalNonceStore(configProperties.getReplayAttackCacheMaxSize() + configProperties.getUniqueRequestMaximumSize()),
+                config.getSimulatedLatencyMillis());
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        server.start();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        server.close();
+    }
+
+    /**
+     * @return 实际监听端口
+     */
+    public int getLocalPort() {
+        return server.getLocalPort();
+    }
+}
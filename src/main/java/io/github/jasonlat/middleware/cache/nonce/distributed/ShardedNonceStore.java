@@ -0,0 +1,236 @@
+package io.github.jasonlat.middleware.cache.nonce.distributed;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.github.jasonlat.middleware.cache.nonce.NonceStore;
+import io.github.jasonlat.middleware.exception.ReplayProtectionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分片 nonce 存储
+ * 每个 nonce 通过 rendezvous 哈希确定唯一的归属节点，节点增减只影响其自身负责的那部分 nonce；
+ * 批量写入按归属节点分组，每个节点一次往返。
+ * 本地近端缓存只记录 "确定已存在" 的 nonce（TTL 不超过窗口），命中时直接判定重复，无需访问远端
+ *
+ * @author jasonlat
+ */
+public final class ShardedNonceStore implements NonceStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedNonceStore.class);
+
+    private final String namespace;
+    private final List<NonceStoreNode> nodes;
+    private final long[] nodeSeeds;
+    private final boolean failOpen;
+
+    /**
+     * Key: nonce, Value: 近端缓存有效期（毫秒）
+     */
+    private final Cache<String, Long> nearCache;
+    private final long nearCacheTtlMillis;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder nearCacheHits = new LongAdder();
+    private final LongAdder roundTrips = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param namespace          命名空间，作为远端 key 前缀，避免不同场景共享节点时互相冲突
+     * @param nodes              分片节点，不能为空
+     * @param nearCacheSize      近端缓存最大条目数，0 表示关闭
+     * @param nearCacheTtlMillis 近端缓存有效期上限（毫秒），实际取 min(该值, 窗口)
+     * @param failOpen           节点不可用时是否放行（默认拒绝）
+     */
+    public ShardedNonceStore(String namespace, List<NonceStoreNode> nodes, long nearCacheSize, long nearCacheTtlMillis, boolean failOpen) {
+        if (nodes == null || nodes.isEmpty()) {
+            throw new IllegalArgumentException("At least one nonce store node is required");
+        }
+        this.namespace = namespace + ":";
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+        this.nodeSeeds = new long[this.nodes.size()];
+        for (int i = 0; i < nodeSeeds.length; i++) {
+            nodeSeeds[i] = hash64(this.nodes.get(i).getId().getBytes(StandardCharsets.UTF_8), 0x9E3779B97F4A7C15L);
+        }
+        this.failOpen = failOpen;
+        this.nearCacheTtlMillis = nearCacheTtlMillis;
+        this.nearCache = nearCacheSize > 0 && nearCacheTtlMillis > 0
+                ? Caffeine.newBuilder().maximumSize(nearCacheSize).expireAfter(new TtlExpiry()).build()
+                : null;
+    }
+
+    @Override
+    public boolean putIfAbsent(String nonce, long windowMillis) {
+        return putIfAbsentAll(Collections.singletonList(nonce), windowMillis)[0];
+    }
+
+    @Override
+    public boolean[] putIfAbsentAll(List<String> nonces, long windowMillis) {
+        boolean[] results = new boolean[nonces.size()];
+
+        // 按归属节点分组，近端缓存命中的直接判定为重复
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < nonces.size(); i++) {
+            String nonce = nonces.get(i);
+            if (nearCache != null && nearCache.getIfPresent(nonce) != null) {
+                nearCacheHits.increment();
+                continue;
+            }
+            groups.computeIfAbsent(ownerOf(nonce), key -> new ArrayList<>()).add(i);
+        }
+
+        for (Map.Entry<Integer, List<Integer>> group : groups.entrySet()) {
+            NonceStoreNode node = nodes.get(group.getKey());
+            List<Integer> indexes = group.getValue();
+            List<String> batch = new ArrayList<>(indexes.size());
+            for (Integer index : indexes) {
+                batch.add(namespace + nonces.get(index));
+            }
+
+            boolean[] batchResults = call(node, batch, windowMillis);
+            for (int i = 0; i < indexes.size(); i++) {
+                results[indexes.get(i)] = batchResults[i];
+            }
+        }
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i]) {
+                accepted.increment();
+            } else {
+                rejected.increment();
+            }
+            // 无论首次写入还是重复，窗口内都确定已存在
+            if (nearCache != null) {
+                nearCache.put(nonces.get(i), Math.min(nearCacheTtlMillis, windowMillis));
+            }
+        }
+        return results;
+    }
+
+    private boolean[] call(NonceStoreNode node, List<String> batch, long windowMillis) {
+        roundTrips.increment();
+        try {
+            boolean[] results = node.putIfAbsentBatch(batch, windowMillis);
+            if (results == null || results.length != batch.size()) {
+                throw new IOException("Unexpected result size from nonce store node: " + node.getId());
+            }
+            return results;
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            if (failOpen) {
+                logger.warn("Nonce store node is unavailable, requests are allowed (fail-open) - Node: {}, Error: {}", node.getId(), e.getMessage());
+                boolean[] results = new boolean[batch.size()];
+                Arrays.fill(results, true);
+                return results;
+            }
+            logger.error("Nonce store node is unavailable - Node: {}, Error: {}", node.getId(), e.getMessage());
+            throw new ReplayProtectionException("Nonce store is unavailable: " + node.getId(), "NONCE_STORE_UNAVAILABLE", e);
+        }
+    }
+
+    /**
+     * rendezvous (HRW) 哈希：选出 hash(nonce, node) 最大的节点
+     */
+    private int ownerOf(String nonce) {
+        if (nodes.size() == 1) {
+            return 0;
+        }
+        byte[] bytes = nonce.getBytes(StandardCharsets.UTF_8);
+        int owner = 0;
+        long best = Long.MIN_VALUE;
+        for (int i = 0; i < nodeSeeds.length; i++) {
+            long score = hash64(bytes, nodeSeeds[i]);
+            if (score > best) {
+                best = score;
+                owner = i;
+            }
+        }
+        return owner;
+    }
+
+    /**
+     * FNV-1a 64 + murmur3 fmix64 收尾
+     */
+    private static long hash64(byte[] bytes, long seed) {
+        long h = 0xCBF29CE484222325L ^ seed;
+        for (byte b : bytes) {
+            h ^= b & 0xFF;
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * @return 分片节点
+     */
+    public List<NonceStoreNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return 近端缓存条目数（远端大小不可知）
+     */
+    @Override
+    public long size() {
+        return nearCache == null ? 0L : nearCache.estimatedSize();
+    }
+
+    /**
+     * 仅清空近端缓存，远端数据由各节点自行过期
+     */
+    @Override
+    public void clear() {
+        if (nearCache != null) {
+            nearCache.invalidateAll();
+        }
+    }
+
+    @Override
+    public String getStats() {
+        long accept = accepted.sum();
+        long reject = rejected.sum();
+        long total = accept + reject;
+        return String.format("Nodes: %d, Near Cache Size: %d, Accepted: %d, Duplicates: %d, Duplicate Rate: %.2f%%, Near Cache Hits: %d, Round Trips: %d, Failures: %d",
+                nodes.size(), size(), accept, reject, total == 0 ? 0D : reject * 100D / total,
+                nearCacheHits.sum(), roundTrips.sum(), failures.sum());
+    }
+
+    /**
+     * 按条目自身有效期过期，读取不延长寿命
+     */
+    private static final class TtlExpiry implements Expiry<String, Long> {
+
+        @Override
+        public long expireAfterCreate(String key, Long ttlMillis, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Long ttlMillis, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Long ttlMillis, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.jasonlat.middleware.cache.nonce.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 连接 {@link TcpNonceStoreServer} 的分片节点
+ * 维护一个小型连接池，每次批量写入占用一条连接完成一次往返
+ *
+ * @author jasonlat
+ */
+public final class TcpNonceStoreNode implements NonceStoreNode {
+
+    private final String host;
+    private final int port;
+    private final int timeoutMillis;
+    private final BlockingQueue<Connection> idle;
+
+    /**
+     * @param address       host:port
+     * @param maxIdle       最大空闲连接数
+     * @param timeoutMillis 连接与读取超时（毫秒）
+     */
+    public TcpNonceStoreNode(String address, int maxIdle, int timeoutMillis) {
+        int index = address.lastIndexOf(':');
+        if (index <= 0) {
+            throw new IllegalArgumentException("The nonce store node address must be host:port, got: " + address);
+        }
+        this.host = address.substring(0, index).trim();
+        this.port = Integer.parseInt(address.substring(index + 1).trim());
+        this.timeoutMillis = timeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, maxIdle));
+    }
+
+    @Override
+    public String getId() {
+        return host + ":" + port;
+    }
+
+    @Override
+    public boolean[] putIfAbsentBatch(List<String> nonces, long windowMillis) throws IOException {
+        if (nonces.size() > TcpNonceStoreServer.MAX_BATCH_SIZE) {
+            throw new IOException("The nonce batch is too large: " + nonces.size());
+        }
+        Connection connection = idle.poll();
+        if (connection == null) {
+            connection = new Connection(host, port, timeoutMillis);
+        }
+        try {
+            boolean[] results = connection.call(nonces, windowMillis);
+            if (!idle.offer(connection)) {
+                connection.close();
+            }
+            return results;
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 单条连接
+     */
+    private static final class Connection {
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private Connection(String host, int port, int timeoutMillis) throws IOException {
+            this.socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(timeoutMillis);
+            socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private boolean[] call(List<String> nonces, long windowMillis) throws IOException {
+            out.writeInt(nonces.size());
+            out.writeLong(windowMillis);
+            for (String nonce : nonces) {
+                out.writeUTF(nonce);
+            }
+            out.flush();
+
+            boolean[] results = new boolean[nonces.size()];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = in.readByte() == 1;
+            }
+            return results;
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // ignore
+            }
+        }
+    }
+}
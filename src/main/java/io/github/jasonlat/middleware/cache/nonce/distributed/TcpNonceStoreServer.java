@@ -0,0 +1,187 @@
+package io.github.jasonlat.middleware.cache.nonce.distributed;
+
+import io.github.jasonlat.middleware.cache.nonce.LocalNonceStore;
+import io.github.jasonlat.middleware.cache.nonce.NonceStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TCP nonce 存储替身服务
+ * 用于在本地验证多节点行为与网络延迟，不用于生产。协议（大端）：
+ * <pre>
+ * 请求: | count (int) | windowMillis (long) | nonce (UTF) * count |
+ * 响应: | result (byte, 1 = 首次写入, 0 = 已存在) * count |
+ * </pre>
+ * 同一连接可连续发送多个请求。协议没有认证，默认只监听回环地址，需要跨主机验证时再显式指定监听地址
+ *
+ * @author jasonlat
+ */
+public final class TcpNonceStoreServer implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TcpNonceStoreServer.class);
+
+    static final int MAX_BATCH_SIZE = 4096;
+
+    /**
+     * 默认监听地址：仅本机可访问
+     */
+    public static final String DEFAULT_BIND_ADDRESS = "127.0.0.1";
+
+    private final String bindAddress;
+    private final int port;
+    private final NonceStore store;
+    private final long simulatedLatencyMillis;
+
+    private final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "ecc-nonce-store-server");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * 监听回环地址
+     *
+     * @param port                   监听端口
+     * @param store                  实际存储
+     * @param simulatedLatencyMillis 每次请求的模拟网络延迟（毫秒），0 表示不模拟
+     */
+    public TcpNonceStoreServer(int port, NonceStore store, long simulatedLatencyMillis) {
+        this(DEFAULT_BIND_ADDRESS, port, store, simulatedLatencyMillis);
+    }
+
+    /**
+     * @param bindAddress            监听地址，0.0.0.0 表示所有网卡
+     * @param port                   监听端口
+     * @param store                  实际存储
+     * @param simulatedLatencyMillis 每次请求的模拟网络延迟（毫秒），0 表示不模拟
+     */
+    public TcpNonceStoreServer(String bindAddress, int port, NonceStore store, long simulatedLatencyMillis) {
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.store = store;
+        this.simulatedLatencyMillis = simulatedLatencyMillis;
+    }
+
+    /**
+     * 启动监听
+     *
+     * @throws IOException 端口绑定失败
+     */
+    public void start() throws IOException {
+        ServerSocket socket = new ServerSocket();
+        socket.setReuseAddress(true);
+        socket.bind(new InetSocketAddress(bindAddress, port));
+        this.serverSocket = socket;
+        workers.execute(this::acceptLoop);
+        logger.info("Nonce store stand-in server started - Address: {}, Port: {}, Simulated latency: {} ms",
+                bindAddress, socket.getLocalPort(), simulatedLatencyMillis);
+    }
+
+    /**
+     * @return 实际监听端口
+     */
+    public int getLocalPort() {
+        ServerSocket socket = serverSocket;
+        return socket == null ? port : socket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        ServerSocket socket = serverSocket;
+        while (socket != null && !socket.isClosed()) {
+            try {
+                Socket client = socket.accept();
+                client.setTcpNoDelay(true);
+                workers.execute(() -> serve(client));
+            } catch (SocketException e) {
+                // closed
+                return;
+            } catch (IOException e) {
+                logger.warn("Nonce store stand-in server accept failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (Socket socket = client;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                int count;
+                try {
+                    count = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (count < 0 || count > MAX_BATCH_SIZE) {
+                    logger.warn("Nonce store stand-in server received an invalid batch size: {}", count);
+                    return;
+                }
+                long windowMillis = in.readLong();
+                List<String> nonces = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    nonces.add(in.readUTF());
+                }
+
+                if (simulatedLatencyMillis > 0) {
+                    TimeUnit.MILLISECONDS.sleep(simulatedLatencyMillis);
+                }
+
+                boolean[] results = store.putIfAbsentAll(nonces, windowMillis);
+                for (boolean result : results) {
+                    out.writeByte(result ? 1 : 0);
+                }
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.debug("Nonce store stand-in connection closed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ServerSocket socket = serverSocket;
+        serverSocket = null;
+        if (socket != null) {
+            socket.close();
+        }
+        workers.shutdownNow();
+        logger.info("Nonce store stand-in server stopped");
+    }
+
+    /**
+     * 独立启动替身服务：java ... TcpNonceStoreServer [port] [simulatedLatencyMillis] [maximumSize] [bindAddress]
+     *
+     * @param args 参数
+     * @throws Exception 启动失败
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7391;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 0L;
+        long maximumSize = args.length > 2 ? Long.parseLong(args[2]) : 1000000L;
+        String bindAddress = args.length > 3 ? args[3] : DEFAULT_BIND_ADDRESS;
+        TcpNonceStoreServer server = new TcpNonceStoreServer(bindAddress, port, new LocalNonceStore(maximumSize), latency);
+        server.start();
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,555 @@
+package io.github.jasonlat.middleware.cache.userkey;
+
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * 用户公钥二级存储（内存映射文件）
+ * 用户公钥以定长记录存放在本地磁盘的内存映射文件中，作为 EccContextCache 之后的第二级：堆内缓存未命中时先查本存储，
+ * 命中则不访问用户数据服务；文件跨重启保留。用户名不落盘，只保存加盐 SHA-256 的前 128 位作为索引
+ *
+ * <pre>
+ * file   = | header (64 bytes) | segment * 16 |
+ * header = | magic (int) | version (int) | slotsPerSegment (int) | segments (int) | salt (16) | createdAt (long) | reserved |
+ * slot (96 bytes) = | hashHi (8) | hashLo (8) | loadTime (8) | x (32) | y (32) | checksum (8) |
+ * </pre>
+ * loadTime == 0 表示槽位从未使用，-1 表示已删除；删除与过期的槽位继续参与探测，可被直接复用。
+ * 探测范围内无可用槽位时覆盖其中最旧的记录。
+ * 写入时先将 loadTime 置为已删除，再写索引、坐标与校验和，最后写 loadTime；checksum 为 索引 + loadTime + 坐标 的 CRC32，
+ * 读取时校验，进程或系统在写入中途退出、只有部分页面落盘时，残缺的记录按不存在处理，不会返回错误的公钥
+ *
+ * @author jasonlat
+ */
+@Component
+public final class MappedUserKeyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedUserKeyStore.class);
+
+    private static final int MAGIC = 0x45434355;
+    private static final int VERSION = 2;
+
+    private static final int HEADER_BYTES = 64;
+    private static final int SALT_OFFSET = 16;
+    private static final int SALT_BYTES = 16;
+    private static final int CREATED_AT_OFFSET = 32;
+
+    static final int SLOT_BYTES = 96;
+    private static final int HASH_HI_OFFSET = 0;
+    private static final int HASH_LO_OFFSET = 8;
+    private static final int LOAD_TIME_OFFSET = 16;
+    private static final int KEY_OFFSET = 24;
+    private static final int COORDINATE_BYTES = 32;
+    private static final int CHECKSUM_OFFSET = KEY_OFFSET + COORDINATE_BYTES * 2;
+
+    private static final long DELETED = -1L;
+
+    /**
+     * 段内查询未命中
+     */
+    private static final long MISSING = Long.MIN_VALUE;
+
+    private static final int SEGMENTS = 16;
+    private static final int MAX_PROBES = 32;
+
+    /**
+     * 每段槽位数上限：2 的幂，且整段映射区域不超过 int 偏移（2^24 * 96 字节约 1.5GB）
+     */
+    private static final int MAX_SLOTS_PER_SEGMENT = 1 << 24;
+
+    /**
+     * 容量上限（槽位数）
+     */
+    public static final long MAX_CAPACITY = (long) MAX_SLOTS_PER_SEGMENT * SEGMENTS;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final boolean enabled;
+    private final long expireMillis;
+    private final Segment[] segments;
+    private final int slotsPerSegment;
+    private final byte[] salt;
+    private final String path;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder corrupted = new LongAdder();
+
+    public MappedUserKeyStore(EccAutoConfigProperties configProperties) {
+        EccAutoConfigProperties.UserKeyStore config = configProperties.getUserKeyStore();
+        this.enabled = config.isEnabled();
+        this.expireMillis = TimeUnit.MINUTES.toMillis(config.getExpireMinutes());
+        this.path = config.getPath();
+        if (!enabled) {
+            this.segments = null;
+            this.slotsPerSegment = 0;
+            this.salt = null;
+            return;
+        }
+        // 先取整再检查上限，取整可能使每段槽位数翻倍
+        long perSegment = Math.max(MAX_PROBES, (config.getCapacity() + SEGMENTS - 1) / SEGMENTS);
+        long rounded = Long.highestOneBit(perSegment - 1) << 1;
+        if (config.getCapacity() <= 0 || rounded > MAX_SLOTS_PER_SEGMENT) {
+            throw new IllegalArgumentException("The user key store capacity must be between 1 and " + MAX_CAPACITY + ": " + config.getCapacity());
+        }
+        this.slotsPerSegment = (int) rounded;
+        this.segments = new Segment[SEGMENTS];
+        try {
+            this.salt = open(Paths.get(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open user key store: " + path, e);
+        }
+    }
+
+    /**
+     * 映射文件；文件不存在、格式或容量不一致时重新初始化
+     *
+     * @return 索引哈希的盐
+     */
+    private byte[] open(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        long segmentBytes = (long) slotsPerSegment * SLOT_BYTES;
+        long fileBytes = HEADER_BYTES + segmentBytes * SEGMENTS;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long existingBytes = channel.size();
+            boolean reuse = existingBytes == fileBytes;
+            // 映射在通道关闭后依然有效
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            reuse = reuse && header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+                    && header.getInt(8) == slotsPerSegment && header.getInt(12) == SEGMENTS;
+            byte[] salt = new byte[SALT_BYTES];
+            if (reuse) {
+                for (int i = 0; i < SALT_BYTES; i++) {
+                    salt[i] = header.get(SALT_OFFSET + i);
+                }
+            } else {
+                if (existingBytes > 0) {
+                    logger.warn("User key store format or capacity changed, recreating - Path: {}", file);
+                    channel.truncate(0);
+                    header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+                }
+                new SecureRandom().nextBytes(salt);
+            }
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new Segment(channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + segmentBytes * i, segmentBytes));
+            }
+            if (!reuse) {
+                // 槽位全部为 0（未使用）后再写入头部，中途退出的文件下次会被重新初始化
+                header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, slotsPerSegment).putInt(12, SEGMENTS);
+                for (int i = 0; i < SALT_BYTES; i++) {
+                    header.put(SALT_OFFSET + i, salt[i]);
+                }
+                header.putLong(CREATED_AT_OFFSET, System.currentTimeMillis());
+                header.force();
+            }
+            logger.info("User key store mapped - Path: {}, Slots: {}, Bytes: {}, Reused: {}", file, (long) slotsPerSegment * SEGMENTS, fileBytes, reuse);
+            return salt;
+        }
+    }
+
+    /**
+     * @return 是否启用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查询用户公钥
+     *
+     * @param userId 用户唯一标识
+     * @return 未过期的用户公钥，不存在时为 null
+     */
+    public UserPublicData get(String userId) {
+        Entry entry = getEntry(userId);
+        return entry != null ? entry.getUserData() : null;
+    }
+
+    /**
+     * 查询用户公钥及其写入时间
+     *
+     * @param userId 用户唯一标识
+     * @return 未过期的记录，不存在时为 null
+     */
+    public Entry getEntry(String userId) {
+        if (!enabled) {
+            return null;
+        }
+        byte[] hash = hash(userId);
+        long hi = getLong(hash, 0);
+        long lo = getLong(hash, 8);
+        byte[] key = new byte[COORDINATE_BYTES * 2];
+        long loadTime = segment(hi).get(hi, lo, System.currentTimeMillis() - expireMillis, key);
+        if (loadTime == MISSING) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new Entry(new UserPublicData(toHex(key, 0), toHex(key, COORDINATE_BYTES)), loadTime);
+    }
+
+    /**
+     * 写入用户公钥；坐标不是 64 位以内的十六进制字符串时不写入
+     *
+     * @param userId   用户唯一标识
+     * @param userData 用户公钥
+     */
+    public void put(String userId, UserPublicData userData) {
+        if (!enabled || userData == null) {
+            return;
+        }
+        byte[] key = new byte[COORDINATE_BYTES * 2];
+        if (!parseHex(userData.getX(), key, 0) || !parseHex(userData.getY(), key, COORDINATE_BYTES)) {
+            skipped.increment();
+            return;
+        }
+        byte[] hash = hash(userId);
+        long hi = getLong(hash, 0);
+        long lo = getLong(hash, 8);
+        long now = System.currentTimeMillis();
+        if (segment(hi).put(hi, lo, now, now - expireMillis, key)) {
+            evictions.increment();
+        }
+        writes.increment();
+    }
+
+    /**
+     * 删除用户公钥
+     *
+     * @param userId 用户唯一标识
+     */
+    public void remove(String userId) {
+        if (!enabled) {
+            return;
+        }
+        byte[] hash = hash(userId);
+        long hi = getLong(hash, 0);
+        long lo = getLong(hash, 8);
+        segment(hi).remove(hi, lo);
+    }
+
+    /**
+     * 清空存储
+     */
+    public void clear() {
+        if (!enabled) {
+            return;
+        }
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (!enabled) {
+            return;
+        }
+        for (Segment segment : segments) {
+            segment.force();
+        }
+    }
+
+    /**
+     * @return 指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        if (!enabled) {
+            return metrics;
+        }
+        metrics.put("path", path);
+        metrics.put("slots", (long) slotsPerSegment * SEGMENTS);
+        metrics.put("fileBytes", HEADER_BYTES + (long) slotsPerSegment * SLOT_BYTES * SEGMENTS);
+        metrics.put("hits", hits.sum());
+        metrics.put("misses", misses.sum());
+        metrics.put("writes", writes.sum());
+        metrics.put("evictions", evictions.sum());
+        metrics.put("skipped", skipped.sum());
+        metrics.put("corrupted", corrupted.sum());
+        return metrics;
+    }
+
+    private Segment segment(long hi) {
+        return segments[(int) (hi >>> 60) & (SEGMENTS - 1)];
+    }
+
+    private byte[] hash(String userId) {
+        MessageDigest digest = SHA_256.get();
+        digest.update(salt);
+        return digest.digest(userId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        long value = 0L;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * 十六进制坐标右对齐写入 32 字节
+     */
+    private static boolean parseHex(String hex, byte[] target, int offset) {
+        if (hex == null || hex.isEmpty() || hex.length() > COORDINATE_BYTES * 2) {
+            return false;
+        }
+        int end = offset + COORDINATE_BYTES;
+        int position = end * 2 - hex.length();
+        for (int i = 0; i < hex.length(); i++, position++) {
+            int digit = Character.digit(hex.charAt(i), 16);
+            if (digit < 0) {
+                return false;
+            }
+            int index = position / 2;
+            target[index] = (byte) ((position & 1) == 0 ? digit << 4 : target[index] | digit);
+        }
+        return true;
+    }
+
+    private static String toHex(byte[] source, int offset) {
+        char[] chars = new char[COORDINATE_BYTES * 2];
+        for (int i = 0; i < COORDINATE_BYTES; i++) {
+            chars[i * 2] = HEX[(source[offset + i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[source[offset + i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 分段，每段一块映射区域和一把锁
+     */
+    private final class Segment {
+
+        private final MappedByteBuffer table;
+        private final int mask;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * 计算校验和用的视图与缓冲，调用方需持有锁
+         */
+        private final ByteBuffer view;
+        private final ByteBuffer loadTimeBytes = ByteBuffer.allocate(8);
+        private final CRC32 crc = new CRC32();
+
+        private Segment(MappedByteBuffer table) {
+            this.table = table;
+            this.mask = slotsPerSegment - 1;
+            this.view = table.duplicate();
+        }
+
+        /**
+         * @param key 写入坐标的数组
+         * @return 记录的 loadTime，不存在、已过期或已损坏时返回 {@link #MISSING}
+         */
+        private long get(long hi, long lo, long minLoadTime, byte[] key) {
+            lock.lock();
+            try {
+                int offset = find(hi, lo);
+                if (offset < 0) {
+                    return MISSING;
+                }
+                long loadTime = table.getLong(offset + LOAD_TIME_OFFSET);
+                if (table.getLong(offset + CHECKSUM_OFFSET) != checksum(offset, loadTime)) {
+                    // 写入中途退出留下的残缺记录
+                    table.putLong(offset + LOAD_TIME_OFFSET, DELETED);
+                    corrupted.increment();
+                    return MISSING;
+                }
+                if (loadTime < minLoadTime) {
+                    return MISSING;
+                }
+                for (int i = 0; i < key.length; i++) {
+                    key[i] = table.get(offset + KEY_OFFSET + i);
+                }
+                return loadTime;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return 是否覆盖了其他用户的记录
+         */
+        private boolean put(long hi, long lo, long now, long minLoadTime, byte[] key) {
+            lock.lock();
+            try {
+                boolean evicted = false;
+                int offset = find(hi, lo);
+                if (offset < 0) {
+                    offset = reusable(lo, minLoadTime);
+                    evicted = offset < 0;
+                    if (evicted) {
+                        offset = -offset - 1;
+                    }
+                }
+                // 先标记为已删除，写入中途退出时旧记录不会与新内容混合
+                table.putLong(offset + LOAD_TIME_OFFSET, DELETED);
+                table.putLong(offset + HASH_HI_OFFSET, hi);
+                table.putLong(offset + HASH_LO_OFFSET, lo);
+                for (int i = 0; i < key.length; i++) {
+                    table.put(offset + KEY_OFFSET + i, key[i]);
+                }
+                table.putLong(offset + CHECKSUM_OFFSET, checksum(offset, now));
+                // loadTime 最后写入，作为记录有效的标志
+                table.putLong(offset + LOAD_TIME_OFFSET, now);
+                return evicted;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void remove(long hi, long lo) {
+            lock.lock();
+            try {
+                int offset = find(hi, lo);
+                if (offset >= 0) {
+                    table.putLong(offset + LOAD_TIME_OFFSET, DELETED);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 索引、loadTime 与坐标的 CRC32，调用方需持有锁
+         */
+        private long checksum(int offset, long loadTime) {
+            crc.reset();
+            view.limit(offset + HASH_LO_OFFSET + 8).position(offset + HASH_HI_OFFSET);
+            crc.update(view);
+            loadTimeBytes.clear();
+            loadTimeBytes.putLong(loadTime).flip();
+            crc.update(loadTimeBytes);
+            view.limit(offset + CHECKSUM_OFFSET).position(offset + KEY_OFFSET);
+            crc.update(view);
+            return crc.getValue();
+        }
+
+        /**
+         * 调用方需持有锁
+         *
+         * @return 相同用户记录的偏移，不存在时为 -1
+         */
+        private int find(long hi, long lo) {
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                int offset = (((int) lo + probe) & mask) * SLOT_BYTES;
+                long loadTime = table.getLong(offset + LOAD_TIME_OFFSET);
+                if (loadTime == 0L) {
+                    // 未使用槽位，探测链到此结束
+                    return -1;
+                }
+                if (loadTime != DELETED && table.getLong(offset + HASH_HI_OFFSET) == hi
+                        && table.getLong(offset + HASH_LO_OFFSET) == lo) {
+                    return offset;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 调用方需持有锁
+         *
+         * @return 未使用、已删除或已过期槽位的偏移；均无时返回 -(最旧槽位偏移) - 1
+         */
+        private int reusable(long lo, long minLoadTime) {
+            int oldest = -1;
+            long oldestLoadTime = Long.MAX_VALUE;
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                int offset = (((int) lo + probe) & mask) * SLOT_BYTES;
+                long loadTime = table.getLong(offset + LOAD_TIME_OFFSET);
+                if (loadTime == 0L || loadTime == DELETED || loadTime < minLoadTime) {
+                    return offset;
+                }
+                if (loadTime < oldestLoadTime) {
+                    oldestLoadTime = loadTime;
+                    oldest = offset;
+                }
+            }
+            return -oldest - 1;
+        }
+
+        private void clear() {
+            lock.lock();
+            try {
+                for (int offset = 0; offset < table.capacity(); offset += SLOT_BYTES) {
+                    table.putLong(offset + LOAD_TIME_OFFSET, 0L);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void force() {
+            lock.lock();
+            try {
+                table.force();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 查询结果
+     */
+    public static final class Entry {
+
+        private final UserPublicData userData;
+        private final long loadTime;
+
+        private Entry(UserPublicData userData, long loadTime) {
+            this.userData = userData;
+            this.loadTime = loadTime;
+        }
+
+        public UserPublicData getUserData() {
+            return userData;
+        }
+
+        /**
+         * @return 写入时间（epoch 毫秒）
+         */
+        public long getLoadTime() {
+            return loadTime;
+        }
+    }
+}
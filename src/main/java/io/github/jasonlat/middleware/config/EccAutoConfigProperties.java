@@ -1,5 +1,10 @@
 package io.github.jasonlat.middleware.config;
 
+import io.github.jasonlat.middleware.cache.nonce.OffHeapUuidNonceStore;
+import io.github.jasonlat.middleware.cache.userkey.MappedUserKeyStore;
+import io.github.jasonlat.middleware.cache.nonce.distributed.TcpNonceStoreServer;
+import io.github.jasonlat.middleware.domain.model.valobj.EccDecryptType;
+import io.github.jasonlat.middleware.util.CidrTrie;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -7,6 +12,13 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
 import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * ECC自动配置属性
@@ -42,6 +54,16 @@ public final class EccAutoConfigProperties {
      */
     private UserContextCache userContextCache = new UserContextCache();
 
+    /**
+     * 用户上下文缓存启动预热配置
+     */
+    private UserContextWarmup userContextWarmup = new UserContextWarmup();
+
+    /**
+     * 用户公钥二级存储配置
+     */
+    private UserKeyStore userKeyStore = new UserKeyStore();
+
     /**
      * 重放攻击防护配置
      */
@@ -52,6 +74,56 @@ public final class EccAutoConfigProperties {
      */
     private UniqueRequest uniqueRequest = new UniqueRequest();
 
+    /**
+     * 布隆过滤器 nonce 存储配置（storeType = BLOOM_FILTER 时生效）
+     */
+    private NonceFilter nonceFilter = new NonceFilter();
+
+    /**
+     * 分布式 nonce 存储配置（storeType = DISTRIBUTED 时生效）
+     */
+    private DistributedNonceStore distributedNonceStore = new DistributedNonceStore();
+
+    /**
+     * 防护存储快照配置
+     */
+    private NonceSnapshot nonceSnapshot = new NonceSnapshot();
+
+    /**
+     * 客户端 IP 解析配置
+     */
+    private ClientIp clientIp = new ClientIp();
+
+    /**
+     * 防护存储分片配置
+     */
+    private ProtectionShard protectionShard = new ProtectionShard();
+
+    /**
+     * 准入限流配置
+     */
+    private RateLimit rateLimit = new RateLimit();
+
+    /**
+     * 工作量证明配置
+     */
+    private ProofOfWork proofOfWork = new ProofOfWork();
+
+    /**
+     * 加解密线程池配置
+     */
+    private CryptoExecutor cryptoExecutor = new CryptoExecutor();
+
+    /**
+     * 加解密舱壁配置
+     */
+    private Bulkhead bulkhead = new Bulkhead();
+
+    /**
+     * 用户数据加载保护配置
+     */
+    private UserDataLoad userDataLoad = new UserDataLoad();
+
     /**
      * 用户上下文缓存配置类
      */
@@ -68,6 +140,89 @@ public final class EccAutoConfigProperties {
          * 缓存过期时间（分钟）
          */
         private long cacheExpireMinutes = 120L;
+
+        /**
+         * 写入多久后在下一次访问时后台异步刷新（分钟），须小于过期时间；0 表示过期时间的 80%
+         */
+        private long refreshAfterWriteMinutes = 0L;
+
+        /**
+         * 否定缓存（不存在的用户）最大数量
+         */
+        private long negativeMaxSize = 10000L;
+
+        /**
+         * 否定缓存过期时间（秒），0 表示不缓存不存在的用户
+         */
+        private long negativeTtlSeconds = 60L;
+    }
+
+    /**
+     * 用户上下文缓存启动预热配置类
+     * 关闭时记录访问最频繁的用户，启动时在就绪前通过 EccUserDataService#loadUserPublicDataBatch 分批并行预加载
+     */
+    @Setter
+    @Getter
+    public static class UserContextWarmup {
+
+        /**
+         * 是否启用预热
+         */
+        private boolean enabled = false;
+
+        /**
+         * 热点用户列表文件路径
+         */
+        private String path = "ecc-user-hotlist.bin";
+
+        /**
+         * 记录与预热的用户数量，超过 user-context-cache.cache-max-size 时按后者
+         */
+        private int size = 10000;
+
+        /**
+         * 每批用户数量
+         */
+        private int batchSize = 500;
+
+        /**
+         * 并行批次数
+         */
+        private int parallelism = 4;
+
+        /**
+         * 预热最长时间（秒），超时后不再等待，直接就绪
+         */
+        private long timeoutSeconds = 60L;
+    }
+
+    /**
+     * 用户公钥二级存储配置类
+     * 本地磁盘上的内存映射定长记录文件，位于用户上下文缓存之后、用户数据服务之前
+     */
+    @Setter
+    @Getter
+    public static class UserKeyStore {
+
+        /**
+         * 是否启用二级存储
+         */
+        private boolean enabled = false;
+
+        /**
+         * 存储文件路径
+         */
+        private String path = "ecc-user-keys.bin";
+
+        /**
+         * 记录槽位数（向上取整为 2 的幂），文件大小 = capacity * 96 字节，上限 2^28（约 24GB）
+         */
+        private long capacity = 1048576L;
+
+        /**
+         * 记录有效期（分钟），超过后重新访问用户数据服务
+         */
+        private long expireMinutes = 1440L;
     }
 
     /**
@@ -82,6 +237,16 @@ public final class EccAutoConfigProperties {
          */
         private Cache cache = new Cache();
 
+        /**
+         * 时间轮配置
+         */
+        private TimingWheel timingWheel = new TimingWheel();
+
+        /**
+         * 序列号模式配置
+         */
+        private Sequence sequence = new Sequence();
+
         /**
          * 缓存配置类
          */
@@ -99,6 +264,37 @@ public final class EccAutoConfigProperties {
              */
             private long cacheExpireMinutes = 30L;
         }
+
+        /**
+         * 时间轮配置类
+         */
+        @Setter
+        @Getter
+        public static class TimingWheel {
+
+            /**
+             * 时间桶数量，桶越多过期粒度越细、检查时遍历的桶越多
+             */
+            private int buckets = 8;
+        }
+
+        /**
+         * 序列号模式配置类
+         */
+        @Setter
+        @Getter
+        public static class Sequence {
+
+            /**
+             * 最大客户端数
+             */
+            private long maxClients = 100000L;
+
+            /**
+             * 客户端窗口空闲过期时间（分钟），应大于注解 timeWindow
+             */
+            private long clientExpireMinutes = 1440L;
+        }
     }
 
     /**
@@ -113,6 +309,16 @@ public final class EccAutoConfigProperties {
          */
         private Cache cache = new Cache();
 
+        /**
+         * 堆外 UUID 存储配置
+         */
+        private OffHeap offHeap = new OffHeap();
+
+        /**
+         * 幂等模式配置（mode = IDEMPOTENT 时生效）
+         */
+        private Idempotency idempotency = new Idempotency();
+
         /**
          * 缓存配置类
          */
@@ -130,6 +336,460 @@ public final class EccAutoConfigProperties {
              */
             private long expireMinutesAfterWrite = 60L;
         }
+
+        /**
+         * 堆外 UUID 存储配置类
+         */
+        @Setter
+        @Getter
+        public static class OffHeap {
+
+            /**
+             * 堆外槽位数（每槽 32 字节），向上取整为 2 的幂
+             */
+            private long capacity = 1L << 20;
+        }
+
+        /**
+         * 幂等模式配置类
+         */
+        @Setter
+        @Getter
+        public static class Idempotency {
+
+            /**
+             * 保存的响应过期时间（分钟）
+             */
+            private long ttlMinutes = 60L;
+
+            /**
+             * 保存的响应总字节预算，超出时按近似 LRU 淘汰
+             */
+            private long maxTotalBytes = 64L * 1024 * 1024;
+
+            /**
+             * 单个响应最大字节数，超出时不保存
+             */
+            private int maxResponseBytes = 1024 * 1024;
+
+            /**
+             * 重复请求等待首个请求完成的最长时间（毫秒）
+             */
+            private long waitTimeoutMillis = 10000L;
+        }
+    }
+
+    /**
+     * 布隆过滤器 nonce 存储配置类
+     */
+    @Setter
+    @Getter
+    public static class NonceFilter {
+
+        /**
+         * 单个窗口预期写入量，决定固定内存占用
+         */
+        private long expectedInsertions = 1000000L;
+
+        /**
+         * 单个过滤器目标误判率
+         */
+        private double fpp = 0.001D;
+    }
+
+    /**
+     * 分布式 nonce 存储配置类
+     */
+    @Setter
+    @Getter
+    public static class DistributedNonceStore {
+
+        /**
+         * 远端节点地址列表（host:port），为空且容器中没有 NonceStoreNode Bean 时使用进程内节点
+         */
+        private List<String> nodes = new ArrayList<>();
+
+        /**
+         * 进程内节点数量（本地模拟分片）
+         */
+        private int inProcessNodes = 1;
+
+        /**
+         * 每个远端节点最大空闲连接数
+         */
+        private int connectionsPerNode = 8;
+
+        /**
+         * 远端节点连接与读取超时（毫秒）
+         */
+        private int timeoutMillis = 200;
+
+        /**
+         * 近端缓存最大条目数，0 表示关闭
+         */
+        private long nearCacheSize = 10000L;
+
+        /**
+         * 近端缓存有效期上限（毫秒），实际不超过窗口
+         */
+        private long nearCacheTtlMillis = 60000L;
+
+        /**
+         * 节点不可用时是否放行，默认拒绝请求
+         */
+        private boolean failOpen = false;
+
+        /**
+         * TCP 替身服务配置
+         */
+        private Server server = new Server();
+
+        /**
+         * TCP 替身服务配置类，仅用于本地验证多节点行为
+         */
+        @Setter
+        @Getter
+        public static class Server {
+
+            /**
+             * 是否在当前应用内启动替身服务
+             */
+            private boolean enabled = false;
+
+            /**
+             * 监听地址，替身服务没有认证，默认只监听回环地址
+             */
+            private String bindAddress = TcpNonceStoreServer.DEFAULT_BIND_ADDRESS;
+
+            /**
+             * 监听端口
+             */
+            private int port = 7391;
+
+            /**
+             * 每次请求的模拟网络延迟（毫秒）
+             */
+            private long simulatedLatencyMillis = 0L;
+        }
+    }
+
+    /**
+     * 防护存储快照配置类
+     */
+    @Setter
+    @Getter
+    public static class NonceSnapshot {
+
+        /**
+         * 是否启用快照与重启恢复
+         */
+        private boolean enabled = false;
+
+        /**
+         * 快照文件路径
+         */
+        private String path = "ecc-nonce-snapshot.bin";
+
+        /**
+         * 定时快照间隔（秒），关闭时总会写一次
+         */
+        private long intervalSeconds = 30L;
+    }
+
+    /**
+     * 客户端 IP 解析配置类
+     */
+    @Setter
+    @Getter
+    public static class ClientIp {
+
+        /**
+         * 受信任代理网段，只有直连地址属于这些网段时才读取转发请求头；默认回环与私有网段
+         */
+        private List<String> trustedProxies = new ArrayList<>(Arrays.asList(
+                "127.0.0.0/8", "::1/128", "10.0.0.0/8", "172.16.0.0/12", "192.168.0.0/16", "fc00::/7"));
+
+        /**
+         * 是否优先使用 RFC 7239 Forwarded 请求头，不存在时再使用 X-Forwarded-For
+         */
+        private boolean useForwardedHeader = true;
+    }
+
+    /**
+     * 防护存储分片配置类
+     */
+    @Setter
+    @Getter
+    public static class ProtectionShard {
+
+        /**
+         * 是否按路由拆分重放与唯一请求存储（租户只用于配额）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 租户请求头，为空表示不限制租户配额。
+         * 请求头未经签名，必须由受信任的网关 / 代理根据认证结果设置并覆盖客户端传入的值；
+         * 租户只决定配额，重复检查始终在路由的共享存储中进行，伪造租户无法绕过重放检测
+         */
+        private String tenantHeader = "";
+
+        /**
+         * 租户配额数上限，超出后新租户归入路由的溢出配额
+         */
+        private int maxShards = 1024;
+
+        /**
+         * 每个租户在一个存储窗口内可写入路由共享存储的最大条目数，超出的请求被拒绝且不写入存储，0 表示不限制
+         */
+        private long tenantMaxEntries = 0L;
+
+        /**
+         * 每个分片的默认最大容量，0 表示沿用 replay-attack.cache / unique-request.cache 的容量
+         */
+        private long defaultMaximumSize = 0L;
+
+        /**
+         * 按分片名（注解 shard 或 全限定类名#方法名(参数类型)）单独配置，同一路由的各租户分片共用该配置
+         */
+        private Map<String, Shard> shards = new LinkedHashMap<>();
+
+        /**
+         * 单个分片配置类
+         */
+        @Setter
+        @Getter
+        public static class Shard {
+
+            /**
+             * 分片最大容量，LOCAL 存储生效
+             */
+            private long maximumSize = 0L;
+        }
+    }
+
+    /**
+     * 准入限流配置类
+     */
+    @Setter
+    @Getter
+    public static class RateLimit {
+
+        /**
+         * 默认桶容量（允许的突发请求数）
+         */
+        private int capacity = 20;
+
+        /**
+         * 默认每秒补充的令牌数
+         */
+        private double refillPerSecond = 10D;
+
+        /**
+         * 最大桶数量（客户端IP × 路由）
+         */
+        private long maxBuckets = 100000L;
+
+        /**
+         * 桶空闲回收时间（秒），应不小于 容量 / 速率
+         */
+        private long idleExpireSeconds = 600L;
+
+        /**
+         * 是否对未标注 @RateLimitProtection 的 NOT_IDENTIFICATION / SIGNED_NOT_IDENTIFICATION / REGISTER 解密接口按默认值限流
+         */
+        private boolean protectUnauthenticatedDecrypt = false;
+    }
+
+    /**
+     * 工作量证明配置类，仅对 @RequestDecryption(proofOfWork = true) 的接口生效
+     */
+    @Setter
+    @Getter
+    public static class ProofOfWork {
+
+        /**
+         * 解密负载（执行中的解密数 / CPU 核数）达到该值时开始要求证明
+         */
+        private double loadThreshold = 0.75D;
+
+        /**
+         * 负载达到阈值时的难度（前导零位数）
+         */
+        private int minDifficulty = 12;
+
+        /**
+         * 负载达到阈值两倍及以上时的难度（前导零位数）
+         */
+        private int maxDifficulty = 20;
+
+        /**
+         * seed 轮换周期（毫秒），与重放防护时间窗口保持一致
+         */
+        private long seedRotationMillis = 5 * 60 * 1000L;
+
+        /**
+         * seed 派生密钥，多实例部署需配置相同的值；为空时每个实例随机生成
+         */
+        private String secret = "";
+
+        /**
+         * 已使用证明的最大记录数
+         */
+        private long maxUsedProofs = 100000L;
+    }
+
+    /**
+     * 加解密线程池配置类
+     */
+    @Setter
+    @Getter
+    public static class CryptoExecutor {
+
+        /**
+         * 线程数，0 表示使用 CPU 核数
+         */
+        private int threads = 0;
+
+        /**
+         * 等待队列容量，队列满时不再排队
+         */
+        private int queueCapacity = 256;
+
+        /**
+         * 是否将 ECCSecurityService 的同步加解密、验签调度到线程池执行，队列满时返回 503
+         */
+        private boolean offload = false;
+
+        /**
+         * 队列满时返回的 Retry-After（秒）
+         */
+        private long retryAfterSeconds = 1L;
+    }
+
+    /**
+     * 加解密舱壁配置类
+     * 按 EccDecryptType 或接口分组限制并发解密数，容量不足时各组按权重公平分配
+     */
+    @Setter
+    @Getter
+    public static class Bulkhead {
+
+        /**
+         * 是否启用舱壁
+         */
+        private boolean enabled = false;
+
+        /**
+         * 所有分组合计的最大并发解密数，0 表示 CPU 核数的两倍
+         */
+        private int capacity = 0;
+
+        /**
+         * 获取不到并发额度时的最长等待时间（毫秒），超时返回 503
+         */
+        private long maxWaitMillis = 100L;
+
+        /**
+         * 分组，Key 为分组名（可在 @RequestDecryption(bulkhead) 中引用）
+         */
+        private Map<String, Group> groups = defaultGroups();
+
+        private static Map<String, Group> defaultGroups() {
+            Map<String, Group> groups = new LinkedHashMap<>();
+            Group authenticated = new Group();
+            authenticated.setWeight(3);
+            authenticated.setTypes(new ArrayList<>(Collections.singletonList(EccDecryptType.IDENTIFICATION)));
+            groups.put("authenticated", authenticated);
+            Group unauthenticated = new Group();
+            unauthenticated.setWeight(1);
+            unauthenticated.setTypes(new ArrayList<>(Arrays.asList(
+                    EccDecryptType.NOT_IDENTIFICATION, EccDecryptType.SIGNED_NOT_IDENTIFICATION, EccDecryptType.REGISTER)));
+            groups.put("unauthenticated", unauthenticated);
+            return groups;
+        }
+
+        /**
+         * 单个分组配置类
+         */
+        @Setter
+        @Getter
+        public static class Group {
+
+            /**
+             * 权重，容量不足时按 执行中数量 / 权重 最小的分组优先获得额度
+             */
+            private int weight = 1;
+
+            /**
+             * 本组最大并发数，0 表示不单独限制
+             */
+            private int maxConcurrent = 0;
+
+            /**
+             * 归入本组的解密类型
+             */
+            private List<EccDecryptType> types = new ArrayList<>();
+        }
+    }
+
+    /**
+     * 用户数据加载保护配置类
+     * 为 EccUserDataService#loadUserPublicData 提供超时、并发隔离与熔断；加载失败时在允许的陈旧窗口内返回最后一次加载成功的公钥
+     */
+    @Setter
+    @Getter
+    public static class UserDataLoad {
+
+        /**
+         * 是否启用加载保护（超时、并发隔离、熔断），关闭时在请求线程上直接调用用户数据服务；
+         * 过期公钥的使用（stale-minutes）不受此开关影响
+         */
+        private boolean enabled = false;
+
+        /**
+         * 单次加载超时时间（毫秒），0 表示不限制并在请求线程上加载
+         */
+        private long timeoutMillis = 2000L;
+
+        /**
+         * 最大并发加载数
+         */
+        private int maxConcurrent = 16;
+
+        /**
+         * 并发已满时在请求线程上等待空闲额度的时间（毫秒），0 表示立即失败
+         */
+        private long acquireTimeoutMillis = 0L;
+
+        /**
+         * 连续失败多少次后熔断
+         */
+        private int failureThreshold = 5;
+
+        /**
+         * 熔断持续时间（毫秒），之后放行一次试探加载
+         */
+        private long openMillis = 30000L;
+
+        /**
+         * 缓存过期后，加载失败时仍可返回旧公钥的时长（分钟），默认 0 不返回过期公钥。
+         * 过期期间用户可能已更换公钥，需显式开启
+         */
+        private long staleMinutes = 0L;
+
+        /**
+         * 按解密类型覆盖 stale-minutes；未配置的类型及响应加密使用 stale-minutes。
+         * 默认登录类接口（NOT_IDENTIFICATION / SIGNED_NOT_IDENTIFICATION）不接受过期公钥
+         */
+        private Map<EccDecryptType, Long> staleMinutesByType = defaultStaleMinutesByType();
+
+        private static Map<EccDecryptType, Long> defaultStaleMinutesByType() {
+            Map<EccDecryptType, Long> staleMinutes = new LinkedHashMap<>();
+            staleMinutes.put(EccDecryptType.NOT_IDENTIFICATION, 0L);
+            staleMinutes.put(EccDecryptType.SIGNED_NOT_IDENTIFICATION, 0L);
+            return staleMinutes;
+        }
     }
 
     // ========== 便捷方法 ==========
@@ -148,6 +808,34 @@ public final class EccAutoConfigProperties {
         return userContextCache.getCacheExpireMinutes();
     }
 
+    /**
+     * @return 获取用户上下文缓存异步刷新时间（秒）
+     */
+    public long getUserContextCacheRefreshAfterWriteSeconds() {
+        long refreshMinutes = userContextCache.getRefreshAfterWriteMinutes();
+        if (refreshMinutes > 0) {
+            return TimeUnit.MINUTES.toSeconds(refreshMinutes);
+        }
+        return Math.max(1L, TimeUnit.MINUTES.toSeconds(getUserContextCacheExpireMinutes()) * 4 / 5);
+    }
+
+    /**
+     * @param type 解密类型，为 null 时（如响应加密）使用默认值
+     * @return 缓存过期后，加载失败时仍可返回旧公钥的时长（毫秒）
+     */
+    public long getUserDataStaleMillis(EccDecryptType type) {
+        Long staleMinutes = type == null ? null : userDataLoad.getStaleMinutesByType().get(type);
+        return TimeUnit.MINUTES.toMillis(staleMinutes != null ? staleMinutes : userDataLoad.getStaleMinutes());
+    }
+
+    /**
+     * @return 所有解密类型中最长的陈旧窗口（分钟），过期条目在缓存中额外保留这么久
+     */
+    public long getUserDataMaxStaleMinutes() {
+        return userDataLoad.getStaleMinutesByType().values().stream()
+                .mapToLong(Long::longValue).reduce(userDataLoad.getStaleMinutes(), Math::max);
+    }
+
     /**
      * @return 获取重放攻击缓存最大大小
      */
@@ -204,6 +892,30 @@ public final class EccAutoConfigProperties {
                 throw new IllegalArgumentException("The user context cache expiration time must be greater than 0");
             }
 
+            long refreshMinutes = userContextCache.getRefreshAfterWriteMinutes();
+            if (refreshMinutes < 0 || refreshMinutes >= getUserContextCacheExpireMinutes()) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The user context cache refresh time must be between 0 and the expiration time");
+            }
+
+            if (userKeyStore.isEnabled() && (!StringUtils.hasText(userKeyStore.getPath()) || userKeyStore.getCapacity() <= 0
+                    || userKeyStore.getCapacity() > MappedUserKeyStore.MAX_CAPACITY || userKeyStore.getExpireMinutes() <= 0)) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The user key store path cannot be empty, its capacity must be between 1 and "
+                        + MappedUserKeyStore.MAX_CAPACITY + ", and its expiration time must be greater than 0");
+            }
+
+            if (userContextWarmup.isEnabled() && (!StringUtils.hasText(userContextWarmup.getPath()) || userContextWarmup.getSize() <= 0
+                    || userContextWarmup.getBatchSize() <= 0 || userContextWarmup.getParallelism() <= 0 || userContextWarmup.getTimeoutSeconds() <= 0)) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The user context warmup path cannot be empty, and its size, batch size, parallelism and timeout must be greater than 0");
+            }
+
+            if (userContextCache.getNegativeTtlSeconds() < 0 || userContextCache.getNegativeMaxSize() <= 0) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The user context negative cache TTL cannot be negative and its size must be greater than 0");
+            }
+
             if (getReplayAttackCacheMaxSize() <= 0) {
                 System.out.println(generateCompleteDocumentation());
                 throw new IllegalArgumentException("The size of the replay attack cache must be greater than 0");
@@ -223,6 +935,111 @@ public final class EccAutoConfigProperties {
                 System.out.println(generateCompleteDocumentation());
                 throw new IllegalArgumentException("The unique request cache expiration time must be greater than 0");
             }
+
+            if (replayAttack.getTimingWheel().getBuckets() < 2) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The replay attack timing wheel needs at least 2 buckets");
+            }
+
+            if (replayAttack.getSequence().getMaxClients() <= 0 || replayAttack.getSequence().getClientExpireMinutes() <= 0) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The replay attack sequence max clients and client expiration time must be greater than 0");
+            }
+
+            if (uniqueRequest.getOffHeap().getCapacity() <= 0 || uniqueRequest.getOffHeap().getCapacity() > OffHeapUuidNonceStore.MAX_CAPACITY) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The unique request off-heap capacity must be between 1 and " + OffHeapUuidNonceStore.MAX_CAPACITY);
+            }
+
+            UniqueRequest.Idempotency idempotency = uniqueRequest.getIdempotency();
+            if (idempotency.getTtlMinutes() <= 0 || idempotency.getMaxTotalBytes() <= 0
+                    || idempotency.getMaxResponseBytes() <= 0 || idempotency.getWaitTimeoutMillis() <= 0) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The unique request idempotency TTL, byte budgets and wait timeout must be greater than 0");
+            }
+
+            if (nonceFilter.getExpectedInsertions() <= 0) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The nonce filter expected insertions must be greater than 0");
+            }
+
+            if (nonceFilter.getFpp() <= 0D || nonceFilter.getFpp() >= 1D) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The nonce filter fpp must be between 0 and 1");
+            }
+
+            if (distributedNonceStore.getInProcessNodes() <= 0 || distributedNonceStore.getConnectionsPerNode() <= 0
+                    || distributedNonceStore.getTimeoutMillis() <= 0) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The distributed nonce store in-process nodes, connections per node and timeout must be greater than 0");
+            }
+
+            if (distributedNonceStore.getNearCacheSize() < 0 || distributedNonceStore.getNearCacheTtlMillis() < 0) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The distributed nonce store near cache size and TTL cannot be negative");
+            }
+
+            if (!StringUtils.hasText(distributedNonceStore.getServer().getBindAddress())) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The distributed nonce store server bind address cannot be empty");
+            }
+
+            for (String cidr : clientIp.getTrustedProxies()) {
+                try {
+                    new CidrTrie().add(cidr);
+                } catch (IllegalArgumentException e) {
+                    System.out.println(generateCompleteDocumentation());
+                    throw new IllegalArgumentException("The client IP trusted proxy is not a valid CIDR: " + cidr);
+                }
+            }
+
+            if (protectionShard.getMaxShards() <= 0 || protectionShard.getDefaultMaximumSize() < 0 || protectionShard.getTenantMaxEntries() < 0) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The protection shard max shards must be greater than 0, and the default maximum size and tenant max entries cannot be negative");
+            }
+
+            if (rateLimit.getCapacity() <= 0 || rateLimit.getRefillPerSecond() <= 0D
+                    || rateLimit.getMaxBuckets() <= 0 || rateLimit.getIdleExpireSeconds() <= 0) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The rate limit capacity, refill rate, max buckets and idle expiration must be greater than 0");
+            }
+
+            if (proofOfWork.getLoadThreshold() <= 0D || proofOfWork.getMinDifficulty() <= 0
+                    || proofOfWork.getMaxDifficulty() < proofOfWork.getMinDifficulty() || proofOfWork.getMaxDifficulty() > 32
+                    || proofOfWork.getSeedRotationMillis() <= 0 || proofOfWork.getMaxUsedProofs() <= 0) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The proof of work load threshold, rotation and used proofs must be greater than 0, and 0 < min difficulty <= max difficulty <= 32");
+            }
+
+            if (cryptoExecutor.getThreads() < 0 || cryptoExecutor.getQueueCapacity() <= 0 || cryptoExecutor.getRetryAfterSeconds() <= 0) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The crypto executor threads must not be negative, the queue capacity and retry after seconds must be greater than 0");
+            }
+
+            if (bulkhead.getCapacity() < 0 || bulkhead.getMaxWaitMillis() < 0 || bulkhead.getGroups().values().stream()
+                    .anyMatch(group -> group.getWeight() <= 0 || group.getMaxConcurrent() < 0)) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The bulkhead capacity, max wait and group max concurrent cannot be negative, and group weights must be greater than 0");
+            }
+
+            if (bulkhead.getGroups().values().stream().flatMap(group -> group.getTypes().stream()).distinct().count()
+                    != bulkhead.getGroups().values().stream().mapToLong(group -> group.getTypes().size()).sum()) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("Each decrypt type can only belong to one bulkhead group");
+            }
+
+            if (userDataLoad.getTimeoutMillis() < 0 || userDataLoad.getAcquireTimeoutMillis() < 0
+                    || userDataLoad.getMaxConcurrent() <= 0 || userDataLoad.getFailureThreshold() <= 0
+                    || userDataLoad.getOpenMillis() <= 0 || userDataLoad.getStaleMinutes() < 0
+                    || userDataLoad.getStaleMinutesByType().values().stream().anyMatch(minutes -> minutes == null || minutes < 0)) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The user data load timeout, acquire timeout and stale minutes cannot be negative, the max concurrent, failure threshold and open millis must be greater than 0");
+            }
+
+            if (nonceSnapshot.isEnabled() && (!StringUtils.hasText(nonceSnapshot.getPath()) || nonceSnapshot.getIntervalSeconds() <= 0)) {
+                System.out.println(generateCompleteDocumentation());
+                throw new IllegalArgumentException("The nonce snapshot path cannot be empty and the interval must be greater than 0");
+            }
         }
         this.getConfigSummary();
     }
@@ -326,18 +1143,148 @@ public final class EccAutoConfigProperties {
                 "    user-context-cache:\n" +
                 "      cache-max-size: 5000        # 最大缓存用户数量\n" +
                 "      cache-expire-minutes: 120   # 缓存过期时间（分钟）\n" +
+                "      refresh-after-write-minutes: 0 # 写入后多久异步刷新（分钟），0 表示过期时间的 80%\n" +
+                "      negative-max-size: 10000    # 不存在用户的否定缓存最大数量\n" +
+                "      negative-ttl-seconds: 60    # 否定缓存过期时间（秒），0 表示不缓存\n" +
+                "    \n" +
+                "    # 用户上下文缓存启动预热（关闭时记录热点用户，启动时就绪前批量预加载）\n" +
+                "    user-context-warmup:\n" +
+                "      enabled: false\n" +
+                "      path: ecc-user-hotlist.bin  # 热点用户列表文件\n" +
+                "      size: 10000                 # 记录与预热的用户数量\n" +
+                "      batch-size: 500             # 每批用户数量\n" +
+                "      parallelism: 4              # 并行批次数\n" +
+                "      timeout-seconds: 60         # 预热最长时间，超时后直接就绪\n" +
+                "    \n" +
+                "    # 用户公钥二级存储（本地内存映射文件）\n" +
+                "    user-key-store:\n" +
+                "      enabled: false\n" +
+                "      path: ecc-user-keys.bin     # 存储文件\n" +
+                "      capacity: 1048576           # 记录槽位数，文件大小 = capacity × 96 字节\n" +
+                "      expire-minutes: 1440        # 记录有效期（分钟）\n" +
                 "    \n" +
                 "    # 重放攻击防护缓存配置\n" +
                 "    replay-attack:\n" +
                 "      cache:\n" +
                 "        cache-max-size: 1000      # 最大缓存请求数量\n" +
                 "        cache-expire-minutes: 30  # 缓存过期时间（分钟）\n" +
+                "      timing-wheel:\n" +
+                "        buckets: 8                # 时间轮桶数量（storeType = TIMING_WHEEL 时生效）\n" +
+                "      sequence:\n" +
+                "        max-clients: 100000       # 最大客户端数（mode = SEQUENCE 时生效）\n" +
+                "        client-expire-minutes: 1440 # 客户端窗口空闲过期时间（分钟）\n" +
                 "    \n" +
                 "    # 唯一请求防护缓存配置\n" +
                 "    unique-request:\n" +
                 "      cache:\n" +
                 "        maximum-size: 10000             # 最大缓存请求数量\n" +
-                "        expire-minutes-after-write: 60  # 写入后过期时间（分钟）\n";
+                "        expire-minutes-after-write: 60  # 写入后过期时间（分钟）\n" +
+                "      off-heap:\n" +
+                "        capacity: 1048576               # 堆外槽位数，每槽32字节（storeType = OFF_HEAP_UUID 时生效）\n" +
+                "      idempotency:                      # 幂等模式（mode = IDEMPOTENT 时生效）\n" +
+                "        ttl-minutes: 60                 # 保存的响应过期时间（分钟）\n" +
+                "        max-total-bytes: 67108864       # 保存的响应总字节预算\n" +
+                "        max-response-bytes: 1048576     # 单个响应最大字节数\n" +
+                "        wait-timeout-millis: 10000      # 重复请求等待首个请求完成的最长时间（毫秒）\n" +
+                "    \n" +
+                "    # 布隆过滤器 nonce 存储配置（storeType = BLOOM_FILTER 时生效）\n" +
+                "    nonce-filter:\n" +
+                "      expected-insertions: 1000000  # 单个窗口预期写入量\n" +
+                "      fpp: 0.001                    # 单个过滤器目标误判率\n" +
+                "    \n" +
+                "    # 分布式 nonce 存储配置（storeType = DISTRIBUTED 时生效）\n" +
+                "    distributed-nonce-store:\n" +
+                "      nodes: []                     # 远端节点 host:port，为空时使用进程内节点\n" +
+                "      in-process-nodes: 1           # 进程内节点数量\n" +
+                "      connections-per-node: 8       # 每个远端节点最大空闲连接数\n" +
+                "      timeout-millis: 200           # 远端超时（毫秒）\n" +
+                "      near-cache-size: 10000        # 近端缓存条目数，0 表示关闭\n" +
+                "      near-cache-ttl-millis: 60000  # 近端缓存有效期上限（毫秒）\n" +
+                "      fail-open: false              # 节点不可用时是否放行\n" +
+                "      server:\n" +
+                "        enabled: false              # 是否启动 TCP 替身服务（仅用于本地测试）\n" +
+                "        bind-address: 127.0.0.1     # 监听地址，服务没有认证，谨慎改为 0.0.0.0\n" +
+                "        port: 7391\n" +
+                "        simulated-latency-millis: 0 # 模拟网络延迟（毫秒）\n" +
+                "    \n" +
+                "    # 防护存储快照（重启后恢复重放/唯一请求状态）\n" +
+                "    nonce-snapshot:\n" +
+                "      enabled: false\n" +
+                "      path: ecc-nonce-snapshot.bin  # 快照文件路径\n" +
+                "      interval-seconds: 30          # 定时快照间隔（秒）\n" +
+                "    \n" +
+                "    # 客户端 IP 解析\n" +
+                "    client-ip:\n" +
+                "      trusted-proxies:              # 受信任代理网段（默认回环与私有网段）\n" +
+                "        - 127.0.0.0/8\n" +
+                "        - ::1/128\n" +
+                "        - 10.0.0.0/8\n" +
+                "        - 172.16.0.0/12\n" +
+                "        - 192.168.0.0/16\n" +
+                "        - fc00::/7\n" +
+                "      use-forwarded-header: true    # 优先使用 Forwarded 请求头\n" +
+                "    \n" +
+                "    # 防护存储分片（按路由拆分重放与唯一请求存储，按租户限制配额）\n" +
+                "    protection-shard:\n" +
+                "      enabled: false\n" +
+                "      tenant-header: \"\"              # 租户请求头，如 X-Tenant-Id，必须由受信任代理设置\n" +
+                "      max-shards: 1024              # 租户配额数上限\n" +
+                "      tenant-max-entries: 0         # 每个租户每个窗口的最大条目数，0 表示不限制\n" +
+                "      default-maximum-size: 0       # 分片默认容量，0 表示沿用缓存容量\n" +
+                "      shards:                       # 按分片名单独配置容量\n" +
+                "        payment:\n" +
+                "          maximum-size: 50000\n" +
+                "    \n" +
+                "    # 准入限流（解密前按 IP + 路由 令牌桶限流）\n" +
+                "    rate-limit:\n" +
+                "      capacity: 20                  # 默认桶容量（突发数）\n" +
+                "      refill-per-second: 10         # 默认每秒补充令牌数\n" +
+                "      max-buckets: 100000           # 最大桶数量\n" +
+                "      idle-expire-seconds: 600      # 桶空闲回收时间（秒）\n" +
+                "      protect-unauthenticated-decrypt: false # 自动保护 NOT_IDENTIFICATION / REGISTER 解密接口\n" +
+                "    \n" +
+                "    # 工作量证明（@RequestDecryption(proofOfWork = true) 时生效）\n" +
+                "    proof-of-work:\n" +
+                "      load-threshold: 0.75          # 解密负载达到该值时开始要求证明\n" +
+                "      min-difficulty: 12            # 最小难度（前导零位数）\n" +
+                "      max-difficulty: 20            # 最大难度（前导零位数）\n" +
+                "      seed-rotation-millis: 300000  # seed 轮换周期（毫秒）\n" +
+                "      secret: \"\"                    # seed 派生密钥，多实例需相同\n" +
+                "      max-used-proofs: 100000       # 已使用证明的最大记录数\n" +
+                "    \n" +
+                "    # 加解密线程池\n" +
+                "    crypto-executor:\n" +
+                "      threads: 0                    # 线程数，0 表示 CPU 核数\n" +
+                "      queue-capacity: 256           # 等待队列容量\n" +
+                "      offload: false                # 同步加解密调度到线程池执行，队列满时返回 503\n" +
+                "      retry-after-seconds: 1        # 503 响应的 Retry-After（秒）\n" +
+                "    \n" +
+                "    # 加解密舱壁（按解密类型 / 接口分组限制并发解密数）\n" +
+                "    bulkhead:\n" +
+                "      enabled: false\n" +
+                "      capacity: 0                   # 合计最大并发解密数，0 表示 CPU 核数 × 2\n" +
+                "      max-wait-millis: 100          # 等待额度的最长时间，超时返回 503\n" +
+                "      groups:\n" +
+                "        authenticated:\n" +
+                "          weight: 3\n" +
+                "          types: [IDENTIFICATION]\n" +
+                "        unauthenticated:\n" +
+                "          weight: 1\n" +
+                "          max-concurrent: 0         # 本组并发上限，0 表示不单独限制\n" +
+                "          types: [NOT_IDENTIFICATION, SIGNED_NOT_IDENTIFICATION, REGISTER]\n" +
+                "    \n" +
+                "    # 用户数据加载保护（EccUserDataService#loadUserPublicData）\n" +
+                "    user-data-load:\n" +
+                "      enabled: false                # 是否启用超时、并发隔离与熔断\n" +
+                "      timeout-millis: 2000          # 单次加载超时，0 表示不限制\n" +
+                "      max-concurrent: 16            # 最大并发加载数\n" +
+                "      acquire-timeout-millis: 0     # 并发已满时的等待时间，0 表示立即失败\n" +
+                "      failure-threshold: 5          # 连续失败多少次后熔断\n" +
+                "      open-millis: 30000            # 熔断持续时间\n" +
+                "      stale-minutes: 0              # 过期后加载失败时仍可使用旧公钥的时长，0 表示不使用\n" +
+                "      stale-minutes-by-type:        # 按解密类型覆盖，0 表示必须使用最新公钥\n" +
+                "        NOT_IDENTIFICATION: 0\n" +
+                "        SIGNED_NOT_IDENTIFICATION: 0\n";
 
         return yaml;
     }
@@ -358,14 +1305,72 @@ public final class EccAutoConfigProperties {
                 "👤 用户上下文缓存\n" +
                 "  • cache-max-size: 最大缓存的用户上下文数量\n" +
                 "  • cache-expire-minutes: 用户上下文缓存过期时间（分钟）\n" +
+                "  • user-context-warmup: 关闭时记录访问最频繁的用户，下次启动在就绪前通过 loadUserPublicDataBatch 分批并行预加载\n" +
+                "  • user-key-store: 堆内缓存未命中时先查本地内存映射文件中的用户公钥，命中则不访问用户数据服务\n" +
                 "\n" +
                 "🛡️ 重放攻击防护\n" +
                 "  • cache-max-size: 最大缓存的请求数量\n" +
                 "  • cache-expire-minutes: 请求缓存过期时间（分钟）\n" +
+                "  • timing-wheel.buckets: 时间轮桶数量，按注解 timeWindow 对齐，整桶过期\n" +
+                "  • sequence.max-clients / client-expire-minutes: 序列号模式客户端窗口数量与空闲过期时间\n" +
                 "\n" +
                 "🔒 唯一请求防护\n" +
                 "  • maximum-size: 最大缓存的唯一请求数量\n" +
                 "  • expire-minutes-after-write: 写入后过期时间（分钟）\n" +
+                "  • off-heap.capacity: 堆外 UUID 存储槽位数，每槽32字节\n" +
+                "  • idempotency.*: 幂等模式下保存加密后响应的过期时间、字节预算与并发重复请求的等待时间\n" +
+                "\n" +
+                "🧮 布隆过滤器 nonce 存储\n" +
+                "  • expected-insertions: 单个窗口预期写入量，内存固定\n" +
+                "  • fpp: 单个过滤器目标误判率（误判只会拒绝正常请求，不会放行重复请求）\n" +
+                "\n" +
+                "🌐 分布式 nonce 存储\n" +
+                "  • nodes: 远端节点地址，按 nonce 哈希分片；容器中存在 NonceStoreNode Bean 时优先使用 Bean\n" +
+                "  • near-cache-size / near-cache-ttl-millis: 近端缓存已存在的 nonce，命中时无需远端往返\n" +
+                "  • fail-open: 节点不可用时是否放行（默认拒绝，返回 NONCE_STORE_UNAVAILABLE）\n" +
+                "  • server.*: 在当前应用内启动 TCP 替身服务，用于本地验证多节点行为与延迟，默认只监听 127.0.0.1\n" +
+                "\n" +
+                "💾 防护存储快照\n" +
+                "  • enabled: 定时及关闭时将防护存储写入内存映射文件，启动后按存储恢复并丢弃已过期条目\n" +
+                "  • path / interval-seconds: 快照文件路径与定时快照间隔（秒）\n" +
+                "\n" +
+                "📍 客户端 IP 解析\n" +
+                "  • trusted-proxies: 受信任代理网段；直连地址不在其中时直接使用直连地址，忽略所有转发请求头\n" +
+                "  • use-forwarded-header: 优先使用 Forwarded 请求头；从右向左跳过受信任代理，第一个不受信任的地址即客户端 IP\n" +
+                "\n" +
+                "🧩 防护存储分片\n" +
+                "  • enabled: 按路由（注解 shard 或 全限定类名#方法名(参数类型)）拆分存储，分片间容量与过期互不影响\n" +
+                "  • tenant-header / tenant-max-entries: 按租户限制写入路由共享存储的条目数；租户请求头未签名，必须由受信任代理设置，只影响配额不影响重复检查\n" +
+                "  • max-shards: 租户配额数上限，超出后新租户归入路由的溢出配额\n" +
+                "  • default-maximum-size / shards.<name>.maximum-size: 分片容量；BLOOM_FILTER 与 OFF_HEAP_UUID 内存固定，不分片\n" +
+                "\n" +
+                "🚦 准入限流\n" +
+                "  • capacity / refill-per-second: @RateLimitProtection 未指定时的默认桶容量与补充速率\n" +
+                "  • max-buckets / idle-expire-seconds: 桶数量上限与空闲回收时间\n" +
+                "  • protect-unauthenticated-decrypt: 对 NOT_IDENTIFICATION / REGISTER 解密接口自动限流，在解密前返回 429\n" +
+                "\n" +
+                "🧱 工作量证明\n" +
+                "  • load-threshold: 解密负载（执行中的解密数 / CPU 核数）达到该值时要求 X-PoW 请求头\n" +
+                "  • min-difficulty / max-difficulty: 难度随负载在两者之间线性上升\n" +
+                "  • seed-rotation-millis / secret: seed 轮换周期与派生密钥（多实例需相同）\n" +
+                "\n" +
+                "🧵 加解密线程池\n" +
+                "  • threads: 线程数，0 表示 CPU 核数\n" +
+                "  • queue-capacity: 等待队列容量，队列满时 parallelVerify 退回顺序执行\n" +
+                "  • offload: 加解密、验签在线程池中执行，队列满时返回 503 与 Retry-After（retry-after-seconds）\n" +
+                "\n" +
+                "🚧 加解密舱壁\n" +
+                "  • capacity: 所有分组合计的最大并发解密数\n" +
+                "  • groups.<name>.weight: 容量不足时按 执行中数量 / 权重 最小的分组优先，默认已认证流量权重 3、未认证 1\n" +
+                "  • groups.<name>.max-concurrent / types: 分组并发上限与归属的解密类型；@RequestDecryption(bulkhead) 可按接口指定分组\n" +
+                "  • max-wait-millis: 等待额度的最长时间，超时返回 503\n" +
+                "\n" +
+                "🔌 用户数据加载保护\n" +
+                "  • enabled: 默认关闭，开启后以下超时、并发与熔断设置才生效\n" +
+                "  • timeout-millis / max-concurrent: loadUserPublicData 的超时与并发上限\n" +
+                "  • acquire-timeout-millis: 并发已满时的等待时间，超时返回 503，0 表示立即失败\n" +
+                "  • failure-threshold / open-millis: 连续失败达到阈值后熔断，熔断期间不调用用户数据服务\n" +
+                "  • stale-minutes / stale-minutes-by-type: 缓存过期且加载失败时，在该时长内返回最后一次加载成功的公钥；超出或为 0（默认）时返回 503\n" +
                 "\n" +
                 "💡 推荐配置值：\n" +
                 "  • 用户上下文缓存: 5000个用户，120分钟过期\n" +
@@ -396,14 +1401,115 @@ public final class EccAutoConfigProperties {
                 "# 用户上下文缓存配置\n" +
                 "jasonlat.ecc.user-context-cache.cache-max-size=5000\n" +
                 "jasonlat.ecc.user-context-cache.cache-expire-minutes=120\n" +
+                "jasonlat.ecc.user-context-cache.refresh-after-write-minutes=0\n" +
+                "jasonlat.ecc.user-context-cache.negative-max-size=10000\n" +
+                "jasonlat.ecc.user-context-cache.negative-ttl-seconds=60\n" +
+                "\n" +
+                "# 用户上下文缓存启动预热配置\n" +
+                "jasonlat.ecc.user-context-warmup.enabled=false\n" +
+                "jasonlat.ecc.user-context-warmup.path=ecc-user-hotlist.bin\n" +
+                "jasonlat.ecc.user-context-warmup.size=10000\n" +
+                "jasonlat.ecc.user-context-warmup.batch-size=500\n" +
+                "jasonlat.ecc.user-context-warmup.parallelism=4\n" +
+                "jasonlat.ecc.user-context-warmup.timeout-seconds=60\n" +
+                "\n" +
+                "# 用户公钥二级存储配置\n" +
+                "jasonlat.ecc.user-key-store.enabled=false\n" +
+                "jasonlat.ecc.user-key-store.path=ecc-user-keys.bin\n" +
+                "jasonlat.ecc.user-key-store.capacity=1048576\n" +
+                "jasonlat.ecc.user-key-store.expire-minutes=1440\n" +
                 "\n" +
                 "# 重放攻击防护缓存配置\n" +
                 "jasonlat.ecc.replay-attack.cache.cache-max-size=1000\n" +
                 "jasonlat.ecc.replay-attack.cache.cache-expire-minutes=30\n" +
+                "jasonlat.ecc.replay-attack.timing-wheel.buckets=8\n" +
+                "jasonlat.ecc.replay-attack.sequence.max-clients=100000\n" +
+                "jasonlat.ecc.replay-attack.sequence.client-expire-minutes=1440\n" +
                 "\n" +
                 "# 唯一请求防护缓存配置\n" +
                 "jasonlat.ecc.unique-request.cache.maximum-size=10000\n" +
                 "jasonlat.ecc.unique-request.cache.expire-minutes-after-write=60\n" +
+                "jasonlat.ecc.unique-request.off-heap.capacity=1048576\n" +
+                "jasonlat.ecc.unique-request.idempotency.ttl-minutes=60\n" +
+                "jasonlat.ecc.unique-request.idempotency.max-total-bytes=67108864\n" +
+                "jasonlat.ecc.unique-request.idempotency.max-response-bytes=1048576\n" +
+                "jasonlat.ecc.unique-request.idempotency.wait-timeout-millis=10000\n" +
+                "\n" +
+                "# 布隆过滤器 nonce 存储配置\n" +
+                "jasonlat.ecc.nonce-filter.expected-insertions=1000000\n" +
+                "jasonlat.ecc.nonce-filter.fpp=0.001\n" +
+                "\n" +
+                "# 分布式 nonce 存储配置\n" +
+                "jasonlat.ecc.distributed-nonce-store.nodes=\n" +
+                "jasonlat.ecc.distributed-nonce-store.in-process-nodes=1\n" +
+                "jasonlat.ecc.distributed-nonce-store.connections-per-node=8\n" +
+                "jasonlat.ecc.distributed-nonce-store.timeout-millis=200\n" +
+                "jasonlat.ecc.distributed-nonce-store.near-cache-size=10000\n" +
+                "jasonlat.ecc.distributed-nonce-store.near-cache-ttl-millis=60000\n" +
+                "jasonlat.ecc.distributed-nonce-store.fail-open=false\n" +
+                "jasonlat.ecc.distributed-nonce-store.server.enabled=false\n" +
+                "jasonlat.ecc.distributed-nonce-store.server.bind-address=127.0.0.1\n" +
+                "jasonlat.ecc.distributed-nonce-store.server.port=7391\n" +
+                "jasonlat.ecc.distributed-nonce-store.server.simulated-latency-millis=0\n" +
+                "\n" +
+                "# 防护存储快照配置\n" +
+                "jasonlat.ecc.nonce-snapshot.enabled=false\n" +
+                "jasonlat.ecc.nonce-snapshot.path=ecc-nonce-snapshot.bin\n" +
+                "jasonlat.ecc.nonce-snapshot.interval-seconds=30\n" +
+                "\n" +
+                "# 客户端 IP 解析配置\n" +
+                "jasonlat.ecc.client-ip.trusted-proxies=127.0.0.0/8,::1/128,10.0.0.0/8,172.16.0.0/12,192.168.0.0/16,fc00::/7\n" +
+                "jasonlat.ecc.client-ip.use-forwarded-header=true\n" +
+                "\n" +
+                "# 防护存储分片配置\n" +
+                "jasonlat.ecc.protection-shard.enabled=false\n" +
+                "jasonlat.ecc.protection-shard.tenant-header=\n" +
+                "jasonlat.ecc.protection-shard.max-shards=1024\n" +
+                "jasonlat.ecc.protection-shard.tenant-max-entries=0\n" +
+                "jasonlat.ecc.protection-shard.default-maximum-size=0\n" +
+                "jasonlat.ecc.protection-shard.shards.payment.maximum-size=50000\n" +
+                "\n" +
+                "# 准入限流配置\n" +
+                "jasonlat.ecc.rate-limit.capacity=20\n" +
+                "jasonlat.ecc.rate-limit.refill-per-second=10\n" +
+                "jasonlat.ecc.rate-limit.max-buckets=100000\n" +
+                "jasonlat.ecc.rate-limit.idle-expire-seconds=600\n" +
+                "jasonlat.ecc.rate-limit.protect-unauthenticated-decrypt=false\n" +
+                "\n" +
+                "# 工作量证明配置\n" +
+                "jasonlat.ecc.proof-of-work.load-threshold=0.75\n" +
+                "jasonlat.ecc.proof-of-work.min-difficulty=12\n" +
+                "jasonlat.ecc.proof-of-work.max-difficulty=20\n" +
+                "jasonlat.ecc.proof-of-work.seed-rotation-millis=300000\n" +
+                "jasonlat.ecc.proof-of-work.secret=\n" +
+                "jasonlat.ecc.proof-of-work.max-used-proofs=100000\n" +
+                "\n" +
+                "# 加解密线程池配置\n" +
+                "jasonlat.ecc.crypto-executor.threads=0\n" +
+                "jasonlat.ecc.crypto-executor.queue-capacity=256\n" +
+                "jasonlat.ecc.crypto-executor.offload=false\n" +
+                "jasonlat.ecc.crypto-executor.retry-after-seconds=1\n" +
+                "\n" +
+                "# 加解密舱壁配置\n" +
+                "jasonlat.ecc.bulkhead.enabled=false\n" +
+                "jasonlat.ecc.bulkhead.capacity=0\n" +
+                "jasonlat.ecc.bulkhead.max-wait-millis=100\n" +
+                "jasonlat.ecc.bulkhead.groups.authenticated.weight=3\n" +
+                "jasonlat.ecc.bulkhead.groups.authenticated.types=IDENTIFICATION\n" +
+                "jasonlat.ecc.bulkhead.groups.unauthenticated.weight=1\n" +
+                "jasonlat.ecc.bulkhead.groups.unauthenticated.max-concurrent=0\n" +
+                "jasonlat.ecc.bulkhead.groups.unauthenticated.types=NOT_IDENTIFICATION,SIGNED_NOT_IDENTIFICATION,REGISTER\n" +
+                "\n" +
+                "# 用户数据加载保护配置\n" +
+                "jasonlat.ecc.user-data-load.enabled=false\n" +
+                "jasonlat.ecc.user-data-load.timeout-millis=2000\n" +
+                "jasonlat.ecc.user-data-load.max-concurrent=16\n" +
+                "jasonlat.ecc.user-data-load.acquire-timeout-millis=0\n" +
+                "jasonlat.ecc.user-data-load.failure-threshold=5\n" +
+                "jasonlat.ecc.user-data-load.open-millis=30000\n" +
+                "jasonlat.ecc.user-data-load.stale-minutes=0\n" +
+                "jasonlat.ecc.user-data-load.stale-minutes-by-type.NOT_IDENTIFICATION=0\n" +
+                "jasonlat.ecc.user-data-load.stale-minutes-by-type.SIGNED_NOT_IDENTIFICATION=0\n" +
                 "\n";
     }
 
@@ -1,6 +1,7 @@
 package io.github.jasonlat.middleware.config;
 
 
+import io.github.jasonlat.middleware.context.EccContextTaskDecorator;
 import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
 import io.github.jasonlat.middleware.domain.service.EccUserDataService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +10,7 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
 
 
 
@@ -46,4 +48,14 @@ public class EccAutoConfigure {
         };
     }
 
+    /**
+     * 将ECC上下文传播到 @Async 与 MVC 异步使用的 applicationTaskExecutor
+     * 已自定义 TaskDecorator 时不生效，可用 new EccContextTaskDecorator(自定义装饰器) 组合
+     */
+    @Bean
+    @ConditionalOnMissingBean(TaskDecorator.class)
+    public EccContextTaskDecorator eccContextTaskDecorator() {
+        return new EccContextTaskDecorator();
+    }
+
 }
\ No newline at end of file
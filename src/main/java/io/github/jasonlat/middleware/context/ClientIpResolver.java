@@ -0,0 +1,187 @@
+package io.github.jasonlat.middleware.context;
+
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.util.CidrTrie;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * 客户端 IP 解析
+ * 只有直连地址属于受信任代理时才读取转发请求头：从右向左遍历 Forwarded / X-Forwarded-For，
+ * 跳过受信任代理，第一个不受信任的地址即客户端 IP。客户端自行伪造的最左侧条目因此不会被采用。
+ * 每个请求只解析一次，结果保存在请求属性中
+ *
+ * @author jasonlat
+ */
+@Component
+public final class ClientIpResolver {
+
+    /**
+     * 解析结果的请求属性名
+     */
+    public static final String CLIENT_IP_ATTRIBUTE = ClientIpResolver.class.getName() + ".CLIENT_IP";
+
+    private static final String FORWARDED = "Forwarded";
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+    private static final String X_REAL_IP = "X-Real-IP";
+
+    private final CidrTrie trustedProxies = new CidrTrie();
+    private final boolean useForwardedHeader;
+
+    public ClientIpResolver(EccAutoConfigProperties configProperties) {
+        EccAutoConfigProperties.ClientIp config = configProperties.getClientIp();
+        for (String cidr : config.getTrustedProxies()) {
+            if (StringUtils.hasText(cidr)) {
+                trustedProxies.add(cidr);
+            }
+        }
+        this.useForwardedHeader = config.isUseForwardedHeader();
+    }
+
+    /**
+     * 获取客户端真实IP地址
+     *
+     * @param request HTTP请求
+     * @return 客户端IP地址
+     */
+    public String resolve(HttpServletRequest request) {
+        Object cached = request.getAttribute(CLIENT_IP_ATTRIBUTE);
+        if (cached instanceof String) {
+            return (String) cached;
+        }
+        String clientIp = doResolve(request);
+        request.setAttribute(CLIENT_IP_ATTRIBUTE, clientIp);
+        return clientIp;
+    }
+
+    /**
+     * @param ip IP 字面量
+     * @return 是否属于受信任代理
+     */
+    public boolean isTrustedProxy(String ip) {
+        return trustedProxies.contains(ip);
+    }
+
+    private String doResolve(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        if (!trustedProxies.contains(remoteAddr)) {
+            return remoteAddr;
+        }
+
+        List<String> hops = new ArrayList<>(4);
+        if (useForwardedHeader) {
+            Enumeration<String> values = request.getHeaders(FORWARDED);
+            while (values != null && values.hasMoreElements()) {
+                collectForwarded(values.nextElement(), hops);
+            }
+        }
+        if (hops.isEmpty()) {
+            Enumeration<String> values = request.getHeaders(X_FORWARDED_FOR);
+            while (values != null && values.hasMoreElements()) {
+                collectForwardedFor(values.nextElement(), hops);
+            }
+        }
+        if (hops.isEmpty()) {
+            String realIp = request.getHeader(X_REAL_IP);
+            return realIp != null && CidrTrie.parseAddress(realIp.trim()) != null ? realIp.trim() : remoteAddr;
+        }
+
+        // 从右向左：最右侧是直连代理写入的，越往左越不可信
+        String candidate = remoteAddr;
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            String hop = hops.get(i);
+            byte[] address = CidrTrie.parseAddress(hop);
+            if (address == null) {
+                // 无法识别的条目（unknown、混淆标识等），以最后一个受信任代理报告的地址为准
+                return candidate;
+            }
+            if (!trustedProxies.contains(address)) {
+                return hop;
+            }
+            candidate = hop;
+        }
+        // 整条链路都是受信任代理，取最左侧
+        return candidate;
+    }
+
+    /**
+     * X-Forwarded-For: client, proxy1, proxy2
+     */
+    private static void collectForwardedFor(String header, List<String> hops) {
+        int start = 0;
+        int length = header.length();
+        while (start <= length) {
+            int comma = header.indexOf(',', start);
+            int end = comma < 0 ? length : comma;
+            String hop = header.substring(start, end).trim();
+            if (!hop.isEmpty()) {
+                hops.add(stripPort(hop));
+            }
+            if (comma < 0) {
+                break;
+            }
+            start = comma + 1;
+        }
+    }
+
+    /**
+     * RFC 7239: Forwarded: for=192.0.2.60;proto=http;by=203.0.113.43, for="[2001:db8::1]:4711"
+     */
+    private static void collectForwarded(String header, List<String> hops) {
+        int length = header.length();
+        int index = 0;
+        while (index < length) {
+            int elementEnd = indexOfUnquoted(header, ',', index);
+            int pairStart = index;
+            while (pairStart < elementEnd) {
+                int pairEnd = Math.min(indexOfUnquoted(header, ';', pairStart), elementEnd);
+                int equals = header.indexOf('=', pairStart);
+                if (equals > 0 && equals < pairEnd
+                        && "for".equalsIgnoreCase(header.substring(pairStart, equals).trim())) {
+                    String value = header.substring(equals + 1, pairEnd).trim();
+                    if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+                        value = value.substring(1, value.length() - 1);
+                    }
+                    // 保留非法条目（如 unknown、_hidden），遍历时据此停止
+                    hops.add(stripPort(value));
+                }
+                pairStart = pairEnd + 1;
+            }
+            index = elementEnd + 1;
+        }
+    }
+
+    private static int indexOfUnquoted(String value, char target, int from) {
+        boolean quoted = false;
+        for (int i = from; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == target && !quoted) {
+                return i;
+            }
+        }
+        return value.length();
+    }
+
+    /**
+     * 去掉端口与 IPv6 方括号：1.2.3.4:80、[2001:db8::1]:443、[2001:db8::1]
+     */
+    private static String stripPort(String hop) {
+        if (hop.startsWith("[")) {
+            int close = hop.indexOf(']');
+            return close > 0 ? hop.substring(1, close) : hop;
+        }
+        int colon = hop.indexOf(':');
+        // 只有一个冒号时才是 IPv4:port，多个冒号是未加方括号的 IPv6
+        if (colon > 0 && hop.indexOf(':', colon + 1) < 0) {
+            return hop.substring(0, colon);
+        }
+        return hop;
+    }
+}
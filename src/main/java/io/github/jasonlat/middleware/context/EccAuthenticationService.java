@@ -1,17 +1,14 @@
 package io.github.jasonlat.middleware.context;
 
-import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
 import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
+import io.github.jasonlat.middleware.domain.model.valobj.EccDecryptType;
 //import io.github.jasonlat.middleware.domain.service.EccUserDataService;
 import io.github.jasonlat.middleware.domain.service.EccUserDataService;
-import io.github.jasonlat.middleware.exception.ReplayProtectionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
-import java.time.LocalDateTime;
-
 import static io.github.jasonlat.middleware.domain.model.valobj.EccConstants.ANONYMOUS_USER_ID;
 
 
@@ -26,49 +23,48 @@ public final class EccAuthenticationService {
     
     private final EccContextCache contextCache;
 
-    private final EccAutoConfigProperties eccAutoConfigProperties;
-
-    public EccAuthenticationService(EccUserDataService userDataService, EccContextCache contextCache, EccAutoConfigProperties eccAutoConfigProperties) {
+    public EccAuthenticationService(EccUserDataService userDataService, EccContextCache contextCache) {
         this.userDataService = userDataService;
         this.contextCache = contextCache;
-        this.eccAutoConfigProperties = eccAutoConfigProperties;
     }
 
     /**
      * 认证用户并设置上下文
+     * 用户数据由 {@link EccContextCache} 加载：并发未命中合并为一次加载，临近过期时后台刷新
      * @param username 用户id
      */
     public void authenticate(String username) {
+        authenticate(username, null);
+    }
+
+    /**
+     * 认证用户并设置上下文，缓存过期且加载失败时按解密类型的陈旧窗口决定能否使用旧公钥
+     * @param username 用户id
+     * @param type 解密类型，为 null 时使用默认陈旧窗口
+     */
+    public void authenticate(String username, EccDecryptType type) {
         // 0. 判断 userId
         if (!StringUtils.hasLength(username)) {
             log.warn("userId is empty, skip authenticate");
             return;
         }
-        // 1. 先从缓存获取
-        EccContext cachedContext = contextCache.get(username);
-        if (cachedContext != null && cachedContext.getUserPublicData() != null && !isExpired(cachedContext)) {
-            EccContextHolder.setContext(cachedContext);
-            EccContext context = EccContextHolder.getContext();
-            System.out.println(context
-            );
+        // 匿名用户，不用设置上下文
+        if (ANONYMOUS_USER_ID.VALUE().contains(username)) {
             return;
         }
-        
-        // 2. 从用户服务获取数据
-        UserPublicData userData = userDataService.loadUserPublicData(username);
-
-        // 匿名用户，不用设置上下文
-        if (userData != null && !ANONYMOUS_USER_ID.VALUE().contains(username)) {
-            // 3. 创建新的上下文
-            EccContext context = EccContext.of(username, userData);
-
-            // 4. 缓存上下文
-            contextCache.put(username, context);
-
-            // 5. 设置到当前线程
-            EccContextHolder.setContext(context);
+        // 1. 从缓存获取，未命中时加载
+        EccContext context = contextCache.get(username, type);
+        if (context != null && context.getUserPublicData() == null) {
+            // 取到的条目恰好被驱逐并清理，重新加载
+            contextCache.evict(username);
+            context = contextCache.get(username, type);
+        }
+        if (context == null || context.getUserPublicData() == null) {
+            return;
         }
 
+        // 2. 设置到当前线程
+        EccContextHolder.setContext(context);
     }
 
     public void setContext(String username, UserPublicData userPublicData) {
@@ -83,7 +79,8 @@ public final class EccAuthenticationService {
         // 3. 创建新的上下文
         EccContext context = EccContext.of(username, userPublicData);
 
-        // 4. 缓存上下文
+        // 4. 移除旧公钥（含二级存储）后缓存上下文，新公钥无法写入二级存储时也不会留下旧记录
+        contextCache.evict(username);
         contextCache.put(username, context);
 
         // 5. 设置到当前线程
@@ -94,8 +91,16 @@ public final class EccAuthenticationService {
      * 认证用户并设置上下文
      */
     public void authenticate() {
+        authenticate((EccDecryptType) null);
+    }
+
+    /**
+     * 认证当前用户并设置上下文
+     * @param type 解密类型，为 null 时使用默认陈旧窗口
+     */
+    public void authenticate(EccDecryptType type) {
         String currentUser = userDataService.getCurrentUser();
-        authenticate(currentUser);
+        authenticate(currentUser, type);
     }
     
     /**
@@ -107,38 +112,4 @@ public final class EccAuthenticationService {
         authenticate(user);
     }
 
-    /**
-     * 时间过期检查
-     * @param context 上下文
-     * @return 结果
-     */
-    private boolean isExpired(EccContext context) {
-        if (context == null) {
-            return true;
-        }
-
-        // 检查基本时间过期
-        return isTimeExpired(context);
-    }
-
-
-    /**
-     * 时间过期检查
-     * @param context 上下文
-     * @return 结果
-     */
-    private boolean isTimeExpired(EccContext context) {
-        if (context.getLoadTime() == null) {
-            return true;
-        }
-
-        LocalDateTime loadTime = context.getLoadTime();
-        LocalDateTime now = LocalDateTime.now();
-        long expireMinutes = eccAutoConfigProperties.getUserContextCacheExpireMinutes();
-
-        return loadTime.plusMinutes(expireMinutes).isBefore(now);
-    }
-
-
-
-}
\ No newline at end of file
+}
@@ -22,10 +22,17 @@ public final class EccContext {
     private ConcurrentHashMap<String, Object> attributes;
     
     public static EccContext of(String user, UserPublicData userData) {
+        return of(user, userData, LocalDateTime.now());
+    }
+
+    /**
+     * @param loadTime 公钥从用户数据服务加载的时间，从二级存储恢复时为记录的写入时间
+     */
+    public static EccContext of(String user, UserPublicData userData, LocalDateTime loadTime) {
         EccContext context = new EccContext();
         context.setUser(user);
         context.setUserPublicData(userData);
-        context.setLoadTime(LocalDateTime.now());
+        context.setLoadTime(loadTime);
         context.setAttributes(new ConcurrentHashMap<>());
         return context;
     }
@@ -1,50 +1,287 @@
 package io.github.jasonlat.middleware.context;
 
 import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.github.jasonlat.middleware.cache.userkey.MappedUserKeyStore;
 import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
+import io.github.jasonlat.middleware.domain.model.valobj.EccDecryptType;
+import io.github.jasonlat.middleware.domain.service.EccUserDataService;
+import io.github.jasonlat.middleware.domain.service.UserDataLoadGuard;
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
+ * 用户上下文加载缓存
+ * 未命中时通过 {@link EccUserDataService#loadUserPublicData(String)} 加载，同一用户的并发未命中只加载一次，其余请求等待同一结果；
+ * 写入超过 refresh-after-write-minutes 后，下一次访问触发后台异步刷新并继续返回旧值，热点用户不会同时过期。
+ * 刷新失败时保留旧值，直到 cache-expire-minutes 过期。
+ * 加载经过 {@link UserDataLoadGuard}（超时、并发隔离、熔断）；过期条目在缓存中额外保留最长的陈旧窗口，
+ * 过期后重新加载失败时，按调用方的解密类型决定是否在 user-data-load.stale-minutes(-by-type) 内返回旧值。
+ * 用户不存在（加载结果为 null）时记入独立的否定缓存，negative-ttl-seconds 内同名请求不再访问用户数据服务；
+ * 注册或写入该用户时立即移除。
+ * 启用 {@link MappedUserKeyStore} 时，堆内未命中先查本地二级存储，命中则不访问用户数据服务；
+ * 从用户数据服务加载与写入的公钥同时写入二级存储。后台刷新与过期重新加载始终访问用户数据服务
+ *
  * @author jasonlat
  */
 @Slf4j
 @Component
 public final class EccContextCache {
 
-    private final Cache<String, EccContext> cache;
-    
-    public EccContextCache(EccAutoConfigProperties properties) {
+    /**
+     * 标记当前线程的本次 get 是否由自己执行了加载
+     */
+    private static final ThreadLocal<Boolean> loadedByCaller = new ThreadLocal<>();
+
+    private final LoadingCache<String, EccContext> cache;
+
+    /**
+     * 否定缓存：已确认不存在的用户，未启用时为 null
+     */
+    private final Cache<String, Boolean> unknownUsers;
+
+    /**
+     * 否定缓存失效计数，加载期间发生过失效时不写入否定缓存，避免注册后又被标记为不存在
+     */
+    private final AtomicLong unknownGeneration = new AtomicLong();
+
+    private final UserDataLoadGuard loadGuard;
+
+    private final MappedUserKeyStore userKeyStore;
+
+    private final EccAutoConfigProperties properties;
+
+    private final long refreshAfterWriteSeconds;
+
+    private final long expireMillis;
+
+    /**
+     * 过期条目的重新加载，同一用户只进行一次
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<EccContext>> revalidating = new ConcurrentHashMap<>();
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder negativeInvalidations = new LongAdder();
+    private final AtomicLong maxLoadNanos = new AtomicLong();
+
+    public EccContextCache(EccAutoConfigProperties properties, UserDataLoadGuard loadGuard, MappedUserKeyStore userKeyStore) {
+        this.loadGuard = loadGuard;
+        this.userKeyStore = userKeyStore;
+        this.properties = properties;
+        this.refreshAfterWriteSeconds = properties.getUserContextCacheRefreshAfterWriteSeconds();
+        this.expireMillis = TimeUnit.MINUTES.toMillis(properties.getUserContextCacheExpireMinutes());
         this.cache = Caffeine.newBuilder()
             .maximumSize(properties.getUserContextCacheMaxSize())
-            .expireAfterWrite(properties.getUserContextCacheExpireMinutes(), TimeUnit.MINUTES)
+            // 过期由 isExpired 判断，条目额外保留最长的陈旧窗口，供加载失败时使用
+            .expireAfterWrite(properties.getUserContextCacheExpireMinutes() + properties.getUserDataMaxStaleMinutes(), TimeUnit.MINUTES)
+            .refreshAfterWrite(refreshAfterWriteSeconds, TimeUnit.SECONDS)
             .recordStats()
                 // 移除监听
             .removalListener(this::onRemoval)  // 🔥 关键配置
+            .build(new UserContextLoader());
+        long negativeTtlSeconds = properties.getUserContextCache().getNegativeTtlSeconds();
+        this.unknownUsers = negativeTtlSeconds <= 0 ? null : Caffeine.newBuilder()
+            .maximumSize(properties.getUserContextCache().getNegativeMaxSize())
+            .expireAfterWrite(negativeTtlSeconds, TimeUnit.SECONDS)
+            .recordStats()
             .build();
     }
-    
+
+    /**
+     * 获取用户上下文，未命中时加载；并发未命中合并为一次加载
+     * @param userId 用户唯一标识
+     * @return 用户上下文，用户不存在时为 null（不缓存）
+     */
     public EccContext get(String userId) {
+        return get(userId, null);
+    }
+
+    /**
+     * 获取用户上下文，未命中或已过期时加载；已过期且加载失败时按解密类型的陈旧窗口决定是否返回旧值
+     * @param userId 用户唯一标识
+     * @param type 解密类型，为 null 时（如响应加密）使用默认陈旧窗口
+     * @return 用户上下文，用户不存在时为 null（不缓存）
+     */
+    public EccContext get(String userId, EccDecryptType type) {
+        // 不触发刷新地查看，过期条目由下方同步重新加载，避免同时触发后台刷新
+        EccContext context = cache.policy().getIfPresentQuietly(userId);
+        if (context != null && !isExpired(context)) {
+            EccContext current = cache.getIfPresent(userId);
+            return current != null ? current : context;
+        }
+        if (context != null) {
+            return revalidate(userId, context, type);
+        }
+        if (unknownUsers != null && unknownUsers.getIfPresent(userId) != null) {
+            negativeHits.increment();
+            return null;
+        }
+        loadedByCaller.remove();
+        try {
+            context = cache.get(userId);
+            if (!Boolean.TRUE.equals(loadedByCaller.get())) {
+                // 由其他请求的加载结果满足
+                coalesced.increment();
+            }
+            return context;
+        } finally {
+            loadedByCaller.remove();
+        }
+    }
+
+    /**
+     * 重新加载已过期的条目，同一用户的并发请求等待同一次加载
+     */
+    private EccContext revalidate(String userId, EccContext stale, EccDecryptType type) {
+        CompletableFuture<EccContext> revalidation = new CompletableFuture<>();
+        CompletableFuture<EccContext> existing = revalidating.putIfAbsent(userId, revalidation);
+        try {
+            if (existing != null) {
+                coalesced.increment();
+                return join(existing);
+            }
+            try {
+                EccContext fresh = load(userId);
+                if (fresh != null) {
+                    cache.put(userId, fresh);
+                } else {
+                    cache.invalidate(userId);
+                }
+                revalidation.complete(fresh);
+                return fresh;
+            } catch (RuntimeException e) {
+                revalidation.completeExceptionally(e);
+                throw e;
+            } finally {
+                revalidating.remove(userId, revalidation);
+            }
+        } catch (RuntimeException e) {
+            long staleMillis = properties.getUserDataStaleMillis(type);
+            if (staleMillis > 0 && ageMillis(stale) <= expireMillis + staleMillis && stale.getUserPublicData() != null) {
+                staleServed.increment();
+                log.debug("用户{}的公钥加载失败，使用过期的缓存公钥，原因：{}", userId, e.getMessage());
+                return stale;
+            }
+            throw e;
+        }
+    }
+
+    private static EccContext join(CompletableFuture<EccContext> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private boolean isExpired(EccContext context) {
+        return ageMillis(context) > expireMillis;
+    }
+
+    private static long ageMillis(EccContext context) {
+        LocalDateTime loadTime = context.getLoadTime();
+        return loadTime == null ? Long.MAX_VALUE : Duration.between(loadTime, LocalDateTime.now()).toMillis();
+    }
+
+    /**
+     * @param userId 用户唯一标识
+     * @return 已缓存的用户上下文，不触发加载
+     */
+    public EccContext getIfPresent(String userId) {
         return cache.getIfPresent(userId);
     }
-    
+
     public void put(String userId, EccContext context) {
+        invalidateUnknown(userId);
+        userKeyStore.put(userId, context.getUserPublicData());
         cache.put(userId, context);
     }
-    
+
     public void evict(String userId) {
+        invalidateUnknown(userId);
+        userKeyStore.remove(userId);
         cache.invalidate(userId);
     }
-    
+
     public void clear() {
+        if (unknownUsers != null) {
+            unknownGeneration.incrementAndGet();
+            unknownUsers.invalidateAll();
+        }
+        userKeyStore.clear();
         cache.invalidateAll();
     }
 
+    /**
+     * 批量写入预加载的用户数据（启动预热）
+     * @param users 用户唯一标识 -> 公钥数据
+     * @return 写入数量
+     */
+    public int preload(Map<String, UserPublicData> users) {
+        int count = 0;
+        for (Map.Entry<String, UserPublicData> entry : users.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                continue;
+            }
+            put(entry.getKey(), EccContext.of(entry.getKey(), entry.getValue()));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param limit 最大数量
+     * @return 访问频率最高的用户，按频率降序
+     */
+    public List<String> hottestUsers(int limit) {
+        return cache.policy().eviction()
+                .map(eviction -> (List<String>) new ArrayList<>(eviction.hottest(limit).keySet()))
+                .orElseGet(Collections::emptyList);
+    }
+
+    /**
+     * 从否定缓存中移除用户（如注册成功后），之后的请求重新访问用户数据服务
+     * @param userId 用户唯一标识
+     */
+    public void invalidateUnknown(String userId) {
+        if (unknownUsers == null) {
+            return;
+        }
+        unknownGeneration.incrementAndGet();
+        if (unknownUsers.asMap().remove(userId) != null) {
+            negativeInvalidations.increment();
+        }
+    }
+
     /**
      * 缓存条目被移除时的回调
      */
@@ -59,6 +296,10 @@ public final class EccContextCache {
             case EXPLICIT:
                 log.debug("用户{}的ECC上下文被手动移除", userId);
                 break;
+            case REPLACED:
+                // 刷新或重新写入替换的旧值可能仍被进行中的请求使用，不清理
+                log.debug("用户{}的ECC上下文已刷新", userId);
+                return;
             default:
                 log.info("用户{}的ECC上下文被移除，原因：{}", userId, cause);
         }
@@ -69,6 +310,63 @@ public final class EccContextCache {
         }
     }
 
+    private EccContext load(String userId) {
+        long start = System.nanoTime();
+        long generation = unknownGeneration.get();
+        try {
+            UserPublicData userData = loadGuard.load(userId);
+            if (userData == null) {
+                markUnknown(userId, generation);
+                userKeyStore.remove(userId);
+                return null;
+            }
+            userKeyStore.put(userId, userData);
+            return EccContext.of(userId, userData);
+        } finally {
+            long nanos = System.nanoTime() - start;
+            loads.increment();
+            long max;
+            while (nanos > (max = maxLoadNanos.get())) {
+                if (maxLoadNanos.compareAndSet(max, nanos)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void markUnknown(String userId, long generation) {
+        if (unknownUsers == null) {
+            return;
+        }
+        unknownUsers.put(userId, Boolean.TRUE);
+        if (unknownGeneration.get() != generation) {
+            // 加载期间发生过注册等失效，结果可能已过时
+            unknownUsers.invalidate(userId);
+        }
+    }
+
+    private final class UserContextLoader implements CacheLoader<String, EccContext> {
+
+        @Override
+        public EccContext load(@NonNull String userId) {
+            loadedByCaller.set(Boolean.TRUE);
+            // 堆内未命中，先查二级存储；沿用记录的写入时间，过期与陈旧窗口按公钥的实际年龄计算
+            MappedUserKeyStore.Entry stored = userKeyStore.getEntry(userId);
+            if (stored != null) {
+                LocalDateTime loadTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(stored.getLoadTime()), ZoneId.systemDefault());
+                return EccContext.of(userId, stored.getUserData(), loadTime);
+            }
+            return EccContextCache.this.load(userId);
+        }
+
+        @Override
+        public EccContext reload(@NonNull String userId, @NonNull EccContext oldValue) {
+            // 在后台线程执行，期间请求继续使用旧值
+            refreshes.increment();
+            return EccContextCache.this.load(userId);
+        }
+    }
+
     /**
      * @return 获取缓存统计信息
      */
@@ -76,6 +374,41 @@ public final class EccContextCache {
         return cache.stats();
     }
 
+    /**
+     * @return 指标（加载耗时、合并次数、刷新次数）
+     */
+    public Map<String, Object> getMetrics() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", cache.estimatedSize());
+        metrics.put("hitRate", stats.hitRate());
+        metrics.put("loads", loads.sum());
+        metrics.put("loadFailures", stats.loadFailureCount());
+        metrics.put("refreshes", refreshes.sum());
+        metrics.put("coalesced", coalesced.sum());
+        metrics.put("staleServed", staleServed.sum());
+        metrics.put("averageLoadMicros", TimeUnit.NANOSECONDS.toMicros((long) stats.averageLoadPenalty()));
+        metrics.put("maxLoadMicros", TimeUnit.NANOSECONDS.toMicros(maxLoadNanos.get()));
+        metrics.put("evictions", stats.evictionCount());
+        metrics.put("refreshAfterWriteSeconds", refreshAfterWriteSeconds);
+        metrics.put("negativeCache", getNegativeMetrics());
+        metrics.put("userKeyStore", userKeyStore.getMetrics());
+        return metrics;
+    }
+
+    /**
+     * @return 否定缓存指标
+     */
+    public Map<String, Object> getNegativeMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", unknownUsers != null);
+        metrics.put("size", unknownUsers == null ? 0L : unknownUsers.estimatedSize());
+        metrics.put("hits", negativeHits.sum());
+        metrics.put("invalidations", negativeInvalidations.sum());
+        metrics.put("evictions", unknownUsers == null ? 0L : unknownUsers.stats().evictionCount());
+        return metrics;
+    }
+
     /**
      * @return 获取当前缓存大小
      */
@@ -89,4 +422,4 @@ public final class EccContextCache {
     public void cleanUp() {
         cache.cleanUp();
     }
-}
\ No newline at end of file
+}
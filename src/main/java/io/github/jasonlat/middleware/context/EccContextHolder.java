@@ -1,19 +1,55 @@
 package io.github.jasonlat.middleware.context;
 
 import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
+import io.github.jasonlat.middleware.domain.model.valobj.EccDecryptType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 /**
+ * ECC上下文持有者
+ * 处于 Web 请求中时，上下文保存在请求属性中，随请求结束释放，线程池复用线程不会带上上一个请求的用户；
+ * 仅在请求之外（如定时任务）回退到 ThreadLocal，调用方需自行 {@link #clearContext()}。
+ * 请求结束时 {@link io.github.jasonlat.middleware.interceptor.EccContextInterceptor} 会主动清除。
+ * 同一请求内用户只解析一次：解密引擎、加密切面与业务代码共享同一次解析结果。
+ * 异步线程通过 {@link #wrap(Runnable)} / {@link EccContextTaskDecorator} / {@link EccContextCallableInterceptor}
+ * 获得提交时请求的上下文，不会在其他线程重新认证
+ *
  * @author jasonlat
  */
 @Component
 public final class EccContextHolder {
-    
+
+    /**
+     * 保存上下文的请求属性名
+     */
+    public static final String CONTEXT_ATTRIBUTE = EccContextHolder.class.getName() + ".CONTEXT";
+
+    /**
+     * 保存本请求 "当前用户"（getCurrentUser）解析结果的请求属性名
+     */
+    public static final String RESOLVED_CONTEXT_ATTRIBUTE = EccContextHolder.class.getName() + ".RESOLVED_CONTEXT";
+
+    private static final Logger logger = LoggerFactory.getLogger(EccContextHolder.class);
+
+    /**
+     * 请求之外的回退存储
+     */
     private static final ThreadLocal<EccContext> contextHolder = new ThreadLocal<>();
 
+    /**
+     * 传播到异步线程的 "当前用户" 解析结果
+     */
+    private static final ThreadLocal<EccContext> resolvedContextHolder = new ThreadLocal<>();
+
     private final EccAuthenticationService authenticationService;
 
     public EccContextHolder(EccAuthenticationService authenticationService) {
@@ -22,28 +58,140 @@ public final class EccContextHolder {
 
     // ========================= 静态方法区 ==============================
     /**
-     * @return 获取当前线程的ECC上下文
+     * @return 获取当前请求（请求之外为当前线程）的ECC上下文
      */
     public static EccContext getContext() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            return (EccContext) attributes.getAttribute(CONTEXT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
         return contextHolder.get();
     }
     
 
     /**
-     * 设置当前线程的ECC上下文
+     * 设置当前请求（请求之外为当前线程）的ECC上下文
      * @param context 上下文
      */
     public static void setContext(EccContext context) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(CONTEXT_ATTRIBUTE, context, RequestAttributes.SCOPE_REQUEST);
+            return;
+        }
         contextHolder.set(context);
     }
     
     /**
-     * 清除当前线程的ECC上下文
+     * 清除当前请求及当前线程的ECC上下文
      */
     public static void clearContext() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.removeAttribute(CONTEXT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            attributes.removeAttribute(RESOLVED_CONTEXT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
+        clearThreadContext();
+    }
+
+    /**
+     * 将上下文绑定到当前线程（用于异步线程），必须与 {@link #clearThreadContext()} 成对调用
+     * @param context 上下文
+     * @param resolvedContext "当前用户" 解析结果
+     */
+    public static void bindThreadContext(EccContext context, EccContext resolvedContext) {
+        contextHolder.set(context);
+        resolvedContextHolder.set(resolvedContext);
+    }
+
+    /**
+     * 清除当前线程绑定的上下文，不影响请求属性
+     */
+    public static void clearThreadContext() {
         contextHolder.remove();
+        resolvedContextHolder.remove();
     }
-    
+
+    /**
+     * @return 本请求（或传播到当前线程）的 "当前用户" 解析结果
+     */
+    public static EccContext getResolvedContext() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            return (EccContext) attributes.getAttribute(RESOLVED_CONTEXT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
+        return resolvedContextHolder.get();
+    }
+
+    /**
+     * 包装任务，在执行线程上恢复提交时的上下文，执行结束后还原
+     * @param task 任务
+     * @return 包装后的任务
+     */
+    public static Runnable wrap(Runnable task) {
+        Callable<Object> bound = bindCurrentContext(Executors.callable(task));
+        return bound == null ? task : () -> callUnchecked(bound);
+    }
+
+    /**
+     * 包装任务，在执行线程上恢复提交时的上下文，执行结束后还原
+     * @param task 任务
+     * @param <T> 结果类型
+     * @return 包装后的任务
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        Callable<T> bound = bindCurrentContext(task);
+        return bound == null ? task : bound;
+    }
+
+    /**
+     * 包装任务，用于 CompletableFuture.supplyAsync 等
+     * @param task 任务
+     * @param <T> 结果类型
+     * @return 包装后的任务
+     */
+    public static <T> Supplier<T> wrapSupplier(Supplier<T> task) {
+        Callable<T> bound = bindCurrentContext(task::get);
+        return bound == null ? task : () -> callUnchecked(bound);
+    }
+
+    /**
+     * 捕获提交线程的上下文，返回在执行线程上绑定该上下文、结束后还原的任务
+     * @param task 任务
+     * @param <T> 结果类型
+     * @return 包装后的任务，没有可传播的上下文时返回 null
+     */
+    private static <T> Callable<T> bindCurrentContext(Callable<T> task) {
+        EccContext context = getContext();
+        EccContext resolvedContext = getResolvedContext();
+        if (context == null && resolvedContext == null) {
+            return null;
+        }
+        return () -> {
+            EccContext previous = contextHolder.get();
+            EccContext previousResolved = resolvedContextHolder.get();
+            bindThreadContext(context, resolvedContext);
+            try {
+                return task.call();
+            } finally {
+                bindThreadContext(previous, previousResolved);
+            }
+        };
+    }
+
+    /**
+     * 执行由 Runnable / Supplier 转换而来的任务，它们只会抛出非受检异常
+     */
+    private static <T> T callUnchecked(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * @return 获取当前用户的公钥数据
      */
@@ -54,21 +202,57 @@ public final class EccContextHolder {
     }
 
     /**
-     * @return 获取当前用户的公钥数据(自动设置上下文)
+     * @return 获取当前用户的公钥数据(自动设置上下文，同一请求内只解析一次)
      */
     public UserPublicData getAuthenticationUserPublicData() {
+        return getAuthenticationUserPublicData((EccDecryptType) null);
+    }
+
+    /**
+     * @param type 解密类型，决定用户数据服务不可用时能否使用过期的缓存公钥
+     * @return 获取当前用户的公钥数据(自动设置上下文，同一请求内只解析一次)
+     */
+    public UserPublicData getAuthenticationUserPublicData(EccDecryptType type) {
+        EccContext resolved = getResolvedContext();
+        if (resolved != null) {
+            setContext(resolved);
+            return getCurrentUserPublicData();
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
         // 手动设置上下文
-        authenticationService.authenticate();
-        return getCurrentUserPublicData();
+        authenticationService.authenticate(type);
+        UserPublicData userPublicData = getCurrentUserPublicData();
+        if (attributes != null) {
+            attributes.setAttribute(RESOLVED_CONTEXT_ATTRIBUTE, getContext(), RequestAttributes.SCOPE_REQUEST);
+        }
+        logger.debug("ECC user context resolved - User: {}", getContext().getUser());
+        return userPublicData;
     }
 
     /**
-     * @return 获取当前用户的公钥数据(自动设置上下文)
+     * @return 获取当前用户的公钥数据(自动设置上下文，同一请求内同一用户只解析一次)
      */
     public UserPublicData getAuthenticationUserPublicData(String username) {
+        return getAuthenticationUserPublicData(username, null);
+    }
+
+    /**
+     * @param username 用户唯一标识
+     * @param type 解密类型，决定用户数据服务不可用时能否使用过期的缓存公钥
+     * @return 获取用户的公钥数据(自动设置上下文，同一请求内同一用户只解析一次)
+     */
+    public UserPublicData getAuthenticationUserPublicData(String username, EccDecryptType type) {
+        if (RequestContextHolder.getRequestAttributes() != null && StringUtils.hasLength(username)) {
+            EccContext context = getContext();
+            if (context != null && username.equals(context.getUser())) {
+                return getCurrentUserPublicData();
+            }
+        }
         // 手动设置上下文
-        authenticationService.authenticate(username);
-        return getCurrentUserPublicData();
+        authenticationService.authenticate(username, type);
+        UserPublicData userPublicData = getCurrentUserPublicData();
+        logger.debug("ECC user context resolved - User: {}", username);
+        return userPublicData;
     }
 
 
@@ -0,0 +1,35 @@
+package io.github.jasonlat.middleware.context;
+
+import lombok.NonNull;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * ECC上下文传播装饰器
+ * 提交任务时捕获当前请求的ECC上下文，在线程池线程上恢复，执行结束后还原。
+ * 容器中没有其他 TaskDecorator 时自动注册，Spring Boot 会将其应用到 @Async 与 MVC 异步共用的 applicationTaskExecutor；
+ * 已有自定义装饰器时可通过 {@link #EccContextTaskDecorator(TaskDecorator)} 组合
+ *
+ * @author jasonlat
+ */
+public final class EccContextTaskDecorator implements TaskDecorator {
+
+    private final TaskDecorator delegate;
+
+    public EccContextTaskDecorator() {
+        this(null);
+    }
+
+    /**
+     * @param delegate 需要组合的装饰器，先于ECC上下文传播执行包装
+     */
+    public EccContextTaskDecorator(TaskDecorator delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    @NonNull
+    public Runnable decorate(@NonNull Runnable runnable) {
+        Runnable task = delegate != null ? delegate.decorate(runnable) : runnable;
+        return EccContextHolder.wrap(task);
+    }
+}
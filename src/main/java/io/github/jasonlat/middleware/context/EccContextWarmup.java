@@ -0,0 +1,175 @@
+package io.github.jasonlat.middleware.context;
+
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
+import io.github.jasonlat.middleware.domain.service.EccUserDataService;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 用户上下文缓存启动预热
+ * 应用关闭时把 {@link EccContextCache} 中访问最频繁的用户写入热点列表文件；下次启动时在 ApplicationRunner 阶段
+ * （Spring Boot 发布就绪状态之前）读取该列表，通过 {@link EccUserDataService#loadUserPublicDataBatch} 分批并行预加载。
+ * 预热失败或超时只记录日志，不阻止启动
+ *
+ * <pre>
+ * file = | magic (int) | version (int) | createdAt (long) | count (int) | userId (UTF) * count |
+ * </pre>
+ *
+ * @author jasonlat
+ */
+@Component
+public final class EccContextWarmup implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(EccContextWarmup.class);
+
+    private static final int MAGIC = 0x45434348;
+    private static final int VERSION = 1;
+
+    private final EccAutoConfigProperties.UserContextWarmup config;
+    private final EccContextCache contextCache;
+    private final EccUserDataService userDataService;
+    private final int size;
+
+    public EccContextWarmup(EccAutoConfigProperties configProperties, EccContextCache contextCache, EccUserDataService userDataService) {
+        this.config = configProperties.getUserContextWarmup();
+        this.contextCache = contextCache;
+        this.userDataService = userDataService;
+        this.size = (int) Math.min(config.getSize(), configProperties.getUserContextCacheMaxSize());
+    }
+
+    @Override
+    public void run(@NonNull ApplicationArguments args) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        List<String> users = readHotList();
+        if (users.isEmpty()) {
+            return;
+        }
+        warmup(users);
+    }
+
+    /**
+     * 分批并行预加载，超过 timeout-seconds 后不再等待
+     *
+     * @param users 用户唯一标识，按热度降序
+     */
+    public void warmup(List<String> users) {
+        long start = System.nanoTime();
+        AtomicInteger sequence = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(config.getParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "ecc-warmup-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger loaded = new AtomicInteger();
+        AtomicInteger failedBatches = new AtomicInteger();
+        for (int from = 0; from < users.size(); from += config.getBatchSize()) {
+            List<String> batch = users.subList(from, Math.min(users.size(), from + config.getBatchSize()));
+            executor.execute(() -> {
+                try {
+                    Map<String, UserPublicData> result = userDataService.loadUserPublicDataBatch(batch);
+                    loaded.addAndGet(contextCache.preload(result));
+                } catch (RuntimeException e) {
+                    failedBatches.incrementAndGet();
+                    logger.warn("User context warmup batch failed - Users: {}, Error: {}", batch.size(), e.getMessage());
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(config.getTimeoutSeconds(), TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+                logger.warn("User context warmup timed out after {} s, continuing startup", config.getTimeoutSeconds());
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        logger.info("User context warmup finished - Requested: {}, Loaded: {}, Failed batches: {}, Time: {} ms",
+                users.size(), loaded.get(), failedBatches.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            writeHotList(contextCache.hottestUsers(size));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to write user hot list - Path: {}, Error: {}", config.getPath(), e.getMessage());
+        }
+    }
+
+    private void writeHotList(List<String> users) throws IOException {
+        if (users.isEmpty()) {
+            return;
+        }
+        Path target = Paths.get(config.getPath());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(users.size());
+            for (String user : users) {
+                out.writeUTF(user);
+            }
+        }
+        // 先写临时文件再原子替换，进程中途退出不会留下半个列表
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("User hot list written - Path: {}, Users: {}", target, users.size());
+    }
+
+    private List<String> readHotList() {
+        Path path = Paths.get(config.getPath());
+        if (!Files.isRegularFile(path)) {
+            return Collections.emptyList();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warn("Ignoring unrecognized user hot list - Path: {}", path);
+                return Collections.emptyList();
+            }
+            long createdAt = in.readLong();
+            int count = Math.min(in.readInt(), size);
+            List<String> users = new ArrayList<>(Math.max(0, count));
+            for (int i = 0; i < count; i++) {
+                users.add(in.readUTF());
+            }
+            logger.info("User hot list loaded - Path: {}, Users: {}, Age: {} ms", path, users.size(), System.currentTimeMillis() - createdAt);
+            return users;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to read user hot list, skipping warmup - Path: {}, Error: {}", path, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+}
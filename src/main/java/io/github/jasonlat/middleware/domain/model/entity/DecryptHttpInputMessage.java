@@ -4,6 +4,7 @@ import lombok.NonNull;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpInputMessage;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 
 /**
@@ -16,9 +17,28 @@ public class DecryptHttpInputMessage implements HttpInputMessage {
 
     private final HttpHeaders headers;
 
+    /**
+     * 解密后的明文，仅由字节数组构造时保留
+     */
+    private final byte[] decryptedBody;
+
     public DecryptHttpInputMessage(InputStream body, HttpHeaders headers) {
         this.body = body;
         this.headers = headers;
+        this.decryptedBody = null;
+    }
+
+    public DecryptHttpInputMessage(byte[] decryptedBody, HttpHeaders headers) {
+        this.body = new ByteArrayInputStream(decryptedBody);
+        this.headers = headers;
+        this.decryptedBody = decryptedBody;
+    }
+
+    /**
+     * @return 解密后的明文，未保留时为 null
+     */
+    public byte[] getDecryptedBody() {
+        return decryptedBody;
     }
 
     @Override
@@ -7,6 +7,7 @@ import lombok.Builder;
 import lombok.Data;
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -20,8 +21,8 @@ public final class PublicKey implements Serializable {
     private final String x;
     private final String y;
 
-    // 静态实例变量（饿汉式）
-    private static volatile PublicKey instance;
+    // 静态实例（CAS 发布，不使用 synchronized，虚拟线程不会因此固定在载体线程上）
+    private static final AtomicReference<PublicKey> INSTANCE = new AtomicReference<>();
 
     // 私有构造函数，从配置创建
     private PublicKey(EccAutoConfigProperties eccAutoConfigProperties) {
@@ -30,20 +31,18 @@ public final class PublicKey implements Serializable {
     }
 
     /**
-     * 获取单例实例（懒汉式 + 双重检查锁定）
+     * 获取单例实例（懒汉式，并发初始化时只有第一个实例被发布）
      * @param x 公钥X坐标
      * @param y 公钥Y坐标
      * @return ServerPublicData单例实例
      */
     public static PublicKey getInstance(String x, String y) {
-        if (instance == null) {
-            synchronized (PublicKey.class) {
-                if (instance == null) {
-                    instance = new PublicKey(x, y);
-                }
-            }
+        PublicKey current = INSTANCE.get();
+        if (current != null) {
+            return current;
         }
-        return instance;
+        INSTANCE.compareAndSet(null, new PublicKey(x, y));
+        return INSTANCE.get();
     }
 
     /**
@@ -52,14 +51,12 @@ public final class PublicKey implements Serializable {
      * @return ServerPublicData单例实例
      */
     public static PublicKey getInstance(EccAutoConfigProperties eccAutoConfigProperties) {
-        if (instance == null) {
-            synchronized (ServerPublicKeyData.class) {
-                if (instance == null) {
-                    instance = new PublicKey(eccAutoConfigProperties);
-                }
-            }
+        PublicKey current = INSTANCE.get();
+        if (current != null) {
+            return current;
         }
-        return instance;
+        INSTANCE.compareAndSet(null, new PublicKey(eccAutoConfigProperties));
+        return INSTANCE.get();
     }
 
     /**
@@ -68,33 +65,34 @@ public final class PublicKey implements Serializable {
      * @throws IllegalStateException 如果单例未初始化
      */
     public static PublicKey getInstance() {
-        if (instance == null) {
+        PublicKey current = INSTANCE.get();
+        if (current == null) {
             throw new IllegalStateException("ServerPublicData单例未初始化，请先调用getInstance(String, String)或getInstance(AutoConfigProperties)");
         }
-        return instance;
+        return current;
     }
 
     /**
      * @param x 新的公钥X坐标
      * @param y 新的公钥Y坐标
      */
-    public static synchronized void resetInstance(String x, String y) {
-        instance = new PublicKey(x, y);
+    public static void resetInstance(String x, String y) {
+        INSTANCE.set(new PublicKey(x, y));
     }
 
     /**
      * 重置单例实例（从配置）
      * @param eccAutoConfigProperties 新的自动配置属性
      */
-    public static synchronized void resetInstance(EccAutoConfigProperties eccAutoConfigProperties) {
-        instance = new PublicKey(eccAutoConfigProperties);
+    public static void resetInstance(EccAutoConfigProperties eccAutoConfigProperties) {
+        INSTANCE.set(new PublicKey(eccAutoConfigProperties));
     }
 
     /**
      * 清除单例实例（主要用于测试）
      */
-    public static synchronized void clearInstance() {
-        instance = null;
+    public static void clearInstance() {
+        INSTANCE.set(null);
     }
 
     /**
@@ -102,7 +100,7 @@ public final class PublicKey implements Serializable {
      * @return true如果已初始化，false否则
      */
     public static boolean isInitialized() {
-        return instance != null;
+        return INSTANCE.get() != null;
     }
 
 
@@ -7,4 +7,8 @@ public enum EccDecryptType {
     NOT_IDENTIFICATION,
     REGISTER,
     IDENTIFICATION,
+    /**
+     * 未认证请求，用户名以明文放在请求头中并由签名覆盖：先验签，验签通过后才解密
+     */
+    SIGNED_NOT_IDENTIFICATION,
 }
@@ -0,0 +1,32 @@
+package io.github.jasonlat.middleware.domain.model.valobj;
+
+import lombok.Getter;
+
+/**
+ * nonce 存储类型
+ *
+ * @author jasonlat
+ */
+@Getter
+public enum NonceStoreType {
+    /**
+     * 本地 Caffeine 存储，按条目过期，受最大容量限制
+     */
+    LOCAL,
+    /**
+     * 时间轮存储，按时间桶整体过期，内存随实际请求量增长
+     */
+    TIMING_WHEEL,
+    /**
+     * 轮换布隆过滤器，内存固定，存在可配置的误判率（只会误拒，不会误放）
+     */
+    BLOOM_FILTER,
+    /**
+     * 堆外开放寻址表，UUID 请求ID压缩为 32 字节/条，非 UUID 退回堆内存储
+     */
+    OFF_HEAP_UUID,
+    /**
+     * 分布式分片存储，按 nonce 哈希路由到归属节点，跨实例共享，附带近端缓存
+     */
+    DISTRIBUTED,
+}
@@ -0,0 +1,22 @@
+package io.github.jasonlat.middleware.domain.model.valobj;
+
+import lombok.Getter;
+
+/**
+ * 重放攻击防护模式
+ *
+ * @author jasonlat
+ */
+@Getter
+public enum ReplayProtectionMode {
+    /**
+     * 时间戳模式：在窗口内记录每个 时间戳 + IP，内存随请求量增长
+     */
+    TIMESTAMP,
+    /**
+     * 序列号模式：客户端在加密的请求体 JSON 中携带单调递增序列号，服务端按已认证用户保存最大序列号 + 窗口位图，内存随用户数增长。
+     * 用户取自解密验签后的上下文，没有认证用户的接口（未解密或 REGISTER）直接拒绝。
+     * 时间戳仍需在 timeWindow 内，但不再逐条记录
+     */
+    SEQUENCE,
+}
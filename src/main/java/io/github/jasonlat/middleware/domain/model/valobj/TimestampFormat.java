@@ -0,0 +1,24 @@
+package io.github.jasonlat.middleware.domain.model.valobj;
+
+import lombok.Getter;
+
+/**
+ * 时间戳请求头格式
+ *
+ * @author jasonlat
+ */
+@Getter
+public enum TimestampFormat {
+    /**
+     * ISO-8601 时间点，如 2024-01-01T08:00:00.123Z 或 2024-01-01T16:00:00+08:00
+     */
+    ISO_8601,
+    /**
+     * Unix 毫秒时间戳，如 1704096000123
+     */
+    EPOCH_MILLIS,
+    /**
+     * 纯数字按毫秒时间戳解析，否则按 ISO-8601 解析
+     */
+    AUTO,
+}
@@ -0,0 +1,21 @@
+package io.github.jasonlat.middleware.domain.model.valobj;
+
+import lombok.Getter;
+
+/**
+ * 唯一请求防护模式
+ *
+ * @author jasonlat
+ */
+@Getter
+public enum UniqueRequestMode {
+    /**
+     * 拒绝模式：重复的请求ID直接拒绝（DUPLICATE_REQUEST）
+     */
+    REJECT,
+    /**
+     * 幂等模式：首次执行的响应（加密后）被保存，重复请求直接返回保存的响应，不再执行业务方法与加密；
+     * 首次请求尚未完成时，并发的重复请求等待其结果
+     */
+    IDEMPOTENT,
+}
@@ -0,0 +1,215 @@
+package io.github.jasonlat.middleware.domain.service;
+
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.domain.model.valobj.EccDecryptType;
+import io.github.jasonlat.middleware.exception.CryptoOverloadedException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 加解密舱壁
+ * 按分组（解密类型或接口指定的分组名）限制并发解密数。合计容量未满时直接放行；
+ * 容量不足时，等待中的分组按 执行中数量 / 权重 最小者优先获得释放的额度（加权公平），
+ * 因此未认证流量打满容量后，已认证流量在一次解密耗时内即可按权重拿回份额。
+ * 等待超过 max-wait-millis 时抛出 {@link CryptoOverloadedException}（503）
+ *
+ * @author jasonlat
+ */
+@Component
+public final class CryptoBulkhead {
+
+    private final boolean enabled;
+    private final int capacity;
+    private final long maxWaitNanos;
+    private final long retryAfterSeconds;
+
+    private final Map<String, Group> groupsByName = new LinkedHashMap<>();
+    private final Map<EccDecryptType, Group> groupsByType = new EnumMap<>(EccDecryptType.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 所有分组执行中的数量，受 lock 保护
+     */
+    private int inUse;
+
+    public CryptoBulkhead(EccAutoConfigProperties configProperties) {
+        EccAutoConfigProperties.Bulkhead config = configProperties.getBulkhead();
+        this.enabled = config.isEnabled();
+        this.capacity = config.getCapacity() > 0 ? config.getCapacity() : Runtime.getRuntime().availableProcessors() * 2;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxWaitMillis());
+        this.retryAfterSeconds = configProperties.getCryptoExecutor().getRetryAfterSeconds();
+        config.getGroups().forEach((name, groupConfig) -> {
+            int maxConcurrent = groupConfig.getMaxConcurrent() > 0 ? Math.min(groupConfig.getMaxConcurrent(), capacity) : capacity;
+            Group group = new Group(name, groupConfig.getWeight(), maxConcurrent, lock.newCondition());
+            groupsByName.put(name, group);
+            groupConfig.getTypes().forEach(type -> groupsByType.put(type, group));
+        });
+    }
+
+    /**
+     * 解析分组：优先使用接口指定的分组名，其次按解密类型
+     *
+     * @param name 接口指定的分组名，可为空
+     * @param type 解密类型
+     * @return 分组，未启用或未归入任何分组时返回 null（不限制）
+     */
+    public Group resolve(String name, EccDecryptType type) {
+        if (!enabled) {
+            return null;
+        }
+        if (StringUtils.hasText(name)) {
+            Group group = groupsByName.get(name);
+            if (group != null) {
+                return group;
+            }
+        }
+        return groupsByType.get(type);
+    }
+
+    /**
+     * 获取一个并发额度，必须与 {@link #release(Group)} 成对调用
+     *
+     * @param group 分组，为 null 时直接返回
+     * @throws CryptoOverloadedException 等待超时
+     * @throws InterruptedException      等待时被中断
+     */
+    public void acquire(Group group) throws InterruptedException {
+        if (group == null) {
+            return;
+        }
+        long nanos = maxWaitNanos;
+        lock.lock();
+        try {
+            group.waiting++;
+            try {
+                while (next() != group) {
+                    if (nanos <= 0L) {
+                        group.rejected++;
+                        throw new CryptoOverloadedException("Crypto bulkhead '" + group.name + "' is saturated, please retry later", retryAfterSeconds);
+                    }
+                    nanos = group.available.awaitNanos(nanos);
+                }
+                inUse++;
+                group.inUse++;
+                group.admitted++;
+            } finally {
+                group.waiting--;
+                // 仍有空闲额度（或本线程放弃等待）时，交给下一个应得的分组
+                dispatch();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 释放一个并发额度
+     *
+     * @param group 分组，为 null 时直接返回
+     */
+    public void release(Group group) {
+        if (group == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            inUse--;
+            group.inUse--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 下一个应获得额度的分组：有等待者、未达本组上限、执行中数量 / 权重 最小；合计容量已满时为 null
+     */
+    private Group next() {
+        if (inUse >= capacity) {
+            return null;
+        }
+        Group best = null;
+        for (Group group : groupsByName.values()) {
+            if (group.waiting == 0 || group.inUse >= group.maxConcurrent) {
+                continue;
+            }
+            // inUse / weight 比较，交叉相乘避免浮点
+            if (best == null || (long) group.inUse * best.weight < (long) best.inUse * group.weight) {
+                best = group;
+            }
+        }
+        return best;
+    }
+
+    private void dispatch() {
+        Group group = next();
+        if (group != null) {
+            group.available.signal();
+        }
+    }
+
+    /**
+     * @return 各分组指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            metrics.put("enabled", enabled);
+            metrics.put("capacity", capacity);
+            metrics.put("inUse", inUse);
+            for (Group group : groupsByName.values()) {
+                Map<String, Object> groupMetrics = new LinkedHashMap<>();
+                groupMetrics.put("weight", group.weight);
+                groupMetrics.put("maxConcurrent", group.maxConcurrent);
+                groupMetrics.put("inUse", group.inUse);
+                groupMetrics.put("waiting", group.waiting);
+                groupMetrics.put("admitted", group.admitted);
+                groupMetrics.put("rejected", group.rejected);
+                metrics.put(group.name, Collections.unmodifiableMap(groupMetrics));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return metrics;
+    }
+
+    /**
+     * 舱壁分组，计数均受舱壁的 lock 保护
+     */
+    public static final class Group {
+
+        private final String name;
+        private final int weight;
+        private final int maxConcurrent;
+        private final Condition available;
+
+        private int inUse;
+        private int waiting;
+        private long admitted;
+        private long rejected;
+
+        private Group(String name, int weight, int maxConcurrent, Condition available) {
+            this.name = name;
+            this.weight = weight;
+            this.maxConcurrent = maxConcurrent;
+            this.available = available;
+        }
+
+        /**
+         * @return 分组名
+         */
+        public String getName() {
+            return name;
+        }
+    }
+}
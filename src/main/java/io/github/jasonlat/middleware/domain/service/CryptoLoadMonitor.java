@@ -0,0 +1,47 @@
+package io.github.jasonlat.middleware.domain.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 加解密负载监控
+ * 统计正在执行的请求体解密数量，负载 = 执行中数量 / CPU 核数；1 表示每个核都在做解密
+ *
+ * @author jasonlat
+ */
+@Component
+public final class CryptoLoadMonitor {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final int processors = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 开始一次加解密操作，必须与 {@link #exit()} 成对调用
+     */
+    public void enter() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * 结束一次加解密操作
+     */
+    public void exit() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * @return 执行中的加解密操作数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return 当前负载（执行中数量 / CPU 核数）
+     */
+    public double getLoad() {
+        return (double) inFlight.get() / processors;
+    }
+}
@@ -0,0 +1,218 @@
+package io.github.jasonlat.middleware.domain.service;
+
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.exception.CryptoOverloadedException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 加解密专用线程池
+ * 固定线程数、有界队列；队列满时立即拒绝，不在 Tomcat 工作线程上排队等待。
+ * 统计队列深度、排队等待时间与拒绝次数
+ *
+ * @author jasonlat
+ */
+@Component
+public final class CryptoTaskExecutor {
+
+    private static final String THREAD_PREFIX = "ecc-crypto-";
+
+    private final ThreadPoolExecutor executor;
+    private final long retryAfterSeconds;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public CryptoTaskExecutor(EccAutoConfigProperties configProperties) {
+        EccAutoConfigProperties.CryptoExecutor config = configProperties.getCryptoExecutor();
+        int threads = config.getThreads() > 0 ? config.getThreads() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, THREAD_PREFIX + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.retryAfterSeconds = config.getRetryAfterSeconds();
+    }
+
+    /**
+     * 提交加解密任务
+     *
+     * @param task 任务
+     * @param <T>  结果类型
+     * @return 任务结果
+     * @throws RejectedExecutionException 队列已满
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                recordWait(System.nanoTime() - enqueuedAt);
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        submitted.increment();
+        return future;
+    }
+
+    /**
+     * 提交加解密任务，队列已满时返回以 {@link CryptoOverloadedException} 失败的结果
+     *
+     * @param task 任务
+     * @param <T>  结果类型
+     * @return 任务结果
+     */
+    public <T> CompletableFuture<T> submitAsync(Callable<T> task) {
+        try {
+            return submit(task);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(overloaded());
+            return future;
+        }
+    }
+
+    /**
+     * 在线程池中执行任务并等待结果；当前线程已是加解密线程时直接执行，避免线程池内互相等待
+     *
+     * @param task 任务
+     * @param <T>  结果类型
+     * @return 任务结果
+     * @throws CryptoOverloadedException 队列已满
+     * @throws Exception                 任务异常
+     */
+    public <T> T execute(Callable<T> task) throws Exception {
+        if (isCryptoThread()) {
+            return task.call();
+        }
+        CompletableFuture<T> future;
+        try {
+            future = submit(task);
+        } catch (RejectedExecutionException e) {
+            throw overloaded();
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * @return 当前线程是否为加解密线程
+     */
+    public static boolean isCryptoThread() {
+        return Thread.currentThread().getName().startsWith(THREAD_PREFIX);
+    }
+
+    private CryptoOverloadedException overloaded() {
+        return new CryptoOverloadedException("Crypto executor is saturated, please retry later", retryAfterSeconds);
+    }
+
+    private void recordWait(long nanos) {
+        waitNanos.add(nanos);
+        long max;
+        while (nanos > (max = maxWaitNanos.get())) {
+            if (maxWaitNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return 队列深度
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return 拒绝次数
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return 平均排队等待时间（微秒）
+     */
+    public long getAverageWaitMicros() {
+        long count = submitted.sum();
+        return count == 0 ? 0L : TimeUnit.NANOSECONDS.toMicros(waitNanos.sum() / count);
+    }
+
+    /**
+     * @return 最大排队等待时间（微秒）
+     */
+    public long getMaxWaitMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get());
+    }
+
+    /**
+     * @return 指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("threads", executor.getPoolSize());
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("queueDepth", getQueueDepth());
+        metrics.put("queueRemaining", executor.getQueue().remainingCapacity());
+        metrics.put("submitted", submitted.sum());
+        metrics.put("completed", executor.getCompletedTaskCount());
+        metrics.put("rejected", getRejectedCount());
+        metrics.put("averageWaitMicros", getAverageWaitMicros());
+        metrics.put("maxWaitMicros", getMaxWaitMicros());
+        return metrics;
+    }
+
+    /**
+     * @return 统计信息
+     */
+    public String getStats() {
+        return String.format("Threads: %d, Active: %d, Queue: %d, Completed: %d, Rejected: %d, Avg Wait: %d us, Max Wait: %d us",
+                executor.getPoolSize(), executor.getActiveCount(), getQueueDepth(), executor.getCompletedTaskCount(),
+                getRejectedCount(), getAverageWaitMicros(), getMaxWaitMicros());
+    }
+}
@@ -4,20 +4,30 @@
 package io.github.jasonlat.middleware.domain.service;
 
 import com.alibaba.fastjson2.JSON;
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
 import io.github.jasonlat.middleware.context.EccContextHolder;
 import io.github.jasonlat.middleware.domain.model.entity.EccSecurityData;
 import io.github.jasonlat.middleware.domain.model.entity.ServerPublicKeyData;
 import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
+import io.github.jasonlat.middleware.exception.CryptoOverloadedException;
+import io.github.jasonlat.middleware.exception.ServiceUnavailableException;
 import io.github.jasonlat.middleware.util.ECCCryptoUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.security.PublicKey;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
+ * 开启 crypto-executor.offload 时，同步方法在加解密线程池中执行并等待结果，线程池已满时抛出 {@link CryptoOverloadedException}；
+ * 异步方法始终提交到加解密线程池
+ *
  * @author jasonlat
  */
 @Service
@@ -25,10 +35,19 @@ public final class ECCSecurityService {
     
     private static final Logger logger = LoggerFactory.getLogger(ECCSecurityService.class);
 
+    /**
+     * 保存本请求已解码用户公钥的请求属性名，验签与响应加密共用
+     */
+    public static final String DECODED_PUBLIC_KEY_ATTRIBUTE = ECCSecurityService.class.getName() + ".DECODED_PUBLIC_KEY";
+
     private final ECCCryptoUtil eccCryptoUtil;
+    private final CryptoTaskExecutor cryptoTaskExecutor;
+    private final boolean offload;
 
-    public ECCSecurityService(ECCCryptoUtil eccCryptoUtil) {
+    public ECCSecurityService(ECCCryptoUtil eccCryptoUtil, CryptoTaskExecutor cryptoTaskExecutor, EccAutoConfigProperties configProperties) {
         this.eccCryptoUtil = eccCryptoUtil;
+        this.cryptoTaskExecutor = cryptoTaskExecutor;
+        this.offload = configProperties.getCryptoExecutor().isOffload();
     }
 
     /**
@@ -41,11 +60,13 @@ public final class ECCSecurityService {
         validateInput(eccSecurityData);
         try {
             // 执行解密
-            String decrypt = eccCryptoUtil.decrypt(eccSecurityData);
+            String decrypt = offload(() -> eccCryptoUtil.decrypt(eccSecurityData));
 
             logger.info("ECIES Decryption was successful: {}，Message length: {} characters", decrypt, decrypt.length());
             return decrypt;
 
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("ECIES Decryption failed: {}", e.getMessage(), e);
             throw new RuntimeException("Decryption failed: " + e.getMessage(), e);
@@ -96,18 +117,121 @@ public final class ECCSecurityService {
      * @throws Exception 异常
      */
     public EccSecurityData encrypt(String message, String publicKeyX, String publicKeyY) throws Exception {
-        return eccCryptoUtil.encrypt(message, publicKeyX, publicKeyY);
+        PublicKey publicKey = decodePublicKey(publicKeyX, publicKeyY);
+        return offload(() -> eccCryptoUtil.encrypt(message, publicKey));
     }
 
 
     public boolean verify(String message, String signatureHex, String publicKeyX, String publicKeyY) throws Exception {
-        PublicKey usePpublicKey = eccCryptoUtil.buildPublicKey(publicKeyX, publicKeyY);
-        return eccCryptoUtil.verify(message, signatureHex, usePpublicKey);
+        PublicKey usePpublicKey = decodePublicKey(publicKeyX, publicKeyY);
+        return offload(() -> eccCryptoUtil.verify(message, signatureHex, usePpublicKey));
+    }
+
+    /**
+     * 解码用户公钥；处于 Web 请求中时按请求缓存，同一请求的验签与响应加密只解码一次
+     * @param publicKeyX x坐标
+     * @param publicKeyY y坐标
+     * @return 公钥
+     * @throws Exception 坐标无效
+     */
+    private PublicKey decodePublicKey(String publicKeyX, String publicKeyY) throws Exception {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return eccCryptoUtil.buildPublicKey(publicKeyX, publicKeyY);
+        }
+        Object memo = attributes.getAttribute(DECODED_PUBLIC_KEY_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (memo instanceof DecodedPublicKey && ((DecodedPublicKey) memo).matches(publicKeyX, publicKeyY)) {
+            return ((DecodedPublicKey) memo).publicKey;
+        }
+        PublicKey publicKey = eccCryptoUtil.buildPublicKey(publicKeyX, publicKeyY);
+        attributes.setAttribute(DECODED_PUBLIC_KEY_ATTRIBUTE, new DecodedPublicKey(publicKeyX, publicKeyY, publicKey), RequestAttributes.SCOPE_REQUEST);
+        return publicKey;
+    }
+
+    /**
+     * 异步解密，线程池已满时以 {@link CryptoOverloadedException} 失败
+     * @param eccSecurityData 密文
+     * @return 明文
+     */
+    public CompletableFuture<String> decryptAsync(EccSecurityData eccSecurityData) {
+        validateInput(eccSecurityData);
+        return cryptoTaskExecutor.submitAsync(() -> decrypt(eccSecurityData));
+    }
+
+    /**
+     * 异步加密，线程池已满时以 {@link CryptoOverloadedException} 失败
+     * @param message 信息
+     * @param publicKeyX x坐标
+     * @param publicKeyY y坐标
+     * @return 密文
+     */
+    public CompletableFuture<EccSecurityData> encryptAsync(String message, String publicKeyX, String publicKeyY) {
+        PublicKey publicKey;
+        try {
+            publicKey = decodePublicKey(publicKeyX, publicKeyY);
+        } catch (Exception e) {
+            return failed(e);
+        }
+        return cryptoTaskExecutor.submitAsync(() -> eccCryptoUtil.encrypt(message, publicKey));
+    }
+
+    /**
+     * 异步验签，线程池已满时以 {@link CryptoOverloadedException} 失败
+     * @param message 原文
+     * @param signatureHex 签名
+     * @param publicKeyX x坐标
+     * @param publicKeyY y坐标
+     * @return 是否通过
+     */
+    public CompletableFuture<Boolean> verifyAsync(String message, String signatureHex, String publicKeyX, String publicKeyY) {
+        PublicKey publicKey;
+        try {
+            publicKey = decodePublicKey(publicKeyX, publicKeyY);
+        } catch (Exception e) {
+            return failed(e);
+        }
+        return cryptoTaskExecutor.submitAsync(() -> eccCryptoUtil.verify(message, signatureHex, publicKey));
+    }
+
+    /**
+     * 公钥在调用线程解码（可命中本请求的缓存），解码失败与线程池已满一样以失败的 future 返回
+     */
+    private static <T> CompletableFuture<T> failed(Exception e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    /**
+     * 按配置在加解密线程池或当前线程执行
+     */
+    private <T> T offload(Callable<T> task) throws Exception {
+        return offload ? cryptoTaskExecutor.execute(task) : task.call();
     }
 
     public ServerPublicKeyData getServerPublicData() {
         return eccCryptoUtil.getServerPublicData();
     }
 
+    /**
+     * 已解码的用户公钥及其坐标
+     */
+    private static final class DecodedPublicKey {
+
+        private final String x;
+        private final String y;
+        private final PublicKey publicKey;
+
+        private DecodedPublicKey(String x, String y, PublicKey publicKey) {
+            this.x = x;
+            this.y = y;
+            this.publicKey = publicKey;
+        }
+
+        private boolean matches(String x, String y) {
+            return this.x.equals(x) && this.y.equals(y);
+        }
+    }
+
 
 }
\ No newline at end of file
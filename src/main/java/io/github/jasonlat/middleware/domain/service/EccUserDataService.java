@@ -2,10 +2,32 @@ package io.github.jasonlat.middleware.domain.service;
 
 import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 public interface EccUserDataService {
 
 
     UserPublicData loadUserPublicData(String userId);
 
     String getCurrentUser();
-}
\ No newline at end of file
+
+    /**
+     * 批量加载用户公钥数据，用于启动预热
+     * 默认逐个调用 {@link #loadUserPublicData(String)}，建议实现为一次批量查询
+     *
+     * @param userIds 用户唯一标识
+     * @return 用户唯一标识 -> 公钥数据，不存在的用户不包含在结果中
+     */
+    default Map<String, UserPublicData> loadUserPublicDataBatch(Collection<String> userIds) {
+        Map<String, UserPublicData> result = new HashMap<>();
+        for (String userId : userIds) {
+            UserPublicData userData = loadUserPublicData(userId);
+            if (userData != null) {
+                result.put(userId, userData);
+            }
+        }
+        return result;
+    }
+}
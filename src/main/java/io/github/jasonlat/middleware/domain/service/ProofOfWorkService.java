@@ -0,0 +1,198 @@
+package io.github.jasonlat.middleware.domain.service;
+
+import io.github.jasonlat.middleware.cache.nonce.LocalNonceStore;
+import io.github.jasonlat.middleware.cache.nonce.NonceStore;
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 工作量证明（hashcash）服务
+ * 解密负载低于阈值时不要求证明；超过阈值后难度随负载在 [min-difficulty, max-difficulty] 间线性上升。
+ * <pre>
+ * seed  = hex(SHA-256(secret ":" epoch))[0, 32)，epoch = 当前时间 / seed-rotation-millis
+ * proof = seed ":" nonce，要求 SHA-256(seed ":" route ":" nonce) 的前导零位数 ≥ 当前难度
+ * </pre>
+ * 校验只需一次 SHA-256；当前与上一轮换周期的 seed 有效，同一证明只能使用一次
+ *
+ * @author jasonlat
+ */
+@Service
+public final class ProofOfWorkService {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final int SEED_LENGTH = 32;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final EccAutoConfigProperties.ProofOfWork config;
+    private final CryptoLoadMonitor loadMonitor;
+    private final byte[] secret;
+
+    /**
+     * 已使用的证明，保留两个轮换周期
+     */
+    private final NonceStore usedProofs;
+
+    /**
+     * 当前与上一周期的 seed，周期切换时整体替换
+     */
+    private volatile Seeds seeds = new Seeds(Long.MIN_VALUE, null, null);
+
+    private final LongAdder challenged = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public ProofOfWorkService(EccAutoConfigProperties configProperties, CryptoLoadMonitor loadMonitor) {
+        this.config = configProperties.getProofOfWork();
+        this.loadMonitor = loadMonitor;
+        if (StringUtils.hasText(config.getSecret())) {
+            this.secret = config.getSecret().getBytes(StandardCharsets.UTF_8);
+        } else {
+            // 未配置时每个实例随机生成，多实例部署需配置相同的 secret
+            this.secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+        }
+        this.usedProofs = new LocalNonceStore(config.getMaxUsedProofs());
+    }
+
+    /**
+     * @return 当前要求的难度（前导零位数），0 表示不要求证明
+     */
+    public int currentDifficulty() {
+        double load = loadMonitor.getLoad();
+        double threshold = config.getLoadThreshold();
+        if (load < threshold) {
+            return 0;
+        }
+        // 阈值处为最小难度，负载达到阈值两倍时为最大难度
+        double ratio = Math.min(1D, (load - threshold) / threshold);
+        return config.getMinDifficulty() + (int) Math.round(ratio * (config.getMaxDifficulty() - config.getMinDifficulty()));
+    }
+
+    /**
+     * @return 当前轮换周期的 seed
+     */
+    public String currentSeed() {
+        return seeds().current;
+    }
+
+    private Seeds seeds() {
+        long epoch = System.currentTimeMillis() / config.getSeedRotationMillis();
+        Seeds current = seeds;
+        if (current.epoch != epoch) {
+            current = new Seeds(epoch, seed(epoch), seed(epoch - 1));
+            seeds = current;
+        }
+        return current;
+    }
+
+    /**
+     * 校验证明
+     *
+     * @param proof      证明（seed:nonce）
+     * @param route      路由（请求方法 + URI），证明只对该路由有效
+     * @param difficulty 要求的难度
+     * @return 是否通过
+     */
+    public boolean verify(String proof, String route, int difficulty) {
+        if (difficulty <= 0) {
+            return true;
+        }
+        if (proof == null || proof.length() <= SEED_LENGTH + 1 || proof.length() > SEED_LENGTH + 1 + 64
+                || proof.charAt(SEED_LENGTH) != ':') {
+            rejected.increment();
+            return false;
+        }
+        String seed = proof.substring(0, SEED_LENGTH);
+        Seeds valid = seeds();
+        if (!seed.equals(valid.current) && !seed.equals(valid.previous)) {
+            rejected.increment();
+            return false;
+        }
+
+        MessageDigest digest = SHA_256.get();
+        digest.update(seed.getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) ':');
+        digest.update(route.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ':');
+        digest.update(proof.substring(SEED_LENGTH + 1).getBytes(StandardCharsets.UTF_8));
+        if (leadingZeroBits(digest.digest()) < difficulty) {
+            rejected.increment();
+            return false;
+        }
+        // 证明有效期最长两个轮换周期，之后 seed 失效
+        if (!usedProofs.putIfAbsent(route + " " + proof, config.getSeedRotationMillis() * 2)) {
+            rejected.increment();
+            return false;
+        }
+        accepted.increment();
+        return true;
+    }
+
+    /**
+     * 记录一次要求客户端提供证明
+     */
+    public void recordChallenge() {
+        challenged.increment();
+    }
+
+    /**
+     * @return 统计信息
+     */
+    public String getStats() {
+        return String.format("Load: %.2f, Difficulty: %d, Challenged: %d, Accepted: %d, Rejected: %d",
+                loadMonitor.getLoad(), currentDifficulty(), challenged.sum(), accepted.sum(), rejected.sum());
+    }
+
+    private String seed(long epoch) {
+        MessageDigest digest = SHA_256.get();
+        digest.update(secret);
+        digest.update((":" + epoch).getBytes(StandardCharsets.US_ASCII));
+        byte[] hash = digest.digest();
+        char[] chars = new char[SEED_LENGTH];
+        for (int i = 0; i < SEED_LENGTH / 2; i++) {
+            chars[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private static int leadingZeroBits(byte[] hash) {
+        int bits = 0;
+        for (byte b : hash) {
+            if (b == 0) {
+                bits += 8;
+                continue;
+            }
+            return bits + Integer.numberOfLeadingZeros(b & 0xFF) - 24;
+        }
+        return bits;
+    }
+
+    private static final class Seeds {
+
+        private final long epoch;
+        private final String current;
+        private final String previous;
+
+        private Seeds(long epoch, String current, String previous) {
+            this.epoch = epoch;
+            this.current = current;
+            this.previous = previous;
+        }
+    }
+}
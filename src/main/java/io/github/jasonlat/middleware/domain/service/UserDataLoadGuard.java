@@ -0,0 +1,231 @@
+package io.github.jasonlat.middleware.domain.service;
+
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
+import io.github.jasonlat.middleware.exception.UserDataUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用户数据加载保护
+ * 开启 user-data-load.enabled 后为 {@link EccUserDataService#loadUserPublicData(String)} 提供：
+ * <ul>
+ *     <li>并发隔离：同时进行的加载不超过 max-concurrent，超出时最多等待 acquire-timeout-millis（默认 0，立即失败）</li>
+ *     <li>超时：在 ecc-user-load-N 线程上加载，超过 timeout-millis 放弃等待；超时的加载在结束前仍占用并发额度</li>
+ *     <li>熔断：连续失败 failure-threshold 次后 open-millis 内不再调用，之后放行一次试探，成功则恢复</li>
+ * </ul>
+ * 失败时抛出 {@link UserDataUnavailableException}；用户数据服务自身抛出的异常原样抛出。
+ * 未开启时直接在请求线程上调用用户数据服务，不创建加载线程
+ *
+ * @author jasonlat
+ */
+@Component
+public final class UserDataLoadGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDataLoadGuard.class);
+
+    private static final String THREAD_PREFIX = "ecc-user-load-";
+
+    private final EccUserDataService userDataService;
+    private final EccAutoConfigProperties.UserDataLoad config;
+
+    private final Semaphore permits;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInFlight = new AtomicBoolean();
+
+    /**
+     * 熔断截止时间（毫秒时间戳），0 表示未熔断
+     */
+    private volatile long openUntil = 0L;
+
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    public UserDataLoadGuard(EccUserDataService userDataService, EccAutoConfigProperties configProperties) {
+        this.userDataService = userDataService;
+        this.config = configProperties.getUserDataLoad();
+        this.permits = new Semaphore(config.getMaxConcurrent());
+        this.executor = config.isEnabled() && config.getTimeoutMillis() > 0 ? newExecutor(config.getMaxConcurrent()) : null;
+    }
+
+    private static ThreadPoolExecutor newExecutor(int maxConcurrent) {
+        AtomicInteger sequence = new AtomicInteger();
+        // 并发由 permits 限制，线程数不会超过 max-concurrent
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, THREAD_PREFIX + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 加载用户公钥数据
+     *
+     * @param userId 用户唯一标识
+     * @return 用户公钥数据，用户不存在时为 null
+     * @throws UserDataUnavailableException 熔断中、并发已满或超时
+     */
+    public UserPublicData load(String userId) {
+        if (!config.isEnabled()) {
+            return userDataService.loadUserPublicData(userId);
+        }
+        boolean trial = false;
+        if (openUntil != 0L) {
+            if (System.currentTimeMillis() < openUntil || !trialInFlight.compareAndSet(false, true)) {
+                shortCircuited.increment();
+                throw new UserDataUnavailableException("User data service circuit is open, please retry later", retryAfterSeconds());
+            }
+            trial = true;
+        }
+        if (!acquirePermit()) {
+            rejected.increment();
+            if (trial) {
+                trialInFlight.set(false);
+            }
+            throw new UserDataUnavailableException("User data service is saturated, please retry later", 1L);
+        }
+        try {
+            UserPublicData userData = executor != null ? loadWithTimeout(userId) : loadInline(userId);
+            onSuccess();
+            return userData;
+        } catch (RuntimeException e) {
+            onFailure(trial);
+            throw e;
+        }
+    }
+
+    /**
+     * 获取并发额度，最多等待 acquire-timeout-millis
+     */
+    private boolean acquirePermit() {
+        if (config.getAcquireTimeoutMillis() <= 0) {
+            return permits.tryAcquire();
+        }
+        try {
+            return permits.tryAcquire(config.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private UserPublicData loadInline(String userId) {
+        try {
+            return userDataService.loadUserPublicData(userId);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private UserPublicData loadWithTimeout(String userId) {
+        Future<UserPublicData> future;
+        try {
+            future = executor.submit(() -> loadInline(userId));
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        try {
+            return future.get(config.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 不中断加载线程，额度在加载真正结束后释放
+            timeouts.increment();
+            throw new UserDataUnavailableException("User data service timed out after " + config.getTimeoutMillis() + " ms", 1L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UserDataUnavailableException("Interrupted while loading user data", 1L);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Failed to load user data", cause);
+        }
+    }
+
+    private void onSuccess() {
+        consecutiveFailures.set(0);
+        if (openUntil != 0L) {
+            openUntil = 0L;
+            trialInFlight.set(false);
+            logger.info("User data service circuit closed");
+        }
+    }
+
+    private void onFailure(boolean trial) {
+        failures.increment();
+        if (trial || consecutiveFailures.incrementAndGet() >= config.getFailureThreshold()) {
+            openUntil = System.currentTimeMillis() + config.getOpenMillis();
+            consecutiveFailures.set(0);
+            trialInFlight.set(false);
+            opened.increment();
+            logger.warn("User data service circuit opened for {} ms", config.getOpenMillis());
+        }
+    }
+
+    private long retryAfterSeconds() {
+        long remaining = openUntil - System.currentTimeMillis();
+        return Math.max(1L, TimeUnit.MILLISECONDS.toSeconds(remaining + 999L));
+    }
+
+    /**
+     * @return 熔断器状态：CLOSED / OPEN / HALF_OPEN
+     */
+    public String getState() {
+        long until = openUntil;
+        if (until == 0L) {
+            return "CLOSED";
+        }
+        return System.currentTimeMillis() < until ? "OPEN" : "HALF_OPEN";
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return 指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", config.isEnabled());
+        metrics.put("state", getState());
+        metrics.put("inFlight", config.getMaxConcurrent() - permits.availablePermits());
+        metrics.put("failures", failures.sum());
+        metrics.put("timeouts", timeouts.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("shortCircuited", shortCircuited.sum());
+        metrics.put("opened", opened.sum());
+        return metrics;
+    }
+}
@@ -39,6 +39,8 @@ public class DefaultHandelEncryptFactory {
                 return getHandelDecrypt(HandelDecryptType.NOT_IDENTIFICATION.key);
             case REGISTER:
                 return getHandelDecrypt(HandelDecryptType.REGISTER.key);
+            case SIGNED_NOT_IDENTIFICATION:
+                return getHandelDecrypt(HandelDecryptType.SIGNED_NOT_IDENTIFICATION.key);
 
             default:
                 return getHandelDecrypt(HandelDecryptType.IDENTIFICATION.key);
@@ -53,6 +55,7 @@ public class DefaultHandelEncryptFactory {
         NOT_IDENTIFICATION("notIdentificationDecrypt"),
         REGISTER("registerDecrypt"),
         IDENTIFICATION("identificationDecrypt"),
+        SIGNED_NOT_IDENTIFICATION("signedNotIdentificationDecrypt"),
         ;
 
         private final String key;
@@ -4,29 +4,51 @@ import io.github.jasonlat.middleware.annotations.decrypt.RequestDecryption;
 import io.github.jasonlat.middleware.context.EccContextHolder;
 import io.github.jasonlat.middleware.domain.model.entity.EccSecurityData;
 import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
+import io.github.jasonlat.middleware.domain.model.valobj.EccDecryptType;
+import io.github.jasonlat.middleware.domain.service.CryptoTaskExecutor;
 import io.github.jasonlat.middleware.domain.service.ECCSecurityService;
 import io.github.jasonlat.middleware.domain.service.engine.HandelDecryptEngine;
 import io.github.jasonlat.middleware.exception.ReplayProtectionException;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
 @Service("identificationDecrypt")
 public final class IdentificationDecryptEngine implements HandelDecryptEngine {
 
     private final ECCSecurityService eccSecurityService;
     private final EccContextHolder contextHolder;
+    private final CryptoTaskExecutor cryptoTaskExecutor;
 
-    public IdentificationDecryptEngine(ECCSecurityService eccSecurityService, EccContextHolder contextHolder) {
+    public IdentificationDecryptEngine(ECCSecurityService eccSecurityService, EccContextHolder contextHolder, CryptoTaskExecutor cryptoTaskExecutor) {
         this.eccSecurityService = eccSecurityService;
         this.contextHolder = contextHolder;
+        this.cryptoTaskExecutor = cryptoTaskExecutor;
     }
 
     @Override
     public String handelDecrypt(EccSecurityData eccSecurityData, RequestDecryption annotation) throws Exception {
         // 正常的认证请求
         // 0. Verify signatures
-        UserPublicData currentUserPublicData = contextHolder.getAuthenticationUserPublicData();
+        UserPublicData currentUserPublicData = contextHolder.getAuthenticationUserPublicData(EccDecryptType.IDENTIFICATION);
         assert currentUserPublicData != null;
 
+        if (annotation.parallelVerify()) {
+            CompletableFuture<Boolean> verification;
+            try {
+                verification = cryptoTaskExecutor.submit(() -> eccSecurityService.verify(eccSecurityData.getCiphertext(),
+                        eccSecurityData.getSignature(), currentUserPublicData.getX(), currentUserPublicData.getY()));
+            } catch (RejectedExecutionException e) {
+                // 线程池已满，退回顺序执行
+                verification = null;
+            }
+            if (verification != null) {
+                return decryptWhileVerifying(eccSecurityData, verification);
+            }
+        }
+
         // 验签
         boolean verify = eccSecurityService.verify(eccSecurityData.getCiphertext(), eccSecurityData.getSignature(), currentUserPublicData.getX(), currentUserPublicData.getY());
         if (!verify) {
@@ -35,4 +57,42 @@ public final class IdentificationDecryptEngine implements HandelDecryptEngine {
         // 解密
         return eccSecurityService.decrypt(eccSecurityData);
     }
+
+    /**
+     * 在当前线程解密，同时等待验签结果；验签通过后才返回明文
+     *
+     * @param eccSecurityData 密文
+     * @param verification    验签任务
+     * @return 明文
+     * @throws Exception 验签失败或解密失败
+     */
+    private String decryptWhileVerifying(EccSecurityData eccSecurityData, CompletableFuture<Boolean> verification) throws Exception {
+        String decryptedData;
+        try {
+            decryptedData = eccSecurityService.decrypt(eccSecurityData);
+        } catch (RuntimeException e) {
+            // 签名错误优先于解密错误，与顺序执行时的报错保持一致
+            awaitVerification(verification);
+            throw e;
+        }
+        awaitVerification(verification);
+        return decryptedData;
+    }
+
+    private static void awaitVerification(CompletableFuture<Boolean> verification) throws Exception {
+        boolean verify;
+        try {
+            verify = verification.get();
+        } catch (InterruptedException e) {
+            verification.cancel(false);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+        if (!verify) {
+            throw new ReplayProtectionException("signature verification failed");
+        }
+    }
 }
@@ -5,6 +5,7 @@ import io.github.jasonlat.middleware.annotations.decrypt.RequestDecryption;
 import io.github.jasonlat.middleware.context.EccContextHolder;
 import io.github.jasonlat.middleware.domain.model.entity.EccSecurityData;
 import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
+import io.github.jasonlat.middleware.domain.model.valobj.EccDecryptType;
 import io.github.jasonlat.middleware.domain.service.ECCSecurityService;
 import io.github.jasonlat.middleware.domain.service.EccUserDataService;
 import io.github.jasonlat.middleware.domain.service.engine.HandelDecryptEngine;
@@ -42,7 +43,7 @@ public final class NotIdentificationDecryptEngine implements HandelDecryptEngine
             );
         }
         // 获取用户名成功，获取用户公钥
-        UserPublicData userData = contextHolder.getAuthenticationUserPublicData(username);
+        UserPublicData userData = contextHolder.getAuthenticationUserPublicData(username, EccDecryptType.NOT_IDENTIFICATION);
         // 解密
         boolean verify = eccSecurityService.verify(eccSecurityData.getCiphertext(), eccSecurityData.getSignature(), userData.getX(), userData.getY());
         if (!verify) {
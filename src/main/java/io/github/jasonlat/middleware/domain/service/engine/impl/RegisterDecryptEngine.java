@@ -3,6 +3,7 @@ package io.github.jasonlat.middleware.domain.service.engine.impl;
 import com.alibaba.fastjson2.JSONObject;
 import io.github.jasonlat.middleware.annotations.decrypt.RequestDecryption;
 import io.github.jasonlat.middleware.context.EccContext;
+import io.github.jasonlat.middleware.context.EccContextCache;
 import io.github.jasonlat.middleware.context.EccContextHolder;
 import io.github.jasonlat.middleware.domain.model.entity.EccSecurityData;
 import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
@@ -17,8 +18,11 @@ public final class RegisterDecryptEngine implements HandelDecryptEngine {
 
     private final ECCSecurityService eccSecurityService;
 
-    public RegisterDecryptEngine(ECCSecurityService eccSecurityService) {
+    private final EccContextCache contextCache;
+
+    public RegisterDecryptEngine(ECCSecurityService eccSecurityService, EccContextCache contextCache) {
         this.eccSecurityService = eccSecurityService;
+        this.contextCache = contextCache;
     }
 
     @Override
@@ -46,6 +50,9 @@ public final class RegisterDecryptEngine implements HandelDecryptEngine {
         if (!verify) {
             throw new ReplayProtectionException("signature verification failed");
         }
+        // 用户已存在，移除 "用户不存在" 的否定缓存；注册请求未经认证，不改动已缓存的公钥，
+        // 新公钥由业务保存注册后经 EccAuthenticationService#setContext 替换
+        contextCache.invalidateUnknown(user);
         // 缓存用户公钥
         EccContextHolder.setContext(EccContext.of(user, new UserPublicData(userPublicX, userPublicY)));
         return decryptedData;
@@ -0,0 +1,99 @@
+package io.github.jasonlat.middleware.domain.service.engine.impl;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONException;
+import com.alibaba.fastjson2.JSONObject;
+import io.github.jasonlat.middleware.annotations.decrypt.RequestDecryption;
+import io.github.jasonlat.middleware.context.EccContextHolder;
+import io.github.jasonlat.middleware.domain.model.entity.EccSecurityData;
+import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
+import io.github.jasonlat.middleware.domain.model.valobj.EccDecryptType;
+import io.github.jasonlat.middleware.domain.service.ECCSecurityService;
+import io.github.jasonlat.middleware.domain.service.engine.HandelDecryptEngine;
+import io.github.jasonlat.middleware.exception.ReplayProtectionException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 先验签后解密的未认证请求
+ * 用户名放在 {@link RequestDecryption#signedUserHeader()} 请求头中，签名覆盖 "用户名\n密文"。
+ * 查询用户公钥与验签都在 ECDH 之前完成，伪造的请求不会触发解密；
+ * 明文中若携带 {@link RequestDecryption#notIdentUniqueUserKey()}，解密后还要求它与请求头中的用户名一致
+ *
+ * @author jasonlat
+ */
+@Service("signedNotIdentificationDecrypt")
+public final class SignedNotIdentificationDecryptEngine implements HandelDecryptEngine {
+
+    /**
+     * 用户名最大长度
+     */
+    private static final int MAX_USERNAME_LENGTH = 256;
+
+    private final ECCSecurityService eccSecurityService;
+    private final EccContextHolder contextHolder;
+    private final HttpServletRequest request;
+
+    public SignedNotIdentificationDecryptEngine(ECCSecurityService eccSecurityService, EccContextHolder contextHolder, HttpServletRequest request) {
+        this.eccSecurityService = eccSecurityService;
+        this.contextHolder = contextHolder;
+        this.request = request;
+    }
+
+    @Override
+    public String handelDecrypt(EccSecurityData eccSecurityData, RequestDecryption annotation) throws Exception {
+        String username = request.getHeader(annotation.signedUserHeader());
+        if (!StringUtils.hasLength(username) || username.length() > MAX_USERNAME_LENGTH) {
+            throw new ReplayProtectionException("username is empty or too long, please put the username in the request header: "
+                    + annotation.signedUserHeader());
+        }
+        // 获取用户公钥
+        UserPublicData userData = contextHolder.getAuthenticationUserPublicData(username, EccDecryptType.SIGNED_NOT_IDENTIFICATION);
+        // 验签，签名同时覆盖请求头中的用户名，防止替换用户名
+        boolean verify = eccSecurityService.verify(signedMessage(username, eccSecurityData.getCiphertext()),
+                eccSecurityData.getSignature(), userData.getX(), userData.getY());
+        if (!verify) {
+            throw new ReplayProtectionException("signature verification failed");
+        }
+        // 解密
+        String decryptedData = eccSecurityService.decrypt(eccSecurityData);
+        requireSameUser(decryptedData, username, annotation);
+        return decryptedData;
+    }
+
+    /**
+     * 明文中携带用户名时必须与请求头一致，防止业务代码读取明文中的用户名时被冒用
+     *
+     * @param decryptedData 解密后的明文
+     * @param username      请求头中已验签的用户名
+     * @param annotation    解密注解
+     */
+    private static void requireSameUser(String decryptedData, String username, RequestDecryption annotation) {
+        JSONObject jsonObject;
+        try {
+            jsonObject = JSON.parseObject(decryptedData);
+        } catch (JSONException e) {
+            // 明文不是 JSON 对象，没有可比较的用户名
+            return;
+        }
+        if (jsonObject == null || !jsonObject.containsKey(annotation.notIdentUniqueUserKey())) {
+            return;
+        }
+        String payloadUser = jsonObject.getString(annotation.notIdentUniqueUserKey());
+        if (!username.equals(payloadUser)) {
+            throw new ReplayProtectionException("the username in the request body does not match the signed username header: "
+                    + annotation.signedUserHeader());
+        }
+    }
+
+    /**
+     * @param username   用户名
+     * @param ciphertext 密文
+     * @return 签名原文：用户名 + "\n" + 密文
+     */
+    public static String signedMessage(String username, String ciphertext) {
+        return username + "\n" + ciphertext;
+    }
+}
@@ -0,0 +1,16 @@
+package io.github.jasonlat.middleware.exception;
+
+/**
+ * 加解密线程池过载异常
+ * 线程池队列已满时抛出，由 {@link io.github.jasonlat.middleware.advice.CryptoOverloadedAdvice} 转换为 503 + Retry-After
+ *
+ * @author jasonlat
+ */
+public class CryptoOverloadedException extends ServiceUnavailableException {
+
+    public static final String ERROR_CODE = "CRYPTO_OVERLOADED";
+
+    public CryptoOverloadedException(String message, long retryAfterSeconds) {
+        super(message, ERROR_CODE, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,16 @@
+package io.github.jasonlat.middleware.exception;
+
+/**
+ * 幂等键冲突异常
+ * 同一请求ID已被请求体不同的请求使用，由 {@link io.github.jasonlat.middleware.advice.IdempotentReplayAdvice} 转换为 422
+ *
+ * @author jasonlat
+ */
+public class IdempotencyKeyMismatchException extends ReplayProtectionException {
+
+    public static final String ERROR_CODE = "IDEMPOTENCY_KEY_REUSED";
+
+    public IdempotencyKeyMismatchException(String message, String requestId) {
+        super(message, ERROR_CODE, requestId, null);
+    }
+}
@@ -0,0 +1,30 @@
+package io.github.jasonlat.middleware.exception;
+
+import lombok.Getter;
+
+/**
+ * 服务暂不可用异常
+ * 过载、依赖服务不可用等可重试的失败，由 {@link io.github.jasonlat.middleware.advice.CryptoOverloadedAdvice}
+ * 统一转换为 503、Retry-After 与错误码
+ *
+ * @author jasonlat
+ */
+@Getter
+public class ServiceUnavailableException extends RuntimeException {
+
+    /**
+     * 错误码
+     */
+    private final String errorCode;
+
+    /**
+     * 建议的重试等待时间（秒）
+     */
+    private final long retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, String errorCode, long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.errorCode = errorCode;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,17 @@
+package io.github.jasonlat.middleware.exception;
+
+/**
+ * 用户数据服务不可用异常
+ * 加载用户公钥超时、并发已满或熔断中，且缓存中没有允许使用的旧公钥时抛出，
+ * 由 {@link io.github.jasonlat.middleware.advice.CryptoOverloadedAdvice} 转换为 503 + Retry-After
+ *
+ * @author jasonlat
+ */
+public class UserDataUnavailableException extends ServiceUnavailableException {
+
+    public static final String ERROR_CODE = "USER_DATA_UNAVAILABLE";
+
+    public UserDataUnavailableException(String message, long retryAfterSeconds) {
+        super(message, ERROR_CODE, retryAfterSeconds);
+    }
+}
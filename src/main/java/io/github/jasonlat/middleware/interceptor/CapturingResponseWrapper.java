@@ -0,0 +1,153 @@
+package io.github.jasonlat.middleware.interceptor;
+
+import io.github.jasonlat.middleware.cache.idempotency.StoredResponse;
+import lombok.NonNull;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 记录响应体的包装器
+ * 写出的字节照常直接传给原响应（不缓冲、不延迟），只有 {@link #startCapture} 之后才同时复制一份，
+ * 未开始记录的请求只多一层委托。幂等模式由此保存消息转换器实际写出的字节，而不是重新序列化返回值
+ *
+ * @author jasonlat
+ */
+public final class CapturingResponseWrapper extends HttpServletResponseWrapper {
+
+    private ByteArrayOutputStream captured;
+    private int limit;
+    private Map<String, List<String>> headers;
+
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    public CapturingResponseWrapper(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * 开始记录之后写出的字节
+     *
+     * @param maxBytes 最多保存的字节数，超出后只多记 1 字节，用于判定超限
+     * @param headers  需要随响应保存的响应头
+     */
+    public void startCapture(int maxBytes, Map<String, List<String>> headers) {
+        this.captured = new ByteArrayOutputStream(Math.min(maxBytes, 8192));
+        this.limit = maxBytes + 1;
+        this.headers = headers;
+    }
+
+    /**
+     * @return 是否已开始记录
+     */
+    public boolean isCapturing() {
+        return captured != null;
+    }
+
+    /**
+     * 构造保存的响应，未开始记录时返回 null
+     *
+     * @param requestHash 请求体摘要
+     * @return 响应
+     */
+    public StoredResponse toStoredResponse(byte[] requestHash) {
+        if (captured == null) {
+            return null;
+        }
+        flushWriter();
+        return new StoredResponse(getStatus(), getContentType(), headers, captured.toByteArray(), requestHash);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new CapturingOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        flushWriter();
+        super.flushBuffer();
+    }
+
+    /**
+     * 刷出本包装器创建的 writer 中缓冲的字符，容器不会替包装器刷出
+     */
+    public void flushWriter() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    private void record(int b) {
+        if (captured != null && captured.size() < limit) {
+            captured.write(b);
+        }
+    }
+
+    private void record(byte[] bytes, int offset, int length) {
+        if (captured != null && captured.size() < limit) {
+            captured.write(bytes, offset, Math.min(length, limit - captured.size()));
+        }
+    }
+
+    private final class CapturingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        private CapturingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            record(b);
+        }
+
+        @Override
+        public void write(@NonNull byte[] bytes, int offset, int length) throws IOException {
+            delegate.write(bytes, offset, length);
+            record(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.jasonlat.middleware.interceptor;
+
+import io.github.jasonlat.middleware.context.EccContext;
+import io.github.jasonlat.middleware.context.EccContextHolder;
+import lombok.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 控制器返回 Callable 时，在 MVC 异步线程上恢复请求的ECC上下文。
+ * DeferredResult / CompletableFuture 的结果在异步派发时回到原请求处理，上下文保存在请求属性中，无需额外处理
+ *
+ * @author jasonlat
+ */
+@Component
+public final class EccContextCallableInterceptor implements CallableProcessingInterceptor {
+
+    @Override
+    public <T> void preProcess(@NonNull NativeWebRequest request, @NonNull Callable<T> task) {
+        EccContextHolder.bindThreadContext(
+                (EccContext) request.getAttribute(EccContextHolder.CONTEXT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST),
+                (EccContext) request.getAttribute(EccContextHolder.RESOLVED_CONTEXT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST));
+    }
+
+    @Override
+    public <T> void postProcess(@NonNull NativeWebRequest request, @NonNull Callable<T> task, Object concurrentResult) {
+        EccContextHolder.clearThreadContext();
+    }
+}
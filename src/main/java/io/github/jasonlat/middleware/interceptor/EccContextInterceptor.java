@@ -0,0 +1,24 @@
+package io.github.jasonlat.middleware.interceptor;
+
+import io.github.jasonlat.middleware.context.EccContextHolder;
+import lombok.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * ECC上下文清理拦截器
+ * 请求结束（包括异常）时清除 {@link EccContextHolder} 中的上下文，用户公钥不会在请求之后残留
+ *
+ * @author jasonlat
+ */
+@Component
+public final class EccContextInterceptor implements HandlerInterceptor {
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler, Exception ex) {
+        EccContextHolder.clearContext();
+    }
+}
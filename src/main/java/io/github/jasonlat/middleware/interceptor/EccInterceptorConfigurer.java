@@ -0,0 +1,52 @@
+package io.github.jasonlat.middleware.interceptor;
+
+import lombok.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * 注册 ECC 组件的拦截器
+ *
+ * @author jasonlat
+ */
+@Component
+public final class EccInterceptorConfigurer implements WebMvcConfigurer {
+
+    private final EccContextInterceptor contextInterceptor;
+
+    private final RateLimitInterceptor rateLimitInterceptor;
+
+    private final ProofOfWorkInterceptor proofOfWorkInterceptor;
+
+    private final IdempotencyInterceptor idempotencyInterceptor;
+
+    private final EccContextCallableInterceptor contextCallableInterceptor;
+
+    public EccInterceptorConfigurer(EccContextInterceptor contextInterceptor, RateLimitInterceptor rateLimitInterceptor,
+                                    ProofOfWorkInterceptor proofOfWorkInterceptor, IdempotencyInterceptor idempotencyInterceptor,
+                                    EccContextCallableInterceptor contextCallableInterceptor) {
+        this.contextInterceptor = contextInterceptor;
+        this.rateLimitInterceptor = rateLimitInterceptor;
+        this.proofOfWorkInterceptor = proofOfWorkInterceptor;
+        this.idempotencyInterceptor = idempotencyInterceptor;
+        this.contextCallableInterceptor = contextCallableInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(@NonNull InterceptorRegistry registry) {
+        // 上下文清理最先注册，afterCompletion 最后执行
+        registry.addInterceptor(contextInterceptor);
+        // 限流先于其余拦截器执行，被拒绝的请求不会登记幂等、也不会读取或解密请求体
+        registry.addInterceptor(rateLimitInterceptor);
+        registry.addInterceptor(proofOfWorkInterceptor);
+        registry.addInterceptor(idempotencyInterceptor);
+    }
+
+    @Override
+    public void configureAsyncSupport(@NonNull AsyncSupportConfigurer configurer) {
+        // 控制器返回 Callable 时在异步线程上恢复ECC上下文
+        configurer.registerCallableInterceptors(contextCallableInterceptor);
+    }
+}
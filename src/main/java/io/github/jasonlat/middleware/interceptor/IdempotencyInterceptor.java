@@ -0,0 +1,283 @@
+package io.github.jasonlat.middleware.interceptor;
+
+import io.github.jasonlat.middleware.annotations.uniquerequest.IgnoreUniqueRequest;
+import io.github.jasonlat.middleware.annotations.uniquerequest.UniqueRequestProtection;
+import io.github.jasonlat.middleware.cache.idempotency.IdempotencyStore;
+import io.github.jasonlat.middleware.cache.idempotency.StoredResponse;
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.context.ClientIpResolver;
+import io.github.jasonlat.middleware.context.EccContext;
+import io.github.jasonlat.middleware.context.EccContextHolder;
+import io.github.jasonlat.middleware.domain.model.valobj.UniqueRequestMode;
+import io.github.jasonlat.middleware.exception.IdempotencyKeyMismatchException;
+import io.github.jasonlat.middleware.exception.ReplayProtectionException;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.http.HttpEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static io.github.jasonlat.middleware.domain.model.valobj.EccConstants.ANONYMOUS_USER_ID;
+
+/**
+ * 幂等请求拦截器
+ * 处理 mode = IDEMPOTENT 的 {@link UniqueRequestProtection}：
+ * 首个请求放行并登记；已有保存响应的重复请求直接写回保存的响应；首个请求仍在执行时，重复请求等待其结果。
+ * 带请求体的接口在请求体解密验签之后才登记（见 {@link io.github.jasonlat.middleware.advice.IdempotentRequestAdvice}），
+ * 幂等键因此包含已认证用户，并比对请求体摘要；没有请求体的接口在这里直接登记。
+ * 响应在 afterCompletion 中保存，内容为 {@link CapturingResponseWrapper} 记录的实际写出字节
+ *
+ * @author jasonlat
+ */
+@Component
+public final class IdempotencyInterceptor implements HandlerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyInterceptor.class);
+
+    /**
+     * 当前请求作为首次执行时的幂等键
+     */
+    public static final String IDEMPOTENCY_KEY_ATTRIBUTE = IdempotencyInterceptor.class.getName() + ".KEY";
+
+    /**
+     * 当前请求作为首次执行时的业务方法
+     */
+    public static final String IDEMPOTENCY_METHOD_ATTRIBUTE = IdempotencyInterceptor.class.getName() + ".METHOD";
+
+    /**
+     * 当前请求作为首次执行时的请求体摘要
+     */
+    public static final String IDEMPOTENCY_HASH_ATTRIBUTE = IdempotencyInterceptor.class.getName() + ".HASH";
+
+    /**
+     * 带请求体、等待解密验签之后登记的业务方法
+     */
+    public static final String IDEMPOTENCY_PENDING_ATTRIBUTE = IdempotencyInterceptor.class.getName() + ".PENDING";
+
+    /**
+     * 回放响应时附加的响应头
+     */
+    public static final String REPLAYED_HEADER = "X-Idempotent-Replayed";
+
+    private final EccAutoConfigProperties configProperties;
+    private final IdempotencyStore idempotencyStore;
+    private final ClientIpResolver clientIpResolver;
+
+    public IdempotencyInterceptor(EccAutoConfigProperties configProperties, IdempotencyStore idempotencyStore,
+                                  ClientIpResolver clientIpResolver) {
+        this.configProperties = configProperties;
+        this.idempotencyStore = idempotencyStore;
+        this.clientIpResolver = clientIpResolver;
+    }
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) throws Exception {
+        if (!configProperties.isEnabled() || !(handler instanceof HandlerMethod) || "OPTIONS".equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        Method method = handlerMethod.getMethod();
+        UniqueRequestProtection annotation = getAnnotation(method);
+        if (annotation == null || annotation.mode() != UniqueRequestMode.IDEMPOTENT
+                || AnnotationUtils.findAnnotation(method, IgnoreUniqueRequest.class) != null) {
+            return true;
+        }
+
+        String requestId = requireRequestId(request, annotation);
+        if (readsRequestBody(handlerMethod)) {
+            // 请求体解密验签之后再登记与回放
+            request.setAttribute(IDEMPOTENCY_PENDING_ATTRIBUTE, method);
+            return true;
+        }
+        StoredResponse stored = acquire(request, method, null);
+        if (stored != null) {
+            replay(response, stored, annotation, requestId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 登记幂等请求
+     * 当前请求成为首次执行时返回 null 并记录请求属性；已有保存的响应时返回该响应；
+     * 同一幂等键的请求体不同时抛出 {@link IdempotencyKeyMismatchException}
+     *
+     * @param request     HTTP请求
+     * @param method      业务方法
+     * @param requestHash 请求体摘要，没有请求体时为 null
+     * @return 需要回放的响应，null 表示由当前请求执行
+     * @throws InterruptedException 等待首次执行时被中断
+     */
+    public StoredResponse acquire(HttpServletRequest request, Method method, byte[] requestHash) throws InterruptedException {
+        UniqueRequestProtection annotation = getAnnotation(method);
+        String requestId = requireRequestId(request, annotation);
+        String key = buildKey(request, annotation, requestId);
+
+        long waitMillis = configProperties.getUniqueRequest().getIdempotency().getWaitTimeoutMillis();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        while (true) {
+            IdempotencyStore.Acquisition acquisition = idempotencyStore.begin(key, requestHash);
+            switch (acquisition.getState()) {
+                case LEADER:
+                    request.setAttribute(IDEMPOTENCY_KEY_ATTRIBUTE, key);
+                    request.setAttribute(IDEMPOTENCY_METHOD_ATTRIBUTE, method);
+                    request.setAttribute(IDEMPOTENCY_HASH_ATTRIBUTE, requestHash);
+                    return null;
+                case REPLAY:
+                    return acquisition.getResponse();
+                case MISMATCH:
+                    throw new IdempotencyKeyMismatchException(
+                            "The request ID has already been used with a different request body - RequestID: " + requestId,
+                            requestId);
+                default:
+                    StoredResponse stored = await(acquisition, deadline, requestId);
+                    if (stored != null) {
+                        // 登记时已比对执行中请求的请求体摘要
+                        return stored;
+                    }
+                    // 首次执行失败，重新竞争执行
+            }
+        }
+    }
+
+    /**
+     * 保存首次执行的响应；业务方法的返回值未写出（异常、异常处理器的响应、未注册捕获过滤器）时释放登记，
+     * 等待中的重复请求将重新执行
+     */
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler, Exception ex) {
+        Object key = request.getAttribute(IDEMPOTENCY_KEY_ATTRIBUTE);
+        if (key == null) {
+            return;
+        }
+        request.removeAttribute(IDEMPOTENCY_KEY_ATTRIBUTE);
+        CapturingResponseWrapper capture = WebUtils.getNativeResponse(response, CapturingResponseWrapper.class);
+        StoredResponse stored = ex == null && capture != null
+                ? capture.toStoredResponse((byte[]) request.getAttribute(IDEMPOTENCY_HASH_ATTRIBUTE))
+                : null;
+        if (stored == null) {
+            idempotencyStore.abort((String) key);
+            return;
+        }
+        if (!idempotencyStore.complete((String) key, stored)) {
+            logger.warn("The idempotent response is too large to store - Key: {}, Max bytes: {}", key, idempotencyStore.getMaxResponseBytes());
+        }
+    }
+
+    /**
+     * 写回保存的响应
+     *
+     * @param response   HTTP响应
+     * @param stored     保存的响应
+     * @param annotation 注解配置
+     * @param requestId  请求ID
+     * @throws IOException 写出失败
+     */
+    public void replay(HttpServletResponse response, StoredResponse stored, UniqueRequestProtection annotation, String requestId) throws IOException {
+        response.setStatus(stored.getStatus());
+        for (Map.Entry<String, List<String>> header : stored.getHeaders().entrySet()) {
+            for (String value : header.getValue()) {
+                response.addHeader(header.getKey(), value);
+            }
+        }
+        if (stored.getContentType() != null) {
+            response.setContentType(stored.getContentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.getBody().length);
+        response.getOutputStream().write(stored.getBody());
+        response.flushBuffer();
+        if (annotation.enableLog()) {
+            logger.info("Idempotent request replayed from the stored response - RequestID: {}, Bytes: {}", requestId, stored.getBody().length);
+        }
+    }
+
+    /**
+     * 幂等键 = 请求方法 + URI + 请求ID + 已认证用户，非严格模式再以 IP 区分
+     */
+    private String buildKey(HttpServletRequest request, UniqueRequestProtection annotation, String requestId) {
+        StringBuilder key = new StringBuilder(128)
+                .append(request.getMethod()).append(' ').append(request.getRequestURI()).append(' ').append(requestId);
+        EccContext context = EccContextHolder.getContext();
+        if (context != null && StringUtils.hasText(context.getUser()) && !ANONYMOUS_USER_ID.VALUE().equals(context.getUser())) {
+            key.append(" user=").append(context.getUser());
+        }
+        if (!annotation.strictMode()) {
+            key.append(' ').append(clientIpResolver.resolve(request));
+        }
+        return key.toString();
+    }
+
+    private static String requireRequestId(HttpServletRequest request, UniqueRequestProtection annotation) {
+        String requestId = request.getHeader(annotation.requestHeaderKey());
+        if (!StringUtils.hasText(requestId)) {
+            throw new ReplayProtectionException(
+                    "Missing request ID request header: " + annotation.requestHeaderKey(),
+                    "MISSING_REQUEST_ID"
+            );
+        }
+        return requestId;
+    }
+
+    /**
+     * @return 是否有经过 RequestBodyAdvice 的参数（@RequestBody 或 HttpEntity）
+     */
+    private static boolean readsRequestBody(HandlerMethod handlerMethod) {
+        for (MethodParameter parameter : handlerMethod.getMethodParameters()) {
+            if (parameter.hasParameterAnnotation(RequestBody.class) || HttpEntity.class.isAssignableFrom(parameter.getParameterType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private StoredResponse await(IdempotencyStore.Acquisition acquisition, long deadline, String requestId) throws InterruptedException {
+        long remaining = deadline - System.nanoTime();
+        try {
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            return acquisition.getFuture().get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new ReplayProtectionException(
+                    "The original request is still being processed - RequestID: " + requestId,
+                    "REQUEST_IN_PROGRESS",
+                    requestId,
+                    null
+            );
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 获取注解配置（优先方法级别，其次类级别）
+     *
+     * @param method 方法
+     * @return 注解配置
+     */
+    public UniqueRequestProtection getAnnotation(Method method) {
+        UniqueRequestProtection methodAnnotation = AnnotationUtils.findAnnotation(method, UniqueRequestProtection.class);
+        if (methodAnnotation != null) {
+            return methodAnnotation;
+        }
+        return AnnotationUtils.findAnnotation(method.getDeclaringClass(), UniqueRequestProtection.class);
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.jasonlat.middleware.interceptor;
+
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import lombok.NonNull;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 为幂等模式包装响应
+ * 以最低优先级执行，位于其他过滤器（如压缩）之内，保存的是消息转换器写出的字节，回放时同样经过外层过滤器
+ *
+ * @author jasonlat
+ */
+@Order(Ordered.LOWEST_PRECEDENCE)
+@Component
+public final class IdempotentResponseCaptureFilter extends OncePerRequestFilter {
+
+    private final EccAutoConfigProperties configProperties;
+
+    public IdempotentResponseCaptureFilter(EccAutoConfigProperties configProperties) {
+        this.configProperties = configProperties;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !configProperties.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        CapturingResponseWrapper wrapper = new CapturingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+        wrapper.flushWriter();
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.jasonlat.middleware.interceptor;
+
+import com.alibaba.fastjson2.JSON;
+import io.github.jasonlat.middleware.annotations.decrypt.IgnoreRequestDecryption;
+import io.github.jasonlat.middleware.annotations.decrypt.RequestDecryption;
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.domain.model.entity.Response;
+import io.github.jasonlat.middleware.domain.service.ProofOfWorkService;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+/**
+ * 工作量证明拦截器
+ * 对 {@link RequestDecryption#proofOfWork()} 为 true 的接口，在读取与解密请求体之前校验证明请求头；
+ * 当前难度为 0（解密负载低于阈值）时直接放行。缺少或未通过时返回 429，并在响应头中下发 seed 与难度
+ *
+ * @author jasonlat
+ */
+@Component
+public final class ProofOfWorkInterceptor implements HandlerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProofOfWorkInterceptor.class);
+
+    /**
+     * 客户端提交证明的请求头：seed:nonce
+     */
+    public static final String PROOF_HEADER = "X-PoW";
+
+    /**
+     * 下发 seed 的响应头
+     */
+    public static final String SEED_HEADER = "X-PoW-Seed";
+
+    /**
+     * 下发难度（前导零位数）的响应头
+     */
+    public static final String DIFFICULTY_HEADER = "X-PoW-Difficulty";
+
+    private static final String PROOF_OF_WORK_REQUIRED = "PROOF_OF_WORK_REQUIRED";
+
+    private final EccAutoConfigProperties configProperties;
+    private final ProofOfWorkService proofOfWorkService;
+
+    public ProofOfWorkInterceptor(EccAutoConfigProperties configProperties, ProofOfWorkService proofOfWorkService) {
+        this.configProperties = configProperties;
+        this.proofOfWorkService = proofOfWorkService;
+    }
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) throws IOException {
+        if (!configProperties.isEnabled() || !(handler instanceof HandlerMethod) || "OPTIONS".equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+        Method method = ((HandlerMethod) handler).getMethod();
+        RequestDecryption annotation = getAnnotation(method);
+        if (annotation == null || !annotation.proofOfWork()
+                || AnnotationUtils.findAnnotation(method, IgnoreRequestDecryption.class) != null) {
+            return true;
+        }
+
+        int difficulty = proofOfWorkService.currentDifficulty();
+        if (difficulty == 0) {
+            return true;
+        }
+        String route = request.getMethod() + " " + request.getRequestURI();
+        if (proofOfWorkService.verify(request.getHeader(PROOF_HEADER), route, difficulty)) {
+            return true;
+        }
+
+        proofOfWorkService.recordChallenge();
+        if (annotation.enableLog()) {
+            logger.debug("Proof of work required - Route: {}, Difficulty: {}", route, difficulty);
+        }
+        byte[] body = JSON.toJSONBytes(new Response.Builder<Void>().code(PROOF_OF_WORK_REQUIRED)
+                .info("Proof of work required, difficulty: " + difficulty).build());
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(SEED_HEADER, proofOfWorkService.currentSeed());
+        response.setHeader(DIFFICULTY_HEADER, String.valueOf(difficulty));
+        response.setHeader("Access-Control-Expose-Headers", SEED_HEADER + ", " + DIFFICULTY_HEADER);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.flushBuffer();
+        return false;
+    }
+
+    /**
+     * 获取注解配置（优先方法级别，其次类级别）
+     *
+     * @param method 方法
+     * @return 注解配置
+     */
+    private RequestDecryption getAnnotation(Method method) {
+        RequestDecryption methodAnnotation = AnnotationUtils.findAnnotation(method, RequestDecryption.class);
+        if (methodAnnotation != null) {
+            return methodAnnotation;
+        }
+        return AnnotationUtils.findAnnotation(method.getDeclaringClass(), RequestDecryption.class);
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.jasonlat.middleware.interceptor;
+
+import com.alibaba.fastjson2.JSON;
+import io.github.jasonlat.middleware.annotations.decrypt.RequestDecryption;
+import io.github.jasonlat.middleware.annotations.ratelimit.IgnoreRateLimit;
+import io.github.jasonlat.middleware.annotations.ratelimit.RateLimitProtection;
+import io.github.jasonlat.middleware.cache.nonce.NonceKey;
+import io.github.jasonlat.middleware.cache.ratelimit.TokenBucketRateLimiter;
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.context.ClientIpResolver;
+import io.github.jasonlat.middleware.domain.model.entity.Response;
+import io.github.jasonlat.middleware.domain.model.valobj.EccDecryptType;
+import io.github.jasonlat.middleware.util.RouteNames;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 准入限流拦截器
+ * 在请求体读取与解密之前执行：{@link RateLimitProtection} 标注的接口，以及开启 protect-unauthenticated-decrypt 时
+ * requestType 为 NOT_IDENTIFICATION / SIGNED_NOT_IDENTIFICATION / REGISTER 的解密接口，按 客户端IP + 路由 限流。
+ * 拒绝时直接写出 429 与 Retry-After，不抛出异常、不生成堆栈
+ *
+ * @author jasonlat
+ */
+@Component
+public final class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitInterceptor.class);
+
+    private static final String RATE_LIMITED = "RATE_LIMITED";
+
+    private final EccAutoConfigProperties configProperties;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final ClientIpResolver clientIpResolver;
+
+    /**
+     * 默认路由名缓存，方法集合固定，不会无限增长
+     */
+    private final ConcurrentHashMap<Method, String> defaultRoutes = new ConcurrentHashMap<>();
+
+    public RateLimitInterceptor(EccAutoConfigProperties configProperties, TokenBucketRateLimiter rateLimiter,
+                                ClientIpResolver clientIpResolver) {
+        this.configProperties = configProperties;
+        this.rateLimiter = rateLimiter;
+        this.clientIpResolver = clientIpResolver;
+    }
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) throws IOException {
+        if (!configProperties.isEnabled() || !(handler instanceof HandlerMethod) || "OPTIONS".equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+        Method method = ((HandlerMethod) handler).getMethod();
+        if (AnnotationUtils.findAnnotation(method, IgnoreRateLimit.class) != null) {
+            return true;
+        }
+
+        EccAutoConfigProperties.RateLimit config = configProperties.getRateLimit();
+        RateLimitProtection annotation = getAnnotation(method);
+        if (annotation == null && !(config.isProtectUnauthenticatedDecrypt() && isUnauthenticatedDecrypt(method))) {
+            return true;
+        }
+
+        int capacity = annotation != null && annotation.capacity() > 0 ? annotation.capacity() : config.getCapacity();
+        double refillPerSecond = annotation != null && annotation.refillPerSecond() > 0 ? annotation.refillPerSecond() : config.getRefillPerSecond();
+        String route = annotation != null && StringUtils.hasText(annotation.route())
+                ? annotation.route()
+                : defaultRoutes.computeIfAbsent(method, RouteNames::defaultRoute);
+        String clientIp = annotation == null || annotation.keyByIp() ? clientIpResolver.resolve(request) : "";
+
+        long waitNanos = rateLimiter.tryAcquire(NonceKey.hash(route, clientIp), NonceKey.hash(clientIp, route), capacity, refillPerSecond);
+        if (waitNanos == TokenBucketRateLimiter.ADMITTED) {
+            return true;
+        }
+
+        long retryAfterSeconds = Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        if (annotation == null || annotation.enableLog()) {
+            logger.debug("Request rejected by admission rate limit - Route: {}, IP: {}, Retry-After: {}s", route, clientIp, retryAfterSeconds);
+        }
+        String message = annotation != null ? annotation.message() : "请求过于频繁，请稍后再试";
+        reject(response, message, retryAfterSeconds);
+        return false;
+    }
+
+    private void reject(HttpServletResponse response, String message, long retryAfterSeconds) throws IOException {
+        byte[] body = JSON.toJSONBytes(new Response.Builder<Void>().code(RATE_LIMITED).info(message).build());
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.flushBuffer();
+    }
+
+    private static boolean isUnauthenticatedDecrypt(Method method) {
+        RequestDecryption decryption = AnnotationUtils.findAnnotation(method, RequestDecryption.class);
+        if (decryption == null) {
+            decryption = AnnotationUtils.findAnnotation(method.getDeclaringClass(), RequestDecryption.class);
+        }
+        return decryption != null && (decryption.requestType() == EccDecryptType.NOT_IDENTIFICATION
+                || decryption.requestType() == EccDecryptType.SIGNED_NOT_IDENTIFICATION
+                || decryption.requestType() == EccDecryptType.REGISTER);
+    }
+
+    /**
+     * 获取注解配置（优先方法级别，其次类级别）
+     *
+     * @param method 方法
+     * @return 注解配置
+     */
+    private RateLimitProtection getAnnotation(Method method) {
+        RateLimitProtection methodAnnotation = AnnotationUtils.findAnnotation(method, RateLimitProtection.class);
+        if (methodAnnotation != null) {
+            return methodAnnotation;
+        }
+        return AnnotationUtils.findAnnotation(method.getDeclaringClass(), RateLimitProtection.class);
+    }
+}
@@ -0,0 +1,188 @@
+package io.github.jasonlat.middleware.util;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+/**
+ * CIDR 前缀树
+ * IPv4 与 IPv6 各一棵二叉前缀树，节点保存在 int 数组中；匹配时按位下行，遇到终止节点即命中，
+ * 复杂度 O(地址位数)，与网段数量无关。构建完成后只读，可并发匹配
+ *
+ * @author jasonlat
+ */
+public final class CidrTrie {
+
+    private static final int IPV4_BITS = 32;
+    private static final int IPV6_BITS = 128;
+
+    /**
+     * 子节点下标，0 表示不存在（根节点不会作为子节点）
+     */
+    private int[] zero = new int[64];
+    private int[] one = new int[64];
+    private boolean[] terminal = new boolean[64];
+    private int nodeCount;
+
+    private final int ipv4Root;
+    private final int ipv6Root;
+
+    public CidrTrie() {
+        this.ipv4Root = newNode();
+        this.ipv6Root = newNode();
+    }
+
+    /**
+     * 添加网段，如 10.0.0.0/8、fc00::/7；不带前缀长度时按单个地址处理
+     *
+     * @param cidr 网段
+     * @throws IllegalArgumentException 网段格式非法
+     */
+    public void add(String cidr) {
+        String value = cidr.trim();
+        int slash = value.indexOf('/');
+        byte[] address = parseAddress(slash < 0 ? value : value.substring(0, slash));
+        if (address == null) {
+            throw new IllegalArgumentException("Invalid CIDR: " + cidr);
+        }
+        int maxBits = address.length == 4 ? IPV4_BITS : IPV6_BITS;
+        int prefix;
+        try {
+            prefix = slash < 0 ? maxBits : Integer.parseInt(value.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid CIDR prefix length: " + cidr);
+        }
+        if (prefix < 0 || prefix > maxBits) {
+            throw new IllegalArgumentException("Invalid CIDR prefix length: " + cidr);
+        }
+
+        int node = address.length == 4 ? ipv4Root : ipv6Root;
+        for (int bit = 0; bit < prefix; bit++) {
+            if (bitAt(address, bit) == 0) {
+                if (zero[node] == 0) {
+                    int child = newNode();
+                    zero[node] = child;
+                }
+                node = zero[node];
+            } else {
+                if (one[node] == 0) {
+                    int child = newNode();
+                    one[node] = child;
+                }
+                node = one[node];
+            }
+        }
+        terminal[node] = true;
+    }
+
+    /**
+     * @param address 4 或 16 字节地址
+     * @return 是否落在任一网段内
+     */
+    public boolean contains(byte[] address) {
+        if (address == null || (address.length != 4 && address.length != 16)) {
+            return false;
+        }
+        int node = address.length == 4 ? ipv4Root : ipv6Root;
+        int bits = address.length * 8;
+        for (int bit = 0; ; bit++) {
+            if (terminal[node]) {
+                return true;
+            }
+            if (bit == bits) {
+                return false;
+            }
+            node = bitAt(address, bit) == 0 ? zero[node] : one[node];
+            if (node == 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @param ip IP 字面量
+     * @return 是否落在任一网段内，非 IP 字面量返回 false
+     */
+    public boolean contains(String ip) {
+        return contains(parseAddress(ip));
+    }
+
+    /**
+     * 解析 IP 字面量，不做 DNS 解析（请求头内容不可信，不能触发域名查询）
+     *
+     * @param ip IPv4 点分十进制或 IPv6 字面量（可带方括号）
+     * @return 4 或 16 字节地址，IPv4 映射的 IPv6 地址返回 4 字节；非法时返回 null
+     */
+    public static byte[] parseAddress(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return null;
+        }
+        if (ip.indexOf(':') < 0) {
+            return parseIpv4(ip);
+        }
+        String value = ip;
+        if (value.charAt(0) == '[' && value.charAt(value.length() - 1) == ']') {
+            value = value.substring(1, value.length() - 1);
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            boolean allowed = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')
+                    || c == ':' || c == '.' || c == '%';
+            if (!allowed) {
+                return null;
+            }
+        }
+        try {
+            // 含 ':' 的字符串只会按 IPv6 字面量解析，不会发起 DNS 查询
+            InetAddress address = InetAddress.getByName(value);
+            return address instanceof Inet4Address ? address.getAddress() : Arrays.copyOf(address.getAddress(), 16);
+        } catch (UnknownHostException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] parseIpv4(String ip) {
+        byte[] address = new byte[4];
+        int part = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c == '.') {
+                if (digits == 0 || part == 3) {
+                    return null;
+                }
+                address[part++] = (byte) value;
+                value = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (++digits > 3 || value > 255) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        if (digits == 0 || part != 3) {
+            return null;
+        }
+        address[3] = (byte) value;
+        return address;
+    }
+
+    private static int bitAt(byte[] address, int bit) {
+        return (address[bit >>> 3] >>> (7 - (bit & 7))) & 1;
+    }
+
+    private int newNode() {
+        if (nodeCount == zero.length) {
+            int capacity = nodeCount * 2;
+            zero = Arrays.copyOf(zero, capacity);
+            one = Arrays.copyOf(one, capacity);
+            terminal = Arrays.copyOf(terminal, capacity);
+        }
+        return nodeCount++;
+    }
+}
@@ -0,0 +1,31 @@
+package io.github.jasonlat.middleware.util;
+
+import java.lang.reflect.Method;
+import java.util.StringJoiner;
+
+/**
+ * 路由命名工具
+ * 存储分片与准入限流在注解未指定名称时使用同一套默认路由名
+ *
+ * @author jasonlat
+ */
+public final class RouteNames {
+
+    private RouteNames() {
+    }
+
+    /**
+     * 全限定类名与参数类型区分同名类及重载方法，避免不同接口落入同一分片或共用限流桶。
+     * 每次调用都会拼接字符串，调用方应按 Method 缓存结果
+     *
+     * @param method 业务方法
+     * @return 全限定类名#方法名(参数类型)，如 com.example.OrderController#create(com.example.OrderRequest)
+     */
+    public static String defaultRoute(Method method) {
+        StringJoiner parameters = new StringJoiner(",", "(", ")");
+        for (Class<?> type : method.getParameterTypes()) {
+            parameters.add(type.getTypeName());
+        }
+        return method.getDeclaringClass().getName() + "#" + method.getName() + parameters;
+    }
+}
@@ -0,0 +1,215 @@
+package io.github.jasonlat.middleware.util;
+
+import io.github.jasonlat.middleware.domain.model.valobj.TimestampFormat;
+
+/**
+ * 时间戳解析工具
+ * 直接在字符上解析为 epoch 毫秒，不创建 Instant / 异常等中间对象；格式非法时返回 {@link #INVALID}
+ *
+ * @author jasonlat
+ */
+public final class TimestampParser {
+
+    /**
+     * 解析失败
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final int MAX_EPOCH_DIGITS = 18;
+
+    private TimestampParser() {
+    }
+
+    /**
+     * @param value  时间戳字符串
+     * @param format 格式
+     * @return epoch 毫秒，非法时返回 {@link #INVALID}
+     */
+    public static long parse(CharSequence value, TimestampFormat format) {
+        switch (format) {
+            case EPOCH_MILLIS:
+                return parseEpochMillis(value);
+            case AUTO:
+                return isDigits(value) ? parseEpochMillis(value) : parseIso8601(value);
+            default:
+                return parseIso8601(value);
+        }
+    }
+
+    /**
+     * 解析 Unix 毫秒时间戳（非负，至多 18 位）
+     */
+    public static long parseEpochMillis(CharSequence value) {
+        int length = value.length();
+        if (length == 0 || length > MAX_EPOCH_DIGITS) {
+            return INVALID;
+        }
+        long millis = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            millis = millis * 10 + digit;
+        }
+        return millis;
+    }
+
+    /**
+     * 解析 ISO-8601 时间点：yyyy-MM-ddTHH:mm[:ss[.fraction]](Z | ±HH:mm | ±HHmm | ±HH)
+     * 与 Instant.parse 一致支持 0 ~ 9 位小数（截断到毫秒）与闰秒 60
+     */
+    public static long parseIso8601(CharSequence value) {
+        int length = value.length();
+        if (length < 17) {
+            return INVALID;
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 2);
+        int day = digits(value, 8, 2);
+        int hour = digits(value, 11, 2);
+        int minute = digits(value, 14, 2);
+        if ((year | month | day | hour | minute) < 0
+                || value.charAt(4) != '-' || value.charAt(7) != '-'
+                || (value.charAt(10) != 'T' && value.charAt(10) != 't')
+                || value.charAt(13) != ':') {
+            return INVALID;
+        }
+
+        // 秒与小数可省略（如 2024-01-01T08:00Z）
+        int index = 16;
+        int second = 0;
+        int millis = 0;
+        if (value.charAt(index) == ':') {
+            second = digits(value, 17, 2);
+            if (second < 0) {
+                return INVALID;
+            }
+            index = 19;
+            if (index < length && value.charAt(index) == '.') {
+                index++;
+                int start = index;
+                while (index < length && index - start < 9) {
+                    int digit = value.charAt(index) - '0';
+                    if (digit < 0 || digit > 9) {
+                        break;
+                    }
+                    if (index - start < 3) {
+                        millis = millis * 10 + digit;
+                    }
+                    index++;
+                }
+                int fractionDigits = index - start;
+                if (fractionDigits == 0) {
+                    return INVALID;
+                }
+                for (int i = fractionDigits; i < 3; i++) {
+                    millis *= 10;
+                }
+            }
+        }
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour > 23 || minute > 59 || second > 60) {
+            return INVALID;
+        }
+
+        long offsetSeconds = parseOffset(value, index, length);
+        if (offsetSeconds == INVALID) {
+            return INVALID;
+        }
+
+        // 闰秒按 59 秒处理
+        long secondOfDay = hour * 3600L + minute * 60L + Math.min(second, 59);
+        long epochSecond = epochDay(year, month, day) * 86_400L + secondOfDay - offsetSeconds;
+        return epochSecond * 1000L + millis;
+    }
+
+    /**
+     * @return 偏移秒数，非法时返回 {@link #INVALID}
+     */
+    private static long parseOffset(CharSequence value, int index, int length) {
+        if (index >= length) {
+            return INVALID;
+        }
+        char sign = value.charAt(index);
+        if (sign == 'Z' || sign == 'z') {
+            return index + 1 == length ? 0L : INVALID;
+        }
+        if (sign != '+' && sign != '-') {
+            return INVALID;
+        }
+        int remaining = length - index - 1;
+        int hours = digits(value, index + 1, 2);
+        int minutes;
+        if (remaining == 2) {
+            minutes = 0;
+        } else if (remaining == 4) {
+            minutes = digits(value, index + 3, 2);
+        } else if (remaining == 5 && value.charAt(index + 3) == ':') {
+            minutes = digits(value, index + 4, 2);
+        } else {
+            return INVALID;
+        }
+        if (hours < 0 || minutes < 0 || hours > 18 || minutes > 59) {
+            return INVALID;
+        }
+        long seconds = hours * 3600L + minutes * 60L;
+        return sign == '-' ? -seconds : seconds;
+    }
+
+    private static int digits(CharSequence value, int from, int count) {
+        if (from + count > value.length()) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    private static boolean isDigits(CharSequence value) {
+        int length = value.length();
+        if (length == 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * 公历日期到 epoch day（days from civil）
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,144 @@
+package io.github.jasonlat.benchmark;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.jasonlat.middleware.cache.nonce.LocalNonceStore;
+import io.github.jasonlat.middleware.cache.nonce.NonceStore;
+import io.github.jasonlat.middleware.cache.nonce.OffHeapUuidNonceStore;
+import io.github.jasonlat.middleware.cache.nonce.RotatingBloomNonceStore;
+import io.github.jasonlat.middleware.cache.nonce.TimingWheelNonceStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * nonce 存储多线程吞吐量对比
+ * BASELINE：原 getIfPresent + put 两步检查（非原子）；其余为各 {@link NonceStore} 实现的原子 putIfAbsent。
+ * 每个线程写入互不重复的 128 位复合键（与防重放时间戳键相同），窗口 1 秒，内存占用保持稳定
+ * <p>
+ * 运行：mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.github.jasonlat.benchmark.NonceStoreThroughputBenchmark
+ *
+ * @author jasonlat
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class NonceStoreThroughputBenchmark {
+
+    private static final long WINDOW_MILLIS = 1000L;
+    private static final long MAXIMUM_SIZE = 1000000L;
+
+    @Param({"BASELINE", "LOCAL", "TIMING_WHEEL", "BLOOM_FILTER", "OFF_HEAP_UUID"})
+    public String storeType;
+
+    private NonceStore store;
+
+    /**
+     * 为每个线程分配不同的键高位
+     */
+    private final AtomicLong threadSequence = new AtomicLong();
+
+    @Setup
+    public void setup() {
+        switch (storeType) {
+            case "BASELINE":
+                store = new CheckThenPutStore(MAXIMUM_SIZE);
+                break;
+            case "TIMING_WHEEL":
+                store = new TimingWheelNonceStore(WINDOW_MILLIS, 8);
+                break;
+            case "BLOOM_FILTER":
+                store = new RotatingBloomNonceStore(WINDOW_MILLIS, 10000000L, 0.0001);
+                break;
+            case "OFF_HEAP_UUID":
+                store = new OffHeapUuidNonceStore(4194304L, MAXIMUM_SIZE);
+                break;
+            default:
+                store = new LocalNonceStore(MAXIMUM_SIZE);
+        }
+    }
+
+    /**
+     * 线程私有的键序列
+     */
+    @State(Scope.Thread)
+    public static class KeySequence {
+        private long high;
+        private long low;
+
+        @Setup
+        public void setup(NonceStoreThroughputBenchmark benchmark) {
+            this.high = benchmark.threadSequence.incrementAndGet();
+        }
+    }
+
+    @Benchmark
+    public boolean putIfAbsent(KeySequence keys) {
+        return store.putIfAbsent(keys.high, ++keys.low, WINDOW_MILLIS);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(NonceStoreThroughputBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * 原实现：先 getIfPresent 再 put，两步之间并发的重复请求可以同时通过
+     */
+    private static final class CheckThenPutStore implements NonceStore {
+
+        private final Cache<String, Long> cache;
+
+        private CheckThenPutStore(long maximumSize) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .expireAfterWrite(WINDOW_MILLIS, TimeUnit.MILLISECONDS)
+                    .build();
+        }
+
+        @Override
+        public boolean putIfAbsent(String nonce, long windowMillis) {
+            if (cache.getIfPresent(nonce) != null) {
+                return false;
+            }
+            cache.put(nonce, System.currentTimeMillis());
+            return true;
+        }
+
+        @Override
+        public long size() {
+            return cache.estimatedSize();
+        }
+
+        @Override
+        public void clear() {
+            cache.invalidateAll();
+        }
+
+        @Override
+        public String getStats() {
+            return "Size: " + size();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.jasonlat.benchmark;
+
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.domain.model.entity.EccSecurityData;
+import io.github.jasonlat.middleware.domain.service.CryptoTaskExecutor;
+import io.github.jasonlat.middleware.domain.service.ECCSecurityService;
+import io.github.jasonlat.middleware.util.ECCCryptoUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.KeyPair;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECPoint;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IDENTIFICATION 请求验签 + 解密单次延迟对比（SampleTime 模式，输出 p50 / p99 等分位）
+ * sequential：先验签后解密；parallel：验签提交到加解密线程池，当前线程同时解密
+ * <p>
+ * 运行：mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.github.jasonlat.benchmark.ParallelVerifyBenchmark
+ *
+ * @author jasonlat
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelVerifyBenchmark {
+
+    private ECCSecurityService eccSecurityService;
+    private CryptoTaskExecutor cryptoTaskExecutor;
+    private EccSecurityData eccSecurityData;
+    private String userX;
+    private String userY;
+
+    @Setup
+    public void setup() throws Exception {
+        EccAutoConfigProperties properties = new EccAutoConfigProperties();
+        ECCCryptoUtil cryptoUtil = new ECCCryptoUtil(properties);
+
+        KeyPair serverKeyPair = cryptoUtil.generateKeyPair();
+        ECPoint serverPoint = ((ECPublicKey) serverKeyPair.getPublic()).getW();
+        properties.setPrivateKey(((ECPrivateKey) serverKeyPair.getPrivate()).getS().toString(16));
+        properties.setPublicKeyX(serverPoint.getAffineX().toString(16));
+        properties.setPublicKeyY(serverPoint.getAffineY().toString(16));
+
+        KeyPair userKeyPair = cryptoUtil.generateKeyPair();
+        ECPoint userPoint = ((ECPublicKey) userKeyPair.getPublic()).getW();
+        userX = userPoint.getAffineX().toString(16);
+        userY = userPoint.getAffineY().toString(16);
+
+        StringBuilder payload = new StringBuilder("{\"data\":\"");
+        for (int i = 0; i < 256; i++) {
+            payload.append("0123456789abcdef");
+        }
+        payload.append("\"}");
+        EccSecurityData encrypted = cryptoUtil.encrypt(payload.toString(), properties.getPublicKeyX(), properties.getPublicKeyY());
+        eccSecurityData = EccSecurityData.builder()
+                .ciphertext(encrypted.getCiphertext())
+                .iv(encrypted.getIv())
+                .tempPublicKey(encrypted.getTempPublicKey())
+                .signature(cryptoUtil.sign(encrypted.getCiphertext(), userKeyPair.getPrivate()))
+                .build();
+
+        cryptoTaskExecutor = new CryptoTaskExecutor(properties);
+        eccSecurityService = new ECCSecurityService(cryptoUtil, cryptoTaskExecutor, properties);
+    }
+
+    @TearDown
+    public void tearDown() {
+        cryptoTaskExecutor.destroy();
+    }
+
+    @Benchmark
+    public String sequential() throws Exception {
+        if (!eccSecurityService.verify(eccSecurityData.getCiphertext(), eccSecurityData.getSignature(), userX, userY)) {
+            throw new IllegalStateException("signature verification failed");
+        }
+        return eccSecurityService.decrypt(eccSecurityData);
+    }
+
+    @Benchmark
+    public String parallel() throws Exception {
+        CompletableFuture<Boolean> verification = cryptoTaskExecutor.submit(() ->
+                eccSecurityService.verify(eccSecurityData.getCiphertext(), eccSecurityData.getSignature(), userX, userY));
+        String decryptedData = eccSecurityService.decrypt(eccSecurityData);
+        if (!verification.get()) {
+            throw new IllegalStateException("signature verification failed");
+        }
+        return decryptedData;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ParallelVerifyBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
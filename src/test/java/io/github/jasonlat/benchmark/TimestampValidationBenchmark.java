@@ -0,0 +1,77 @@
+package io.github.jasonlat.benchmark;
+
+import io.github.jasonlat.middleware.cache.nonce.NonceKey;
+import io.github.jasonlat.middleware.domain.model.valobj.TimestampFormat;
+import io.github.jasonlat.middleware.util.TimestampParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 时间戳校验单次请求开销对比
+ * baseline：Instant.parse + 字符串拼接缓存 Key；current：TimestampParser + NonceKey 复合 Key
+ * <p>
+ * 运行：mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.github.jasonlat.benchmark.TimestampValidationBenchmark
+ * 加 -prof gc 可查看每次操作的分配字节数
+ *
+ * @author jasonlat
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimestampValidationBenchmark {
+
+    private static final String PREFIX = "replay_attack";
+    private static final String CLIENT_IP = "192.168.10.24";
+
+    private final String isoTimestamp = Instant.now().truncatedTo(ChronoUnit.MILLIS).toString();
+    private final String epochTimestamp = String.valueOf(System.currentTimeMillis());
+
+    @Benchmark
+    public void baselineIso(Blackhole blackhole) {
+        Instant clientTime = Instant.parse(isoTimestamp);
+        long timeDiff = Math.abs(ChronoUnit.MILLIS.between(clientTime, Instant.now()));
+        blackhole.consume(timeDiff);
+        blackhole.consume(PREFIX + ":" + isoTimestamp + ":" + CLIENT_IP);
+    }
+
+    @Benchmark
+    public void currentIso(Blackhole blackhole) {
+        long clientMillis = TimestampParser.parse(isoTimestamp, TimestampFormat.ISO_8601);
+        blackhole.consume(Math.abs(System.currentTimeMillis() - clientMillis));
+        blackhole.consume(clientMillis);
+        blackhole.consume(NonceKey.hash(PREFIX, CLIENT_IP));
+    }
+
+    @Benchmark
+    public void currentEpochMillis(Blackhole blackhole) {
+        long clientMillis = TimestampParser.parse(epochTimestamp, TimestampFormat.EPOCH_MILLIS);
+        blackhole.consume(Math.abs(System.currentTimeMillis() - clientMillis));
+        blackhole.consume(clientMillis);
+        blackhole.consume(NonceKey.hash(PREFIX, CLIENT_IP));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(TimestampValidationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.jasonlat.middleware.cache.idempotency;
+
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import static io.github.jasonlat.middleware.cache.idempotency.IdempotencyStore.Acquisition.State.LEADER;
+import static io.github.jasonlat.middleware.cache.idempotency.IdempotencyStore.Acquisition.State.MISMATCH;
+import static io.github.jasonlat.middleware.cache.idempotency.IdempotencyStore.Acquisition.State.REPLAY;
+import static io.github.jasonlat.middleware.cache.idempotency.IdempotencyStore.Acquisition.State.WAIT;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 幂等响应存储测试
+ *
+ * @author jasonlat
+ */
+class IdempotencyStoreTest {
+
+    private static final String KEY = "POST /orders 1 user=alice";
+    private static final byte[] HASH = {1, 2, 3};
+    private static final byte[] OTHER_HASH = {4, 5, 6};
+
+    @Test
+    void replaysStoredResponse() {
+        IdempotencyStore store = newStore(1024);
+        assertEquals(LEADER, store.begin(KEY, HASH).getState());
+        StoredResponse response = response("{\"code\":\"0000\"}", HASH);
+        assertTrue(store.complete(KEY, response));
+
+        IdempotencyStore.Acquisition replay = store.begin(KEY, HASH);
+        assertEquals(REPLAY, replay.getState());
+        assertSame(response, replay.getResponse());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void rejectsDifferentBodyForStoredKey() {
+        IdempotencyStore store = newStore(1024);
+        store.begin(KEY, HASH);
+        store.complete(KEY, response("ok", HASH));
+
+        assertEquals(MISMATCH, store.begin(KEY, OTHER_HASH).getState());
+        // 没有请求体的请求与有请求体的请求同样视为不同
+        assertEquals(MISMATCH, store.begin(KEY, null).getState());
+        assertTrue(store.getStats().contains("Mismatches: 2"), store.getStats());
+    }
+
+    @Test
+    void rejectsDifferentBodyForInFlightKey() {
+        IdempotencyStore store = newStore(1024);
+        assertEquals(LEADER, store.begin(KEY, HASH).getState());
+        assertEquals(MISMATCH, store.begin(KEY, OTHER_HASH).getState());
+        assertEquals(WAIT, store.begin(KEY, HASH).getState());
+    }
+
+    @Test
+    void wakesWaitersOnComplete() throws Exception {
+        IdempotencyStore store = newStore(1024);
+        store.begin(KEY, null);
+        CompletableFuture<StoredResponse> future = store.begin(KEY, null).getFuture();
+        assertFalse(future.isDone());
+
+        StoredResponse response = response("ok", null);
+        store.complete(KEY, response);
+        assertSame(response, future.get());
+    }
+
+    @Test
+    void releasesKeyOnAbort() throws Exception {
+        IdempotencyStore store = newStore(1024);
+        store.begin(KEY, HASH);
+        CompletableFuture<StoredResponse> future = store.begin(KEY, HASH).getFuture();
+
+        store.abort(KEY);
+        // 完成值为 null，等待者重新竞争执行
+        assertNull(future.get());
+        assertEquals(LEADER, store.begin(KEY, HASH).getState());
+    }
+
+    @Test
+    void doesNotStoreOversizedResponse() throws Exception {
+        IdempotencyStore store = newStore(4);
+        store.begin(KEY, HASH);
+        CompletableFuture<StoredResponse> future = store.begin(KEY, HASH).getFuture();
+
+        assertFalse(store.complete(KEY, response("too large", HASH)));
+        assertNull(future.get());
+        assertEquals(0, store.size());
+        assertEquals(LEADER, store.begin(KEY, HASH).getState());
+        assertTrue(store.getStats().contains("Oversized: 1"), store.getStats());
+    }
+
+    @Test
+    void separatesKeys() {
+        IdempotencyStore store = newStore(1024);
+        store.begin(KEY, HASH);
+        store.complete(KEY, response("alice", HASH));
+        // 同一请求ID 在不同用户下是不同的键
+        assertEquals(LEADER, store.begin("POST /orders 1 user=bob", HASH).getState());
+        assertArrayEquals("alice".getBytes(StandardCharsets.UTF_8), store.begin(KEY, HASH).getResponse().getBody());
+    }
+
+    private static IdempotencyStore newStore(int maxResponseBytes) {
+        EccAutoConfigProperties properties = new EccAutoConfigProperties();
+        properties.getUniqueRequest().getIdempotency().setMaxResponseBytes(maxResponseBytes);
+        return new IdempotencyStore(properties);
+    }
+
+    private static StoredResponse response(String body, byte[] requestHash) {
+        return new StoredResponse(200, "application/json", Collections.emptyMap(),
+                body.getBytes(StandardCharsets.UTF_8), requestHash);
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.domain.model.valobj.NonceStoreType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 防护存储快照测试：流式写出后，新实例在初始化时立即重建存储
+ *
+ * @author jasonlat
+ */
+class NonceSnapshotServiceTest {
+
+    private static final long WINDOW_MILLIS = 60000L;
+
+    private Path directory;
+    private EccAutoConfigProperties properties;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("nonce-snapshot");
+        properties = new EccAutoConfigProperties();
+        properties.getNonceSnapshot().setEnabled(true);
+        properties.getNonceSnapshot().setPath(directory.resolve("snapshot.bin").toString());
+        properties.getNonceSnapshot().setIntervalSeconds(3600L);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("snapshot.bin"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    void restoresStoresEagerlyOnStartup() throws IOException {
+        NonceSnapshotService service = new NonceSnapshotService(properties);
+        service.init();
+        NonceStoreFactory factory = new NonceStoreFactory(properties, null, service);
+        factory.init();
+        factory.getOrCreate("replay", "orders", NonceStoreType.LOCAL, WINDOW_MILLIS, 1000L).putIfAbsent("a", WINDOW_MILLIS);
+        // 布隆过滤器段远大于写出缓冲区，长度回填落在已刷入文件的位置
+        factory.getOrCreate("replay", NonceStoreType.BLOOM_FILTER, WINDOW_MILLIS, 1000L).putIfAbsent("b", WINDOW_MILLIS);
+        factory.getSequenceStore("replay").accept("alice", 10, 64);
+        service.destroy();
+
+        NonceSnapshotService restartedService = new NonceSnapshotService(properties);
+        restartedService.init();
+        NonceStoreFactory restarted = new NonceStoreFactory(properties, null, restartedService);
+        restarted.init();
+        // 首个请求之前存储已经重建
+        assertEquals(2, restarted.getStores("replay").size());
+        assertTrue(restartedService.getPendingKeys().isEmpty());
+        assertFalse(restarted.getOrCreate("replay", "orders", NonceStoreType.LOCAL, WINDOW_MILLIS, 1000L).putIfAbsent("a", WINDOW_MILLIS));
+        assertFalse(restarted.getOrCreate("replay", NonceStoreType.BLOOM_FILTER, WINDOW_MILLIS, 1000L).putIfAbsent("b", WINDOW_MILLIS));
+        assertEquals(SequenceWindowStore.Result.REPLAYED, restarted.getSequenceStore("replay").accept("alice", 10, 64));
+        restartedService.destroy();
+    }
+
+    @Test
+    void dropsSectionsWithoutLiveEntries() throws IOException {
+        NonceSnapshotService service = new NonceSnapshotService(properties);
+        service.init();
+        NonceStoreFactory factory = new NonceStoreFactory(properties, null, service);
+        factory.init();
+        factory.getOrCreate("replay", NonceStoreType.LOCAL, WINDOW_MILLIS, 1000L).putIfAbsent("a", WINDOW_MILLIS);
+        // 空存储没有可恢复的条目
+        factory.getOrCreate("unique", NonceStoreType.LOCAL, WINDOW_MILLIS, 1000L);
+        service.destroy();
+
+        NonceSnapshotService restartedService = new NonceSnapshotService(properties);
+        restartedService.init();
+        NonceStoreFactory restarted = new NonceStoreFactory(properties, null, restartedService);
+        restarted.init();
+        assertEquals(1, restarted.getStores("replay").size());
+        assertTrue(restarted.getStores("unique").isEmpty());
+        assertTrue(restartedService.getPendingKeys().isEmpty());
+        restartedService.destroy();
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import io.github.jasonlat.middleware.cache.nonce.distributed.InProcessNonceStoreNode;
+import io.github.jasonlat.middleware.cache.nonce.distributed.NonceStoreNode;
+import io.github.jasonlat.middleware.cache.nonce.distributed.ShardedNonceStore;
+import io.github.jasonlat.middleware.cache.nonce.distributed.TcpNonceStoreNode;
+import io.github.jasonlat.middleware.cache.nonce.distributed.TcpNonceStoreServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * nonce 存储并发压力测试
+ * 多个线程同时写入同一个 nonce，每个实现都必须恰好放行一个
+ *
+ * @author jasonlat
+ */
+class NonceStoreConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 500;
+
+    /**
+     * 窗口远大于测试时长，时间轮的桶切换不会落在测试期间
+     */
+    private static final long WINDOW_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void localStoreAdmitsExactlyOne() throws Exception {
+        NonceStore store = new LocalNonceStore(100000);
+        assertExactlyOneWinner(store, false);
+        assertExactlyOneWinner(store, true);
+    }
+
+    @Test
+    void timingWheelStoreAdmitsExactlyOne() throws Exception {
+        assertExactlyOneWinner(new TimingWheelNonceStore(WINDOW_MILLIS, 2), false);
+    }
+
+    @Test
+    void bloomStoreAdmitsExactlyOne() throws Exception {
+        assertExactlyOneWinner(new RotatingBloomNonceStore(WINDOW_MILLIS, 100000, 0.000001), false);
+    }
+
+    @Test
+    void offHeapStoreAdmitsExactlyOne() throws Exception {
+        NonceStore store = new OffHeapUuidNonceStore(4096, 100000);
+        assertExactlyOneWinner(store, false);
+        assertExactlyOneWinner(store, true);
+    }
+
+    @Test
+    void shardedStoreAdmitsExactlyOne() throws Exception {
+        List<NonceStoreNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            nodes.add(new InProcessNonceStoreNode("node-" + i, 100000));
+        }
+        assertExactlyOneWinner(new ShardedNonceStore("test", nodes, 1000, 1000, false), false);
+    }
+
+    @Test
+    void tcpShardedStoreAdmitsExactlyOne() throws Exception {
+        try (TcpNonceStoreServer server = new TcpNonceStoreServer(0, new LocalNonceStore(100000), 0L)) {
+            server.start();
+            NonceStoreNode node = new TcpNonceStoreNode("127.0.0.1:" + server.getLocalPort(), THREADS, 2000);
+            List<NonceStoreNode> nodes = new ArrayList<>();
+            nodes.add(node);
+            assertExactlyOneWinner(new ShardedNonceStore("test", nodes, 0, 0, false), false);
+        }
+    }
+
+    /**
+     * @param composite true 时使用 128 位复合键，否则使用 UUID 字符串
+     */
+    private void assertExactlyOneWinner(NonceStore store, boolean composite) throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            UUID uuid = UUID.randomUUID();
+            String nonce = uuid.toString();
+            CountDownLatch ready = new CountDownLatch(THREADS);
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger winners = new AtomicInteger();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    start.await();
+                    boolean admitted = composite
+                            ? store.putIfAbsent(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), WINDOW_MILLIS)
+                            : store.putIfAbsent(nonce, WINDOW_MILLIS);
+                    if (admitted) {
+                        winners.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            ready.await();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(1, winners.get(), "Round " + round + " of " + store.getClass().getSimpleName());
+        }
+    }
+}
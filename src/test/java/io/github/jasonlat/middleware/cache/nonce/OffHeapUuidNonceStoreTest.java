@@ -0,0 +1,151 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 堆外 UUID 请求ID存储测试
+ * 容量 1024 时每段 64 个槽位，与最大探测次数相同，探测会绕回段首并覆盖整段
+ *
+ * @author jasonlat
+ */
+class OffHeapUuidNonceStoreTest {
+
+    private static final long CAPACITY = 1024L;
+    private static final long WINDOW_MILLIS = 60000L;
+
+    @Test
+    void rejectsDuplicateUuid() {
+        OffHeapUuidNonceStore store = new OffHeapUuidNonceStore(CAPACITY, 1000);
+        String nonce = UUID.randomUUID().toString();
+        assertTrue(store.putIfAbsent(nonce, WINDOW_MILLIS));
+        assertFalse(store.putIfAbsent(nonce, WINDOW_MILLIS));
+        // 大小写不同的同一 UUID 解析为相同的 128 位
+        assertFalse(store.putIfAbsent(nonce.toUpperCase(), WINDOW_MILLIS));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void separatesScopesAndCompositeKeys() {
+        OffHeapUuidNonceStore store = new OffHeapUuidNonceStore(CAPACITY, 1000);
+        UUID uuid = UUID.randomUUID();
+        String nonce = uuid.toString();
+        assertTrue(store.putIfAbsent(nonce, null, WINDOW_MILLIS));
+        assertTrue(store.putIfAbsent(nonce, "10.0.0.1", WINDOW_MILLIS));
+        assertTrue(store.putIfAbsent(nonce, "10.0.0.2", WINDOW_MILLIS));
+        assertFalse(store.putIfAbsent(nonce, "10.0.0.1", WINDOW_MILLIS));
+        assertTrue(store.putIfAbsent(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), WINDOW_MILLIS));
+        assertFalse(store.putIfAbsent(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), WINDOW_MILLIS));
+    }
+
+    @Test
+    void fallsBackForNonUuid() {
+        OffHeapUuidNonceStore store = new OffHeapUuidNonceStore(CAPACITY, 1000);
+        assertTrue(store.putIfAbsent("request-1", WINDOW_MILLIS));
+        assertFalse(store.putIfAbsent("request-1", WINDOW_MILLIS));
+        // 长度相同但不是合法 UUID
+        String almostUuid = UUID.randomUUID().toString().replace('-', 'x');
+        assertTrue(store.putIfAbsent(almostUuid, WINDOW_MILLIS));
+        assertTrue(store.getStats().contains("Non-UUID: 3"), store.getStats());
+    }
+
+    @Test
+    void fillsEverySlotBeforeOverflowing() {
+        OffHeapUuidNonceStore store = new OffHeapUuidNonceStore(CAPACITY, 10000);
+        List<String> nonces = randomUuids(2000);
+        for (String nonce : nonces) {
+            assertTrue(store.putIfAbsent(nonce, WINDOW_MILLIS));
+        }
+        // 每段的探测覆盖整段（含绕回），表满之后才会溢出
+        assertEquals(2000 - CAPACITY, store.getOverflowCount());
+        assertEquals(2000, store.size());
+        for (String nonce : nonces) {
+            assertFalse(store.putIfAbsent(nonce, WINDOW_MILLIS));
+        }
+    }
+
+    @Test
+    void writesToTableAgainOnceSlotsExpire() throws InterruptedException {
+        OffHeapUuidNonceStore store = new OffHeapUuidNonceStore(CAPACITY, 10000);
+        for (String nonce : randomUuids(2000)) {
+            store.putIfAbsent(nonce, 100L);
+        }
+        String overflowed = UUID.randomUUID().toString();
+        assertTrue(store.putIfAbsent(overflowed, WINDOW_MILLIS));
+        long overflows = store.getOverflowCount();
+        assertTrue(overflows > 0);
+
+        Thread.sleep(200L);
+        // 过期槽位可复用，新请求写入表而不是溢出存储
+        for (String nonce : randomUuids(500)) {
+            assertTrue(store.putIfAbsent(nonce, WINDOW_MILLIS));
+        }
+        assertEquals(overflows, store.getOverflowCount());
+        // 溢出存储中的 nonce 在表中有空位后依然判定为重复
+        assertFalse(store.putIfAbsent(overflowed, WINDOW_MILLIS));
+    }
+
+    @Test
+    void expiresEntriesAfterWindow() throws InterruptedException {
+        OffHeapUuidNonceStore store = new OffHeapUuidNonceStore(CAPACITY, 1000);
+        String nonce = UUID.randomUUID().toString();
+        assertTrue(store.putIfAbsent(nonce, 50L));
+        assertFalse(store.putIfAbsent(nonce, 50L));
+        Thread.sleep(100L);
+        assertEquals(0, store.size());
+        assertTrue(store.putIfAbsent(nonce, 50L));
+    }
+
+    @Test
+    void restoresFromSnapshot() {
+        OffHeapUuidNonceStore store = new OffHeapUuidNonceStore(CAPACITY, 10000);
+        List<String> nonces = randomUuids(1500);
+        for (String nonce : nonces) {
+            store.putIfAbsent(nonce, "10.0.0.1", WINDOW_MILLIS);
+        }
+        store.putIfAbsent("request-1", WINDOW_MILLIS);
+        long now = System.currentTimeMillis();
+        SnapshotOutput out = new SnapshotOutput(64);
+        store.writeSnapshot(out, now);
+
+        OffHeapUuidNonceStore restored = new OffHeapUuidNonceStore(CAPACITY, 10000);
+        assertEquals(1501, restored.restoreSnapshot(out.toByteBuffer(), now));
+        for (String nonce : nonces) {
+            assertFalse(restored.putIfAbsent(nonce, "10.0.0.1", WINDOW_MILLIS));
+        }
+        assertFalse(restored.putIfAbsent("request-1", WINDOW_MILLIS));
+    }
+
+    @Test
+    void clearsAllEntries() {
+        OffHeapUuidNonceStore store = new OffHeapUuidNonceStore(CAPACITY, 10000);
+        List<String> nonces = randomUuids(2000);
+        nonces.forEach(nonce -> store.putIfAbsent(nonce, WINDOW_MILLIS));
+        store.clear();
+        assertEquals(0, store.size());
+        assertTrue(store.putIfAbsent(nonces.get(0), WINDOW_MILLIS));
+    }
+
+    @Test
+    void roundsCapacityAndRejectsOversize() {
+        assertEquals(CAPACITY * OffHeapUuidNonceStore.SLOT_BYTES, new OffHeapUuidNonceStore(1000, 10).getOffHeapBytes());
+        // 每段 2^25 + 1 个槽位本身不超出 int 偏移，但取整为 2^26 后超出
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapUuidNonceStore(OffHeapUuidNonceStore.MAX_CAPACITY + 16, 10));
+    }
+
+    private static List<String> randomUuids(int count) {
+        List<String> nonces = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            nonces.add(UUID.randomUUID().toString());
+        }
+        return nonces;
+    }
+}
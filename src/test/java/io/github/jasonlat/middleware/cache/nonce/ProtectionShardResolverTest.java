@@ -0,0 +1,136 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 防护存储分片解析测试
+ *
+ * @author jasonlat
+ */
+class ProtectionShardResolverTest {
+
+    @Test
+    void separatesOverloadedMethodsByDefault() throws NoSuchMethodException {
+        ProtectionShardResolver resolver = newResolver("", 10);
+        Method byId = Endpoints.class.getDeclaredMethod("query", String.class);
+        Method byIds = Endpoints.class.getDeclaredMethod("query", long[].class, int.class);
+        String route = resolver.resolve(byId, "");
+        assertEquals(Endpoints.class.getName() + "#query(java.lang.String)", route);
+        assertEquals(Endpoints.class.getName() + "#query(long[],int)",
+                resolver.resolve(byIds, null));
+        assertNotEquals(route, resolver.resolve(byIds, null));
+    }
+
+    @Test
+    void prefersAnnotatedShardName() throws NoSuchMethodException {
+        ProtectionShardResolver resolver = newResolver("", 10);
+        Method method = Endpoints.class.getDeclaredMethod("query", String.class);
+        assertEquals("payment", resolver.resolve(method, "payment"));
+    }
+
+    @Test
+    void sharesOneShardAcrossTenants() throws NoSuchMethodException {
+        ProtectionShardResolver resolver = newResolver("X-Tenant-ID", 2, 10, () -> 0L);
+        Method method = Endpoints.class.getDeclaredMethod("query", String.class);
+        // 租户请求头未签名，不参与存储划分，更换租户值的重放请求仍落入同一存储
+        String shard = resolver.resolve(method, "payment");
+        assertEquals("payment", shard);
+        assertTrue(resolver.tryAcquireTenantQuota(tenant("a"), shard, 1000));
+        assertTrue(resolver.tryAcquireTenantQuota(tenant("b"), shard, 1000));
+        assertEquals("payment", resolver.resolve(method, "payment"));
+    }
+
+    @Test
+    void limitsEntriesPerTenantWithinWindow() throws NoSuchMethodException {
+        AtomicLong now = new AtomicLong(1000);
+        ProtectionShardResolver resolver = newResolver("X-Tenant-ID", 10, 2, now::get);
+        String shard = resolver.resolve(Endpoints.class.getDeclaredMethod("query", String.class), "payment");
+        assertTrue(resolver.tryAcquireTenantQuota(tenant("a"), shard, 1000));
+        assertTrue(resolver.tryAcquireTenantQuota(tenant("a"), shard, 1000));
+        assertFalse(resolver.tryAcquireTenantQuota(tenant("a"), shard, 1000));
+        // 其他租户不受影响
+        assertTrue(resolver.tryAcquireTenantQuota(tenant("b"), shard, 1000));
+        assertEquals(1, resolver.getQuotaRejectedCount());
+
+        now.addAndGet(1000);
+        assertTrue(resolver.tryAcquireTenantQuota(tenant("a"), shard, 1000));
+    }
+
+    @Test
+    void sharesOverflowQuotaBeyondLimit() throws NoSuchMethodException {
+        ProtectionShardResolver resolver = newResolver("X-Tenant-ID", 2, 1, () -> 0L);
+        String shard = resolver.resolve(Endpoints.class.getDeclaredMethod("query", String.class), "payment");
+        assertTrue(resolver.tryAcquireTenantQuota(tenant("a"), shard, 1000));
+        assertTrue(resolver.tryAcquireTenantQuota(tenant("b"), shard, 1000));
+        // 超出配额数上限的新租户归入溢出配额
+        assertTrue(resolver.tryAcquireTenantQuota(tenant("c"), shard, 1000));
+        assertFalse(resolver.tryAcquireTenantQuota(tenant("d"), shard, 1000));
+        // 非法租户值与缺失的请求头同样归入溢出配额
+        assertFalse(resolver.tryAcquireTenantQuota(tenant("a:b"), shard, 1000));
+        assertFalse(resolver.tryAcquireTenantQuota(new MockHttpServletRequest(), shard, 1000));
+        assertEquals(3, resolver.getTenantShardCount());
+        assertEquals(2, resolver.getOverflowCount());
+    }
+
+    @Test
+    void skipsQuotaWithoutTenantHeaderOrLimit() throws NoSuchMethodException {
+        Method method = Endpoints.class.getDeclaredMethod("query", String.class);
+        ProtectionShardResolver noHeader = newResolver("", 10, 1, () -> 0L);
+        ProtectionShardResolver noLimit = newResolver("X-Tenant-ID", 10, 0, () -> 0L);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(noHeader.tryAcquireTenantQuota(tenant("a"), noHeader.resolve(method, ""), 1000));
+            assertTrue(noLimit.tryAcquireTenantQuota(tenant("a"), noLimit.resolve(method, ""), 1000));
+        }
+        assertEquals(0, noHeader.getTenantShardCount());
+        assertEquals(0, noLimit.getTenantShardCount());
+    }
+
+    @Test
+    void returnsNullWhenDisabled() throws NoSuchMethodException {
+        ProtectionShardResolver resolver = new ProtectionShardResolver(new EccAutoConfigProperties());
+        Method method = Endpoints.class.getDeclaredMethod("query", String.class);
+        assertNull(resolver.resolve(method, "payment"));
+        assertEquals(100, resolver.maximumSize(null, 100));
+    }
+
+    private static ProtectionShardResolver newResolver(String tenantHeader, int maxShards) {
+        return newResolver(tenantHeader, maxShards, 0, System::currentTimeMillis);
+    }
+
+    private static ProtectionShardResolver newResolver(String tenantHeader, int maxShards, long tenantMaxEntries, LongSupplier clock) {
+        EccAutoConfigProperties properties = new EccAutoConfigProperties();
+        properties.getProtectionShard().setEnabled(true);
+        properties.getProtectionShard().setTenantHeader(tenantHeader);
+        properties.getProtectionShard().setMaxShards(maxShards);
+        properties.getProtectionShard().setTenantMaxEntries(tenantMaxEntries);
+        return new ProtectionShardResolver(properties, clock);
+    }
+
+    private static MockHttpServletRequest tenant(String tenant) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-Tenant-ID", tenant);
+        return request;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Endpoints {
+
+        void query(String id) {
+        }
+
+        void query(long[] ids, int limit) {
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 轮换布隆过滤器 nonce 存储测试
+ *
+ * @author jasonlat
+ */
+class RotatingBloomNonceStoreTest {
+
+    private static final long WINDOW_MILLIS = 300L;
+    private static final long EXPECTED_INSERTIONS = 10000L;
+    private static final double FPP = 0.0001;
+
+    @Test
+    void rejectsDuplicateWithinWindow() {
+        RotatingBloomNonceStore store = new RotatingBloomNonceStore(WINDOW_MILLIS, EXPECTED_INSERTIONS, FPP);
+        assertTrue(store.putIfAbsent("a", WINDOW_MILLIS));
+        assertFalse(store.putIfAbsent("a", WINDOW_MILLIS));
+        assertTrue(store.putIfAbsent("b", WINDOW_MILLIS));
+    }
+
+    @Test
+    void keepsPreviousWindowAfterRotation() throws InterruptedException {
+        RotatingBloomNonceStore store = new RotatingBloomNonceStore(WINDOW_MILLIS, EXPECTED_INSERTIONS, FPP);
+        assertTrue(store.putIfAbsent("a", WINDOW_MILLIS));
+        Thread.sleep(WINDOW_MILLIS + 50L);
+        // 轮换后 "a" 位于上一窗口的过滤器中
+        assertTrue(store.putIfAbsent("b", WINDOW_MILLIS));
+        assertTrue(store.getStats().contains("Rotations: 1"), store.getStats());
+        assertFalse(store.putIfAbsent("a", WINDOW_MILLIS));
+    }
+
+    @Test
+    void forgetsAfterTwoRotations() throws InterruptedException {
+        RotatingBloomNonceStore store = new RotatingBloomNonceStore(WINDOW_MILLIS, EXPECTED_INSERTIONS, FPP);
+        assertTrue(store.putIfAbsent("a", WINDOW_MILLIS));
+        Thread.sleep(WINDOW_MILLIS + 50L);
+        assertTrue(store.putIfAbsent("b", WINDOW_MILLIS));
+        Thread.sleep(WINDOW_MILLIS + 50L);
+        assertTrue(store.putIfAbsent("a", WINDOW_MILLIS));
+    }
+
+    @Test
+    void dropsBothFiltersAfterIdlePeriod() throws InterruptedException {
+        RotatingBloomNonceStore store = new RotatingBloomNonceStore(WINDOW_MILLIS, EXPECTED_INSERTIONS, FPP);
+        assertTrue(store.putIfAbsent("a", WINDOW_MILLIS));
+        // 空闲超过两个窗口，下一次写入时两个过滤器都被替换
+        Thread.sleep(2 * WINDOW_MILLIS + 50L);
+        assertTrue(store.putIfAbsent("a", WINDOW_MILLIS));
+    }
+
+    @Test
+    void staysNearTargetFalsePositiveRate() {
+        RotatingBloomNonceStore store = new RotatingBloomNonceStore(60000L, EXPECTED_INSERTIONS, 0.01);
+        int falsePositives = 0;
+        for (int i = 0; i < EXPECTED_INSERTIONS; i++) {
+            if (!store.putIfAbsent("nonce-" + i, 60000L)) {
+                falsePositives++;
+            }
+        }
+        // 逐个写入时的累计误判远低于满载时的目标误判率
+        assertTrue(falsePositives < EXPECTED_INSERTIONS * 0.01, "False positives: " + falsePositives);
+        assertTrue(store.getEstimatedFpp() < 0.02, "Estimated FPP: " + store.getEstimatedFpp());
+        assertTrue(store.getFillRatio() > 0.9, "Fill ratio: " + store.getFillRatio());
+    }
+
+    @Test
+    void restoresFromSnapshot() {
+        RotatingBloomNonceStore store = new RotatingBloomNonceStore(60000L, EXPECTED_INSERTIONS, FPP);
+        store.putIfAbsent("a", 60000L);
+        long now = System.currentTimeMillis();
+        SnapshotOutput out = new SnapshotOutput(64);
+        store.writeSnapshot(out, now);
+
+        RotatingBloomNonceStore restored = new RotatingBloomNonceStore(60000L, EXPECTED_INSERTIONS, FPP);
+        assertEquals(1, restored.restoreSnapshot(out.toByteBuffer(), now));
+        assertFalse(restored.putIfAbsent("a", 60000L));
+        assertTrue(restored.putIfAbsent("b", 60000L));
+    }
+
+    @Test
+    void ignoresIncompatibleSnapshot() {
+        RotatingBloomNonceStore store = new RotatingBloomNonceStore(60000L, EXPECTED_INSERTIONS, FPP);
+        store.putIfAbsent("a", 60000L);
+        long now = System.currentTimeMillis();
+        SnapshotOutput out = new SnapshotOutput(64);
+        store.writeSnapshot(out, now);
+
+        RotatingBloomNonceStore restored = new RotatingBloomNonceStore(60000L, EXPECTED_INSERTIONS * 10, FPP);
+        assertEquals(0, restored.restoreSnapshot(out.toByteBuffer(), now));
+        assertTrue(restored.putIfAbsent("a", 60000L));
+    }
+
+    @Test
+    void admitsConcurrentDuplicateOnceAtRotation() throws Exception {
+        // 线程 A 读取时钟后挂起（读到的仍是轮换前的时间），期间时钟越过轮换点，线程 B 提交同一 nonce
+        AtomicLong now = new AtomicLong(0L);
+        CountDownLatch parked = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        RotatingBloomNonceStore store = new RotatingBloomNonceStore(100L, EXPECTED_INSERTIONS, FPP, () -> {
+            long value = now.get();
+            if (Thread.currentThread().getName().equals("nonce-a") && parked.getCount() > 0) {
+                parked.countDown();
+                awaitQuietly(resume);
+            }
+            return value;
+        });
+        // 先完成一次轮换，使上一窗口与当前窗口均为已使用的过滤器
+        now.set(100L);
+        assertTrue(store.putIfAbsent("warm-up", 100L));
+
+        AtomicInteger accepted = new AtomicInteger();
+        Thread a = new Thread(() -> {
+            if (store.putIfAbsent("nonce", 100L)) {
+                accepted.incrementAndGet();
+            }
+        }, "nonce-a");
+        Thread b = new Thread(() -> {
+            if (store.putIfAbsent("nonce", 100L)) {
+                accepted.incrementAndGet();
+            }
+        }, "nonce-b");
+        a.start();
+        assertTrue(parked.await(5, TimeUnit.SECONDS));
+        now.set(200L);
+        b.start();
+        // B 可能在锁上等待 A，给它完成的机会后再放行 A
+        b.join(200L);
+        resume.countDown();
+        a.join(5000L);
+        b.join(5000L);
+        assertEquals(1, accepted.get());
+        assertFalse(store.putIfAbsent("nonce", 100L));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void rejectsInvalidWindow() {
+        assertThrows(IllegalArgumentException.class, () -> new RotatingBloomNonceStore(0L, EXPECTED_INSERTIONS, FPP));
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import org.junit.jupiter.api.Test;
+
+import static io.github.jasonlat.middleware.cache.nonce.SequenceWindowStore.Result.ACCEPTED;
+import static io.github.jasonlat.middleware.cache.nonce.SequenceWindowStore.Result.OUTDATED;
+import static io.github.jasonlat.middleware.cache.nonce.SequenceWindowStore.Result.REPLAYED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 滑动窗口序列号存储测试
+ *
+ * @author jasonlat
+ */
+class SequenceWindowStoreTest {
+
+    private static final int WINDOW_SIZE = 128;
+
+    @Test
+    void rejectsRepeatedSequence() {
+        SequenceWindowStore store = new SequenceWindowStore(100, 60);
+        assertEquals(ACCEPTED, store.accept("user", 1, WINDOW_SIZE));
+        assertEquals(REPLAYED, store.accept("user", 1, WINDOW_SIZE));
+        assertEquals(ACCEPTED, store.accept("user", 2, WINDOW_SIZE));
+    }
+
+    @Test
+    void acceptsOutOfOrderWithinWindow() {
+        SequenceWindowStore store = new SequenceWindowStore(100, 60);
+        assertEquals(ACCEPTED, store.accept("user", 10, WINDOW_SIZE));
+        assertEquals(ACCEPTED, store.accept("user", 5, WINDOW_SIZE));
+        assertEquals(REPLAYED, store.accept("user", 5, WINDOW_SIZE));
+        assertEquals(ACCEPTED, store.accept("user", 9, WINDOW_SIZE));
+    }
+
+    @Test
+    void rejectsSequenceBehindWindow() {
+        SequenceWindowStore store = new SequenceWindowStore(100, 60);
+        assertEquals(ACCEPTED, store.accept("user", 200, WINDOW_SIZE));
+        assertEquals(OUTDATED, store.accept("user", 200 - WINDOW_SIZE, WINDOW_SIZE));
+        assertEquals(ACCEPTED, store.accept("user", 200 - WINDOW_SIZE + 1, WINDOW_SIZE));
+    }
+
+    @Test
+    void shiftsBitmapAcrossWordBoundaries() {
+        // 位于第一个字末位、第二个字首位、跨字移位与整窗口清空
+        for (long distance : new long[]{1, 63, 64, 65, 127, 128, 1000}) {
+            SequenceWindowStore store = new SequenceWindowStore(100, 60);
+            long base = 1000;
+            assertEquals(ACCEPTED, store.accept("user", base, WINDOW_SIZE));
+            assertEquals(ACCEPTED, store.accept("user", base + distance, WINDOW_SIZE));
+            assertEquals(distance < WINDOW_SIZE ? REPLAYED : OUTDATED, store.accept("user", base, WINDOW_SIZE),
+                    "Distance " + distance);
+            if (distance > 1 && distance < WINDOW_SIZE) {
+                // 移位没有把已记录位带到相邻序列号上
+                assertEquals(ACCEPTED, store.accept("user", base + 1, WINDOW_SIZE), "Distance " + distance);
+            }
+        }
+    }
+
+    @Test
+    void keepsBitsThroughSuccessiveShifts() {
+        SequenceWindowStore store = new SequenceWindowStore(100, 60);
+        assertEquals(ACCEPTED, store.accept("user", 1, WINDOW_SIZE));
+        assertEquals(ACCEPTED, store.accept("user", 64, WINDOW_SIZE));
+        assertEquals(ACCEPTED, store.accept("user", 128, WINDOW_SIZE));
+        // 1 与 64 分别位于偏移 127 与 64，均跨过了字边界
+        assertEquals(REPLAYED, store.accept("user", 1, WINDOW_SIZE));
+        assertEquals(REPLAYED, store.accept("user", 64, WINDOW_SIZE));
+        assertEquals(ACCEPTED, store.accept("user", 2, WINDOW_SIZE));
+        assertEquals(ACCEPTED, store.accept("user", 193, WINDOW_SIZE));
+        assertEquals(REPLAYED, store.accept("user", 128, WINDOW_SIZE));
+        assertEquals(OUTDATED, store.accept("user", 64, WINDOW_SIZE));
+        assertEquals(ACCEPTED, store.accept("user", 66, WINDOW_SIZE));
+    }
+
+    @Test
+    void normalizesWindowSize() {
+        SequenceWindowStore store = new SequenceWindowStore(100, 60);
+        // 10 取整为最小 64
+        store.accept("small", 100, 10);
+        assertEquals(OUTDATED, store.accept("small", 36, 10));
+        assertEquals(ACCEPTED, store.accept("small", 37, 10));
+        // 100 按 64 取整为 128
+        store.accept("rounded", 200, 100);
+        assertEquals(OUTDATED, store.accept("rounded", 72, 100));
+        assertEquals(ACCEPTED, store.accept("rounded", 73, 100));
+        // 超过上限取 1024
+        store.accept("large", 2000, 5000);
+        assertEquals(OUTDATED, store.accept("large", 976, 5000));
+        assertEquals(ACCEPTED, store.accept("large", 977, 5000));
+    }
+
+    @Test
+    void rejectsNonPositiveSequence() {
+        SequenceWindowStore store = new SequenceWindowStore(100, 60);
+        assertEquals(OUTDATED, store.accept("user", 0, WINDOW_SIZE));
+        assertEquals(OUTDATED, store.accept("user", -1, WINDOW_SIZE));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void separatesUsers() {
+        SequenceWindowStore store = new SequenceWindowStore(100, 60);
+        assertEquals(ACCEPTED, store.accept("alice", 1000, WINDOW_SIZE));
+        assertEquals(ACCEPTED, store.accept("bob", 1, WINDOW_SIZE));
+        assertEquals(ACCEPTED, store.accept("alice", 999, WINDOW_SIZE));
+    }
+
+    @Test
+    void restoresFromSnapshot() {
+        SequenceWindowStore store = new SequenceWindowStore(100, 60);
+        store.accept("alice", 100, WINDOW_SIZE);
+        store.accept("alice", 30, WINDOW_SIZE);
+        store.accept("bob", 5, 64);
+        SnapshotOutput out = new SnapshotOutput(64);
+        store.writeSnapshot(out, System.currentTimeMillis());
+
+        SequenceWindowStore restored = new SequenceWindowStore(100, 60);
+        assertEquals(2, restored.restoreSnapshot(out.toByteBuffer(), System.currentTimeMillis()));
+        assertEquals(REPLAYED, restored.accept("alice", 100, WINDOW_SIZE));
+        assertEquals(REPLAYED, restored.accept("alice", 30, WINDOW_SIZE));
+        assertEquals(ACCEPTED, restored.accept("alice", 31, WINDOW_SIZE));
+        assertEquals(REPLAYED, restored.accept("bob", 5, 64));
+        // 恢复后保留原窗口大小，而不是按本次调用的窗口大小重建
+        assertEquals(ACCEPTED, restored.accept("bob", 70, WINDOW_SIZE));
+        assertEquals(OUTDATED, restored.accept("bob", 6, WINDOW_SIZE));
+    }
+}
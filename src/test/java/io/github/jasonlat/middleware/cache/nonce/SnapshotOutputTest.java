@@ -0,0 +1,77 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 快照输出测试
+ * 文件模式使用 64 字节缓冲区，回填位置大多已刷入文件
+ *
+ * @author jasonlat
+ */
+class SnapshotOutputTest {
+
+    @Test
+    void streamsToChannelAndBackfillsFlushedPositions() throws IOException {
+        Path file = Files.createTempFile("snapshot-output", ".bin");
+        try {
+            byte[] payload = new byte[1000];
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] = (byte) i;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                SnapshotOutput out = new SnapshotOutput(channel, 64);
+                writeSample(out, payload);
+                out.flush();
+                assertEquals(channel.size(), out.position());
+            }
+
+            SnapshotOutput expected = new SnapshotOutput(64);
+            writeSample(expected, payload);
+            ByteBuffer expectedBytes = expected.toByteBuffer();
+            byte[] expectedArray = new byte[expectedBytes.remaining()];
+            expectedBytes.get(expectedArray);
+            assertArrayEquals(expectedArray, Files.readAllBytes(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void readsBackWrittenValues() {
+        SnapshotOutput out = new SnapshotOutput(64);
+        long countPosition = out.position();
+        out.putInt(0).putString("key").putBytes(new byte[]{1, 2, 3}).putLong(42L);
+        out.putInt(countPosition, 7);
+
+        ByteBuffer in = out.toByteBuffer();
+        assertEquals(7, in.getInt());
+        assertEquals("key", SnapshotOutput.getString(in));
+        assertArrayEquals(new byte[]{1, 2, 3}, SnapshotOutput.getBytes(in));
+        assertEquals(42L, in.getLong());
+    }
+
+    private static void writeSample(SnapshotOutput out, byte[] payload) throws IOException {
+        long countPosition = out.position();
+        out.putInt(0);
+        for (int i = 0; i < 20; i++) {
+            out.putString("section-" + i).putLong(i);
+        }
+        long lengthPosition = out.position();
+        out.putInt(0);
+        // 大于缓冲区的写入分块刷出，流视图与直接写入格式一致
+        out.asOutputStream().write(payload);
+        out.putRaw(ByteBuffer.wrap(payload));
+        out.putInt(lengthPosition, (int) (out.position() - lengthPosition - 4));
+        out.putInt(countPosition, 20);
+    }
+}
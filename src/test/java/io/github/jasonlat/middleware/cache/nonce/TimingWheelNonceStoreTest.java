@@ -0,0 +1,96 @@
+package io.github.jasonlat.middleware.cache.nonce;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 时间轮 nonce 存储测试
+ *
+ * @author jasonlat
+ */
+class TimingWheelNonceStoreTest {
+
+    /**
+     * 窗口 1000 ms、3 个桶：桶宽 500 ms，条目保留 1000 ~ 1500 ms
+     */
+    private static final long WINDOW_MILLIS = 1000L;
+    private static final int BUCKETS = 3;
+
+    @Test
+    void rejectsDuplicateWithinWindow() {
+        TimingWheelNonceStore store = new TimingWheelNonceStore(WINDOW_MILLIS, BUCKETS);
+        assertTrue(store.putIfAbsent("a", WINDOW_MILLIS));
+        assertFalse(store.putIfAbsent("a", WINDOW_MILLIS));
+        assertTrue(store.putIfAbsent("b", WINDOW_MILLIS));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void keepsEntryAcrossBucketRotation() throws InterruptedException {
+        TimingWheelNonceStore store = new TimingWheelNonceStore(WINDOW_MILLIS, BUCKETS);
+        assertTrue(store.putIfAbsent("a", WINDOW_MILLIS));
+        // 已进入下一个桶，旧桶仍在存活范围内
+        Thread.sleep(600L);
+        assertFalse(store.putIfAbsent("a", WINDOW_MILLIS));
+        assertTrue(store.getStats().contains("Rotations: 2"), store.getStats());
+    }
+
+    @Test
+    void dropsEntryAfterAllBucketsRotated() throws InterruptedException {
+        TimingWheelNonceStore store = new TimingWheelNonceStore(WINDOW_MILLIS, BUCKETS);
+        assertTrue(store.putIfAbsent("a", WINDOW_MILLIS));
+        Thread.sleep(WINDOW_MILLIS + WINDOW_MILLIS / (BUCKETS - 1) + 100L);
+        assertEquals(0, store.size());
+        assertTrue(store.putIfAbsent("a", WINDOW_MILLIS));
+    }
+
+    @Test
+    void reusesSlotOfExpiredBucket() throws InterruptedException {
+        // 2 个桶：每个槽位每隔一个桶宽就被新桶替换
+        TimingWheelNonceStore store = new TimingWheelNonceStore(200L, 2);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(store.putIfAbsent("n" + i, 200L));
+            Thread.sleep(210L);
+        }
+        assertTrue(store.size() <= 2, "Only the two live buckets are counted, got " + store.size());
+    }
+
+    @Test
+    void restoresFromSnapshot() {
+        TimingWheelNonceStore store = new TimingWheelNonceStore(WINDOW_MILLIS, BUCKETS);
+        store.putIfAbsent("a", WINDOW_MILLIS);
+        store.putIfAbsent("b", WINDOW_MILLIS);
+        long now = System.currentTimeMillis();
+        SnapshotOutput out = new SnapshotOutput(64);
+        store.writeSnapshot(out, now);
+
+        TimingWheelNonceStore restored = new TimingWheelNonceStore(WINDOW_MILLIS, BUCKETS);
+        assertEquals(2, restored.restoreSnapshot(out.toByteBuffer(), now));
+        assertFalse(restored.putIfAbsent("a", WINDOW_MILLIS));
+        assertFalse(restored.putIfAbsent("b", WINDOW_MILLIS));
+        assertTrue(restored.putIfAbsent("c", WINDOW_MILLIS));
+    }
+
+    @Test
+    void dropsExpiredBucketsOnRestore() {
+        TimingWheelNonceStore store = new TimingWheelNonceStore(WINDOW_MILLIS, BUCKETS);
+        store.putIfAbsent("a", WINDOW_MILLIS);
+        long now = System.currentTimeMillis();
+        SnapshotOutput out = new SnapshotOutput(64);
+        store.writeSnapshot(out, now);
+
+        TimingWheelNonceStore restored = new TimingWheelNonceStore(WINDOW_MILLIS, BUCKETS);
+        assertEquals(0, restored.restoreSnapshot(out.toByteBuffer(), now + 2 * WINDOW_MILLIS));
+        assertTrue(restored.putIfAbsent("a", WINDOW_MILLIS));
+    }
+
+    @Test
+    void rejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheelNonceStore(0L, BUCKETS));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheelNonceStore(WINDOW_MILLIS, 1));
+    }
+}
@@ -0,0 +1,223 @@
+package io.github.jasonlat.middleware.cache.userkey;
+
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用户公钥二级存储测试
+ * 容量 512 时每段 32 个槽位，与最大探测次数相同
+ *
+ * @author jasonlat
+ */
+class MappedUserKeyStoreTest {
+
+    private static final long CAPACITY = 512L;
+
+    @Test
+    void storesAndRemovesKeys() throws IOException {
+        MappedUserKeyStore store = newStore(newPath(), CAPACITY);
+        UserPublicData alice = key(1);
+        store.put("alice", alice);
+        assertEquals(alice, store.get("alice"));
+        assertNull(store.get("bob"));
+
+        store.remove("alice");
+        assertNull(store.get("alice"));
+        // 已删除的槽位可复用
+        store.put("alice", key(2));
+        assertEquals(key(2), store.get("alice"));
+        store.destroy();
+    }
+
+    @Test
+    void padsShortCoordinatesAndSkipsInvalid() throws IOException {
+        MappedUserKeyStore store = newStore(newPath(), CAPACITY);
+        store.put("short", new UserPublicData("abc", "1"));
+        UserPublicData stored = store.get("short");
+        assertEquals(repeat('0', 61) + "abc", stored.getX());
+        assertEquals(repeat('0', 63) + "1", stored.getY());
+
+        store.put("invalid", new UserPublicData("xyz", "1"));
+        store.put("long", new UserPublicData(repeat('a', 65), "1"));
+        assertNull(store.get("invalid"));
+        assertNull(store.get("long"));
+        assertEquals(2L, store.getMetrics().get("skipped"));
+        store.destroy();
+    }
+
+    @Test
+    void keepsKeysAcrossReopen() throws IOException {
+        Path path = newPath();
+        MappedUserKeyStore store = newStore(path, CAPACITY);
+        for (int i = 0; i < 100; i++) {
+            store.put("user-" + i, key(i));
+        }
+        store.remove("user-0");
+        store.destroy();
+
+        MappedUserKeyStore reopened = newStore(path, CAPACITY);
+        assertNull(reopened.get("user-0"));
+        for (int i = 1; i < 100; i++) {
+            assertEquals(key(i), reopened.get("user-" + i), "user-" + i);
+        }
+        reopened.destroy();
+    }
+
+    @Test
+    void returnsStoredLoadTime() throws IOException {
+        Path path = newPath();
+        MappedUserKeyStore store = newStore(path, CAPACITY);
+        long before = System.currentTimeMillis();
+        store.put("alice", key(1));
+        long after = System.currentTimeMillis();
+        store.destroy();
+
+        // 重新打开后返回的是写入时间，而不是读取时间
+        MappedUserKeyStore reopened = newStore(path, CAPACITY);
+        MappedUserKeyStore.Entry entry = reopened.getEntry("alice");
+        assertEquals(key(1), entry.getUserData());
+        assertTrue(entry.getLoadTime() >= before && entry.getLoadTime() <= after, "Load time: " + entry.getLoadTime());
+        assertNull(reopened.getEntry("bob"));
+        reopened.destroy();
+    }
+
+    @Test
+    void recreatesFileWhenCapacityChanges() throws IOException {
+        Path path = newPath();
+        MappedUserKeyStore store = newStore(path, CAPACITY);
+        store.put("alice", key(1));
+        store.destroy();
+
+        MappedUserKeyStore resized = newStore(path, CAPACITY * 4);
+        assertNull(resized.get("alice"));
+        assertEquals(CAPACITY * 4, resized.getMetrics().get("slots"));
+        assertEquals(Files.size(path), resized.getMetrics().get("fileBytes"));
+        resized.destroy();
+    }
+
+    @Test
+    void evictsOldestWhenProbeRangeIsFull() throws IOException {
+        MappedUserKeyStore store = newStore(newPath(), CAPACITY);
+        int users = (int) CAPACITY * 2;
+        for (int i = 0; i < users; i++) {
+            store.put("user-" + i, key(i));
+        }
+        long evictions = (Long) store.getMetrics().get("evictions");
+        assertTrue(evictions >= users - CAPACITY, "Evictions: " + evictions);
+        // 最后写入的用户不会被覆盖
+        assertEquals(key(users - 1), store.get("user-" + (users - 1)));
+        int present = 0;
+        for (int i = 0; i < users; i++) {
+            if (store.get("user-" + i) != null) {
+                present++;
+            }
+        }
+        assertEquals(CAPACITY, present);
+        store.destroy();
+    }
+
+    @Test
+    void discardsRecordWithBadChecksum() throws IOException {
+        Path path = newPath();
+        MappedUserKeyStore store = newStore(path, CAPACITY);
+        UserPublicData alice = key(7);
+        store.put("alice", alice);
+        store.destroy();
+
+        // 模拟只有部分页面落盘：改动记录中的坐标
+        corruptKey(path, 7);
+        MappedUserKeyStore reopened = newStore(path, CAPACITY);
+        assertNull(reopened.get("alice"));
+        assertEquals(1L, reopened.getMetrics().get("corrupted"));
+        reopened.put("alice", alice);
+        assertEquals(alice, reopened.get("alice"));
+        reopened.destroy();
+    }
+
+    @Test
+    void rejectsCapacityBeyondLimit() throws IOException {
+        // 每段 2^24 + 1 个槽位本身不超出 int 偏移，但取整为 2^25 后超出
+        Path path = newPath();
+        assertThrows(IllegalArgumentException.class, () -> newStore(path, MappedUserKeyStore.MAX_CAPACITY + 1));
+    }
+
+    @Test
+    void doesNothingWhenDisabled() {
+        MappedUserKeyStore store = new MappedUserKeyStore(new EccAutoConfigProperties());
+        store.put("alice", key(1));
+        assertNull(store.get("alice"));
+        assertEquals(Boolean.FALSE, store.getMetrics().get("enabled"));
+    }
+
+    private static MappedUserKeyStore newStore(Path path, long capacity) {
+        EccAutoConfigProperties properties = new EccAutoConfigProperties();
+        properties.getUserKeyStore().setEnabled(true);
+        properties.getUserKeyStore().setPath(path.toString());
+        properties.getUserKeyStore().setCapacity(capacity);
+        return new MappedUserKeyStore(properties);
+    }
+
+    private static Path newPath() throws IOException {
+        Path directory = Files.createTempDirectory("ecc-user-keys");
+        directory.toFile().deleteOnExit();
+        Path path = directory.resolve("keys.bin");
+        path.toFile().deleteOnExit();
+        return path;
+    }
+
+    /**
+     * 翻转文件中 {@link #key(int)} 坐标的一个字节（连续 32 个相同字节，不会与哈希混淆）
+     */
+    private static void corruptKey(Path path, int seed) throws IOException {
+        byte marker = (byte) ((seed % 255) + 1);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+            while (content.hasRemaining() && channel.read(content) >= 0) {
+                // 读满为止
+            }
+            int run = 0;
+            for (int position = 0; position < content.capacity(); position++) {
+                run = content.get(position) == marker ? run + 1 : 0;
+                if (run == 32) {
+                    channel.write(ByteBuffer.wrap(new byte[]{(byte) ~marker}), position);
+                    return;
+                }
+            }
+        }
+        throw new IllegalStateException("Key not found");
+    }
+
+    /**
+     * 坐标全部由同一字节组成，字节值不为 0，便于在文件中定位
+     */
+    private static UserPublicData key(int seed) {
+        String hex = String.format("%02x", (seed % 255) + 1);
+        return new UserPublicData(repeat(hex, 32), repeat(hex, 32));
+    }
+
+    private static String repeat(char c, int count) {
+        return repeat(String.valueOf(c), count);
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder(value.length() * count);
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.jasonlat.middleware.context;
+
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 客户端 IP 解析测试
+ * 受信任代理为 10.0.0.0/8 与 fd00::/8
+ *
+ * @author jasonlat
+ */
+class ClientIpResolverTest {
+
+    private static final String PROXY = "10.0.0.1";
+
+    @Test
+    void ignoresHeadersFromUntrustedPeer() {
+        MockHttpServletRequest request = request("203.0.113.9");
+        request.addHeader("X-Forwarded-For", "198.51.100.1");
+        request.addHeader("Forwarded", "for=198.51.100.1");
+        request.addHeader("X-Real-IP", "198.51.100.1");
+        assertEquals("203.0.113.9", newResolver(true).resolve(request));
+    }
+
+    @Test
+    void takesRightmostUntrustedForwardedFor() {
+        MockHttpServletRequest request = request(PROXY);
+        // 最左侧是客户端自行伪造的条目
+        request.addHeader("X-Forwarded-For", "1.1.1.1, 198.51.100.7, 10.0.0.2");
+        assertEquals("198.51.100.7", newResolver(true).resolve(request));
+    }
+
+    @Test
+    void joinsRepeatedForwardedForHeaders() {
+        MockHttpServletRequest request = request(PROXY);
+        request.addHeader("X-Forwarded-For", "1.1.1.1");
+        request.addHeader("X-Forwarded-For", "198.51.100.7:5555, 10.0.0.2");
+        assertEquals("198.51.100.7", newResolver(true).resolve(request));
+    }
+
+    @Test
+    void stripsPortsAndBrackets() {
+        MockHttpServletRequest request = request(PROXY);
+        request.addHeader("X-Forwarded-For", "[2001:db8::7]:443, fd00::1");
+        assertEquals("2001:db8::7", newResolver(true).resolve(request));
+
+        MockHttpServletRequest unbracketed = request(PROXY);
+        unbracketed.addHeader("X-Forwarded-For", "2001:db8::8");
+        assertEquals("2001:db8::8", newResolver(true).resolve(unbracketed));
+    }
+
+    @Test
+    void parsesForwardedHeader() {
+        MockHttpServletRequest request = request(PROXY);
+        request.addHeader("Forwarded",
+                "for=1.1.1.1, for=\"[2001:db8::1]:4711\";proto=https;by=10.0.0.9, For=10.0.0.3;host=\"a,b\"");
+        // 优先于 X-Forwarded-For
+        request.addHeader("X-Forwarded-For", "198.51.100.7");
+        assertEquals("2001:db8::1", newResolver(true).resolve(request));
+    }
+
+    @Test
+    void fallsBackToForwardedForWhenForwardedDisabled() {
+        MockHttpServletRequest request = request(PROXY);
+        request.addHeader("Forwarded", "for=198.51.100.1");
+        request.addHeader("X-Forwarded-For", "198.51.100.7");
+        assertEquals("198.51.100.7", newResolver(false).resolve(request));
+    }
+
+    @Test
+    void stopsAtUnrecognizedHop() {
+        MockHttpServletRequest request = request(PROXY);
+        request.addHeader("Forwarded", "for=198.51.100.1, for=unknown, for=10.0.0.4");
+        // 不越过无法识别的条目，以最后一个受信任代理报告的地址为准
+        assertEquals("10.0.0.4", newResolver(true).resolve(request));
+
+        MockHttpServletRequest obfuscated = request(PROXY);
+        obfuscated.addHeader("X-Forwarded-For", "198.51.100.1, _hidden");
+        assertEquals(PROXY, newResolver(true).resolve(obfuscated));
+    }
+
+    @Test
+    void usesLeftmostWhenWholeChainIsTrusted() {
+        MockHttpServletRequest request = request(PROXY);
+        request.addHeader("X-Forwarded-For", "10.0.0.5, 10.0.0.6");
+        assertEquals("10.0.0.5", newResolver(true).resolve(request));
+    }
+
+    @Test
+    void fallsBackToRealIpHeader() {
+        MockHttpServletRequest request = request(PROXY);
+        request.addHeader("X-Real-IP", " 198.51.100.9 ");
+        assertEquals("198.51.100.9", newResolver(true).resolve(request));
+
+        MockHttpServletRequest invalid = request(PROXY);
+        invalid.addHeader("X-Real-IP", "not-an-ip");
+        assertEquals(PROXY, newResolver(true).resolve(invalid));
+    }
+
+    @Test
+    void cachesResultOnRequest() {
+        MockHttpServletRequest request = request(PROXY);
+        request.addHeader("X-Forwarded-For", "198.51.100.7");
+        ClientIpResolver resolver = newResolver(true);
+        assertEquals("198.51.100.7", resolver.resolve(request));
+        assertEquals("198.51.100.7", request.getAttribute(ClientIpResolver.CLIENT_IP_ATTRIBUTE));
+        request.setAttribute(ClientIpResolver.CLIENT_IP_ATTRIBUTE, "cached");
+        assertEquals("cached", resolver.resolve(request));
+    }
+
+    private static ClientIpResolver newResolver(boolean useForwardedHeader) {
+        EccAutoConfigProperties properties = new EccAutoConfigProperties();
+        properties.getClientIp().setTrustedProxies(Arrays.asList("10.0.0.0/8", "fd00::/8", " "));
+        properties.getClientIp().setUseForwardedHeader(useForwardedHeader);
+        return new ClientIpResolver(properties);
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+}
@@ -0,0 +1,80 @@
+package io.github.jasonlat.middleware.context;
+
+import io.github.jasonlat.middleware.cache.userkey.MappedUserKeyStore;
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
+import io.github.jasonlat.middleware.domain.service.EccUserDataService;
+import io.github.jasonlat.middleware.domain.service.UserDataLoadGuard;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用户上下文缓存测试
+ *
+ * @author jasonlat
+ */
+class EccContextCacheTest {
+
+    @Test
+    void keepsStoredLoadTimeOnSecondLevelHit() throws Exception {
+        EccAutoConfigProperties properties = new EccAutoConfigProperties();
+        properties.getUserKeyStore().setEnabled(true);
+        properties.getUserKeyStore().setPath(newPath().toString());
+        properties.getUserKeyStore().setCapacity(512L);
+        MappedUserKeyStore userKeyStore = new MappedUserKeyStore(properties);
+        UserPublicData alice = new UserPublicData(repeat("ab", 32), repeat("cd", 32));
+        long before = System.currentTimeMillis();
+        userKeyStore.put("alice", alice);
+        long after = System.currentTimeMillis();
+        Thread.sleep(50);
+
+        AtomicInteger loads = new AtomicInteger();
+        UserDataLoadGuard loadGuard = new UserDataLoadGuard(new EccUserDataService() {
+            @Override
+            public UserPublicData loadUserPublicData(String userId) {
+                loads.incrementAndGet();
+                return alice;
+            }
+
+            @Override
+            public String getCurrentUser() {
+                return null;
+            }
+        }, properties);
+        try {
+            // 堆内缓存为空（如重启后），由二级存储恢复，年龄从记录写入时算起
+            EccContext context = new EccContextCache(properties, loadGuard, userKeyStore).get("alice");
+            assertEquals(alice, context.getUserPublicData());
+            assertEquals(0, loads.get());
+            long loadTime = context.getLoadTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            assertTrue(loadTime >= before && loadTime <= after, "Load time: " + loadTime);
+        } finally {
+            loadGuard.destroy();
+            userKeyStore.destroy();
+        }
+    }
+
+    private static Path newPath() throws IOException {
+        Path directory = Files.createTempDirectory("ecc-context-cache");
+        directory.toFile().deleteOnExit();
+        Path path = directory.resolve("keys.bin");
+        path.toFile().deleteOnExit();
+        return path;
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder(value.length() * count);
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
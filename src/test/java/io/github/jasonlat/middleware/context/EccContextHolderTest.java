@@ -0,0 +1,97 @@
+package io.github.jasonlat.middleware.context;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * ECC上下文传播测试（请求之外，使用线程回退存储）
+ *
+ * @author jasonlat
+ */
+class EccContextHolderTest {
+
+    @AfterEach
+    void clear() {
+        EccContextHolder.clearThreadContext();
+    }
+
+    @Test
+    void propagatesContextToRunnable() throws Exception {
+        EccContextHolder.bindThreadContext(context("alice"), null);
+        AtomicReference<String> seen = new AtomicReference<>();
+        Runnable task = EccContextHolder.wrap(() -> seen.set(EccContextHolder.getContext().getUser()));
+        runOnOtherThread(task);
+        assertEquals("alice", seen.get());
+    }
+
+    @Test
+    void propagatesContextToCallableAndSupplier() throws Exception {
+        EccContext resolved = context("bob");
+        EccContextHolder.bindThreadContext(context("bob"), resolved);
+        Callable<String> callable = EccContextHolder.wrap(() -> EccContextHolder.getContext().getUser());
+        Supplier<EccContext> supplier = EccContextHolder.wrapSupplier(EccContextHolder::getResolvedContext);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals("bob", executor.submit(callable).get());
+            assertSame(resolved, CompletableFuture.supplyAsync(supplier, executor).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void restoresPreviousContextAfterTask() {
+        EccContext outer = context("outer");
+        EccContextHolder.bindThreadContext(context("inner"), null);
+        Runnable task = EccContextHolder.wrap(() -> assertEquals("inner", EccContextHolder.getContext().getUser()));
+        // 在已绑定其他上下文的线程上执行（如调用方线程直接执行）
+        EccContextHolder.bindThreadContext(outer, null);
+        task.run();
+        assertSame(outer, EccContextHolder.getContext());
+    }
+
+    @Test
+    void returnsTaskUnchangedWithoutContext() {
+        Runnable runnable = () -> { };
+        Callable<String> callable = () -> "value";
+        Supplier<String> supplier = () -> "value";
+        assertSame(runnable, EccContextHolder.wrap(runnable));
+        assertSame(callable, EccContextHolder.wrap(callable));
+        assertSame(supplier, EccContextHolder.wrapSupplier(supplier));
+    }
+
+    @Test
+    void rethrowsUncheckedExceptionsAndRestores() {
+        EccContextHolder.bindThreadContext(context("alice"), null);
+        Supplier<String> supplier = EccContextHolder.wrapSupplier(() -> {
+            throw new IllegalArgumentException("boom");
+        });
+        EccContextHolder.clearThreadContext();
+        assertThrows(IllegalArgumentException.class, supplier::get);
+        assertNull(EccContextHolder.getContext());
+    }
+
+    private static void runOnOtherThread(Runnable task) throws InterruptedException {
+        Thread thread = new Thread(task);
+        thread.start();
+        thread.join();
+    }
+
+    private static EccContext context(String user) {
+        EccContext context = new EccContext();
+        context.setUser(user);
+        return context;
+    }
+}
@@ -0,0 +1,154 @@
+package io.github.jasonlat.middleware.domain.service;
+
+import io.github.jasonlat.middleware.config.EccAutoConfigProperties;
+import io.github.jasonlat.middleware.domain.model.entity.UserPublicData;
+import io.github.jasonlat.middleware.exception.ServiceUnavailableException;
+import io.github.jasonlat.middleware.exception.UserDataUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用户数据加载保护测试
+ *
+ * @author jasonlat
+ */
+class UserDataLoadGuardTest {
+
+    private static final UserPublicData USER_DATA = UserPublicData.builder().x("x").y("y").build();
+
+    @Test
+    void callsServiceDirectlyWhenDisabled() throws Exception {
+        EccAutoConfigProperties properties = new EccAutoConfigProperties();
+        properties.getUserDataLoad().setMaxConcurrent(1);
+        CountDownLatch release = new CountDownLatch(1);
+        UserDataLoadGuard guard = new UserDataLoadGuard(service(userId -> {
+            await(release);
+            return USER_DATA;
+        }), properties);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<UserPublicData> first = callers.submit(() -> guard.load("alice"));
+            Future<UserPublicData> second = callers.submit(() -> guard.load("bob"));
+            release.countDown();
+            // 未开启时不受 max-concurrent 限制
+            assertSame(USER_DATA, first.get(5, TimeUnit.SECONDS));
+            assertSame(USER_DATA, second.get(5, TimeUnit.SECONDS));
+        } finally {
+            callers.shutdownNow();
+            guard.destroy();
+        }
+        assertEquals(Boolean.FALSE, guard.getMetrics().get("enabled"));
+    }
+
+    @Test
+    void rejectsImmediatelyWhenSaturated() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        UserDataLoadGuard guard = new UserDataLoadGuard(service(userId -> {
+            started.countDown();
+            await(release);
+            return USER_DATA;
+        }), enabled(0L));
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        try {
+            Future<UserPublicData> first = callers.submit(() -> guard.load("alice"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            ServiceUnavailableException e = assertThrows(UserDataUnavailableException.class, () -> guard.load("bob"));
+            assertEquals(UserDataUnavailableException.ERROR_CODE, e.getErrorCode());
+            release.countDown();
+            assertSame(USER_DATA, first.get(5, TimeUnit.SECONDS));
+        } finally {
+            callers.shutdownNow();
+            guard.destroy();
+        }
+    }
+
+    @Test
+    void waitsForPermitUpToAcquireTimeout() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        UserDataLoadGuard guard = new UserDataLoadGuard(service(userId -> {
+            started.countDown();
+            sleep(100L);
+            return USER_DATA;
+        }), enabled(5000L));
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        try {
+            Future<UserPublicData> first = callers.submit(() -> guard.load("alice"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            // 第一个加载结束释放额度后获得执行
+            assertSame(USER_DATA, guard.load("bob"));
+            assertSame(USER_DATA, first.get(5, TimeUnit.SECONDS));
+            assertEquals(0L, guard.getMetrics().get("rejected"));
+        } finally {
+            callers.shutdownNow();
+            guard.destroy();
+        }
+    }
+
+    @Test
+    void opensCircuitAfterConsecutiveFailures() {
+        EccAutoConfigProperties properties = enabled(0L);
+        properties.getUserDataLoad().setFailureThreshold(2);
+        UserDataLoadGuard guard = new UserDataLoadGuard(service(userId -> {
+            throw new IllegalStateException("down");
+        }), properties);
+        try {
+            assertThrows(IllegalStateException.class, () -> guard.load("alice"));
+            assertThrows(IllegalStateException.class, () -> guard.load("alice"));
+            UserDataUnavailableException e = assertThrows(UserDataUnavailableException.class, () -> guard.load("alice"));
+            assertTrue(e.getRetryAfterSeconds() >= 1L);
+            assertEquals("OPEN", guard.getState());
+        } finally {
+            guard.destroy();
+        }
+    }
+
+    private static EccUserDataService service(Function<String, UserPublicData> loader) {
+        return new EccUserDataService() {
+            @Override
+            public UserPublicData loadUserPublicData(String userId) {
+                return loader.apply(userId);
+            }
+
+            @Override
+            public String getCurrentUser() {
+                return null;
+            }
+        };
+    }
+
+    private static EccAutoConfigProperties enabled(long acquireTimeoutMillis) {
+        EccAutoConfigProperties properties = new EccAutoConfigProperties();
+        properties.getUserDataLoad().setEnabled(true);
+        properties.getUserDataLoad().setMaxConcurrent(1);
+        properties.getUserDataLoad().setAcquireTimeoutMillis(acquireTimeoutMillis);
+        return properties;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
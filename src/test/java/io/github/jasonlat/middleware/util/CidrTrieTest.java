@@ -0,0 +1,103 @@
+package io.github.jasonlat.middleware.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CIDR 前缀树测试
+ *
+ * @author jasonlat
+ */
+class CidrTrieTest {
+
+    @Test
+    void matchesIpv4Prefixes() {
+        CidrTrie trie = new CidrTrie();
+        trie.add("10.0.0.0/8");
+        trie.add("192.168.1.0/24");
+        trie.add("172.16.0.0/12");
+        assertTrue(trie.contains("10.255.1.2"));
+        assertTrue(trie.contains("192.168.1.200"));
+        assertFalse(trie.contains("192.168.2.1"));
+        assertTrue(trie.contains("172.31.255.255"));
+        assertFalse(trie.contains("172.32.0.0"));
+        assertFalse(trie.contains("11.0.0.1"));
+    }
+
+    @Test
+    void matchesSingleAddressAndWholeRange() {
+        CidrTrie trie = new CidrTrie();
+        trie.add("203.0.113.7");
+        assertTrue(trie.contains("203.0.113.7"));
+        assertFalse(trie.contains("203.0.113.8"));
+
+        CidrTrie all = new CidrTrie();
+        all.add("0.0.0.0/0");
+        assertTrue(all.contains("8.8.8.8"));
+        // IPv4 全网段不覆盖 IPv6
+        assertFalse(all.contains("2001:db8::1"));
+    }
+
+    @Test
+    void matchesIpv6Prefixes() {
+        CidrTrie trie = new CidrTrie();
+        trie.add("fc00::/7");
+        trie.add("::1");
+        assertTrue(trie.contains("fd12:3456::1"));
+        assertTrue(trie.contains("[fd00::abcd]"));
+        assertTrue(trie.contains("::1"));
+        assertFalse(trie.contains("fe80::1"));
+        assertFalse(trie.contains("::2"));
+    }
+
+    @Test
+    void treatsIpv4MappedAddressAsIpv4() {
+        CidrTrie trie = new CidrTrie();
+        trie.add("10.0.0.0/8");
+        assertTrue(trie.contains("::ffff:10.1.2.3"));
+        assertArrayEquals(new byte[]{10, 1, 2, 3}, CidrTrie.parseAddress("::ffff:10.1.2.3"));
+    }
+
+    @Test
+    void rejectsNonLiteralAddresses() {
+        // 主机名不做 DNS 解析
+        assertNull(CidrTrie.parseAddress("localhost"));
+        assertNull(CidrTrie.parseAddress("example.com"));
+        assertNull(CidrTrie.parseAddress("unknown"));
+        assertNull(CidrTrie.parseAddress("_hidden"));
+        assertNull(CidrTrie.parseAddress("256.0.0.1"));
+        assertNull(CidrTrie.parseAddress("1.2.3"));
+        assertNull(CidrTrie.parseAddress("1.2.3.4.5"));
+        assertNull(CidrTrie.parseAddress("1..2.3"));
+        assertNull(CidrTrie.parseAddress("0001.2.3.4"));
+        assertNull(CidrTrie.parseAddress("2001:db8::zz"));
+        assertNull(CidrTrie.parseAddress(""));
+        assertNull(CidrTrie.parseAddress(null));
+        assertFalse(new CidrTrie().contains((byte[]) null));
+    }
+
+    @Test
+    void rejectsInvalidCidr() {
+        CidrTrie trie = new CidrTrie();
+        assertThrows(IllegalArgumentException.class, () -> trie.add("10.0.0.0/33"));
+        assertThrows(IllegalArgumentException.class, () -> trie.add("10.0.0.0/-1"));
+        assertThrows(IllegalArgumentException.class, () -> trie.add("10.0.0.0/x"));
+        assertThrows(IllegalArgumentException.class, () -> trie.add("fc00::/129"));
+        assertThrows(IllegalArgumentException.class, () -> trie.add("proxy.internal/8"));
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        CidrTrie trie = new CidrTrie();
+        for (int i = 0; i < 256; i++) {
+            trie.add("10." + i + ".0.0/16");
+        }
+        assertTrue(trie.contains("10.255.1.1"));
+        assertFalse(trie.contains("11.0.0.0"));
+    }
+}
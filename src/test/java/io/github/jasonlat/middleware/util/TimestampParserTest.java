@@ -0,0 +1,133 @@
+package io.github.jasonlat.middleware.util;
+
+import io.github.jasonlat.middleware.domain.model.valobj.TimestampFormat;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 时间戳解析测试
+ *
+ * @author jasonlat
+ */
+class TimestampParserTest {
+
+    private static final long EPOCH = 1704067200000L;
+
+    @Test
+    void parsesOffsets() {
+        assertEquals(EPOCH, iso("2024-01-01T00:00:00Z"));
+        assertEquals(EPOCH, iso("2024-01-01t00:00:00z"));
+        assertEquals(EPOCH, iso("2024-01-01T08:00:00+08"));
+        assertEquals(EPOCH, iso("2024-01-01T08:00:00+0800"));
+        assertEquals(EPOCH, iso("2024-01-01T08:00:00+08:00"));
+        assertEquals(EPOCH, iso("2023-12-31T18:30:00-05:30"));
+        assertEquals(EPOCH, iso("2023-12-31T18:30:00-0530"));
+        assertEquals(EPOCH, iso("2023-12-31T19:00:00-05"));
+        // 秒可省略
+        assertEquals(EPOCH, iso("2024-01-01T08:00+08:00"));
+        assertEquals(javaTime("2024-06-15T23:45:12+14:00"), iso("2024-06-15T23:45:12+14:00"));
+        assertEquals(javaTime("1970-01-01T00:00:00-18:00"), iso("1970-01-01T00:00:00-18:00"));
+    }
+
+    @Test
+    void parsesFractionsOfZeroToNineDigits() {
+        assertEquals(EPOCH, iso("2024-01-01T00:00:00Z"));
+        assertEquals(EPOCH + 100, iso("2024-01-01T00:00:00.1Z"));
+        assertEquals(EPOCH + 120, iso("2024-01-01T00:00:00.12Z"));
+        assertEquals(EPOCH + 123, iso("2024-01-01T00:00:00.123Z"));
+        assertEquals(EPOCH + 123, iso("2024-01-01T00:00:00.1234Z"));
+        assertEquals(EPOCH + 123, iso("2024-01-01T00:00:00.123456+00:00"));
+        // 超过毫秒的部分截断，不四舍五入
+        assertEquals(EPOCH + 999, iso("2024-01-01T00:00:00.999999999Z"));
+        for (int digits = 1; digits <= 9; digits++) {
+            String value = "2024-02-29T12:34:56." + "987654321".substring(0, digits) + "+08:00";
+            assertEquals(javaTime(value), iso(value), value);
+        }
+    }
+
+    @Test
+    void treatsLeapSecondAsLastSecondOfMinute() {
+        assertEquals(javaTime("2016-12-31T23:59:59Z"), iso("2016-12-31T23:59:60Z"));
+        assertEquals(javaTime("2016-12-31T23:59:59.500Z"), iso("2016-12-31T23:59:60.5Z"));
+        assertEquals(TimestampParser.INVALID, iso("2016-12-31T23:59:61Z"));
+    }
+
+    @Test
+    void matchesJavaTimeAcrossCalendar() {
+        String[] values = {
+                "1970-01-01T00:00:00Z",
+                "1999-12-31T23:59:59.999Z",
+                "2000-02-29T00:00:00Z",
+                "2100-03-01T00:00:00+01:00",
+                "2400-02-29T12:00:00-12:00",
+                "1969-12-31T23:59:59.001Z",
+        };
+        for (String value : values) {
+            assertEquals(javaTime(value), iso(value), value);
+        }
+    }
+
+    @Test
+    void parsesEpochMillisAndAutoDetects() {
+        assertEquals(EPOCH, TimestampParser.parse("1704067200000", TimestampFormat.EPOCH_MILLIS));
+        assertEquals(0L, TimestampParser.parse("0", TimestampFormat.EPOCH_MILLIS));
+        assertEquals(EPOCH, TimestampParser.parse("1704067200000", TimestampFormat.AUTO));
+        assertEquals(EPOCH + 123, TimestampParser.parse("2024-01-01T00:00:00.123Z", TimestampFormat.AUTO));
+        // ISO-8601 格式不接受纯数字，毫秒格式不接受 ISO-8601
+        assertEquals(TimestampParser.INVALID, TimestampParser.parse("1704067200000", TimestampFormat.ISO_8601));
+        assertEquals(TimestampParser.INVALID, TimestampParser.parse("2024-01-01T00:00:00Z", TimestampFormat.EPOCH_MILLIS));
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        String[] values = {
+                "",
+                "2024-01-01",
+                "2024-01-01T00:00:00",
+                "2024-01-01 00:00:00Z",
+                "2024/01/01T00:00:00Z",
+                "2024-01-01T00:00:00.Z",
+                "2024-01-01T00:00:00.1234567890Z",
+                "2024-01-01T00:00:00ZZ",
+                "2024-01-01T00:00:00+8",
+                "2024-01-01T00:00:00+08:0",
+                "2024-01-01T00:00:00+08:00:00",
+                "2024-01-01T00:00:00+19:00",
+                "2024-01-01T00:00:00+08:60",
+                "2024-13-01T00:00:00Z",
+                "2024-00-01T00:00:00Z",
+                "2023-02-29T00:00:00Z",
+                "2024-04-31T00:00:00Z",
+                "2024-01-01T24:00:00Z",
+                "2024-01-01T00:60:00Z",
+                "2024-01-01T0a:00:00Z",
+                "-2024-01-01T00:00:00Z",
+        };
+        for (String value : values) {
+            assertEquals(TimestampParser.INVALID, iso(value), value);
+            assertEquals(TimestampParser.INVALID, TimestampParser.parse(value, TimestampFormat.AUTO), value);
+        }
+    }
+
+    @Test
+    void rejectsMalformedOrOverflowingEpochMillis() {
+        String[] values = {"", "-1", "+1", "12a4", "1.5", " 1", "1000000000000000000", "99999999999999999999"};
+        for (String value : values) {
+            assertEquals(TimestampParser.INVALID, TimestampParser.parse(value, TimestampFormat.EPOCH_MILLIS), value);
+        }
+        // 18 位是上限，不会溢出为负数
+        assertEquals(999_999_999_999_999_999L, TimestampParser.parse("999999999999999999", TimestampFormat.EPOCH_MILLIS));
+        assertEquals(TimestampParser.INVALID, TimestampParser.parse("99999999999999999999", TimestampFormat.AUTO));
+    }
+
+    private static long iso(String value) {
+        return TimestampParser.parse(value, TimestampFormat.ISO_8601);
+    }
+
+    private static long javaTime(String value) {
+        return OffsetDateTime.parse(value).toInstant().toEpochMilli();
+    }
+}